@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.benchmark;
+
+//JDK imports
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+//APACHE imports
+import org.apache.commons.io.FileUtils;
+
+/**
+ * <p>
+ * Scratch files for the benchmarks: temporary working directories, and
+ * configuration copied out of the benchmark jar for components that only read
+ * it from disk.
+ * </p>
+ */
+public final class BenchmarkFiles {
+
+    /* held so the level set on it is not lost when it is garbage collected */
+    private static final Logger OODT_LOG = Logger.getLogger("org.apache.oodt");
+
+    private BenchmarkFiles() {
+    }
+
+    /**
+     * Keeps the components' per-operation logging out of the measurements
+     * (e.g. the warning that a transfer has no file manager to notify).
+     */
+    public static void quietLogging() {
+        OODT_LOG.setLevel(Level.SEVERE);
+    }
+
+    public static File createTempDir(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        if (!dir.delete() || !dir.mkdirs()) {
+            throw new IOException("Unable to create temp dir: ["
+                    + dir.getAbsolutePath() + "]");
+        }
+        return dir;
+    }
+
+    /**
+     * Copies a classpath resource into a directory.
+     *
+     * @param resource
+     *            The absolute path of the resource.
+     * @param dir
+     *            The directory to copy it to.
+     * @return The copied file, named as the last part of the resource path.
+     */
+    public static File copyResource(String resource, File dir)
+            throws IOException {
+        InputStream in = BenchmarkFiles.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new FileNotFoundException("No resource: [" + resource + "]");
+        }
+        File file = new File(dir, resource.substring(resource
+                .lastIndexOf('/') + 1));
+        try {
+            FileUtils.copyInputStreamToFile(in, file);
+        } finally {
+            in.close();
+        }
+        return file;
+    }
+
+    public static void delete(File file) {
+        if (file != null) {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+}
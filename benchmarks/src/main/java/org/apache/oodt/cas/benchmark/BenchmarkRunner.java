@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.benchmark;
+
+//JDK imports
+import java.io.File;
+import java.io.IOException;
+
+//JMH imports
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>
+ * Runs the OODT benchmarks. Takes the same arguments as the JMH command line
+ * (e.g. a benchmark name regex, <code>-f</code>, <code>-wi</code>,
+ * <code>-i</code>), but unless a result format is given with <code>-rf</code>
+ * the results are written as JSON to <code>target/jmh-result.json</code>, so
+ * that runs can be compared from one release to the next without leaving
+ * result files in the source tree.
+ * </p>
+ */
+public final class BenchmarkRunner {
+
+    public static final String DEFAULT_RESULT_FILE = "target" + File.separator
+            + "jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp() || cmdOptions.shouldList()
+                || cmdOptions.shouldListProfilers()
+                || cmdOptions.shouldListResultFormats()
+                || cmdOptions.shouldListWithParams()) {
+            // leave the informational options to JMH itself
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(cmdOptions);
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+            if (!cmdOptions.getResult().hasValue()) {
+                File resultFile = new File(DEFAULT_RESULT_FILE);
+                if (!resultFile.getParentFile().isDirectory()
+                        && !resultFile.getParentFile().mkdirs()) {
+                    throw new IOException("Unable to create directory for "
+                            + "benchmark results: "
+                            + resultFile.getParentFile());
+                }
+                options.result(DEFAULT_RESULT_FILE);
+            }
+        }
+        new Runner(options.build()).run();
+    }
+}
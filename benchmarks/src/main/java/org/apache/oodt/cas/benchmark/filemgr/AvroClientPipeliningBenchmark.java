@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.benchmark.filemgr;
+
+//JDK imports
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+//OODT imports
+import org.apache.oodt.cas.benchmark.BenchmarkFiles;
+import org.apache.oodt.cas.filemgr.structs.Product;
+import org.apache.oodt.cas.filemgr.structs.ProductType;
+import org.apache.oodt.cas.filemgr.structs.avrotypes.AvroFileManager;
+import org.apache.oodt.cas.filemgr.structs.avrotypes.AvroProduct;
+import org.apache.oodt.cas.filemgr.system.AvroFileManagerClient;
+import org.apache.oodt.cas.filemgr.system.AvroFileManagerServer;
+import org.apache.oodt.cas.filemgr.util.AvroTypeFactory;
+
+//Avro imports
+import org.apache.avro.ipc.NettyServer;
+import org.jboss.netty.handler.execution.ExecutionHandler;
+
+//JMH imports
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Throughput of {@link AvroFileManagerClient#getProductById(String)} calls
+ * made one after the other against the same calls pipelined with
+ * {@link AvroFileManagerClient#getProductByIdAsync(String)}. The server is a
+ * stand-in for the file manager that takes <code>serviceMillis</code> to
+ * answer each call, dispatched on a worker pool the way
+ * {@link AvroFileManagerServer} dispatches them.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class AvroClientPipeliningBenchmark {
+
+    private static final int CALLS = 64;
+
+    @Param({ "0", "1" })
+    public int serviceMillis;
+
+    private NettyServer server;
+
+    private ExecutionHandler executionHandler;
+
+    private AvroFileManagerClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkFiles.quietLogging();
+
+        Product product = new Product();
+        product.setProductId("urn:oodt:benchmark");
+        product.setProductName("benchmark");
+        ProductType type = new ProductType();
+        type.setName("GenericFile");
+        product.setProductType(type);
+        final AvroProduct avroProduct = AvroTypeFactory.getAvroProduct(product);
+
+        AvroFileManager fileManager = (AvroFileManager) Proxy.newProxyInstance(
+                AvroFileManager.class.getClassLoader(),
+                new Class<?>[] { AvroFileManager.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) throws Throwable {
+                        if (method.getName().equals("isAlive")) {
+                            return true;
+                        }
+                        if (serviceMillis > 0) {
+                            Thread.sleep(serviceMillis);
+                        }
+                        return avroProduct;
+                    }
+                });
+
+        executionHandler = new ExecutionHandler(Executors.newFixedThreadPool(
+                AvroFileManagerServer.DEFAULT_WORKER_THREADS));
+        server = AvroFileManagerServer.newNettyServer(fileManager, 0,
+                executionHandler);
+        server.start();
+        client = new AvroFileManagerClient(new URL("http://localhost:"
+                + server.getPort()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+        executionHandler.releaseExternalResources();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public int sequential() throws Exception {
+        int found = 0;
+        for (int i = 0; i < CALLS; i++) {
+            found += client.getProductById("urn:oodt:benchmark") != null ? 1
+                    : 0;
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public int pipelined() throws Exception {
+        List<Future<Product>> products = new ArrayList<Future<Product>>(CALLS);
+        for (int i = 0; i < CALLS; i++) {
+            products.add(client.getProductByIdAsync("urn:oodt:benchmark"));
+        }
+        int found = 0;
+        for (Future<Product> product : products) {
+            found += product.get() != null ? 1 : 0;
+        }
+        return found;
+    }
+
+}
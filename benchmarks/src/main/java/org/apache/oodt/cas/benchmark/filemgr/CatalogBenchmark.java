@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.benchmark.filemgr;
+
+//JDK imports
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+//OODT imports
+import org.apache.oodt.cas.benchmark.BenchmarkFiles;
+import org.apache.oodt.cas.filemgr.catalog.Catalog;
+import org.apache.oodt.cas.filemgr.catalog.DataSourceCatalog;
+import org.apache.oodt.cas.filemgr.catalog.LuceneCatalog;
+import org.apache.oodt.cas.filemgr.catalog.LuceneCatalogFactory;
+import org.apache.oodt.cas.filemgr.metadata.CoreMetKeys;
+import org.apache.oodt.cas.filemgr.structs.Product;
+import org.apache.oodt.cas.filemgr.structs.ProductType;
+import org.apache.oodt.cas.filemgr.structs.Query;
+import org.apache.oodt.cas.filemgr.structs.Reference;
+import org.apache.oodt.cas.filemgr.structs.TermQueryCriteria;
+import org.apache.oodt.cas.filemgr.validation.XMLValidationLayer;
+import org.apache.oodt.cas.metadata.Metadata;
+import org.apache.oodt.commons.database.DatabaseConnectionBuilder;
+import org.apache.oodt.commons.database.SqlScript;
+
+//JMH imports
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Ingest (product, references, then metadata) and lookup costs of the
+ * {@link DataSourceCatalog}, against an embedded HSQLDB database, and of the
+ * {@link LuceneCatalog}, against a local index directory. Each trial starts
+ * from a catalog holding <code>products</code> products.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogBenchmark {
+
+    private static final String POLICY = "/org/apache/oodt/cas/benchmark/filemgr/policy/";
+
+    private static final String SCHEMA = "/org/apache/oodt/cas/benchmark/filemgr/catalog.sql";
+
+    private static final String PRODUCT_TYPE_ID = "urn:oodt:GenericFile";
+
+    @Param({ "datasource", "lucene" })
+    public String catalogType;
+
+    @Param({ "1000" })
+    public int products;
+
+    private File workDir;
+
+    private Catalog catalog;
+
+    private ProductType productType;
+
+    private List<Product> ingested;
+
+    private int next = 0;
+
+    private long ingestCount = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkFiles.quietLogging();
+        workDir = BenchmarkFiles.createTempDir("catalog-benchmark");
+        File policyDir = new File(workDir, "policy");
+        BenchmarkFiles.copyResource(POLICY + "elements.xml", policyDir);
+        BenchmarkFiles.copyResource(POLICY + "product-type-element-map.xml",
+                policyDir);
+        XMLValidationLayer valLayer = new XMLValidationLayer(
+                Collections.singletonList(policyDir.toURI().toString()));
+
+        if ("lucene".equals(catalogType)) {
+            System.setProperty(
+                    "org.apache.oodt.cas.filemgr.catalog.lucene.idxPath",
+                    new File(workDir, "index").getAbsolutePath());
+            System.setProperty("org.apache.oodt.cas.filemgr.validation.dirs",
+                    policyDir.toURI().toString());
+            catalog = new LuceneCatalogFactory().createCatalog();
+        } else {
+            DataSource ds = DatabaseConnectionBuilder.buildDataSource("sa",
+                    "", "org.hsqldb.jdbcDriver", "jdbc:hsqldb:file:"
+                            + new File(workDir, "cat").getAbsolutePath()
+                            + ";shutdown=true");
+            SqlScript schema = new SqlScript(BenchmarkFiles.copyResource(
+                    SCHEMA, workDir).getAbsolutePath(), ds);
+            schema.loadScript();
+            schema.execute();
+            catalog = new DataSourceCatalog(ds, valLayer, true, 20, 5L);
+        }
+
+        productType = newProduct("type").getProductType();
+        ingested = new ArrayList<Product>(products);
+        for (int i = 0; i < products; i++) {
+            ingested.add(ingest());
+        }
+        // don't time lookups that find nothing
+        if (query().size() != 1) {
+            throw new IllegalStateException("Ingested products are not "
+                    + "visible in the [" + catalogType + "] catalog");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (catalog instanceof LuceneCatalog) {
+            ((LuceneCatalog) catalog).close();
+        }
+        BenchmarkFiles.delete(workDir);
+    }
+
+    @Benchmark
+    public Product addProduct() throws Exception {
+        return ingest();
+    }
+
+    @Benchmark
+    public Metadata getMetadata() throws Exception {
+        return catalog.getMetadata(nextIngested());
+    }
+
+    @Benchmark
+    public List<String> query() throws Exception {
+        Query query = new Query();
+        query.addCriterion(new TermQueryCriteria("CAS.ProductName",
+                nextIngested().getProductName()));
+        return catalog.query(query, productType);
+    }
+
+    private Product nextIngested() {
+        Product product = ingested.get(next);
+        next = (next + 1) % ingested.size();
+        return product;
+    }
+
+    private Product ingest() throws Exception {
+        String name = "product-" + ingestCount++;
+        Product product = newProduct(name);
+        catalog.addProduct(product);
+        // the same sequence as a file manager ingest: the Lucene catalog only
+        // indexes a product once it has both references and metadata
+        product.getProductReferences().add(
+                new Reference("file:///data/staging/" + name + ".dat",
+                        "file:///data/archive/" + name + ".dat", 1024L));
+        catalog.addProductReferences(product);
+
+        Metadata met = new Metadata();
+        met.addMetadata("CAS.ProductName", name);
+        met.addMetadata(CoreMetKeys.PRODUCT_TYPE, "GenericFile");
+        met.addMetadata(CoreMetKeys.FILENAME, name + ".dat");
+        met.addMetadata(CoreMetKeys.FILE_LOCATION, "/data/archive");
+        met.addMetadata("NominalDate", "2008-01-20");
+        met.addMetadata("DataVersion", "3.6");
+        catalog.addMetadata(met, product);
+        return product;
+    }
+
+    private static Product newProduct(String name) {
+        Product product = Product.getDefaultFlatProduct(name, PRODUCT_TYPE_ID);
+        product.getProductType().setName("GenericFile");
+        return product;
+    }
+}
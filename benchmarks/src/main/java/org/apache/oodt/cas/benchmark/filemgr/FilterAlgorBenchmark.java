@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oodt.cas.benchmark.filemgr;
+
+//JDK imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//OODT imports
+import org.apache.oodt.cas.filemgr.structs.query.filter.FilterAlgor;
+import org.apache.oodt.cas.filemgr.structs.query.filter.ObjectTimeEvent;
+import org.apache.oodt.cas.filemgr.structs.query.filter.TimeEvent;
+import org.apache.oodt.cas.filemgr.structs.query.filter.WeightedIntervalFilterAlgor;
+import org.apache.oodt.commons.filter.TimeEventWeightedHash;
+
+//JMH imports
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Cost of filtering the overlapping granules of a complex query down to the
+ * run covering the most time, with {@link WeightedIntervalFilterAlgor} and
+ * with the graph built by {@link TimeEventWeightedHash}. Building the graph
+ * takes seconds at 10000 events and far longer at 100000: pass
+ * <code>-p events=1000,10000</code> to leave that size out.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class FilterAlgorBenchmark {
+
+    private static final long EPSILON = 2;
+
+    @Param({ "1000", "10000", "100000" })
+    public int events;
+
+    private List<TimeEvent> timeEvents;
+
+    private List<org.apache.oodt.commons.filter.TimeEvent> hashEvents;
+
+    private FilterAlgor algor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        timeEvents = new ArrayList<TimeEvent>(events);
+        hashEvents = new ArrayList<org.apache.oodt.commons.filter.TimeEvent>(
+                events);
+        long start = 0;
+        for (int i = 0; i < events; i++) {
+            // granules a few minutes apart, each overlapping the next few
+            start += random.nextInt(180000);
+            long end = start + 60000 + random.nextInt(600000);
+            double priority = random.nextInt(3);
+            timeEvents.add(new ObjectTimeEvent<Integer>(start, end, priority, i));
+            hashEvents
+                    .add(new org.apache.oodt.commons.filter.ObjectTimeEvent<Integer>(
+                            start, end, priority, i));
+        }
+        algor = new WeightedIntervalFilterAlgor();
+        algor.setEpsilon(EPSILON);
+    }
+
+    @Benchmark
+    public List<TimeEvent> weightedInterval() {
+        return algor.filterEvents(timeEvents);
+    }
+
+    @Benchmark
+    public List<? extends org.apache.oodt.commons.filter.TimeEvent> weightedHash() {
+        return TimeEventWeightedHash.buildHash(hashEvents, EPSILON)
+                .getGreatestWeightedPathAsOrderedList();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.benchmark.filemgr;
+
+//JDK imports
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//OODT imports
+import org.apache.oodt.cas.benchmark.BenchmarkFiles;
+import org.apache.oodt.cas.filemgr.datatransfer.LocalDataTransferer;
+import org.apache.oodt.cas.filemgr.structs.Product;
+import org.apache.oodt.cas.filemgr.structs.Reference;
+
+//JMH imports
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Throughput of {@link LocalDataTransferer#transferProduct(Product)} for a
+ * flat product of <code>files</code> files of <code>fileSize</code> bytes
+ * each, from a staging directory into an archive directory. Multiply the
+ * score by <code>files * fileSize</code> for bytes per second.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalDataTransfererBenchmark {
+
+    @Param({ "4" })
+    public int files;
+
+    @Param({ "65536", "16777216" })
+    public int fileSize;
+
+    private File workDir;
+
+    private LocalDataTransferer transferer;
+
+    private Product product;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkFiles.quietLogging();
+        workDir = BenchmarkFiles.createTempDir("transfer-benchmark");
+        File staging = new File(workDir, "staging");
+        File archive = new File(workDir, "archive");
+        if (!staging.mkdirs() || !archive.mkdirs()) {
+            throw new IllegalStateException("Unable to create directories in: ["
+                    + workDir.getAbsolutePath() + "]");
+        }
+
+        product = Product.getDefaultFlatProduct("granule",
+                "urn:oodt:GenericFile");
+        byte[] data = new byte[fileSize];
+        new Random(0).nextBytes(data);
+        for (int i = 0; i < files; i++) {
+            File file = new File(staging, "file" + i + ".dat");
+            OutputStream out = new FileOutputStream(file);
+            try {
+                out.write(data);
+            } finally {
+                out.close();
+            }
+            product.getProductReferences().add(
+                    new Reference(file.toURI().toString(), new File(archive,
+                            file.getName()).toURI().toString(), fileSize));
+        }
+
+        // no file manager: the transfers are not tracked
+        transferer = new LocalDataTransferer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFiles.delete(workDir);
+    }
+
+    @Benchmark
+    public Product transferProduct() throws Exception {
+        transferer.transferProduct(product);
+        return product;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.benchmark.filemgr;
+
+//JDK imports
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//OODT imports
+import org.apache.oodt.cas.benchmark.BenchmarkFiles;
+import org.apache.oodt.cas.filemgr.datatransfer.StreamingDataTransferer;
+import org.apache.oodt.cas.filemgr.datatransfer.StreamingTransferServer;
+
+//JMH imports
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Throughput of {@link StreamingDataTransferer#transferFile(File, String)}
+ * for one file of <code>fileSize</code> bytes split over up to
+ * <code>numStreams</code> parallel streams, to a
+ * {@link StreamingTransferServer} on the loopback interface. Multiply the
+ * score by <code>fileSize</code> for bytes per second.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingDataTransfererBenchmark {
+
+    @Param({ "1", "4" })
+    public int numStreams;
+
+    @Param({ "16777216" })
+    public int fileSize;
+
+    private File workDir;
+
+    private StreamingTransferServer server;
+
+    private StreamingDataTransferer transferer;
+
+    private File source;
+
+    private String destPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkFiles.quietLogging();
+        workDir = BenchmarkFiles.createTempDir("streaming-benchmark");
+        File archive = new File(workDir, "archive");
+        if (!archive.mkdirs()) {
+            throw new IllegalStateException("Unable to create directory: ["
+                    + archive.getAbsolutePath() + "]");
+        }
+
+        source = new File(workDir, "file.dat");
+        byte[] data = new byte[fileSize];
+        new Random(0).nextBytes(data);
+        OutputStream out = new FileOutputStream(source);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        destPath = new File(archive, source.getName()).getAbsolutePath();
+
+        server = new StreamingTransferServer("localhost", 0, 16, archive);
+        server.startUp();
+
+        // no file manager listens here: only its host is used, and the
+        // transfers are not tracked
+        transferer = new StreamingDataTransferer(server.getPort(),
+                numStreams, fileSize / numStreams, 1);
+        transferer.setFileManagerUrl(new URL("http://localhost:1"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.shutdown();
+        BenchmarkFiles.delete(workDir);
+    }
+
+    @Benchmark
+    public String transferFile() throws Exception {
+        transferer.transferFile(source, destPath);
+        return destPath;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.benchmark.filemgr;
+
+//JDK imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//OODT imports
+import org.apache.oodt.cas.filemgr.structs.Product;
+import org.apache.oodt.cas.filemgr.structs.Reference;
+import org.apache.oodt.cas.filemgr.structs.avrotypes.AvroMetadata;
+import org.apache.oodt.cas.filemgr.structs.avrotypes.AvroProduct;
+import org.apache.oodt.cas.filemgr.util.AvroTypeFactory;
+import org.apache.oodt.cas.filemgr.util.XmlRpcStructFactory;
+import org.apache.oodt.cas.metadata.Metadata;
+
+//JMH imports
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Costs of converting {@link Product}s and {@link Metadata} to and from their
+ * XML-RPC ({@link XmlRpcStructFactory}) and Avro ({@link AvroTypeFactory})
+ * wire forms, as every file manager client call does.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StructConversionBenchmark {
+
+    private static final int REFERENCES = 10;
+
+    private static final int KEYS = 50;
+
+    private Product product;
+
+    private Metadata metadata;
+
+    private Map<String, Object> xmlRpcProduct;
+
+    private Map<String, Object> xmlRpcMetadata;
+
+    private AvroProduct avroProduct;
+
+    private AvroMetadata avroMetadata;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        product = Product.getDefaultFlatProduct("granule",
+                "urn:oodt:GenericFile");
+        product.setProductId("1");
+        product.getProductType().setName("GenericFile");
+        List<Reference> refs = new ArrayList<Reference>();
+        for (int i = 0; i < REFERENCES; i++) {
+            refs.add(new Reference("file:///staging/granule/file" + i + ".dat",
+                    "file:///archive/granule/file" + i + ".dat", 1024L * i));
+        }
+        product.setProductReferences(refs);
+
+        metadata = new Metadata();
+        for (int i = 0; i < KEYS; i++) {
+            metadata.addMetadata("Key" + i, "value" + i);
+        }
+
+        xmlRpcProduct = XmlRpcStructFactory.getXmlRpcProduct(product);
+        xmlRpcMetadata = metadata.getHashTable();
+        avroProduct = AvroTypeFactory.getAvroProduct(product);
+        avroMetadata = AvroTypeFactory.getAvroMetadata(metadata);
+    }
+
+    @Benchmark
+    public Map<String, Object> productToXmlRpc() {
+        return XmlRpcStructFactory.getXmlRpcProduct(product);
+    }
+
+    @Benchmark
+    public Product productFromXmlRpc() {
+        return XmlRpcStructFactory.getProductFromXmlRpc(xmlRpcProduct);
+    }
+
+    @Benchmark
+    public Map<String, Object> metadataToXmlRpc() {
+        return metadata.getHashTable();
+    }
+
+    @Benchmark
+    public Metadata metadataFromXmlRpc() {
+        Metadata met = new Metadata();
+        met.addMetadata(xmlRpcMetadata);
+        return met;
+    }
+
+    @Benchmark
+    public AvroProduct productToAvro() {
+        return AvroTypeFactory.getAvroProduct(product);
+    }
+
+    @Benchmark
+    public Product productFromAvro() {
+        return AvroTypeFactory.getProduct(avroProduct);
+    }
+
+    @Benchmark
+    public AvroMetadata metadataToAvro() {
+        return AvroTypeFactory.getAvroMetadata(metadata);
+    }
+
+    @Benchmark
+    public Metadata metadataFromAvro() {
+        return AvroTypeFactory.getMetadata(avroMetadata);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.benchmark.metadata;
+
+//JDK imports
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//OODT imports
+import org.apache.oodt.cas.metadata.Metadata;
+
+//JMH imports
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Costs of building, copying and reading {@link Metadata}, with
+ * <code>keys</code> keys of which every tenth is a grouped
+ * (<code>Group/Key</code>) key. Run with <code>-prof gc</code> to compare
+ * footprints: <code>gc.alloc.rate.norm</code> of {@link #addMetadata()} is the
+ * size of a built Metadata plus the garbage made building it, and of
+ * {@link #copyAndChange()} the cost of the copy every product, workflow task
+ * and PGE run makes of its metadata.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataBenchmark {
+
+    @Param({ "10", "100" })
+    public int keys;
+
+    private String[] names;
+
+    private Metadata metadata;
+
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        names = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            names[i] = (i % 10 == 9 ? "Group" + i + "/" : "") + "Key" + i;
+        }
+        metadata = build();
+    }
+
+    @Benchmark
+    public Metadata addMetadata() {
+        return build();
+    }
+
+    @Benchmark
+    public String getMetadata() {
+        return metadata.getMetadata(nextName());
+    }
+
+    @Benchmark
+    public Metadata replaceMetadata() {
+        metadata.replaceMetadata(nextName(), "replaced");
+        return metadata;
+    }
+
+    @Benchmark
+    public Metadata copyAndChange() {
+        Metadata copy = new Metadata(metadata);
+        copy.replaceMetadata(nextName(), "changed");
+        return copy;
+    }
+
+    @Benchmark
+    public List<String> getAllKeys() {
+        return metadata.getAllKeys();
+    }
+
+    @Benchmark
+    public Map<String, Object> getMap() {
+        return metadata.getMap();
+    }
+
+    private String nextName() {
+        String name = names[next];
+        next = (next + 1) % names.length;
+        return name;
+    }
+
+    private Metadata build() {
+        Metadata met = new Metadata();
+        for (String name : names) {
+            met.addMetadata(name, "value");
+        }
+        return met;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.benchmark.metadata;
+
+//JDK imports
+import java.util.concurrent.TimeUnit;
+
+//OODT imports
+import org.apache.oodt.cas.metadata.Metadata;
+import org.apache.oodt.cas.metadata.util.PathUtils;
+
+//JMH imports
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Cost of {@link PathUtils#doDynamicReplacement(String, Metadata)} on the kind
+ * of archive path templates versioners and naming conventions use.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathUtilsBenchmark {
+
+    private static final String METADATA_PATH = "/archive/[ProductType]/[Mission]/[Filename]";
+
+    private static final String DATE_PATH = "/archive/[ProductType]/[FORMAT(yyyy-MM-dd'T'HH:mm:ss.SSS'Z', [StartDateTime], yyyy/DDD)]/[Filename]";
+
+    private static final String TAI_PATH = "/archive/[DATE_TO_SECS([UTC_TO_TAI([StartDateTime])], TAI_FORMAT, 1993-01-01)]/[Filename]";
+
+    private Metadata metadata;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        metadata = new Metadata();
+        metadata.addMetadata("ProductType", "GenericFile");
+        metadata.addMetadata("Mission", "Benchmark");
+        metadata.addMetadata("Filename", "granule.dat");
+        metadata.addMetadata("StartDateTime", "2008-01-20T16:29:55.000Z");
+    }
+
+    @Benchmark
+    public String metadataReplacement() throws Exception {
+        return PathUtils.doDynamicReplacement(METADATA_PATH, metadata);
+    }
+
+    @Benchmark
+    public String dateFormatReplacement() throws Exception {
+        return PathUtils.doDynamicReplacement(DATE_PATH, metadata);
+    }
+
+    @Benchmark
+    public String taiReplacement() throws Exception {
+        return PathUtils.doDynamicReplacement(TAI_PATH, metadata);
+    }
+}
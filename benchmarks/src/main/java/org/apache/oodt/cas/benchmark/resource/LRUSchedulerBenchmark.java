@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.benchmark.resource;
+
+//JDK imports
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//OODT imports
+import org.apache.oodt.cas.benchmark.BenchmarkFiles;
+import org.apache.oodt.cas.resource.batchmgr.Batchmgr;
+import org.apache.oodt.cas.resource.jobqueue.JobQueue;
+import org.apache.oodt.cas.resource.jobqueue.JobStack;
+import org.apache.oodt.cas.resource.jobrepo.JobRepository;
+import org.apache.oodt.cas.resource.jobrepo.MemoryJobRepository;
+import org.apache.oodt.cas.resource.monitor.AssignmentMonitor;
+import org.apache.oodt.cas.resource.monitor.Monitor;
+import org.apache.oodt.cas.resource.scheduler.LRUQueueManager;
+import org.apache.oodt.cas.resource.scheduler.LRUScheduler;
+import org.apache.oodt.cas.resource.scheduler.QueueManager;
+import org.apache.oodt.cas.resource.structs.Job;
+import org.apache.oodt.cas.resource.structs.JobSpec;
+import org.apache.oodt.cas.resource.structs.ResourceNode;
+import org.apache.oodt.cas.resource.structs.exceptions.JobExecutionException;
+
+//JMH imports
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Scheduling cost of the {@link LRUScheduler} over <code>nodes</code> nodes,
+ * half of which are always full. Jobs finish as soon as they are handed to the
+ * batch manager, so every job finds room. Both the direct
+ * {@link LRUScheduler#schedule(JobSpec)} path and a pass that drains a queue of
+ * {@link #QUEUED_JOBS} jobs are measured, per job.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LRUSchedulerBenchmark {
+
+    public static final int QUEUED_JOBS = 50;
+
+    private static final String QUEUE = "benchmark";
+
+    @Param({ "10", "100" })
+    public int nodes;
+
+    private PassScheduler scheduler;
+
+    private JobQueue jobQueue;
+
+    private JobSpec spec;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkFiles.quietLogging();
+        List<ResourceNode> nodeList = new ArrayList<ResourceNode>();
+        QueueManager qm = new QueueManager();
+        qm.addQueue(QUEUE);
+        for (int i = 0; i < nodes; i++) {
+            ResourceNode node = new ResourceNode("node" + i, new URL(
+                    "http://localhost:" + (2000 + i)), 2);
+            nodeList.add(node);
+            qm.addNodeToQueue(node.getNodeId(), QUEUE);
+        }
+        Monitor monitor = new AssignmentMonitor(nodeList);
+        for (int i = 0; i < nodes; i += 2) {
+            monitor.assignLoad(nodeList.get(i), 2);
+        }
+
+        jobQueue = new JobStack(QUEUED_JOBS, new MemoryJobRepository());
+        scheduler = new PassScheduler(monitor, new CompletingBatchmgr(),
+                jobQueue, new LRUQueueManager(qm));
+        spec = newJobSpec();
+    }
+
+    @Benchmark
+    public boolean schedule() throws Exception {
+        return scheduler.schedule(spec);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUEUED_JOBS)
+    public int drainQueue() throws Exception {
+        for (int i = 0; i < QUEUED_JOBS; i++) {
+            jobQueue.addJob(newJobSpec());
+        }
+        return scheduler.schedulePass();
+    }
+
+    private static JobSpec newJobSpec() {
+        Job job = new Job();
+        job.setName("benchmark-job");
+        job.setQueueName(QUEUE);
+        job.setLoadValue(1);
+        return new JobSpec(null, job);
+    }
+
+    /* exposes a single scheduling pass, without the scheduler thread */
+    private static class PassScheduler extends LRUScheduler {
+
+        PassScheduler(Monitor m, Batchmgr b, JobQueue q, LRUQueueManager qm) {
+            super(m, b, q, qm);
+        }
+
+        public int schedulePass() {
+            return super.schedulePass();
+        }
+    }
+
+    /* a batch manager whose jobs finish the moment they are executed */
+    private static class CompletingBatchmgr implements Batchmgr {
+
+        private Monitor monitor;
+
+        public boolean executeRemotely(JobSpec job, ResourceNode resNode)
+                throws JobExecutionException {
+            try {
+                monitor.reduceLoad(resNode, job.getJob().getLoadValue());
+            } catch (Exception e) {
+                throw new JobExecutionException(e.getMessage());
+            }
+            return true;
+        }
+
+        public void setMonitor(Monitor monitor) {
+            this.monitor = monitor;
+        }
+
+        public void setJobRepository(JobRepository repository) {
+        }
+
+        public boolean killJob(String jobId, ResourceNode node) {
+            return false;
+        }
+
+        public String getExecutionNode(String jobId) {
+            return null;
+        }
+
+        public List getJobsOnNode(String nodeId) {
+            return null;
+        }
+    }
+}
@@ -22,6 +22,9 @@ import org.apache.commons.dbcp.ConnectionFactory;
 import org.apache.commons.dbcp.DriverManagerConnectionFactory;
 import org.apache.commons.dbcp.PoolableConnectionFactory;
 import org.apache.commons.dbcp.PoolingDataSource;
+import org.apache.commons.pool.KeyedObjectPoolFactory;
+import org.apache.commons.pool.impl.GenericKeyedObjectPool;
+import org.apache.commons.pool.impl.GenericKeyedObjectPoolFactory;
 import org.apache.commons.pool.impl.GenericObjectPool;
 
 import javax.sql.DataSource;
@@ -32,10 +35,24 @@ import javax.sql.DataSource;
  * 
  * <p>
  * A class to build database connections from JDBC information.
+ * </p>
+ * 
+ * <p>
+ * Each pooled connection keeps its own pool of {@link java.sql.PreparedStatement}s,
+ * so that a statement prepared again on the same connection (and closed in
+ * between) is not re-parsed by the database. The number of statements kept
+ * open per connection is set by the
+ * <code>org.apache.oodt.commons.database.maxOpenPreparedStatements</code>
+ * property (default {@value #DEFAULT_MAX_OPEN_PREPARED_STATEMENTS}); a value of
+ * zero or less turns statement pooling off.
  * </p>.
  */
 public final class DatabaseConnectionBuilder {
 
+    public static final String MAX_OPEN_PREPARED_STATEMENTS_PROPERTY = "org.apache.oodt.commons.database.maxOpenPreparedStatements";
+
+    public static final int DEFAULT_MAX_OPEN_PREPARED_STATEMENTS = 100;
+
     public static DataSource buildDataSource(String user, String pass,
             String driver, String url) {
 
@@ -50,9 +67,23 @@ public final class DatabaseConnectionBuilder {
       ConnectionFactory connectionFactory = new DriverManagerConnectionFactory(
                           url, user, pass);
               PoolableConnectionFactory poolableConnectionFactory = new PoolableConnectionFactory(
-                          connectionFactory, connectionPool, null, null, false, true);
+                          connectionFactory, connectionPool, buildStatementPoolFactory(), null, false, true);
 
       return new PoolingDataSource(connectionPool);
     }
 
+    private static KeyedObjectPoolFactory buildStatementPoolFactory() {
+        int maxOpenStatements = Integer.getInteger(
+                MAX_OPEN_PREPARED_STATEMENTS_PROPERTY,
+                DEFAULT_MAX_OPEN_PREPARED_STATEMENTS);
+        if (maxOpenStatements <= 0) {
+            return null;
+        }
+
+        // the same settings DBCP's BasicDataSource uses for poolPreparedStatements
+        return new GenericKeyedObjectPoolFactory(null, -1,
+                GenericKeyedObjectPool.WHEN_EXHAUSTED_FAIL, 0, 1,
+                maxOpenStatements);
+    }
+
 }
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.commons.database;
+
+//JDK imports
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * <p>
+ * Helpers to run SQL with bind variables rather than with values pasted into
+ * the SQL text, so that the database (and the statement pool of the
+ * {@link DatabaseConnectionBuilder} data sources) sees the same SQL each time.
+ * </p>
+ */
+public final class PreparedStatements {
+
+    private PreparedStatements() {
+    }
+
+    /**
+     * Prepares the given SQL on the given {@link Connection} and binds the
+     * given parameters to it.
+     * 
+     * @param conn
+     *            The connection to prepare the statement on.
+     * @param sql
+     *            The SQL, with a <code>?</code> for each parameter.
+     * @param params
+     *            The parameter values, in order.
+     * @return The bound statement, which the caller must close.
+     * @throws SQLException
+     *             If the statement cannot be prepared or bound.
+     */
+    public static PreparedStatement prepare(Connection conn, String sql,
+            Object... params) throws SQLException {
+        PreparedStatement statement = conn.prepareStatement(sql);
+        try {
+            bind(statement, params);
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
+    /**
+     * Binds the given parameters, in order, to the given statement. A
+     * <code>null</code> parameter is bound as a <code>VARCHAR</code> NULL.
+     */
+    public static void bind(PreparedStatement statement, Object... params)
+            throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] == null) {
+                statement.setNull(i + 1, Types.VARCHAR);
+            } else {
+                statement.setObject(i + 1, params[i]);
+            }
+        }
+    }
+
+    /**
+     * @return The given identifier, as a {@link String} if the identifier
+     *         column is a character column, or else as a {@link Long}
+     *         (<code>null</code> stays <code>null</code>).
+     */
+    public static Object idParam(String id, boolean stringId) {
+        if (id == null || stringId) {
+            return id;
+        }
+        return Long.valueOf(id.trim());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.commons.database;
+
+//JDK imports
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * A batch of parameterized statements on a single {@link Connection}. Each
+ * distinct SQL string is prepared once and every set of parameters added for
+ * it joins that statement's batch, so a mixed batch (e.g. inserts into several
+ * tables) still runs as one batch per table. The caller owns the connection
+ * and the transaction.
+ * </p>
+ */
+public class StatementBatch {
+
+    private final Connection conn;
+
+    /* statements in the order their SQL was first added */
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>();
+
+    public StatementBatch(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Adds a set of parameters for the given SQL to the batch.
+     */
+    public void add(String sql, Object... params) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = conn.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        PreparedStatements.bind(statement, params);
+        statement.addBatch();
+    }
+
+    /**
+     * Executes each statement's batch, in the order the statements were
+     * first added.
+     * 
+     * @return The total number of batched parameter sets executed.
+     */
+    public int execute() throws SQLException {
+        int executed = 0;
+        for (PreparedStatement statement : statements.values()) {
+            executed += statement.executeBatch().length;
+        }
+        return executed;
+    }
+
+    /**
+     * Closes the prepared statements, but not the connection.
+     */
+    public void close() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException ignore) {
+            }
+        }
+        statements.clear();
+    }
+}
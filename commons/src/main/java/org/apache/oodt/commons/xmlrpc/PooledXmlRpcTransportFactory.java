@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.commons.xmlrpc;
+
+//Apache imports
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpRequestRetryHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.apache.xmlrpc.XmlRpcClientException;
+import org.apache.xmlrpc.XmlRpcTransport;
+import org.apache.xmlrpc.XmlRpcTransportFactory;
+
+//JDK imports
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * An {@link XmlRpcTransportFactory} whose transports all send their requests
+ * through one {@link CloseableHttpClient} with a pool of keep-alive
+ * connections, rather than opening a new connection for every call. Give each
+ * XML-RPC client its own factory, and {@link #close()} it with the client.
+ * </p>
+ *
+ * <p>
+ * The factory is configured from system properties named
+ * <code>&lt;prefix&gt;.&lt;property&gt;</code>, where the prefix is given to
+ * the constructor (e.g. <code>org.apache.oodt.cas.filemgr.system.xmlrpc</code>):
+ * </p>
+ * <ul>
+ * <li><code>connectionTimeout.minutes</code>: how long to wait to connect
+ * (default 20).</li>
+ * <li><code>requestTimeout.minutes</code>: how long to wait for a reply
+ * (default 60).</li>
+ * <li><code>connection.retries</code>: how many times to retry a request that
+ * failed with an I/O error before it was sent (default 3).</li>
+ * <li><code>connection.retry.interval.seconds</code>: how long to wait before
+ * the first retry; each further retry waits twice as long as the one before
+ * (default 1).</li>
+ * <li><code>connection.retry.maxInterval.seconds</code>: the longest to wait
+ * before any retry (default 30).</li>
+ * <li><code>maxConnectionsPerRoute</code>: the most connections kept open to
+ * the server (default 10).</li>
+ * </ul>
+ */
+public class PooledXmlRpcTransportFactory implements XmlRpcTransportFactory {
+
+    /* our log stream */
+    private static final Logger LOG = Logger
+            .getLogger(PooledXmlRpcTransportFactory.class.getName());
+
+    /* pooled connections idle for longer than this are checked before use */
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+
+    private final URL url;
+
+    private final PoolingHttpClientConnectionManager connManager;
+
+    private final CloseableHttpClient httpClient;
+
+    private final int retries;
+
+    private final long retryIntervalMillis;
+
+    private final long maxRetryIntervalMillis;
+
+    /**
+     * Constructs a new PooledXmlRpcTransportFactory sending to the given
+     * <code>url</code>, configured from the system properties starting with
+     * <code>propertyPrefix</code>.
+     *
+     * @param url
+     *            The URL of the XML-RPC server.
+     * @param propertyPrefix
+     *            The prefix of the system properties to read.
+     */
+    public PooledXmlRpcTransportFactory(URL url, String propertyPrefix) {
+        this.url = url;
+        this.retries = Integer.getInteger(propertyPrefix
+                + ".connection.retries", 3);
+        this.retryIntervalMillis = Integer.getInteger(propertyPrefix
+                + ".connection.retry.interval.seconds", 1) * 1000L;
+        this.maxRetryIntervalMillis = Integer.getInteger(propertyPrefix
+                + ".connection.retry.maxInterval.seconds", 30) * 1000L;
+        int maxConnections = Math.max(1, Integer.getInteger(propertyPrefix
+                + ".maxConnectionsPerRoute", 10));
+
+        connManager = new PoolingHttpClientConnectionManager();
+        connManager.setDefaultMaxPerRoute(maxConnections);
+        connManager.setMaxTotal(maxConnections);
+        connManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(Integer.getInteger(propertyPrefix
+                        + ".connectionTimeout.minutes", 20) * 60 * 1000)
+                .setSocketTimeout(Integer.getInteger(propertyPrefix
+                        + ".requestTimeout.minutes", 60) * 60 * 1000)
+                .build();
+        httpClient = HttpClients.custom().setConnectionManager(connManager)
+                .setDefaultRequestConfig(config)
+                .setRetryHandler(new BackoffRetryHandler()).build();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.xmlrpc.XmlRpcTransportFactory#createTransport()
+     */
+    public XmlRpcTransport createTransport() throws XmlRpcClientException {
+        return new PooledTransport();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.xmlrpc.XmlRpcTransportFactory#setProperty(java.lang.String,
+     *      java.lang.Object)
+     */
+    public void setProperty(String propertyName, Object value) {
+    }
+
+    /**
+     * @return The number of pooled connections currently idle.
+     */
+    public int getAvailableConnections() {
+        return connManager.getTotalStats().getAvailable();
+    }
+
+    /**
+     * @return The number of pooled connections currently in use.
+     */
+    public int getLeasedConnections() {
+        return connManager.getTotalStats().getLeased();
+    }
+
+    /**
+     * Closes every pooled connection. Transports created afterwards can't send.
+     */
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Error closing connections to: [" + url
+                    + "]: Message: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Sends one request; XmlRpcClient creates one per call and ends it once
+     * the reply is read.
+     */
+    private class PooledTransport implements XmlRpcTransport {
+
+        private CloseableHttpResponse response;
+
+        public InputStream sendXmlRpc(byte[] request) throws IOException,
+                XmlRpcClientException {
+            HttpPost post;
+            try {
+                post = new HttpPost(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new XmlRpcClientException("Invalid server URL: [" + url
+                        + "]", e);
+            }
+            post.setEntity(new ByteArrayEntity(request, ContentType.TEXT_XML));
+            response = httpClient.execute(post);
+
+            int status = response.getStatusLine().getStatusCode();
+            if (status != HttpStatus.SC_OK) {
+                endClientRequest();
+                throw new IOException("Server at: [" + url + "] replied: ["
+                        + status + "]");
+            }
+            return response.getEntity().getContent();
+        }
+
+        public void endClientRequest() throws XmlRpcClientException {
+            if (response == null) {
+                return;
+            }
+            // read out what is left of the reply so the connection goes
+            // back to the pool instead of being closed
+            HttpEntity entity = response.getEntity();
+            EntityUtils.consumeQuietly(entity);
+            try {
+                response.close();
+            } catch (IOException ignore) {
+            }
+            response = null;
+        }
+    }
+
+    /*
+     * Retries a request that failed with an I/O error before it was sent,
+     * waiting twice as long before each retry as before the last. A request
+     * that was sent is never retried: the server may have acted on it, and
+     * XML-RPC calls are not idempotent.
+     */
+    private class BackoffRetryHandler implements HttpRequestRetryHandler {
+
+        public boolean retryRequest(IOException exception, int executionCount,
+                HttpContext context) {
+            if (executionCount > retries
+                    || HttpClientContext.adapt(context).isRequestSent()) {
+                return false;
+            }
+            long delay = Math.min(maxRetryIntervalMillis, retryIntervalMillis
+                    << Math.min(executionCount - 1, 20));
+            LOG.log(Level.FINE, "Retrying request to: [" + url + "] in ["
+                    + delay + "] ms: Message: " + exception.getMessage());
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.commons.xmlrpc;
+
+//Apache imports
+import org.apache.xmlrpc.WebServer;
+import org.apache.xmlrpc.XmlRpc;
+import org.apache.xmlrpc.XmlRpcClient;
+
+//JDK imports
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Junit imports
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the {@link PooledXmlRpcTransportFactory}.
+ */
+public class PooledXmlRpcTransportFactoryTest extends TestCase {
+
+    private static final String PREFIX = "org.apache.oodt.commons.xmlrpc.test";
+
+    private WebServer server;
+
+    private PooledXmlRpcTransportFactory factory;
+
+    private boolean keepAlive;
+
+    public void testCallsShareOneConnection() throws Exception {
+        URL url = startServer();
+        factory = new PooledXmlRpcTransportFactory(url, PREFIX);
+        XmlRpcClient client = new XmlRpcClient(url, factory);
+
+        for (int i = 0; i < 20; i++) {
+            Vector<Object> args = new Vector<Object>();
+            args.add("hello " + i);
+            assertEquals("hello " + i, client.execute("test.echo", args));
+        }
+        assertEquals(0, factory.getLeasedConnections());
+        assertEquals(1, factory.getAvailableConnections());
+    }
+
+    public void testRetriesGiveUp() throws Exception {
+        System.setProperty(PREFIX + ".connection.retries", "2");
+        System.setProperty(PREFIX + ".connection.retry.interval.seconds", "0");
+        URL url = new URL("http://localhost:" + freePort() + "/RPC2");
+        factory = new PooledXmlRpcTransportFactory(url, PREFIX);
+        XmlRpcClient client = new XmlRpcClient(url, factory);
+        try {
+            client.execute("test.echo", new Vector<Object>());
+            fail("Call to a closed port should have failed");
+        } catch (IOException expected) {
+        }
+        assertEquals(0, factory.getLeasedConnections());
+    }
+
+    public void testSentRequestIsNotRetried() throws Exception {
+        System.setProperty(PREFIX + ".connection.retries", "2");
+        System.setProperty(PREFIX + ".connection.retry.interval.seconds", "0");
+        final ServerSocket serverSocket = new ServerSocket(0);
+        final AtomicInteger accepted = new AtomicInteger();
+        Thread acceptor = new Thread() {
+            public void run() {
+                // read each request, then hang up without replying
+                try {
+                    while (true) {
+                        Socket socket = serverSocket.accept();
+                        accepted.incrementAndGet();
+                        socket.getInputStream().read(new byte[8192]);
+                        socket.close();
+                    }
+                } catch (IOException done) {
+                }
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        try {
+            URL url = new URL("http://localhost:" + serverSocket.getLocalPort()
+                    + "/RPC2");
+            factory = new PooledXmlRpcTransportFactory(url, PREFIX);
+            XmlRpcClient client = new XmlRpcClient(url, factory);
+            try {
+                client.execute("test.echo", new Vector<Object>());
+                fail("Call the server hung up on should have failed");
+            } catch (IOException expected) {
+            }
+            assertEquals(1, accepted.get());
+        } finally {
+            serverSocket.close();
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        keepAlive = XmlRpc.getKeepAlive();
+        XmlRpc.setKeepAlive(true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (factory != null) {
+            factory.close();
+        }
+        if (server != null) {
+            server.shutdown();
+        }
+        XmlRpc.setKeepAlive(keepAlive);
+        System.clearProperty(PREFIX + ".connection.retries");
+        System.clearProperty(PREFIX + ".connection.retry.interval.seconds");
+    }
+
+    private URL startServer() throws Exception {
+        int port = freePort();
+        server = new WebServer(port);
+        server.addHandler("test", new EchoHandler());
+        server.start();
+        return new URL("http://localhost:" + port + "/RPC2");
+    }
+
+    private static int freePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+
+    public static class EchoHandler {
+        public String echo(String message) {
+            return message;
+        }
+    }
+
+}
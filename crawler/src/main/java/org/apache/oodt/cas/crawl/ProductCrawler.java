@@ -20,7 +20,9 @@ import com.google.common.annotations.VisibleForTesting;
 import org.apache.oodt.cas.crawl.action.CrawlerAction;
 import org.apache.oodt.cas.crawl.action.CrawlerActionRepo;
 import org.apache.oodt.cas.crawl.config.ProductCrawlerBean;
+import org.apache.oodt.cas.crawl.status.CrawlMetrics;
 import org.apache.oodt.cas.crawl.status.IngestStatus;
+import org.apache.oodt.cas.crawl.status.IngestStatusSink;
 import org.apache.oodt.cas.filemgr.ingest.Ingester;
 import org.apache.oodt.cas.filemgr.ingest.StdIngester;
 import org.apache.oodt.cas.metadata.Metadata;
@@ -29,10 +31,18 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Stack;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,6 +54,15 @@ import java.util.logging.Logger;
  * communicate with the file manager and parse met files that show how to ingest
  * a particular Product into the File Manager.
  * 
+ * <p>
+ * With {@link #setNumThreads(int)} above 1, the calling thread walks the
+ * directories and hands each product to a pool of workers, waiting whenever
+ * {@link #getIngestQueueSize()} products are already waiting for one. The
+ * precondition comparators, metadata extractors and actions are then called
+ * from several threads at once, so they must be thread-safe. Progress through
+ * each stage can be watched with {@link #getCrawlMetrics()}.
+ * </p>
+ * 
  * @author mattmann (Chris Mattmann)
  * @author bfoster (Brian Foster)
  */
@@ -67,10 +86,16 @@ public abstract class ProductCrawler extends ProductCrawlerBean {
       }
    };
 
-   protected List<IngestStatus> ingestStatus = new Vector<IngestStatus>();
+   protected List<IngestStatus> ingestStatus = Collections
+         .synchronizedList(new LinkedList<IngestStatus>());
    protected CrawlerActionRepo actionRepo;
    protected Ingester ingester;
 
+   // each worker of a multi-threaded crawl has an ingester of its own
+   private final ThreadLocal<Ingester> workerIngester = new ThreadLocal<Ingester>();
+
+   private final CrawlMetrics metrics = new CrawlMetrics();
+
    public void crawl() {
       LOG.info("Crawl operation invoked");
       crawl(new File(getProductPath()));
@@ -79,9 +104,9 @@ public abstract class ProductCrawler extends ProductCrawlerBean {
    public void crawl(File dirRoot) {
       LOG.info(String.format("Start crawling dir: %s", dirRoot));
 
-      // Reset ingest status.a
-
+      // Reset ingest status.
       ingestStatus.clear();
+      metrics.reset();
 
       // Load actions.
       loadAndValidateActions();
@@ -95,32 +120,170 @@ public abstract class ProductCrawler extends ProductCrawlerBean {
       }
 
       // Start crawling.
-      Stack<File> stack = new Stack<File>();
-      stack.push(dirRoot.isDirectory() ? dirRoot : dirRoot.getParentFile());
-      while (!stack.isEmpty()) {
-         File dir = (File) stack.pop();
-         LOG.log(Level.INFO, "Crawling " + dir);
-
-         File[] productFiles;
-         productFiles = isCrawlForDirs() ? dir.listFiles(DIR_FILTER) : dir.listFiles(FILE_FILTER);
-
-         if(productFiles!=null) {
-            for (File productFile : productFiles) {
-               ingestStatus.add(handleFile(productFile));
+      File root = dirRoot.isDirectory() ? dirRoot : dirRoot.getParentFile();
+      if (getNumThreads() > 1) {
+         crawlConcurrently(root);
+      } else {
+         Stack<File> stack = new Stack<File>();
+         pushDir(stack, root);
+         while (!stack.isEmpty()) {
+            File dir = popDir(stack);
+            for (File productFile : listProducts(dir)) {
+               metrics.productQueued();
+               handleProduct(productFile);
             }
+            pushSubdirs(stack, dir);
          }
+      }
 
-         if (!isNoRecur()) {
-            File[] subdirs = dir.listFiles(DIR_FILTER);
-            if (subdirs != null) {
-               for (File subdir : subdirs) {
-                  stack.push(subdir);
+      LOG.info(String.format("Finished crawling dir: %s: %s", dirRoot,
+            metrics));
+   }
+
+   private void crawlConcurrently(File root) {
+      final int numThreads = getNumThreads();
+      final List<Ingester> ingesters = new Vector<Ingester>();
+      final AtomicInteger workerCount = new AtomicInteger();
+      ExecutorService workers = Executors.newFixedThreadPool(numThreads,
+            new ThreadFactory() {
+               public Thread newThread(final Runnable worker) {
+                  Thread thread = new Thread(new Runnable() {
+                     public void run() {
+                        Ingester threadIngester = createIngester();
+                        ingesters.add(threadIngester);
+                        workerIngester.set(threadIngester);
+                        worker.run();
+                     }
+                  }, "crawler-worker-" + workerCount.incrementAndGet());
+                  thread.setDaemon(true);
+                  return thread;
                }
+            });
+      // products being handled or waiting for a worker
+      final Semaphore slots = new Semaphore(numThreads
+            + Math.max(1, getIngestQueueSize()));
+
+      try {
+         Stack<File> stack = new Stack<File>();
+         pushDir(stack, root);
+         while (!stack.isEmpty()) {
+            File dir = popDir(stack);
+            for (final File productFile : listProducts(dir)) {
+               slots.acquire();
+               metrics.productQueued();
+               workers.execute(new Runnable() {
+                  public void run() {
+                     try {
+                        handleProduct(productFile);
+                     } finally {
+                        slots.release();
+                     }
+                  }
+               });
+            }
+            pushSubdirs(stack, dir);
+         }
+      } catch (InterruptedException e) {
+         LOG.log(Level.WARNING, "Crawl interrupted: waiting for products "
+               + "already queued to be handled");
+         Thread.currentThread().interrupt();
+      } finally {
+         workers.shutdown();
+         boolean interrupted = false;
+         while (!workers.isTerminated()) {
+            try {
+               workers.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+               interrupted = true;
+            }
+         }
+         if (interrupted) {
+            Thread.currentThread().interrupt();
+         }
+         for (Ingester threadIngester : ingesters) {
+            try {
+               threadIngester.close();
+            } catch (IOException e) {
+               LOG.log(Level.WARNING, "Failed to close ingester: "
+                     + e.getMessage(), e);
             }
          }
       }
+   }
 
-      LOG.info(String.format("Finished crawling dir: %s", dirRoot));
+   private void handleProduct(File productFile) {
+      metrics.productStarted();
+      IngestStatus status = null;
+      try {
+         status = handleFile(productFile);
+      } catch (RuntimeException e) {
+         LOG.log(Level.SEVERE, "Failed to handle product: [" + productFile
+               + "]: " + e.getMessage(), e);
+         status = createIngestStatus(productFile,
+               IngestStatus.Result.FAILURE, "Failed to handle product : "
+                     + e.getMessage());
+      } finally {
+         metrics.productHandled(status);
+      }
+      recordIngestStatus(status);
+   }
+
+   private void recordIngestStatus(IngestStatus status) {
+      int maxIngestStatus = getMaxIngestStatus();
+      if (maxIngestStatus != 0) {
+         synchronized (ingestStatus) {
+            if (maxIngestStatus > 0) {
+               while (ingestStatus.size() >= maxIngestStatus) {
+                  ingestStatus.remove(0);
+               }
+            }
+            ingestStatus.add(status);
+         }
+      }
+      IngestStatusSink sink = getIngestStatusSink();
+      if (sink != null) {
+         try {
+            sink.report(status);
+         } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to report ingest status of product: ["
+                  + status.getProduct() + "]: " + e.getMessage(), e);
+         }
+      }
+   }
+
+   private File[] listProducts(File dir) {
+      File[] productFiles = isCrawlForDirs() ? dir.listFiles(DIR_FILTER) : dir
+            .listFiles(FILE_FILTER);
+      if (productFiles == null) {
+         return new File[0];
+      }
+      if (getProductComparator() != null) {
+         Arrays.sort(productFiles, getProductComparator());
+      }
+      return productFiles;
+   }
+
+   private void pushDir(Stack<File> stack, File dir) {
+      stack.push(dir);
+      metrics.directoryQueued();
+   }
+
+   private File popDir(Stack<File> stack) {
+      File dir = stack.pop();
+      metrics.directoryWalked();
+      LOG.log(Level.INFO, "Crawling " + dir);
+      return dir;
+   }
+
+   private void pushSubdirs(Stack<File> stack, File dir) {
+      if (!isNoRecur()) {
+         File[] subdirs = dir.listFiles(DIR_FILTER);
+         if (subdirs != null) {
+            for (File subdir : subdirs) {
+               pushDir(stack, subdir);
+            }
+         }
+      }
    }
 
    public IngestStatus handleFile(File product) {
@@ -139,6 +302,7 @@ public abstract class ProductCrawler extends ProductCrawlerBean {
       // Generate Metadata for product.
       Metadata productMetadata = new Metadata();
       productMetadata.addMetadata(getGlobalMetadata());
+      long extractionStart = System.nanoTime();
       try {
          productMetadata.replaceMetadata(getMetadataForProduct(product));
       } catch (Exception e) {
@@ -148,6 +312,8 @@ public abstract class ProductCrawler extends ProductCrawlerBean {
          return createIngestStatus(product,
                IngestStatus.Result.FAILURE,
                "Failed to get metadata for product : " + e.getMessage());
+      } finally {
+         metrics.addExtractionTime(System.nanoTime() - extractionStart);
       }
 
       // Rename the product.
@@ -189,7 +355,9 @@ public abstract class ProductCrawler extends ProductCrawlerBean {
       }
 
       // Ingest product.
+      long ingestStart = System.nanoTime();
       boolean ingestSuccess = ingest(product, productMetadata);
+      metrics.addIngestTime(System.nanoTime() - ingestStart);
 
       // On Successful Ingest.
       if (ingestSuccess) {
@@ -210,8 +378,23 @@ public abstract class ProductCrawler extends ProductCrawlerBean {
       }
    }
 
+   /**
+    * @return The status of each product handled by the last crawl, in the
+    *         order they finished, or only the most recent
+    *         {@link #getMaxIngestStatus()} of them if that is set.
+    */
    public List<IngestStatus> getIngestStatus() {
-      return Collections.unmodifiableList(ingestStatus);
+      synchronized (ingestStatus) {
+         return Collections.unmodifiableList(new Vector<IngestStatus>(
+               ingestStatus));
+      }
+   }
+
+   /**
+    * @return Counters for each stage of the current (or last) crawl.
+    */
+   public CrawlMetrics getCrawlMetrics() {
+      return metrics;
    }
 
    protected abstract boolean passesPreconditions(File product);
@@ -223,7 +406,15 @@ public abstract class ProductCrawler extends ProductCrawlerBean {
          throws Exception;
 
    @VisibleForTesting void setupIngester() {
-      ingester = new StdIngester(getClientTransferer());
+      ingester = createIngester();
+   }
+
+   /**
+    * @return A new {@link Ingester}: the crawl has one, and each worker of a
+    *         multi-threaded crawl another, since they aren't thread-safe.
+    */
+   protected Ingester createIngester() {
+      return new StdIngester(getClientTransferer());
    }
 
    @VisibleForTesting void loadAndValidateActions() {
@@ -304,7 +495,9 @@ public abstract class ProductCrawler extends ProductCrawlerBean {
          LOG.log(Level.INFO, "ProductCrawler: Ready to ingest product: ["
                + product + "]: ProductType: ["
                + productMetdata.getMetadata(PRODUCT_TYPE) + "]");
-         String productId = ingester.ingest(new URL(getFilemgrUrl()),
+         Ingester threadIngester = workerIngester.get();
+         String productId = (threadIngester != null ? threadIngester
+               : ingester).ingest(new URL(getFilemgrUrl()),
                product, productMetdata);
          LOG.log(Level.INFO, "Successfully ingested product: [" + product
                + "]: product id: " + productId);
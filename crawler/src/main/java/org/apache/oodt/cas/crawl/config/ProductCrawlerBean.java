@@ -17,13 +17,16 @@
 package org.apache.oodt.cas.crawl.config;
 
 //JDK imports
+import java.io.File;
 import java.net.MalformedURLException;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 
 //OODT imports
 import org.apache.oodt.commons.spring.SpringSetIdInjectionType;
+import org.apache.oodt.cas.crawl.status.IngestStatusSink;
 import org.apache.oodt.cas.filemgr.metadata.CoreMetKeys;
 import org.apache.oodt.cas.metadata.Metadata;
 
@@ -51,6 +54,12 @@ public abstract class ProductCrawlerBean implements
 
     private int daemonWait, daemonPort;
 
+    private int numThreads, ingestQueueSize, maxIngestStatus;
+
+    private Comparator<File> productComparator;
+
+    private IngestStatusSink ingestStatusSink;
+
     private String productPath;
 
     private ApplicationContext applicationContext;
@@ -70,6 +79,9 @@ public abstract class ProductCrawlerBean implements
         this.skipIngest = false;
         this.daemonPort = -1;
         this.daemonWait = -1;
+        this.numThreads = 1;
+        this.ingestQueueSize = 1000;
+        this.maxIngestStatus = -1;
         this.globalMetadata = new Metadata();
     }
 
@@ -163,6 +175,67 @@ public abstract class ProductCrawlerBean implements
         return this.daemonPort;
     }
 
+    /**
+     * @param numThreads
+     *            The number of products to handle at once: above 1, the
+     *            preconditions, extractors and actions must be thread-safe.
+     */
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public int getNumThreads() {
+        return this.numThreads;
+    }
+
+    /**
+     * @param ingestQueueSize
+     *            The number of products a multi-threaded crawl lets wait for
+     *            a worker before it stops walking directories.
+     */
+    public void setIngestQueueSize(int ingestQueueSize) {
+        this.ingestQueueSize = ingestQueueSize;
+    }
+
+    public int getIngestQueueSize() {
+        return this.ingestQueueSize;
+    }
+
+    /**
+     * @param maxIngestStatus
+     *            The number of the most recent ingest statuses to keep: 0 to
+     *            keep none (e.g. when an {@link IngestStatusSink} is set), or
+     *            -1 to keep them all.
+     */
+    public void setMaxIngestStatus(int maxIngestStatus) {
+        this.maxIngestStatus = maxIngestStatus;
+    }
+
+    public int getMaxIngestStatus() {
+        return this.maxIngestStatus;
+    }
+
+    /**
+     * @param productComparator
+     *            The order to handle the products of each directory in, or
+     *            null for the order they are listed in.
+     */
+    public void setProductComparator(Comparator<File> productComparator) {
+        this.productComparator = productComparator;
+    }
+
+    public Comparator<File> getProductComparator() {
+        return this.productComparator;
+    }
+
+    public void setIngestStatusSink(IngestStatusSink ingestStatusSink) {
+        this.ingestStatusSink = ingestStatusSink;
+    }
+
+    public IngestStatusSink getIngestStatusSink() {
+        return this.ingestStatusSink;
+    }
+
     @Required
     public void setProductPath(String productPath) {
         this.productPath = productPath;
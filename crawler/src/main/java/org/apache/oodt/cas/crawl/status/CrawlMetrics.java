@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oodt.cas.crawl.status;
+
+//JDK imports
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Counters for each stage of a crawl: directories waiting to be walked,
+ * products waiting for a worker, products being handled and products
+ * handled, along with how long was spent extracting metadata and ingesting.
+ * The crawler updates them as it goes, so they can be read during a crawl to
+ * see where products are backing up.
+ * </p>.
+ */
+public class CrawlMetrics {
+
+	private final AtomicLong directoriesQueued = new AtomicLong();
+
+	private final AtomicLong productsQueued = new AtomicLong();
+
+	private final AtomicLong maxProductsQueued = new AtomicLong();
+
+	private final AtomicLong productsActive = new AtomicLong();
+
+	private final AtomicLong productsHandled = new AtomicLong();
+
+	private final AtomicLong extractionNanos = new AtomicLong();
+
+	private final AtomicLong ingestNanos = new AtomicLong();
+
+	private final AtomicLong[] results = new AtomicLong[IngestStatus.Result
+			.values().length];
+
+	public CrawlMetrics() {
+		for (int i = 0; i < results.length; i++) {
+			results[i] = new AtomicLong();
+		}
+	}
+
+	public void reset() {
+		directoriesQueued.set(0);
+		productsQueued.set(0);
+		maxProductsQueued.set(0);
+		productsActive.set(0);
+		productsHandled.set(0);
+		extractionNanos.set(0);
+		ingestNanos.set(0);
+		for (AtomicLong result : results) {
+			result.set(0);
+		}
+	}
+
+	public void directoryQueued() {
+		directoriesQueued.incrementAndGet();
+	}
+
+	public void directoryWalked() {
+		directoriesQueued.decrementAndGet();
+	}
+
+	public void productQueued() {
+		long queued = productsQueued.incrementAndGet();
+		long max;
+		while (queued > (max = maxProductsQueued.get())
+				&& !maxProductsQueued.compareAndSet(max, queued)) {
+			// retry
+		}
+	}
+
+	public void productStarted() {
+		productsQueued.decrementAndGet();
+		productsActive.incrementAndGet();
+	}
+
+	public void productHandled(IngestStatus status) {
+		productsActive.decrementAndGet();
+		productsHandled.incrementAndGet();
+		if (status != null) {
+			results[status.getResult().ordinal()].incrementAndGet();
+		}
+	}
+
+	public void addExtractionTime(long nanos) {
+		extractionNanos.addAndGet(nanos);
+	}
+
+	public void addIngestTime(long nanos) {
+		ingestNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * @return The number of directories found but not yet walked.
+	 */
+	public long getDirectoriesQueued() {
+		return directoriesQueued.get();
+	}
+
+	/**
+	 * @return The number of products waiting for a worker.
+	 */
+	public long getProductsQueued() {
+		return productsQueued.get();
+	}
+
+	/**
+	 * @return The most products that have been waiting for a worker at once.
+	 */
+	public long getMaxProductsQueued() {
+		return maxProductsQueued.get();
+	}
+
+	/**
+	 * @return The number of products being handled.
+	 */
+	public long getProductsActive() {
+		return productsActive.get();
+	}
+
+	/**
+	 * @return The number of products handled.
+	 */
+	public long getProductsHandled() {
+		return productsHandled.get();
+	}
+
+	/**
+	 * @return The number of products handled with the given result.
+	 */
+	public long getResultCount(IngestStatus.Result result) {
+		return results[result.ordinal()].get();
+	}
+
+	/**
+	 * @return The time spent extracting metadata, in milliseconds, summed
+	 *         over all workers.
+	 */
+	public long getExtractionMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(extractionNanos.get());
+	}
+
+	/**
+	 * @return The time spent ingesting, in milliseconds, summed over all
+	 *         workers.
+	 */
+	public long getIngestMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(ingestNanos.get());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("handled: ").append(getProductsHandled());
+		for (IngestStatus.Result result : IngestStatus.Result.values()) {
+			sb.append(", ").append(result).append(": ")
+					.append(getResultCount(result));
+		}
+		sb.append(", queued: ").append(getProductsQueued())
+				.append(" (max ").append(getMaxProductsQueued()).append(")")
+				.append(", active: ").append(getProductsActive())
+				.append(", directories queued: ").append(getDirectoriesQueued())
+				.append(", extraction ms: ").append(getExtractionMillis())
+				.append(", ingest ms: ").append(getIngestMillis());
+		return sb.toString();
+	}
+}
@@ -26,13 +26,19 @@ import static org.easymock.EasyMock.verify;
 //JDK imports
 import java.io.File;
 import java.net.MalformedURLException;
+import java.io.IOException;
 import java.net.URL;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Vector;
 
 //OODT imports
 import org.apache.oodt.cas.crawl.action.CrawlerAction;
 import org.apache.oodt.cas.crawl.action.CrawlerActionRepo;
+import org.apache.oodt.cas.crawl.status.CrawlMetrics;
 import org.apache.oodt.cas.crawl.status.IngestStatus;
+import org.apache.oodt.cas.crawl.status.IngestStatusSink;
 import org.apache.oodt.cas.crawl.structs.exceptions.CrawlerActionException;
 import org.apache.oodt.cas.filemgr.datatransfer.LocalDataTransferFactory;
 import org.apache.oodt.cas.filemgr.ingest.Ingester;
@@ -40,6 +46,9 @@ import org.apache.oodt.cas.filemgr.metadata.CoreMetKeys;
 import org.apache.oodt.cas.filemgr.structs.exceptions.IngestException;
 import org.apache.oodt.cas.metadata.Metadata;
 
+//Apache imports
+import org.apache.commons.io.FileUtils;
+
 //Spring imports
 import org.springframework.context.support.FileSystemXmlApplicationContext;
 
@@ -309,6 +318,67 @@ public class TestProductCrawler extends TestCase {
       assertNotNull(pc.ingester);
    }
 
+   public void testCrawlOrderAndBoundedStatus() throws IOException {
+      File root = createProductTree(2, 5);
+      try {
+         Metadata m = new Metadata();
+         m.addMetadata(CoreMetKeys.PRODUCT_TYPE, "GenericFile");
+         ProductCrawler pc = createIngestingCrawler(m);
+         pc.setProductComparator(new Comparator<File>() {
+            public int compare(File f1, File f2) {
+               return f2.getName().compareTo(f1.getName());
+            }
+         });
+         pc.setMaxIngestStatus(3);
+         final List<IngestStatus> reported = new Vector<IngestStatus>();
+         pc.setIngestStatusSink(new IngestStatusSink() {
+            public void report(IngestStatus status) {
+               reported.add(status);
+            }
+         });
+
+         pc.crawl(root);
+
+         assertEquals(10, reported.size());
+         List<IngestStatus> kept = pc.getIngestStatus();
+         assertEquals(3, kept.size());
+         assertEquals(reported.subList(7, 10), kept);
+         // each directory's products are handled in comparator order
+         assertEquals("product4.dat", reported.get(0).getProduct().getName());
+         assertEquals("product0.dat", reported.get(4).getProduct().getName());
+      } finally {
+         FileUtils.forceDelete(root);
+      }
+   }
+
+   public void testConcurrentCrawl() throws IOException {
+      File root = createProductTree(4, 25);
+      try {
+         Metadata m = new Metadata();
+         m.addMetadata(CoreMetKeys.PRODUCT_TYPE, "GenericFile");
+         ProductCrawler pc = createIngestingCrawler(m);
+         pc.setNumThreads(4);
+         pc.setIngestQueueSize(2);
+
+         pc.crawl(root);
+
+         assertEquals(100, pc.getIngestStatus().size());
+         for (IngestStatus status : pc.getIngestStatus()) {
+            assertEquals(IngestStatus.Result.SUCCESS, status.getResult());
+         }
+         CrawlMetrics metrics = pc.getCrawlMetrics();
+         assertEquals(100, metrics.getProductsHandled());
+         assertEquals(100,
+               metrics.getResultCount(IngestStatus.Result.SUCCESS));
+         assertEquals(0, metrics.getProductsQueued());
+         assertEquals(0, metrics.getProductsActive());
+         assertEquals(0, metrics.getDirectoriesQueued());
+         assertTrue(metrics.getMaxProductsQueued() <= 6);
+      } finally {
+         FileUtils.forceDelete(root);
+      }
+   }
+
    public void testLoadAndValidateActions() {
       ProductCrawler pc = createDummyCrawler();
       pc.setApplicationContext(new FileSystemXmlApplicationContext(
@@ -601,6 +671,43 @@ public class TestProductCrawler extends TestCase {
       verify(failAction);
    }
 
+   private static File createProductTree(int numDirs, int productsPerDir)
+         throws IOException {
+      File root = File.createTempFile("crawl", "");
+      root.delete();
+      for (int i = 0; i < numDirs; i++) {
+         File dir = new File(root, "dir" + i);
+         for (int j = 0; j < productsPerDir; j++) {
+            FileUtils.writeStringToFile(new File(dir, "product" + j + ".dat"),
+                  "data");
+         }
+      }
+      return root;
+   }
+
+   private static ProductCrawler createIngestingCrawler(final Metadata m) {
+      ProductCrawler pc = new ProductCrawler() {
+         @Override
+         protected boolean passesPreconditions(File product) {
+            return true;
+         }
+         @Override
+         protected Metadata getMetadataForProduct(File product) {
+            return m;
+         }
+         @Override
+         protected File renameProduct(File product, Metadata productMetadata) {
+            return product;
+         }
+         @Override
+         boolean ingest(File product, Metadata productMetadata) {
+            return true;
+         }
+      };
+      pc.setClientTransferer(LocalDataTransferFactory.class.getCanonicalName());
+      return pc;
+   }
+
    private static ProductCrawler createDummyCrawler() {
       return createDummyCrawler(true, new Metadata(), null); 
    }
@@ -27,6 +27,8 @@ import org.apache.oodt.cas.filemgr.structs.ProductType;
 import org.apache.oodt.cas.filemgr.structs.Query;
 import org.apache.oodt.cas.filemgr.structs.Reference;
 import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
+import org.apache.oodt.cas.filemgr.structs.query.ComplexQuery;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
 import org.apache.oodt.cas.filemgr.util.Pagination;
 import org.apache.oodt.cas.filemgr.validation.ValidationLayer;
 import org.apache.oodt.cas.metadata.Metadata;
@@ -92,6 +94,30 @@ public interface Catalog extends Pagination {
      */
     void addProduct(Product product) throws CatalogException;
 
+    /**
+     * <p>
+     * Adds a batch of Products, along with their {@link Reference}s and
+     * {@link Metadata}, to the Catalog. Implementations should store the whole
+     * batch in as few round trips (and, where the backend allows it, in a
+     * single transaction) as possible. Products without a
+     * <code>productId</code> are assigned one, exactly as in
+     * {@link #addProduct(Product)}, and that id is written to the
+     * <code>CAS.ProductId</code> key of the matching {@link Metadata} before it
+     * is stored.
+     * </p>
+     * 
+     * @param products
+     *            The {@link Product}s to add.
+     * @param metadata
+     *            The {@link Metadata} for each Product, in the same order as
+     *            <code>products</code>. A <code>null</code> entry adds no
+     *            metadata for that Product.
+     * @throws CatalogException
+     *             If any error occurs during the add.
+     */
+    void addProducts(List<Product> products, List<Metadata> metadata)
+            throws CatalogException;
+
     /**
      * <p>
      * Modifies an existing Product within the Catalog.
@@ -260,6 +286,29 @@ public interface Catalog extends Pagination {
      */
     List<String> query(Query query, ProductType type) throws CatalogException;
 
+    /**
+     * <p>
+     * Queries the Catalog with the specified {@link ComplexQuery}, returning
+     * the matching {@link Product}s together with their metadata in a single
+     * pass over the Catalog, rather than one lookup per matching product.
+     * </p>
+     * 
+     * @param complexQuery
+     *            The set of criteria by which to query the Catalog. Only the
+     *            metadata elements named by
+     *            {@link ComplexQuery#getReducedMetadata()} are returned (all of
+     *            them when it is null or empty), and the results are sorted by
+     *            {@link ComplexQuery#getSortByMetKey()} when it is set.
+     * @param type
+     *            The {@link ProductType} that should be queried.
+     * @return A {@link List} of {@link QueryResult}s for the products that
+     *         match the query.
+     * @throws CatalogException
+     *             If any error occurs.
+     */
+    List<QueryResult> complexQuery(ComplexQuery complexQuery, ProductType type)
+            throws CatalogException;
+
     /**
      * <p>
      * Performs a query against the underlying {@link Catalog}, and then
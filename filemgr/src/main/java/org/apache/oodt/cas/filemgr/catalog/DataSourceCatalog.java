@@ -17,6 +17,7 @@
 
 package org.apache.oodt.cas.filemgr.catalog;
 
+import org.apache.oodt.cas.filemgr.metadata.CoreMetKeys;
 import org.apache.oodt.cas.filemgr.structs.BooleanQueryCriteria;
 import org.apache.oodt.cas.filemgr.structs.Element;
 import org.apache.oodt.cas.filemgr.structs.Product;
@@ -28,10 +29,15 @@ import org.apache.oodt.cas.filemgr.structs.RangeQueryCriteria;
 import org.apache.oodt.cas.filemgr.structs.Reference;
 import org.apache.oodt.cas.filemgr.structs.TermQueryCriteria;
 import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
+import org.apache.oodt.cas.filemgr.structs.exceptions.QueryFormulationException;
 import org.apache.oodt.cas.filemgr.structs.exceptions.ValidationLayerException;
+import org.apache.oodt.cas.filemgr.structs.query.ComplexQuery;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
 import org.apache.oodt.cas.filemgr.util.DbStructFactory;
 import org.apache.oodt.cas.filemgr.validation.ValidationLayer;
 import org.apache.oodt.cas.metadata.Metadata;
+import org.apache.oodt.commons.database.PreparedStatements;
+import org.apache.oodt.commons.database.StatementBatch;
 import org.apache.oodt.commons.pagination.PaginationUtils;
 import org.apache.oodt.commons.util.DateConvert;
 
@@ -42,11 +48,18 @@ import org.springframework.util.StringUtils;
 
 //JDK imports
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
 import java.util.Vector;
@@ -102,6 +115,9 @@ public class DataSourceCatalog implements Catalog {
      */
     private long cacheUpdateMinutes = 0L;
 
+    /* how the database limits a query to one page, detected on first use */
+    private PagingDialect pagingDialect = null;
+
     /**
      * <p>
      * Default Constructor
@@ -244,81 +260,13 @@ public class DataSourceCatalog implements Catalog {
     public synchronized void addProduct(Product product)
             throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
-        ResultSet rs = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
-
-            String addProductSql;
-            String productTypeIdStr;
-
-          productTypeIdStr = fieldIdStringFlag ? "'"
-                                                 + product.getProductType().getProductTypeId() + "'"
-                                               : product.getProductType().getProductTypeId();
-
-						if (!productIdString) {
-							
-	            addProductSql = "INSERT INTO products (product_name, product_structure, product_transfer_status, product_type_id) "
-	                + "VALUES ('"
-	                + product.getProductName()
-	                + "', '"
-	                + product.getProductStructure()
-	                + "', '"
-	                + product.getTransferStatus()
-	                + "', "
-	                + productTypeIdStr
-	                + ")";
-
-				        LOG.log(Level.FINE, "addProduct: Executing: " + addProductSql);
-				        statement.execute(addProductSql);
-				
-				        // read "product_id" value that was automatically assigned by the database
-				        String productId = "";
-				
-				        String getProductIdSql = "SELECT MAX(product_id) AS max_id FROM products";
-				
-				        rs = statement.executeQuery(getProductIdSql);
-				
-				        while (rs.next()) {
-				            productId = String.valueOf(rs.getInt("max_id"));
-				        }
-				        
-		            product.setProductId(productId);
-		            conn.commit();
-							
-						} else {
-							
-							// reuse the existing product id if possible, or generate a new UUID string
-            	String productId = product.getProductId();
-            	if (!StringUtils.hasText(productId)) {
-                  productId = UUID.randomUUID().toString();
-                }
-            	// insert product in database
-            	addProductSql = "INSERT INTO products (product_id, product_name, product_structure, product_transfer_status, product_type_id, product_datetime) "
-                    + "VALUES ('"
-                    + productId
-                    + "', '"
-                    + product.getProductName()
-                    + "', '"
-                    + product.getProductStructure()
-                    + "', '"
-                    + product.getTransferStatus()
-                    + "', "
-                    + productTypeIdStr
-                    +", now()"
-                    + ")";                       
-
-            	LOG.log(Level.FINE, "addProduct: Executing: " + addProductSql);
-            	statement.execute(addProductSql);
-            	
-              product.setProductId(productId);
-              conn.commit();
-
-						}
 
+            insertProduct(conn, product);
+            conn.commit();
 
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -336,20 +284,78 @@ public class DataSourceCatalog implements Catalog {
             throw new CatalogException(e.getMessage(), e);
         } finally {
 
-            if (rs != null) {
+            if (conn != null) {
                 try {
-                    rs.close();
+                    conn.close();
+
                 } catch (SQLException ignore) {
                 }
 
             }
+        }
 
-            if (statement != null) {
-                try {
-                    statement.close();
-                } catch (SQLException ignore) {
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.filemgr.catalog.Catalog#addProducts(java.util.List,
+     *      java.util.List)
+     */
+    public synchronized void addProducts(List<Product> products,
+            List<Metadata> metadata) throws CatalogException {
+        if (metadata != null && metadata.size() != products.size()) {
+            throw new CatalogException("Unable to add products: ["
+                    + products.size() + "] products but [" + metadata.size()
+                    + "] metadata entries");
+        }
+
+        Connection conn = null;
+        StatementBatch batch = null;
+
+        try {
+            conn = dataSource.getConnection();
+            conn.setAutoCommit(false);
+            batch = new StatementBatch(conn);
+
+            // product ids may be assigned by the database, so the product
+            // rows go in first
+            for (Product product : products) {
+                insertProduct(conn, product);
+            }
+
+            for (int i = 0; i < products.size(); i++) {
+                Product product = products.get(i);
+                addReferencesToBatch(batch, product);
+
+                Metadata m = metadata != null ? metadata.get(i) : null;
+                if (m != null) {
+                    m.replaceMetadata(CoreMetKeys.PRODUCT_ID, product.getProductId());
+                    addMetadataToBatch(batch, m, product);
                 }
+            }
+
+            batch.execute();
+            conn.commit();
 
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, e.getMessage());
+            LOG.log(Level.WARNING, "Exception adding products. Message: "
+                    + e.getMessage());
+            try {
+              if (conn != null) {
+                conn.rollback();
+              }
+            } catch (SQLException e2) {
+                LOG.log(Level.SEVERE,
+                        "Unable to rollback addProducts transaction. Message: "
+                                + e2.getMessage());
+            }
+            throw new CatalogException(e.getMessage(), e);
+        } finally {
+
+            if (batch != null) {
+                batch.close();
             }
 
             if (conn != null) {
@@ -361,7 +367,136 @@ public class DataSourceCatalog implements Catalog {
 
             }
         }
+    }
+
+    /**
+     * Inserts the row for the given {@link Product} and sets its
+     * <code>productId</code>, either to the id assigned by the database or,
+     * when product ids are strings, to its existing or a newly generated id.
+     * The caller owns the transaction.
+     */
+    private void insertProduct(Connection conn, Product product)
+            throws SQLException {
+        Object productTypeId = PreparedStatements.idParam(product
+                .getProductType().getProductTypeId(), fieldIdStringFlag);
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+
+        try {
+            if (!productIdString) {
+                statement = PreparedStatements.prepare(conn,
+                        "INSERT INTO products (product_name, product_structure, product_transfer_status, product_type_id) "
+                                + "VALUES (?, ?, ?, ?)",
+                        sqlText(product.getProductName()),
+                        sqlText(product.getProductStructure()),
+                        sqlText(product.getTransferStatus()), productTypeId);
+
+                LOG.log(Level.FINE, "addProduct: Executing insert for product: ["
+                        + product.getProductName() + "]");
+                statement.executeUpdate();
+                statement.close();
+
+                // read "product_id" value that was automatically assigned by the database
+                String productId = "";
+
+                statement = conn
+                        .prepareStatement("SELECT MAX(product_id) AS max_id FROM products");
+                rs = statement.executeQuery();
+
+                while (rs.next()) {
+                    productId = String.valueOf(rs.getInt("max_id"));
+                }
+
+                product.setProductId(productId);
+
+            } else {
+
+                // reuse the existing product id if possible, or generate a new UUID string
+                String productId = product.getProductId();
+                if (!StringUtils.hasText(productId)) {
+                  productId = UUID.randomUUID().toString();
+                }
+                // insert product in database
+                statement = PreparedStatements.prepare(conn,
+                        "INSERT INTO products (product_id, product_name, product_structure, product_transfer_status, product_type_id, product_datetime) "
+                                + "VALUES (?, ?, ?, ?, ?, now())",
+                        productId, sqlText(product.getProductName()),
+                        sqlText(product.getProductStructure()),
+                        sqlText(product.getTransferStatus()), productTypeId);
+
+                LOG.log(Level.FINE, "addProduct: Executing insert for product: ["
+                        + productId + "]");
+                statement.executeUpdate();
+
+                product.setProductId(productId);
+            }
+        } finally {
+            if (rs != null) {
+                try {
+                    rs.close();
+                } catch (SQLException ignore) {
+                }
+            }
+
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an insert for each of the {@link Product}'s references to the
+     * given {@link StatementBatch}.
+     */
+    protected void addReferencesToBatch(StatementBatch batch, Product product)
+            throws SQLException {
+        String addRefSql = getAddReferenceSql(product.getProductType()
+                .getName() + "_reference");
+
+        for (Reference r : product.getProductReferences()) {
+            batch.add(addRefSql, getAddReferenceParams(product, r));
+        }
+    }
+
+    /**
+     * Adds an insert for each metadata value allowed by the
+     * {@link ValidationLayer} to the given {@link StatementBatch}.
+     */
+    protected void addMetadataToBatch(StatementBatch batch, Metadata m,
+            Product product) throws CatalogException, SQLException {
+        List<Element> metadataTypes;
+
+        try {
+            metadataTypes = validationLayer.getElements(product
+                    .getProductType());
+        } catch (ValidationLayerException e) {
+            LOG.log(Level.SEVERE, e.getMessage());
+            throw new CatalogException(
+                    "ValidationLayerException when trying to obtain element list for product type: "
+                            + product.getProductType().getName()
+                            + ": Message: " + e.getMessage(), e);
+        }
+
+        String metaIngestSql = getAddMetadataValueSql(product);
+        for (Element element : metadataTypes) {
+            List<String> values = m.getAllMetadata(element.getElementName());
+
+            if (values == null) {
+                LOG.log(Level.WARNING, "No Metadata specified for product ["
+                        + product.getProductName() + "] for required field ["
+                        + element.getElementName()
+                        + "]: Attempting to continue processing metadata");
+                continue;
+            }
 
+            for (String value : values) {
+                batch.add(metaIngestSql, productIdParam(product.getProductId()),
+                        fieldIdParam(element.getElementId()), value);
+            }
+        }
     }
 
     /*
@@ -372,23 +507,24 @@ public class DataSourceCatalog implements Catalog {
     public synchronized void modifyProduct(Product product)
             throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            String modifyProductSql = "UPDATE products SET product_name='"
-                    + product.getProductName() + "', product_structure='"
-                    + product.getProductStructure()
-                    + "', product_transfer_status='"
-                    + product.getTransferStatus() + "' "
-                    + "WHERE product_id = " + quoteIt(product.getProductId());
+            String modifyProductSql = "UPDATE products SET product_name = ?, "
+                    + "product_structure = ?, product_transfer_status = ? "
+                    + "WHERE product_id = ?";
 
             LOG.log(Level.FINE, "modifyProduct: Executing: "
                                 + modifyProductSql);
-            statement.execute(modifyProductSql);
+            statement = PreparedStatements.prepare(conn, modifyProductSql,
+                    sqlText(product.getProductName()),
+                    sqlText(product.getProductStructure()),
+                    sqlText(product.getTransferStatus()),
+                    productIdParam(product.getProductId()));
+            statement.executeUpdate();
             conn.commit();
 
             // now update the refs
@@ -436,34 +572,30 @@ public class DataSourceCatalog implements Catalog {
     public synchronized void removeProduct(Product product)
             throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
+
+        Object productId = productIdParam(product.getProductId());
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
-
-            String deleteProductSql = "DELETE FROM products WHERE product_id = "
-                    + quoteIt(product.getProductId());
 
-            LOG
-                    .log(Level.FINE, "removeProduct: Executing: "
-                            + deleteProductSql);
-            statement.execute(deleteProductSql);
-            deleteProductSql = "DELETE FROM "
-                    + product.getProductType().getName() + "_metadata "
-                    + " WHERE product_id = " + quoteIt(product.getProductId());
-            LOG
-                    .log(Level.FINE, "removeProduct: Executing: "
-                            + deleteProductSql);
-            statement.execute(deleteProductSql);
-            deleteProductSql = "DELETE FROM "
-                    + product.getProductType().getName() + "_reference "
-                    + " WHERE product_id = " + quoteIt(product.getProductId());
-            LOG
-                    .log(Level.FINE, "removeProduct: Executing: "
-                            + deleteProductSql);
-            statement.execute(deleteProductSql);
+            String[] deleteProductSqls = {
+                    "DELETE FROM products WHERE product_id = ?",
+                    "DELETE FROM " + product.getProductType().getName()
+                            + "_metadata WHERE product_id = ?",
+                    "DELETE FROM " + product.getProductType().getName()
+                            + "_reference WHERE product_id = ?" };
+
+            for (String deleteProductSql : deleteProductSqls) {
+                LOG.log(Level.FINE, "removeProduct: Executing: "
+                        + deleteProductSql);
+                statement = PreparedStatements.prepare(conn,
+                        deleteProductSql, productId);
+                statement.executeUpdate();
+                statement.close();
+                statement = null;
+            }
             conn.commit();
 
         } catch (Exception e) {
@@ -509,21 +641,21 @@ public class DataSourceCatalog implements Catalog {
     public synchronized void setProductTransferStatus(Product product)
             throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            String modifyProductSql = "UPDATE products SET product_transfer_status='"
-                    + product.getTransferStatus()
-                    + "' "
-                    + "WHERE product_id = " + quoteIt(product.getProductId());
+            String modifyProductSql = "UPDATE products SET product_transfer_status = ? "
+                    + "WHERE product_id = ?";
 
             LOG.log(Level.FINE, "setProductTransferStatus: Executing: "
                     + modifyProductSql);
-            statement.execute(modifyProductSql);
+            statement = PreparedStatements.prepare(conn, modifyProductSql,
+                    sqlText(product.getTransferStatus()),
+                    productIdParam(product.getProductId()));
+            statement.executeUpdate();
             conn.commit();
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -570,7 +702,7 @@ public class DataSourceCatalog implements Catalog {
     public synchronized void addProductReferences(Product product)
             throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         String productRefTable = product.getProductType().getName()
                 + "_reference";
@@ -578,30 +710,18 @@ public class DataSourceCatalog implements Catalog {
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
-
-          for (Reference r : product.getProductReferences()) {
-            String addRefSql = "INSERT INTO "
-                               + productRefTable
-                               + " "
-                               + "(product_id, product_orig_reference, product_datastore_reference, product_reference_filesize, product_reference_mimetype) "
-                               + "VALUES ("
-                               + quoteIt(product.getProductId())
-                               + ", '"
-                               + r.getOrigReference()
-                               + "', '"
-                               + r.getDataStoreReference()
-                               + "', "
-                               + r.getFileSize()
-                               + ",'"
-                               + ((r.getMimeType() == null) ? "" : r.getMimeType()
-                                                                    .getName()) + "')";
 
+            String addRefSql = getAddReferenceSql(productRefTable);
             LOG.log(Level.FINE, "addProductReferences: Executing: "
                                 + addRefSql);
-            statement.execute(addRefSql);
+            statement = conn.prepareStatement(addRefSql);
+
+          for (Reference r : product.getProductReferences()) {
+            PreparedStatements.bind(statement, getAddReferenceParams(product, r));
+            statement.addBatch();
           }
 
+            statement.executeBatch();
             conn.commit();
 
         } catch (Exception e) {
@@ -641,6 +761,23 @@ public class DataSourceCatalog implements Catalog {
 
     }
 
+    private String getAddReferenceSql(String productRefTable) {
+        return "INSERT INTO "
+               + productRefTable
+               + " "
+               + "(product_id, product_orig_reference, product_datastore_reference, product_reference_filesize, product_reference_mimetype) "
+               + "VALUES (?, ?, ?, ?, ?)";
+    }
+
+    private Object[] getAddReferenceParams(Product product, Reference r) {
+        return new Object[] {
+                productIdParam(product.getProductId()),
+                sqlText(r.getOrigReference()),
+                sqlText(r.getDataStoreReference()),
+                r.getFileSize(),
+                (r.getMimeType() == null) ? "" : r.getMimeType().getName() };
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -648,20 +785,21 @@ public class DataSourceCatalog implements Catalog {
      */
     public Product getProductById(String productId) throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         Product product = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
             String getProductSql = "SELECT * " + "FROM products "
-                    + "WHERE product_id = " + quoteIt(productId);
+                    + "WHERE product_id = ?";
 
             LOG.log(Level.FINE, "getProductById: Executing: " + getProductSql);
-            rs = statement.executeQuery(getProductSql);
+            statement = PreparedStatements.prepare(conn, getProductSql,
+                    productIdParam(productId));
+            rs = statement.executeQuery();
 
             while (rs.next()) {
                 product = DbStructFactory.getProduct(rs, false, productIdString);
@@ -719,22 +857,23 @@ public class DataSourceCatalog implements Catalog {
      */
     public Product getProductByName(String productName) throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         Product product = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
             String getProductSql = "SELECT products.* " + "FROM products "
-                    + "WHERE product_name = '" + productName + "'";
+                    + "WHERE product_name = ?";
 
             LOG
                     .log(Level.FINE, "getProductByName: Executing: "
                             + getProductSql);
-            rs = statement.executeQuery(getProductSql);
+            statement = PreparedStatements.prepare(conn, getProductSql,
+                    productName);
+            rs = statement.executeQuery();
 
             while (rs.next()) {
                 product = DbStructFactory.getProduct(rs, false, productIdString);
@@ -792,18 +931,17 @@ public class DataSourceCatalog implements Catalog {
      */
     public List<Reference> getProductReferences(Product product) throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         List<Reference> references = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
             StringBuilder getProductRefSql = new StringBuilder("SELECT * FROM "
                     + product.getProductType().getName() + "_reference"
-		+ " WHERE product_id = " + quoteIt(product.getProductId()));
+		+ " WHERE product_id = ?");
 
             if(this.orderedValues) {
               getProductRefSql.append(" ORDER BY pkey");
@@ -811,7 +949,10 @@ public class DataSourceCatalog implements Catalog {
 
             LOG.log(Level.FINE, "getProductReferences: Executing: "
                     + getProductRefSql);
-            rs = statement.executeQuery(getProductRefSql.toString());
+            statement = PreparedStatements.prepare(conn,
+                    getProductRefSql.toString(),
+                    productIdParam(product.getProductId()));
+            rs = statement.executeQuery();
 
             references = new Vector<Reference>();
             while (rs.next()) {
@@ -949,26 +1090,22 @@ public class DataSourceCatalog implements Catalog {
     public List<Product> getProductsByProductType(ProductType type)
             throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         List<Product> products = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
-            String getProductSql;
-            String productTypeIdStr;
-
-          productTypeIdStr = fieldIdStringFlag ? "'" + type.getProductTypeId() + "'" : type.getProductTypeId();
-
-            getProductSql = "SELECT products.* " + "FROM products "
-                    + "WHERE products.product_type_id = " + productTypeIdStr;
+            String getProductSql = "SELECT products.* " + "FROM products "
+                    + "WHERE products.product_type_id = ?";
 
             LOG.log(Level.FINE, "getProductsByProductType: Executing: "
                     + getProductSql);
-            rs = statement.executeQuery(getProductSql);
+            statement = PreparedStatements.prepare(conn, getProductSql,
+                    fieldIdParam(type.getProductTypeId()));
+            rs = statement.executeQuery();
             products = new Vector<Product>();
 
             while (rs.next()) {
@@ -1027,24 +1164,26 @@ public class DataSourceCatalog implements Catalog {
 
     public Metadata getMetadata(Product product) throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
         Metadata m = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
             StringBuilder metadataSql = new StringBuilder("SELECT * FROM "
                     + product.getProductType().getName() + "_metadata"
-		+ " WHERE product_id = " + quoteIt(product.getProductId()));
+		+ " WHERE product_id = ?");
  
 	    if(this.orderedValues) {
           metadataSql.append(" ORDER BY pkey");
         }
 
             LOG.log(Level.FINE, "getMetadata: Executing: " + metadataSql);
-            rs = statement.executeQuery(metadataSql.toString());
+            statement = PreparedStatements.prepare(conn,
+                    metadataSql.toString(),
+                    productIdParam(product.getProductId()));
+            rs = statement.executeQuery();
             
             m = new Metadata();
             List<Element> elements;
@@ -1110,34 +1249,36 @@ public class DataSourceCatalog implements Catalog {
     
     public Metadata getReducedMetadata(Product product, List<String> elems) throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
         Metadata m = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
+            List<Object> params = new ArrayList<Object>(elems.size() + 1);
+            params.add(productIdParam(product.getProductId()));
             StringBuilder elementIds = new StringBuilder("");
             if (elems.size() > 0) {
-                elementIds.append(" AND (element_id = '")
-                          .append(this.validationLayer.getElementByName(elems.get(0)).getElementId
-                              ()).append("'");
+                elementIds.append(" AND (element_id = ?");
+                params.add(this.validationLayer.getElementByName(elems.get(0)).getElementId());
                 for (int i = 1; i < elems.size(); i++) {
-                  elementIds.append(" OR element_id = '").append(this.validationLayer.getElementByName(elems.get(i))
-                                                                                     .getElementId()).append("'");
+                  elementIds.append(" OR element_id = ?");
+                  params.add(this.validationLayer.getElementByName(elems.get(i)).getElementId());
                 }
                 elementIds.append(")");
             }
             StringBuilder metadataSql = new StringBuilder("SELECT element_id,metadata_value FROM "
                     + product.getProductType().getName() + "_metadata"
-		+ " WHERE product_id = " + quoteIt(product.getProductId()) + elementIds);
+		+ " WHERE product_id = ?" + elementIds);
             if(this.orderedValues) {
               metadataSql.append(" ORDER BY pkey");
             }
 
             LOG.log(Level.FINE, "getMetadata: Executing: " + metadataSql);
-            rs = statement.executeQuery(metadataSql.toString());
+            statement = PreparedStatements.prepare(conn,
+                    metadataSql.toString(), params.toArray());
+            rs = statement.executeQuery();
 
             m = new Metadata();
             List<Element> elements;
@@ -1208,7 +1349,252 @@ public class DataSourceCatalog implements Catalog {
      *      org.apache.oodt.cas.filemgr.structs.ProductType)
      */
     public List<String> query(Query query, ProductType type) throws CatalogException {
-        return paginateQuery(query, type, -1);
+        return getProductIds(query, type);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.filemgr.catalog.Catalog#complexQuery(org.apache.oodt.cas.filemgr.structs.query.ComplexQuery,
+     *      org.apache.oodt.cas.filemgr.structs.ProductType)
+     */
+    public List<QueryResult> complexQuery(ComplexQuery complexQuery, ProductType type)
+            throws CatalogException {
+        Connection conn = null;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+
+        List<QueryResult> queryResults = new ArrayList<QueryResult>();
+
+        try {
+            Map<String, String> elementNames = getElementNamesById(type);
+            List<Object> idParams = new ArrayList<Object>();
+            String productIdSql = getComplexQueryIdSql(complexQuery, type, idParams);
+
+            conn = dataSource.getConnection();
+
+            // read the ids of the matching products a page at a time, in
+            // result order, then the metadata of each page's products
+            PagingDialect dialect = getPagingDialect(conn);
+            boolean paged = pageSize > 0 && dialect != PagingDialect.NONE;
+            int offset = 0;
+            int read;
+            do {
+                String pageSql = paged ? productIdSql + dialect.getLimitClause(offset, pageSize)
+                        : productIdSql;
+                LOG.log(Level.FINE, "complexQuery: Executing: " + pageSql);
+                statement = PreparedStatements.prepare(conn, pageSql, idParams.toArray());
+                rs = statement.executeQuery();
+                List<String> productIds = new ArrayList<String>();
+                while (rs.next()) {
+                    productIds.add(rs.getString("product_id"));
+                }
+                rs.close();
+                rs = null;
+                statement.close();
+                statement = null;
+
+                // without a limit clause, the ids are all read at once: still
+                // read their metadata a page at a time
+                int chunkSize = pageSize > 0 ? pageSize : Math.max(1, productIds.size());
+                for (int i = 0; i < productIds.size(); i += chunkSize) {
+                    queryResults.addAll(getQueryResults(conn, complexQuery, type, elementNames,
+                            productIds.subList(i, Math.min(i + chunkSize, productIds.size()))));
+                }
+                read = productIds.size();
+                offset += read;
+            } while (paged && read == pageSize);
+
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, e.getMessage());
+            LOG.log(Level.WARNING, "Exception performing complex query. Message: "
+                    + e.getMessage());
+            throw new CatalogException(e.getMessage(), e);
+        } finally {
+
+            if (rs != null) {
+                try {
+                    rs.close();
+                } catch (SQLException ignore) {
+                }
+
+            }
+
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException ignore) {
+                }
+
+            }
+
+            if (conn != null) {
+                try {
+                    conn.close();
+
+                } catch (SQLException ignore) {
+                }
+
+            }
+        }
+
+        return queryResults;
+    }
+
+    /**
+     * Builds the SQL statement that selects the ids of the products matching
+     * the given {@link ComplexQuery}, in result order: by the smallest value
+     * of its sort-by metadata key, if it has one, with the products that have
+     * no value for it last, and then newest first.
+     */
+    private String getComplexQueryIdSql(ComplexQuery complexQuery, ProductType type,
+            List<Object> params) throws ValidationLayerException, CatalogException,
+            QueryFormulationException {
+        StringBuilder sql = new StringBuilder("SELECT products.product_id FROM products");
+        String sortElementId = null;
+        if (complexQuery.getSortByMetKey() != null) {
+            Element sortElement = validationLayer.getElementByName(complexQuery.getSortByMetKey());
+            if (sortElement != null) {
+                sortElementId = sortElement.getElementId();
+            } else {
+                LOG.log(Level.WARNING, "Unknown sort-by metadata key: ["
+                        + complexQuery.getSortByMetKey() + "]: results are not sorted by it");
+            }
+        }
+        if (sortElementId != null) {
+            sql.append(" LEFT OUTER JOIN (SELECT product_id, MIN(metadata_value) AS sort_value FROM ")
+                    .append(type.getName()).append("_metadata WHERE element_id = ? GROUP BY product_id)")
+                    .append(" sort_met ON products.product_id = sort_met.product_id");
+            params.add(fieldIdParam(sortElementId));
+        }
+        sql.append(" WHERE products.product_id IN (")
+                .append(getProductIdSql(complexQuery, type, params)).append(") ORDER BY ");
+        if (sortElementId != null) {
+            sql.append("CASE WHEN sort_met.sort_value IS NULL THEN 1 ELSE 0 END, sort_met.sort_value, ");
+        }
+        if (!productIdString) {
+            sql.append("products.product_id DESC");
+        } else {
+            sql.append("products.product_datetime DESC, products.product_id");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Reads the given products, in the given order, along with their metadata
+     * reduced to the metadata keys of the given {@link ComplexQuery}, using a
+     * single join that returns one row per metadata value.
+     */
+    private List<QueryResult> getQueryResults(Connection conn, ComplexQuery complexQuery,
+            ProductType type, Map<String, String> elementNames, List<String> productIds)
+            throws SQLException, ValidationLayerException {
+        List<Object> params = new ArrayList<Object>();
+        String metadataTable = type.getName() + "_metadata";
+        StringBuilder metadataSql = new StringBuilder(metadataTable);
+        List<String> reducedMetadata = complexQuery.getReducedMetadata();
+        if (reducedMetadata != null && reducedMetadata.size() > 0) {
+            metadataSql = new StringBuilder("(SELECT * FROM ").append(metadataTable)
+                    .append(" WHERE element_id IN (");
+            for (int i = 0; i < reducedMetadata.size(); i++) {
+                metadataSql.append(i > 0 ? ", ?" : "?");
+                params.add(fieldIdParam(getElementId(reducedMetadata.get(i))));
+            }
+            metadataSql.append("))");
+        }
+        StringBuilder resultsSql = new StringBuilder(
+                "SELECT products.*, met.element_id, met.metadata_value FROM products LEFT OUTER JOIN ")
+                .append(metadataSql).append(" met ON products.product_id = met.product_id")
+                .append(" WHERE products.product_id IN (");
+        for (int i = 0; i < productIds.size(); i++) {
+            resultsSql.append(i > 0 ? ", ?" : "?");
+            params.add(productIdParam(productIds.get(i)));
+        }
+        resultsSql.append(")");
+        if (this.orderedValues) {
+            resultsSql.append(" ORDER BY met.pkey");
+        }
+
+        Map<String, QueryResult> results = new HashMap<String, QueryResult>();
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try {
+            LOG.log(Level.FINE, "complexQuery: Executing: " + resultsSql);
+            statement = PreparedStatements.prepare(conn, resultsSql.toString(), params.toArray());
+            rs = statement.executeQuery();
+            while (rs.next()) {
+                String productId = rs.getString("product_id");
+                QueryResult current = results.get(productId);
+                if (current == null) {
+                    Product product = DbStructFactory.getProduct(rs, false, productIdString);
+                    product.setProductType(type);
+                    current = new QueryResult(product, new Metadata());
+                    results.put(productId, current);
+                }
+
+                String elemId = rs.getString("element_id");
+                if (elemId == null) {
+                    continue;
+                }
+                String elemName = elementNames != null ? elementNames.get(elemId) : elemId;
+                if (elemName != null) {
+                    // right now, we just support STRING
+                    String elemValue = rs.getString("metadata_value");
+                    current.getMetadata().addMetadata(elemName, elemValue != null ? elemValue : "");
+                }
+            }
+        } finally {
+            if (rs != null) {
+                try {
+                    rs.close();
+                } catch (SQLException ignore) {
+                }
+            }
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException ignore) {
+                }
+            }
+        }
+
+        List<QueryResult> queryResults = new ArrayList<QueryResult>();
+        for (String productId : productIds) {
+            QueryResult result = results.get(productId);
+            if (result != null) {
+                queryResults.add(result);
+            }
+        }
+        return queryResults;
+    }
+
+    /**
+     * Returns the names of the metadata elements of the given
+     * {@link ProductType}, keyed by the element id stored in its metadata
+     * table. Values whose element id is not in the map are skipped, and a
+     * <code>null</code> map means the element id is the element name.
+     */
+    protected Map<String, String> getElementNamesById(ProductType type)
+            throws CatalogException {
+        Map<String, String> elementNames = new HashMap<String, String>();
+        try {
+            for (Element element : validationLayer.getElements(type)) {
+                elementNames.put(element.getElementId(), element.getElementName());
+            }
+        } catch (ValidationLayerException e) {
+            LOG.log(Level.SEVERE, e.getMessage());
+            throw new CatalogException(
+                    "ValidationLayerException when trying to obtain element list for product type: "
+                            + type.getName() + ": Message: " + e.getMessage(), e);
+        }
+        return elementNames;
+    }
+
+    /**
+     * Returns the element id stored in the metadata tables for the element
+     * with the given name.
+     */
+    protected String getElementId(String elementName) throws ValidationLayerException {
+        return this.validationLayer.getElementByName(elementName).getElementId();
     }
 
     /*
@@ -1231,33 +1617,29 @@ public class DataSourceCatalog implements Catalog {
         List<Product> products = null;
 
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
-            statement.setMaxRows(n);
 
             StringBuilder getProductSql = new StringBuilder("SELECT products.* " + "FROM products ");
+            Object[] params = new Object[0];
 
             if (type != null && type.getProductTypeId() != null) {
-                if (fieldIdStringFlag) {
-                    getProductSql.append("WHERE products.product_type_id = '").append(type.getProductTypeId())
-                                 .append("' ");
-                } else {
-                    getProductSql.append("WHERE products.product_type_id = ").append(type.getProductTypeId())
-                                 .append(" ");
-                }
-
+                getProductSql.append("WHERE products.product_type_id = ? ");
+                params = new Object[] { fieldIdParam(type.getProductTypeId()) };
             }
 
             getProductSql.append("ORDER BY products.product_id DESC");
 
             LOG.log(Level.FINE, "getTopNProducts: executing: " + getProductSql.toString());
 
-            rs = statement.executeQuery(getProductSql.toString());
+            statement = PreparedStatements.prepare(conn,
+                    getProductSql.toString(), params);
+            statement.setMaxRows(n);
+            rs = statement.executeQuery();
             products = new Vector<Product>();
 
             while (rs.next()) {
@@ -1329,36 +1711,20 @@ public class DataSourceCatalog implements Catalog {
             Product product, String value) throws CatalogException {
 
         Connection conn = null;
-        Statement statement = null;
-
-        String metadataTable = product.getProductType().getName() + "_metadata";
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
-
-            // build up the sql statement
-          StringBuilder valueClauseSql = new StringBuilder();
-
-          valueClauseSql.append("VALUES ");
-
-            // now do the value clause
-            if (fieldIdStringFlag) {
-                valueClauseSql.append("(").append(product.getProductId()).append(", '").append(element.getElementId())
-                              .append("', '").append(value).append("')");
-            } else {
-                valueClauseSql.append("(").append(product.getProductId()).append(", ").append(element.getElementId())
-                              .append(", '").append(value).append("')");
-            }
 
-            String metaIngestSql = ("INSERT INTO " + metadataTable
-                                    + " (product_id, element_id, metadata_value) ")
-                    + valueClauseSql.toString();
+            String metaIngestSql = getAddMetadataValueSql(product);
             LOG
                     .log(Level.FINE, "addMetadataValue: Executing: "
                             + metaIngestSql);
-            statement.execute(metaIngestSql);
+            statement = PreparedStatements.prepare(conn, metaIngestSql,
+                    productIdParam(product.getProductId()),
+                    fieldIdParam(element.getElementId()), value);
+            statement.executeUpdate();
             conn.commit();
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -1394,34 +1760,34 @@ public class DataSourceCatalog implements Catalog {
         }
     }
 
+    private String getAddMetadataValueSql(Product product) {
+        String metadataTable = product.getProductType().getName() + "_metadata";
+
+        return "INSERT INTO " + metadataTable
+                + " (product_id, element_id, metadata_value) VALUES (?, ?, ?)";
+    }
+
     private synchronized void removeMetadataValue(Element element,
             Product product, String value) throws CatalogException {
 
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         String metadataTable = product.getProductType().getName() + "_metadata";
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            // build up the sql statement
-            StringBuilder metRemoveSql = new StringBuilder("DELETE FROM " + metadataTable + " WHERE ");
-            if (fieldIdStringFlag) {
-                metRemoveSql.append("PRODUCT_ID = '").append(product.getProductId()).append("' AND ");
-                metRemoveSql.append("ELEMENT_ID = '").append(element.getElementId()).append("' AND ");
-                metRemoveSql.append("METADATA_VALUE = '").append(value).append("'");
-            } else {
-                metRemoveSql.append("PRODUCT_ID = ").append(product.getProductId()).append(" AND ");
-                metRemoveSql.append("ELEMENT_ID = ").append(element.getElementId()).append(" AND ");
-                metRemoveSql.append("METADATA_VALUE = ").append(value);
-            }
+            String metRemoveSql = "DELETE FROM " + metadataTable
+                    + " WHERE PRODUCT_ID = ? AND ELEMENT_ID = ? AND METADATA_VALUE = ?";
 
             LOG.log(Level.FINE, "removeMetadataValue: Executing: "
                     + metRemoveSql);
-            statement.execute(metRemoveSql.toString());
+            statement = PreparedStatements.prepare(conn, metRemoveSql,
+                    productIdParam(product.getProductId()),
+                    fieldIdParam(element.getElementId()), value);
+            statement.executeUpdate();
             conn.commit();
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -1465,7 +1831,7 @@ public class DataSourceCatalog implements Catalog {
      */
     public int getNumProducts(ProductType type) throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         int numProducts = -1;
@@ -1473,20 +1839,15 @@ public class DataSourceCatalog implements Catalog {
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            StringBuilder getProductSql = new StringBuilder("SELECT COUNT(products.product_id) AS numProducts "
-                    + "FROM products ");
+            String getProductSql = "SELECT COUNT(products.product_id) AS numProducts "
+                    + "FROM products WHERE products.product_type_id = ?";
 
-            if (fieldIdStringFlag) {
-                getProductSql.append("WHERE products.product_type_id = '").append(type.getProductTypeId()).append("' ");
-            } else {
-                getProductSql.append("WHERE products.product_type_id = ").append(type.getProductTypeId()).append(" ");
-            }
+            LOG.log(Level.FINE, "getNumProducts: executing: " + getProductSql);
 
-            LOG.log(Level.FINE, "getNumProducts: executing: " + getProductSql.toString());
-
-            rs = statement.executeQuery(getProductSql.toString());
+            statement = PreparedStatements.prepare(conn, getProductSql,
+                    fieldIdParam(type.getProductTypeId()));
+            rs = statement.executeQuery();
 
             while (rs.next()) {
                 numProducts = rs.getInt("numProducts");
@@ -1580,11 +1941,16 @@ public class DataSourceCatalog implements Catalog {
      * @see org.apache.oodt.cas.filemgr.util.Pagination#getNextPage(org.apache.oodt.cas.filemgr.structs.ProductType,
      *      org.apache.oodt.cas.filemgr.structs.ProductPage)
      */
-    public ProductPage getNextPage(ProductType type, ProductPage currentPage) {
+    public ProductPage getNextPage(ProductType type, ProductPage currentPage)
+            throws CatalogException {
         if (currentPage == null) {
             return getFirstPage(type);
         }
 
+        if (currentPage.getCursor() != null) {
+            return seekPage(type, currentPage.getCursor());
+        }
+
         if (currentPage.isLastPage()) {
             return currentPage;
         }
@@ -1637,8 +2003,8 @@ public class DataSourceCatalog implements Catalog {
      */
     public ProductPage pagedQuery(Query query, ProductType type, int pageNum)
             throws CatalogException {
-        int totalPages = PaginationUtils.getTotalPage(getResultListSize(query,
-                type), this.pageSize);
+        int numOfHits = getResultListSize(query, type);
+        int totalPages = PaginationUtils.getTotalPage(numOfHits, this.pageSize);
 
         /*
          * if there are 0 total pages in the result list size then don't bother
@@ -1648,14 +2014,100 @@ public class DataSourceCatalog implements Catalog {
             return ProductPage.blankPage();
         }
 
+        int offset = (pageNum - 1) * pageSize;
+        if (offset < 0 || offset > numOfHits) {
+            offset = 0;
+        }
+
+        return getPage(query, type, pageNum, totalPages, numOfHits, offset,
+                null);
+    }
+
+    /**
+     * Gets the page after the one the given cursor was issued for, seeking
+     * past the last product of that page rather than counting the matching
+     * products and skipping over them again, so every page of a product type
+     * costs the same however deep it is. The cursor carries the position and
+     * size of the result set as of the first page: products ingested since
+     * then show up on the first page, not in the middle of the walk.
+     * 
+     * @param type
+     *            The ProductType being paged through.
+     * @param cursor
+     *            The {@link ProductPage#getCursor()} of the current page.
+     * @return The next page.
+     * @throws CatalogException
+     *             If the cursor is not one this catalog issued, or the query
+     *             fails.
+     */
+    protected ProductPage seekPage(ProductType type, String cursor)
+            throws CatalogException {
+        // pageNum:totalPages:numOfHits:seekKey, see getPage
+        String[] parts = cursor.split(":", 4);
+        if (parts.length != 4) {
+            throw new CatalogException("Invalid page cursor: [" + cursor + "]");
+        }
+
+        int pageNum;
+        int totalPages;
+        long numOfHits;
+        try {
+            pageNum = Integer.parseInt(parts[0]);
+            totalPages = Integer.parseInt(parts[1]);
+            numOfHits = Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            throw new CatalogException("Invalid page cursor: [" + cursor + "]", e);
+        }
+        if (!isValidSeekKey(parts[3])) {
+            throw new CatalogException("Invalid page cursor: [" + cursor + "]");
+        }
+
+        return getPage(new Query(), type, pageNum + 1, totalPages, numOfHits,
+                0, parts[3]);
+    }
+
+    /*
+     * A seek key is a product id, or with string product ids
+     * "datetime|product_id", where the datetime is empty for products
+     * without one.
+     */
+    private boolean isValidSeekKey(String seekKey) {
+        if (!productIdString) {
+            try {
+                Long.parseLong(seekKey);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        int sep = seekKey.indexOf('|');
+        if (sep < 0 || sep == seekKey.length() - 1) {
+            return false;
+        }
+        if (sep > 0) {
+            try {
+                Timestamp.valueOf(seekKey.substring(0, sep));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ProductPage getPage(Query query, ProductType type, int pageNum,
+            int totalPages, long numOfHits, int offset, String seekKey)
+            throws CatalogException {
         ProductPage retPage = new ProductPage();
         retPage.setPageNum(pageNum);
         retPage.setPageSize(this.pageSize);
         retPage.setTotalPages(totalPages);
+        retPage.setNumOfHits(numOfHits);
 
-        List<String> productIds = paginateQuery(query, type, pageNum);
+        List<String> productIds = new Vector<String>();
+        String lastKey = paginateQuery(query, type, offset, seekKey, productIds);
 
-        if (productIds != null && productIds.size() > 0) {
+        if (productIds.size() > 0) {
             List<Product> products = new Vector<Product>(productIds.size());
 
           for (String productId : productIds) {
@@ -1664,6 +2116,12 @@ public class DataSourceCatalog implements Catalog {
           }
 
             retPage.setPageProducts(products);
+
+            // getNextPage only ever pages through the whole type
+            if (pageNum < totalPages && query.getCriteria().size() == 0) {
+                retPage.setCursor(pageNum + ":" + totalPages + ":" + numOfHits
+                        + ":" + lastKey);
+            }
         }
 
         return retPage;
@@ -1936,102 +2394,163 @@ public class DataSourceCatalog implements Catalog {
         return products;
     }
 
-    private List<String> paginateQuery(Query query, ProductType type, int pageNum)
+    private List<String> getProductIds(Query query, ProductType type)
             throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
-        boolean doSkip = true;
-        int numResults = -1;
-
-        if (pageNum == -1) {
-            doSkip = false;
-        } else {
-            numResults = getResultListSize(query, type);
-        }
-
         try {
-            
             conn = dataSource.getConnection();
-            statement = conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE,
-                    ResultSet.CONCUR_READ_ONLY);
 
-            StringBuilder getProductSql = new StringBuilder();
-            
+            List<Object> params = new ArrayList<Object>();
+            StringBuilder getProductSql = new StringBuilder(getProductIdSql(query, type, params));
             if (!productIdString) {
-            	
-	            if (query.getCriteria().size() == 0) {
-	                getProductSql.append("SELECT DISTINCT product_id FROM ").append(type.getName()).append("_metadata");
-	            }else if (query.getCriteria().size() == 1) {
-	                getProductSql.append(this.getSqlQuery(query.getCriteria().get(0), type));
-	            }else {
-	                getProductSql.append(this.getSqlQuery(new BooleanQueryCriteria(query.getCriteria(), BooleanQueryCriteria
-                        .AND), type));
-	            }
 	            getProductSql.append(" ORDER BY product_id DESC ");
-            
             } else {
-            	
-              if (query.getCriteria().size() == 0) {
-                getProductSql.append("SELECT DISTINCT products.product_id FROM products, ").append(type.getName())
-                             .append("_metadata").append(" WHERE products.product_id=").append(type.getName())
-                             .append("_metadata.product_id");
-              }	else if (query.getCriteria().size() == 1) {
-                getProductSql.append(this.getSqlQuery(query.getCriteria().get(0), type));
-              }	else {
-                getProductSql.append(this.getSqlQuery(new BooleanQueryCriteria(query.getCriteria(), BooleanQueryCriteria
-                    .AND), type));
-              }
               getProductSql.append(" ORDER BY products.product_datetime DESC ");
-              
             }
-            
+
             LOG.log(Level.FINE, "catalog query: executing: " + getProductSql.toString());
 
-            rs = statement.executeQuery(getProductSql.toString());
+            statement = PreparedStatements.prepare(conn, getProductSql.toString(), params.toArray());
+            rs = statement.executeQuery();
 
             List<String> productIds = new Vector<String>();
-            if (doSkip) {
-                int startNum = (pageNum - 1) * pageSize;
+            while (rs.next()) {
+                productIds.add(rs.getString("product_id"));
+            }
+            return productIds;
+
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, e.getMessage());
+            LOG.log(Level.WARNING, "Exception performing query. Message: "
+                    + e.getMessage());
+            try {
+              if (conn != null) {
+                conn.rollback();
+              }
+            } catch (SQLException e2) {
+                LOG.log(Level.SEVERE,
+                        "Unable to rollback query transaction. Message: "
+                                + e2.getMessage());
+            }
+            throw new CatalogException(e.getMessage(), e);
+        } finally {
 
-                if (startNum > numResults) {
-                    startNum = 0;
+            if (rs != null) {
+                try {
+                    rs.close();
+                } catch (SQLException ignore) {
                 }
 
-                // must call next first, or else no relative cursor
-                if (rs.next()) {
-                    // grab the first one
-                    int numGrabbed;
+            }
 
-                    if (pageNum == 1) {
-                        numGrabbed = 1;
-                        productIds.add(rs.getString("product_id"));
-                    } else {
-                        numGrabbed = 0;
-                    }
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException ignore) {
+                }
 
-                    // now move the cursor to the correct position
-                    if (pageNum != 1) {
-                        rs.relative(startNum - 1);
-                    }
+            }
 
-                    // grab the rest
-                    while (rs.next() && numGrabbed < pageSize) {
-                        String productId = rs.getString("product_id");
-                        productIds.add(productId);
-                        numGrabbed++;
-                    }
+            if (conn != null) {
+                try {
+                    conn.close();
+
+                } catch (SQLException ignore) {
                 }
 
+            }
+        }
+    }
+
+    /**
+     * Reads one page of product ids into <code>productIds</code>, newest
+     * first. The page either starts <code>offset</code> products in, using
+     * the database's own row-limiting clause where it has one, or, given the
+     * key of the last product of the previous page, right after it.
+     * 
+     * @return The key of the last product read, to seek from for the next
+     *         page.
+     */
+    private String paginateQuery(Query query, ProductType type, int offset,
+            String seekKey, List<String> productIds) throws CatalogException {
+        Connection conn = null;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+
+        try {
+            conn = dataSource.getConnection();
+
+            List<Object> params = new ArrayList<Object>();
+            StringBuilder getProductSql = new StringBuilder(getProductIdSql(query, type, params));
+            if (!productIdString) {
+                getProductSql.insert(0, "SELECT product_id FROM (").append(") page_ids");
+                if (seekKey != null) {
+                    getProductSql.append(" WHERE product_id < ?");
+                    params.add(productIdParam(seekKey));
+                }
+                getProductSql.append(" ORDER BY product_id DESC");
             } else {
-                while (rs.next()) {
-                    String productId = rs.getString("product_id");
-                    productIds.add(productId);
+                // product ids are not ordered, so seek on (datetime, id),
+                // with the products that have no datetime last
+                getProductSql.insert(0, "SELECT products.product_id, products.product_datetime "
+                        + "FROM products WHERE products.product_id IN (").append(")");
+                if (seekKey != null) {
+                    int sep = seekKey.indexOf('|');
+                    String lastId = seekKey.substring(sep + 1);
+                    if (sep == 0) {
+                        getProductSql.append(" AND products.product_datetime IS NULL "
+                                + "AND products.product_id < ?");
+                        params.add(lastId);
+                    } else {
+                        Timestamp datetime = Timestamp.valueOf(seekKey.substring(0, sep));
+                        getProductSql.append(" AND (products.product_datetime IS NULL OR "
+                                + "products.product_datetime < ? OR "
+                                + "(products.product_datetime = ? AND products.product_id < ?))");
+                        params.add(datetime);
+                        params.add(datetime);
+                        params.add(lastId);
+                    }
                 }
+                getProductSql.append(" ORDER BY CASE WHEN products.product_datetime IS NULL "
+                        + "THEN 1 ELSE 0 END, products.product_datetime DESC, "
+                        + "products.product_id DESC");
+            }
+
+            int skip = offset;
+            PagingDialect dialect = getPagingDialect(conn);
+            if (skip > 0 && dialect != PagingDialect.NONE) {
+                getProductSql.append(dialect.getLimitClause(skip, pageSize));
+                skip = 0;
             }
-            
-            return productIds;
+
+            LOG.log(Level.FINE, "catalog query: executing: " + getProductSql.toString());
+
+            statement = PreparedStatements.prepare(conn, getProductSql.toString(), params.toArray());
+            // without a limit clause, at least don't read past the page
+            statement.setMaxRows(skip + pageSize);
+            rs = statement.executeQuery();
+
+            String lastKey = null;
+            while (rs.next()) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                String productId = rs.getString("product_id");
+                productIds.add(productId);
+                if (productIdString) {
+                    Timestamp datetime = rs.getTimestamp("product_datetime");
+                    lastKey = (datetime != null ? datetime.toString() : "")
+                            + "|" + productId;
+                } else {
+                    lastKey = productId;
+                }
+            }
+
+            return lastKey;
 
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -2076,8 +2595,61 @@ public class DataSourceCatalog implements Catalog {
         }
 
     }
-    
-    protected String getSqlQuery(QueryCriteria queryCriteria, ProductType type) throws ValidationLayerException, CatalogException {
+
+    private PagingDialect getPagingDialect(Connection conn) throws SQLException {
+        if (pagingDialect == null) {
+            DatabaseMetaData meta = conn.getMetaData();
+            String db = meta.getDatabaseProductName();
+            if (db.startsWith("PostgreSQL") || db.startsWith("MySQL")
+                    || db.startsWith("MariaDB") || db.startsWith("HSQL")
+                    || db.equals("H2") || db.equals("SQLite")) {
+                pagingDialect = PagingDialect.LIMIT_OFFSET;
+            } else if (db.startsWith("Apache Derby")
+                    || (db.startsWith("Oracle") && meta.getDatabaseMajorVersion() >= 12)
+                    || (db.startsWith("Microsoft SQL Server") && meta.getDatabaseMajorVersion() >= 11)) {
+                pagingDialect = PagingDialect.OFFSET_FETCH;
+            } else {
+                pagingDialect = PagingDialect.NONE;
+            }
+            LOG.log(Level.FINE, "Paging [" + db + "] results with: ["
+                    + pagingDialect + "]");
+        }
+        return pagingDialect;
+    }
+
+    /**
+     * Builds the SQL statement that selects the ids of the products of the
+     * given type matching the given query, without any ordering, adding the
+     * values to bind to it to <code>params</code>.
+     */
+    private String getProductIdSql(Query query, ProductType type, List<Object> params)
+            throws ValidationLayerException, CatalogException, QueryFormulationException {
+        StringBuilder getProductSql = new StringBuilder();
+        if (query.getCriteria().size() == 0) {
+            if (!productIdString) {
+                getProductSql.append("SELECT DISTINCT product_id FROM ").append(type.getName()).append("_metadata");
+            } else {
+                getProductSql.append("SELECT DISTINCT products.product_id FROM products, ").append(type.getName())
+                             .append("_metadata").append(" WHERE products.product_id=").append(type.getName())
+                             .append("_metadata.product_id");
+            }
+        } else if (query.getCriteria().size() == 1) {
+            getProductSql.append(this.getSqlQuery(query.getCriteria().get(0), type, params));
+        } else {
+            getProductSql.append(this.getSqlQuery(new BooleanQueryCriteria(query.getCriteria(), BooleanQueryCriteria
+                .AND), type, params));
+        }
+        return getProductSql.toString();
+    }
+
+    /**
+     * Builds the SQL statement that selects the ids of the products of the
+     * given type matching the given {@link QueryCriteria}, with a
+     * <code>?</code> for each element id and metadata value, which are added,
+     * in order, to <code>params</code>.
+     */
+    protected String getSqlQuery(QueryCriteria queryCriteria, ProductType type, List<Object> params)
+            throws ValidationLayerException, CatalogException {
         StringBuilder sqlQuery = new StringBuilder();
         if (queryCriteria instanceof BooleanQueryCriteria) {
             BooleanQueryCriteria bqc = (BooleanQueryCriteria) queryCriteria;
@@ -2085,54 +2657,47 @@ public class DataSourceCatalog implements Catalog {
             		if (!this.productIdString) {
             			sqlQuery.append("SELECT DISTINCT product_id FROM ").append(type.getName())
                                 .append("_metadata WHERE product_id ").append("NOT IN (")
-                                .append(this.getSqlQuery(bqc.getTerms().get(0), type)).append(")");
+                                .append(this.getSqlQuery(bqc.getTerms().get(0), type, params)).append(")");
             		} else {
             			sqlQuery.append("SELECT DISTINCT products.product_id FROM products,").append(type.getName())
                                 .append("_metadata").append(" WHERE products.product_id=").append(type.getName())
                                 .append("_metadata.product_id").append(" AND products.product_id NOT IN (")
                                 .append(this.getSqlQuery(bqc.getTerms().get
-                                    (0), type)).append(")");
+                                    (0), type, params)).append(")");
             		}
             }else {
-                sqlQuery.append("(").append(this.getSqlQuery(bqc.getTerms().get(0), type));
+                sqlQuery.append("(").append(this.getSqlQuery(bqc.getTerms().get(0), type, params));
                 String op = bqc.getOperator() == BooleanQueryCriteria.AND ? "INTERSECT" : "UNION";
                 for (int i = 1; i < bqc.getTerms().size(); i++) {
-                  sqlQuery.append(") ").append(op).append(" (").append(this.getSqlQuery(bqc.getTerms().get(i), type));
+                  sqlQuery.append(") ").append(op).append(" (").append(this.getSqlQuery(bqc.getTerms().get(i), type, params));
                 }
                 sqlQuery.append(")");
             }
         }else {
-        	  String elementIdStr = this.validationLayer.getElementByName(queryCriteria.getElementName()).getElementId();
-            if (fieldIdStringFlag) {
-              elementIdStr = "'" + elementIdStr + "'";
-            }
+            params.add(fieldIdParam(getElementId(queryCriteria.getElementName())));
             if (!this.productIdString) {
             	sqlQuery.append("SELECT DISTINCT product_id FROM ").append(type.getName())
-                        .append("_metadata WHERE element_id = ").append(elementIdStr).append(" AND ");
+                        .append("_metadata WHERE element_id = ? AND ");
             } else {
             	sqlQuery.append("SELECT DISTINCT products.product_id FROM products,").append(type.getName())
                         .append("_metadata").append(" WHERE products.product_id=").append(type.getName())
-                        .append("_metadata.product_id").append(" AND element_id = ").append(elementIdStr)
-                        .append(" AND ");
+                        .append("_metadata.product_id").append(" AND element_id = ? AND ");
             }
             if (queryCriteria instanceof TermQueryCriteria) {
-                sqlQuery.append("metadata_value = '").append(((TermQueryCriteria) queryCriteria).getValue())
-                        .append("'");
+                sqlQuery.append("metadata_value = ?");
+                params.add(((TermQueryCriteria) queryCriteria).getValue());
             } else if (queryCriteria instanceof RangeQueryCriteria) {
                 RangeQueryCriteria rqc = (RangeQueryCriteria) queryCriteria;
                 String rangeSubQuery = null;
                 if (rqc.getStartValue() != null) {
-                  rangeSubQuery =
-                      "metadata_value" + (rqc.getInclusive() ? " >= " : " > ") + "'" + rqc.getStartValue() + "'";
+                  rangeSubQuery = "metadata_value" + (rqc.getInclusive() ? " >= ?" : " > ?");
+                  params.add(rqc.getStartValue());
                 }
                 if (rqc.getEndValue() != null) {
-                  rangeSubQuery =
-                      rangeSubQuery == null ? "metadata_value" + (rqc.getInclusive() ? " <= " : " < ") + "'" + rqc
-                          .getEndValue() + "'"
-                                            : "(" + rangeSubQuery + " AND metadata_value" + (rqc.getInclusive() ? " <= "
-                                                                                                                : " < ")
-                                              + "'"
-                                              + rqc.getEndValue() + "')";
+                  String endSubQuery = "metadata_value" + (rqc.getInclusive() ? " <= ?" : " < ?");
+                  rangeSubQuery = rangeSubQuery == null ? endSubQuery
+                                                        : "(" + rangeSubQuery + " AND " + endSubQuery + ")";
+                  params.add(rqc.getEndValue());
                 }
                 sqlQuery.append(rangeSubQuery);
             } else {
@@ -2146,7 +2711,7 @@ public class DataSourceCatalog implements Catalog {
     private synchronized void updateReferences(Product product)
             throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         String productRefTable = product.getProductType().getName()
                 + "_reference";
@@ -2154,33 +2719,28 @@ public class DataSourceCatalog implements Catalog {
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
             // first remove the refs
-            String deleteProductSql = "DELETE FROM "
-                    + product.getProductType().getName() + "_reference "
-                    + " WHERE product_id = " + quoteIt(product.getProductId());
+            String deleteProductSql = "DELETE FROM " + productRefTable
+                    + " WHERE product_id = ?";
             LOG.log(Level.FINE, "updateProductReferences: Executing: "
                     + deleteProductSql);
-            statement.execute(deleteProductSql);
+            statement = PreparedStatements.prepare(conn, deleteProductSql,
+                    productIdParam(product.getProductId()));
+            statement.executeUpdate();
+            statement.close();
 
             // now add the new ones back in
-          for (Reference r : product.getProductReferences()) {
-            String addRefSql = "INSERT INTO "
-                               + productRefTable
-                               + " "
-                               + "(product_id, product_orig_reference, product_datastore_reference, product_reference_filesize,"
-                               + "product_reference_mimetype) " + "VALUES ("
-                               + product.getProductId() + ", '" + r.getOrigReference()
-                               + "', '" + r.getDataStoreReference() + "', "
-                               + r.getFileSize() + ",'" + r.getMimeType().getName()
-                               + "')";
-
+            String addRefSql = getAddReferenceSql(productRefTable);
             LOG.log(Level.FINE, "updateProductReferences: Executing: "
                                 + addRefSql);
-            statement.execute(addRefSql);
+            statement = conn.prepareStatement(addRefSql);
+          for (Reference r : product.getProductReferences()) {
+            PreparedStatements.bind(statement, getAddReferenceParams(product, r));
+            statement.addBatch();
           }
 
+            statement.executeBatch();
             conn.commit();
 
         } catch (Exception e) {
@@ -2230,4 +2790,48 @@ public class DataSourceCatalog implements Catalog {
       return this.productIdString ? "'" + productId + "'" : productId;
     }
 
+    /**
+     * Values used to be pasted into the SQL text, where a null became the
+     * string "null": keep storing them that way, so that the NOT NULL columns
+     * and the rows already in the catalog still match.
+     */
+    private static String sqlText(String value) {
+      return String.valueOf(value);
+    }
+
+    /**
+     * Utility method to bind the "productId" value
+     * as a string or a number, following the column type.
+     * @param productId the product id
+     * @return the productId parameter value
+     */
+    protected Object productIdParam(String productId) {
+      return PreparedStatements.idParam(productId, this.productIdString);
+    }
+
+    /**
+     * Utility method to bind a product type or element id
+     * as a string or a number, following the quoteFields flag.
+     * @param fieldId the product type or element id
+     * @return the id parameter value
+     */
+    protected Object fieldIdParam(String fieldId) {
+      return PreparedStatements.idParam(fieldId, this.fieldIdStringFlag);
+    }
+
+    /* the row-limiting clauses databases understand, NONE if the catalog has to skip rows itself */
+    private enum PagingDialect {
+        LIMIT_OFFSET, OFFSET_FETCH, NONE;
+
+        String getLimitClause(int offset, int limit) {
+            switch (this) {
+            case LIMIT_OFFSET:
+                return " LIMIT " + limit + " OFFSET " + offset;
+            case OFFSET_FETCH:
+                return " OFFSET " + offset + " ROWS FETCH NEXT " + limit + " ROWS ONLY";
+            default:
+                return "";
+            }
+        }
+    }
 }
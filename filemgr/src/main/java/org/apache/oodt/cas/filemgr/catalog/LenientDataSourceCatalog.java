@@ -31,12 +31,16 @@ import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
 import org.apache.oodt.cas.filemgr.structs.exceptions.ValidationLayerException;
 import org.apache.oodt.cas.filemgr.validation.ValidationLayer;
 import org.apache.oodt.cas.metadata.Metadata;
+import org.apache.oodt.commons.database.PreparedStatements;
+import org.apache.oodt.commons.database.StatementBatch;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -210,23 +214,24 @@ public class LenientDataSourceCatalog extends DataSourceCatalog {
 
     public Metadata getMetadata(Product product) throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
         Metadata m = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
             String metadataSql = "SELECT * FROM "
                     + product.getProductType().getName() + "_metadata "
-		+ "WHERE product_id = '" + product.getProductId()+"'";
+		+ "WHERE product_id = ?";
             if(this.orderedValues) {
               metadataSql += " ORDER BY pkey";
             }
 
             LOG.log(Level.FINE, "getMetadata: Executing: " + metadataSql);
-            rs = statement.executeQuery(metadataSql);
+            statement = PreparedStatements.prepare(conn, metadataSql,
+                    productIdParam(product.getProductId()));
+            rs = statement.executeQuery();
             
             // parse SQL results
             m = populateProductMetadata(rs, product);
@@ -320,48 +325,48 @@ public class LenientDataSourceCatalog extends DataSourceCatalog {
     
     public Metadata getReducedMetadata(Product product, List<String> elems) throws CatalogException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
         Metadata m = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
+            List<Object> params = new ArrayList<Object>(elems.size() + 1);
+            params.add(productIdParam(product.getProductId()));
             StringBuilder elementIds = new StringBuilder("");
             if (elems.size() > 0) {
             	
             	  if (getValidationLayer()!=null) {
             	  	// validation layer: column "element_id" contains the element identifier (e.g. "urn:oodt:ProductReceivedTime")
-	                elementIds.append(" AND (element_id = '" + this.getValidationLayer().getElementByName(elems.get(0))
-                                                            .getElementId() + "'");
-	                for (int i = 1; i < elems.size(); i++) {
-                      elementIds.append(
-                          " OR element_id = '" + this.getValidationLayer().getElementByName(elems.get(i)).getElementId()
-                          + "'");
+	                for (String elem : elems) {
+                      params.add(this.getValidationLayer().getElementByName(elem).getElementId());
                     }
-	                elementIds.append(")");
             	 
             	  } else {
             	  	// no validation layer: column "element_id" contains the element name (e.g. "CAS.ProductReceivedTime")
-	                elementIds.append(" AND (element_id = '" + elems.get(0) + "'");
-	                for (int i = 1; i < elems.size(); i++) {
-                      elementIds.append(" OR element_id = '" + elems.get(i) + "'");
-                    }
-	                elementIds.append(")");
+	                params.addAll(elems);
 	                
             	  }
+
+	            elementIds.append(" AND (element_id = ?");
+	            for (int i = 1; i < elems.size(); i++) {
+                  elementIds.append(" OR element_id = ?");
+                }
+	            elementIds.append(")");
             	  
             }
             String metadataSql = "SELECT element_id,metadata_value FROM "
                     + product.getProductType().getName() + "_metadata"
-		+ " WHERE product_id = " + quoteIt(product.getProductId()) + elementIds.toString();
+		+ " WHERE product_id = ?" + elementIds.toString();
             if(this.orderedValues) {
               metadataSql += " ORDER BY pkey";
             }
 
             LOG.log(Level.FINE, "getMetadata: Executing: " + metadataSql);
-            rs = statement.executeQuery(metadataSql);
+            statement = PreparedStatements.prepare(conn, metadataSql,
+                    params.toArray());
+            rs = statement.executeQuery();
 
             // parse SQL results
             m = populateProductMetadata(rs, product);
@@ -403,49 +408,72 @@ public class LenientDataSourceCatalog extends DataSourceCatalog {
         return m;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.filemgr.catalog.DataSourceCatalog#addMetadataToBatch(
+     *      org.apache.oodt.commons.database.StatementBatch,
+     *      org.apache.oodt.cas.metadata.Metadata,
+     *      org.apache.oodt.cas.filemgr.structs.Product)
+     */
+    @Override
+    protected void addMetadataToBatch(StatementBatch batch, Metadata m,
+            Product product) throws CatalogException, SQLException {
+        String metaIngestSql = getAddMetadataValueSql(product);
+        for (Map.Entry<String, String> metadataId : getMetadataTypes(m, product).entrySet()) {
+            List<String> values = m.getAllMetadata(metadataId.getValue());
+
+            if (values == null) {
+                LOG.log(Level.WARNING, "No Metadata specified for product ["
+                        + product.getProductName() + "] for required field ["
+                        + metadataId.getValue()
+                        + "]: Attempting to continue processing metadata");
+                continue;
+            }
+
+            for (String value : values) {
+                batch.add(metaIngestSql, productIdParam(product.getProductId()),
+                        fieldIdParam(metadataId.getKey()), value);
+            }
+        }
+    }
+
+    private String getAddMetadataValueSql(Product product) {
+        String metadataTable = product.getProductType().getName() + "_metadata";
+
+        return "INSERT INTO " + metadataTable
+                + " (product_id, element_id, metadata_value) VALUES (?, ?, ?)";
+    }
+
     private synchronized void addMetadataValue(Map.Entry<String, String> key,
             Product product, String value) throws CatalogException {
 
         Connection conn = null;
-        Statement statement = null;
-
-        String metadataTable = product.getProductType().getName() + "_metadata";
-                
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
-
-            // build up the sql statement
-          StringBuilder valueClauseSql = new StringBuilder();
 
-          valueClauseSql.append("VALUES ");
-
-            // now do the value clause
-            if (fieldIdStringFlag) {
-                valueClauseSql.append("(").append(quoteIt(product.getProductId())).append(", '").append(key)
-                              .append("', '").append(value).append("')");
-            } else {
-                valueClauseSql.append("(").append(product.getProductId()).append(", ").append(key).append(", '")
-                              .append(value).append("')");
-            }
-
-            String metaIngestSql = ("INSERT INTO " + metadataTable
-                                    + " (product_id, element_id, metadata_value) ")
-                    + valueClauseSql.toString();
+            String metaIngestSql = getAddMetadataValueSql(product);
             LOG
                     .log(Level.FINE, "addMetadataValue: Executing: "
                             + metaIngestSql);
-            statement.execute(metaIngestSql);
+            statement = PreparedStatements.prepare(conn, metaIngestSql,
+                    productIdParam(product.getProductId()),
+                    fieldIdParam(key.getKey()), value);
+            statement.executeUpdate();
             
             // synchronize CAS.ProductReceivedTime with products.product_datetime
             if (key.equals("CAS.ProductReceivedTime") && this.productIdString) {
             		// convert from "2012-12-18T09:00:14.068-08:00" --> "2012-12-18T09:00:14.068-0800" --> "2012-12-18T10:00:14"
             		String datetime = dbFormat.format( isoFormat.parse( value.replaceAll(":00$", "00") ));
-            		String updateDateTimeSql = "UPDATE products SET product_datetime='"+datetime+"' WHERE product_id="+quoteIt(product.getProductId());
+            		String updateDateTimeSql = "UPDATE products SET product_datetime = ? WHERE product_id = ?";
             		LOG.log(Level.FINE, "addMetadataValue: Executing: "+updateDateTimeSql);
-            		statement.execute(updateDateTimeSql);
+            		statement.close();
+            		statement = PreparedStatements.prepare(conn, updateDateTimeSql,
+            		        datetime, productIdParam(product.getProductId()));
+            		statement.executeUpdate();
             }
             
             conn.commit();
@@ -487,34 +515,23 @@ public class LenientDataSourceCatalog extends DataSourceCatalog {
             Product product, String value) throws CatalogException {
 
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         String metadataTable = product.getProductType().getName() + "_metadata";
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            // build up the sql statement
-            String metRemoveSql = "DELETE FROM " + metadataTable + " WHERE ";
-            if (fieldIdStringFlag) {
-                metRemoveSql += "PRODUCT_ID = '" + product.getProductId()
-                        + "' AND ";
-                metRemoveSql += "ELEMENT_ID = '" + elementId
-                        + "' AND ";
-                metRemoveSql += "METADATA_VALUE = '" + value + "'";
-            } else {
-                metRemoveSql += "PRODUCT_ID = " + product.getProductId()
-                        + " AND ";
-                metRemoveSql += "ELEMENT_ID = " + elementId
-                        + " AND ";
-                metRemoveSql += "METADATA_VALUE = " + value;
-            }
+            String metRemoveSql = "DELETE FROM " + metadataTable
+                    + " WHERE PRODUCT_ID = ? AND ELEMENT_ID = ? AND METADATA_VALUE = ?";
 
             LOG.log(Level.FINE, "removeMetadataValue: Executing: "
                     + metRemoveSql);
-            statement.execute(metRemoveSql);
+            statement = PreparedStatements.prepare(conn, metRemoveSql,
+                    productIdParam(product.getProductId()),
+                    fieldIdParam(elementId), value);
+            statement.executeUpdate();
             conn.commit();
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -551,6 +568,30 @@ public class LenientDataSourceCatalog extends DataSourceCatalog {
         }
     }
 
+    /**
+     * Overridden method from superclass to allow for null validation layer:
+     * the "element_id" column then contains the element name.
+     */
+    @Override
+    protected Map<String, String> getElementNamesById(ProductType type)
+            throws CatalogException {
+        if (getValidationLayer() == null) {
+            return null;
+        }
+        return super.getElementNamesById(type);
+    }
+
+    /**
+     * Overridden method from superclass to allow for null validation layer.
+     */
+    @Override
+    protected String getElementId(String elementName) throws ValidationLayerException {
+        if (getValidationLayer() == null) {
+            return elementName;
+        }
+        return super.getElementId(elementName);
+    }
+
     /**
      * Overridden method from superclass to allow for null validation layer.
      */
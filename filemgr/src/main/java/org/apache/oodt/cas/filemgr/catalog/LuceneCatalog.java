@@ -27,10 +27,14 @@ import org.apache.lucene.search.*;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
+import org.apache.oodt.cas.filemgr.metadata.CoreMetKeys;
 import org.apache.oodt.cas.filemgr.structs.*;
 import org.apache.oodt.cas.filemgr.structs.Query;
 import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
 import org.apache.oodt.cas.filemgr.structs.exceptions.ValidationLayerException;
+import org.apache.oodt.cas.filemgr.structs.query.ComplexQuery;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResultComparator;
 import org.apache.oodt.cas.filemgr.validation.ValidationLayer;
 import org.apache.oodt.cas.metadata.Metadata;
 import org.apache.oodt.commons.pagination.PaginationUtils;
@@ -38,6 +42,7 @@ import org.safehaus.uuid.UUID;
 import org.safehaus.uuid.UUIDGenerator;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -45,6 +50,12 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -61,7 +72,7 @@ import java.util.logging.Logger;
  * </p>
  * 
  */
-public class LuceneCatalog implements Catalog {
+public class LuceneCatalog implements Catalog, Closeable {
 
     /* our log stream */
     @Deprecated
@@ -71,7 +82,6 @@ public class LuceneCatalog implements Catalog {
 
     Directory indexDir = null;
 
-    private DirectoryReader reader;
     /* the path to the index directory for this catalog */
     private String indexFilePath = null;
 
@@ -99,7 +109,26 @@ public class LuceneCatalog implements Catalog {
     /* lucene index merge factor */
     private int mergeFactor = -1;
 
+    /* number of index changes after which the shared writer is committed */
+    private int commitMaxDocs = -1;
 
+    /* shared writer, only set in near-real-time mode */
+    private volatile IndexWriter sharedWriter = null;
+
+    /* near-real-time searchers over the shared writer */
+    private volatile SearcherManager searcherManager = null;
+
+    /* periodically commits the shared writer */
+    private ScheduledExecutorService commitExecutor = null;
+
+    /* index changes made since the last commit */
+    private final AtomicInteger pendingChanges = new AtomicInteger(0);
+
+    /* incremented on every change made through the shared writer */
+    private final AtomicLong writeGeneration = new AtomicLong(0L);
+
+    /* the write generation visible to the current searcher */
+    private final AtomicLong refreshedGeneration = new AtomicLong(0L);
 
     /**
      * 
@@ -127,12 +156,50 @@ public class LuceneCatalog implements Catalog {
      */
     public LuceneCatalog(String idxFilePath, ValidationLayer vLayer,
             int pgSize, long commitTimeout, long writeTimeout, int mergeFactor) {
+        this(idxFilePath, vLayer, pgSize, commitTimeout, writeTimeout,
+                mergeFactor, false, -1, -1L);
+    }
+
+    /**
+     * 
+     * @param idxFilePath
+     *            A file path pointing to the lucene index directory for this
+     *            catalog.
+     * @param vLayer
+     *            The validation layer to be used for this catalog.
+     * @param pgSize
+     *            The size of pages to be used when doing pagination of the
+     *            catalog.
+     * @param commitTimeout
+     *            The commit lock timeout (in seconds).
+     * @param writeTimeout
+     *            The write lock timeout (in seconds).
+     * @param mergeFactor
+     *            The merge factor to use when writing to the index.
+     * @param nearRealTime
+     *            If true, a single {@link IndexWriter} is kept open for the
+     *            life of this catalog and searches are served from a
+     *            near-real-time {@link SearcherManager}, instead of opening a
+     *            new writer and reader for every call.
+     * @param commitMaxDocs
+     *            In near-real-time mode, the number of index changes after
+     *            which the writer is committed. Values &lt;= 0 disable
+     *            count-based commits.
+     * @param commitIntervalSeconds
+     *            In near-real-time mode, the interval (in seconds) at which
+     *            outstanding changes are committed. Values &lt;= 0 disable
+     *            timed commits.
+     */
+    public LuceneCatalog(String idxFilePath, ValidationLayer vLayer,
+            int pgSize, long commitTimeout, long writeTimeout, int mergeFactor,
+            boolean nearRealTime, int commitMaxDocs, long commitIntervalSeconds) {
         this.indexFilePath = idxFilePath;
         this.valLayer = vLayer;
         this.pageSize = pgSize;
         this.writeLockTimeout = writeTimeout;
         this.commitLockTimeout = commitTimeout;
         this.mergeFactor = mergeFactor;
+        this.commitMaxDocs = commitMaxDocs;
 
         try {
             indexDir = FSDirectory.open(new File( indexFilePath ).toPath());
@@ -140,10 +207,44 @@ public class LuceneCatalog implements Catalog {
             e.printStackTrace();
         }
 
+        if (nearRealTime && indexDir != null) {
+            try {
+                sharedWriter = new IndexWriter(indexDir, newWriterConfig());
+                searcherManager = new SearcherManager(sharedWriter, null);
+            } catch (IOException e) {
+                LOG.log(Level.SEVERE, "Unable to open near-real-time writer for index: ["
+                        + indexFilePath + "]: falling back to per-call writers: Message: "
+                        + e.getMessage());
+                closeWriter(sharedWriter);
+                sharedWriter = null;
+                searcherManager = null;
+            }
+        }
 
-
-
-
+        if (sharedWriter != null && commitIntervalSeconds > 0) {
+            commitExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "LuceneCatalog-commit");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            commitExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        IndexWriter writer = sharedWriter;
+                        if (writer != null && pendingChanges.get() > 0) {
+                            commitSharedWriter(writer);
+                        }
+                    } catch (Exception e) {
+                        LOG.log(Level.WARNING, "Unable to commit index: ["
+                                + indexFilePath + "]: Message: " + e.getMessage());
+                    }
+                }
+            }, commitIntervalSeconds, commitIntervalSeconds, TimeUnit.SECONDS);
+        }
     }
 
     /*
@@ -156,15 +257,15 @@ public class LuceneCatalog implements Catalog {
     public synchronized void addMetadata(Metadata m, Product product)
             throws CatalogException {
         CompleteProduct p;
+        boolean indexed = false;
         if(product.getProductId()!=null && CATALOG_CACHE.containsKey(product.getProductId())) {
              p = CATALOG_CACHE.get(product.getProductId());
         }
         else{
-                // move product from index to cache
-                // it will be moved back after metadata is added
+                // the product's document is replaced once metadata is added
                 p = getCompleteProductById(product.getProductId(), true, true);
                 LOG.log(Level.FINE, "Product not found in local cache, retrieved from index");
-                removeProduct(product);
+                indexed = true;
         }
 
         p.setMetadata(m);
@@ -172,9 +273,15 @@ public class LuceneCatalog implements Catalog {
             LOG.log(Level.FINE,
                 "metadata and references present for product: ["
                     + product.getProductId() + "]");
-            addCompleteProductToIndex(p);
+            if (indexed) {
+                updateCompleteProductInIndex(p);
+            } else {
+                addCompleteProductToIndex(p);
+            }
             // now remove its entry from the cache
             CATALOG_CACHE.remove(product.getProductId());
+        } else if (indexed) {
+            removeProductDocument(product);
         }
     }
 
@@ -188,6 +295,7 @@ public class LuceneCatalog implements Catalog {
     public synchronized void removeMetadata(Metadata m, Product product)
             throws CatalogException {
         CompleteProduct p;
+        boolean indexed = false;
 
         if(product.getProductId()!=null && CATALOG_CACHE.containsKey(product.getProductId())) {
              p = CATALOG_CACHE.get(product.getProductId());
@@ -195,12 +303,9 @@ public class LuceneCatalog implements Catalog {
         else{
             String prodId = product.getProductId();
             p = getCompleteProductById(prodId, true, true);
-            removeProductDocument(product);
+            indexed = true;
         }
 
-
-
-
         Metadata currMet = p.getMetadata();
         List<String> metadataTypes = new ArrayList<String>();
 
@@ -232,9 +337,15 @@ public class LuceneCatalog implements Catalog {
             LOG.log(Level.FINE,
                     "metadata and references present for product: ["
                             + product.getProductId() + "]");
-            addCompleteProductToIndex(p);
+            if (indexed) {
+                updateCompleteProductInIndex(p);
+            } else {
+                addCompleteProductToIndex(p);
+            }
             // now remove its entry from the cache
             CATALOG_CACHE.remove(product.getProductId());
+        } else if (indexed) {
+            removeProductDocument(product);
         }
     }
 
@@ -275,6 +386,55 @@ public class LuceneCatalog implements Catalog {
 
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.filemgr.catalog.Catalog#addProducts(java.util.List,
+     *      java.util.List)
+     */
+    @Override
+    public synchronized void addProducts(List<Product> products,
+            List<Metadata> metadata) throws CatalogException {
+        if (metadata != null && metadata.size() != products.size()) {
+            throw new CatalogException("Unable to add products: ["
+                    + products.size() + "] products but [" + metadata.size()
+                    + "] metadata entries");
+        }
+
+        List<CompleteProduct> completeProducts = new ArrayList<CompleteProduct>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (product.getProductId() != null && CATALOG_CACHE.containsKey(product.getProductId())) {
+                throw new CatalogException(
+                    "Attempt to add a product that already existed: product: ["
+                    + product.getProductName() + "]");
+            }
+
+            // NOTE: reuse existing ID if possible
+            if (product.getProductId() == null) {
+                product.setProductId(generator.generateTimeBasedUUID().toString());
+            }
+
+            CompleteProduct completeProduct = new CompleteProduct();
+            completeProduct.setProduct(product);
+            Metadata m = metadata != null ? metadata.get(i) : null;
+            if (m != null) {
+                m.replaceMetadata(CoreMetKeys.PRODUCT_ID, product.getProductId());
+                completeProduct.setMetadata(m);
+            }
+
+            // products still waiting on metadata or data store references
+            // are cached, exactly as addProduct would
+            if (hasMetadataAndRefs(completeProduct)) {
+                completeProducts.add(completeProduct);
+            } else {
+                CATALOG_CACHE.put(product.getProductId(), completeProduct);
+            }
+        }
+
+        addCompleteProductsToIndex(completeProducts);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -296,13 +456,10 @@ public class LuceneCatalog implements Catalog {
 
             CompleteProduct completeProduct = new CompleteProduct();
             completeProduct.setMetadata(metadata);
-
-            // now remove the product's document from the catalog
-            removeProductDocument(product);
-
-            // now add it back
             completeProduct.setProduct(product);
-            addCompleteProductToIndex(completeProduct);
+
+            // now replace the product's document in the catalog
+            updateCompleteProductInIndex(completeProduct);
         }
     }
 
@@ -395,13 +552,7 @@ public class LuceneCatalog implements Catalog {
             boolean getRefs, boolean getMet) throws CatalogException {
         IndexSearcher searcher = null;
         try {
-            try {
-                reader = DirectoryReader.open(indexDir);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-
-            searcher = new IndexSearcher(reader);
+            searcher = acquireSearcher();
             Term productIdTerm = new Term("product_id", productId);
             org.apache.lucene.search.Query query = new TermQuery(productIdTerm);
             TopDocs topDocs = searcher.search(query,1);
@@ -426,12 +577,7 @@ public class LuceneCatalog implements Catalog {
                             + e.getMessage());
             throw new CatalogException(e.getMessage(), e);
         } finally {
-            if (searcher != null) {
-                try {
-                    //TODO shutdown  reader
-                } catch (Exception ignore) {
-                }
-            }
+            releaseSearcher(searcher);
         }
     }
 
@@ -449,12 +595,7 @@ public class LuceneCatalog implements Catalog {
             throws CatalogException {
         IndexSearcher searcher = null;
         try {
-            try {
-                reader = DirectoryReader.open(indexDir);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            searcher = new IndexSearcher(reader);
+            searcher = acquireSearcher();
             Term productIdTerm = new Term("product_name", productName);
             org.apache.lucene.search.Query query = new TermQuery(productIdTerm);
             Sort sort = new Sort(new SortField("CAS.ProductReceivedTime",
@@ -490,12 +631,7 @@ public class LuceneCatalog implements Catalog {
                             + e.getMessage());
             throw new CatalogException(e.getMessage(), e);
         } finally {
-            if (searcher != null) {
-                try {
-//TODO CLOSE SEARCHER
-                } catch (Exception ignore) {
-                }
-            }
+            releaseSearcher(searcher);
         }
     }
 
@@ -529,12 +665,7 @@ public class LuceneCatalog implements Catalog {
         List<Product> products = new Vector<Product>();
 
         try {
-            try {
-                reader = DirectoryReader.open(indexDir);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            searcher = new IndexSearcher(reader);
+            searcher = acquireSearcher();
             Term productIdTerm = new Term("myfield", "myvalue");
             org.apache.lucene.search.Query query = new TermQuery(productIdTerm);
             Sort sort = new Sort(new SortField("CAS.ProductReceivedTime",
@@ -566,12 +697,7 @@ public class LuceneCatalog implements Catalog {
                             + e.getMessage());
             throw new CatalogException(e.getMessage(), e);
         } finally {
-            if (searcher != null) {
-                try {
-                    //TODO close searcher
-                } catch (Exception ignore) {
-                }
-            }
+            releaseSearcher(searcher);
         }
 
         return products;
@@ -594,12 +720,7 @@ public class LuceneCatalog implements Catalog {
         List<Product> products = new Vector<Product>();
 
         try {
-            try {
-                reader = DirectoryReader.open(indexDir);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            searcher = new IndexSearcher(reader);
+            searcher = acquireSearcher();
             Term productIdTerm = new Term("product_type_id", type
                     .getProductTypeId());
             org.apache.lucene.search.Query query = new TermQuery(productIdTerm);
@@ -633,29 +754,17 @@ public class LuceneCatalog implements Catalog {
                             + e.getMessage());
             throw new CatalogException(e.getMessage(), e);
         } finally {
-            if (searcher != null) {
-                try {
-//TODO CLOSE
-               } catch (Exception ignore) {
-                }
-            }
+            releaseSearcher(searcher);
         }
 
         return products;
     }
 
     @Override
-    public synchronized Metadata getMetadata(Product product) throws CatalogException {
+    public Metadata getMetadata(Product product) throws CatalogException {
         IndexSearcher searcher = null;
         try {
-            try {
-                reader = DirectoryReader.open(indexDir);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            searcher = new IndexSearcher(reader);
-            TermQuery qry = new TermQuery(new Term("*", "*"));
-            TopDocs tdocks  = searcher.search(qry, 100);
+            searcher = acquireSearcher();
             Term productIdTerm = new Term("product_id", product.getProductId());
             org.apache.lucene.search.Query query = new TermQuery(productIdTerm);
             //TODO FIX NUMBER OF RECORDS
@@ -682,12 +791,7 @@ public class LuceneCatalog implements Catalog {
                             + e.getMessage());
             throw new CatalogException(e.getMessage(), e);
         } finally {
-            if (searcher != null) {
-                try {
-//TODO CLOSE
-               } catch (Exception ignore) {
-                }
-            }
+            releaseSearcher(searcher);
         }
     }
     
@@ -727,23 +831,78 @@ public class LuceneCatalog implements Catalog {
         return productIds;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.filemgr.catalog.Catalog#complexQuery(org.apache.oodt.cas.filemgr.structs.query.ComplexQuery,
+     *      org.apache.oodt.cas.filemgr.structs.ProductType)
+     */
+    @Override
+    public List<QueryResult> complexQuery(ComplexQuery complexQuery, ProductType type)
+            throws CatalogException {
+        List<QueryResult> queryResults = new ArrayList<QueryResult>();
+        List<String> reducedElements = complexQuery.getReducedMetadata();
+        IndexSearcher searcher = null;
+        try {
+            searcher = acquireSearcher();
+            // products and their metadata live in the same document, so a
+            // single search provides everything
+            org.apache.lucene.search.Query query = getQuery(complexQuery, type);
+            Sort sort = new Sort(new SortField("CAS.ProductReceivedTime",
+                    SortField.Type.STRING, true));
+            LOG.log(Level.FINE, "Querying LuceneCatalog: q: [" + query + "]");
+            TopDocs check = searcher.search(query, 1, sort);
+            if (check.totalHits > 0) {
+                TopDocs topDocs = searcher.search(query, check.totalHits, sort);
+                for (ScoreDoc hit : topDocs.scoreDocs) {
+                    CompleteProduct prod = toCompleteProduct(searcher.doc(hit.doc),
+                            false, true);
+                    prod.getProduct().setProductType(type);
+                    Metadata metadata = prod.getMetadata();
+                    if (reducedElements != null && reducedElements.size() > 0) {
+                        Metadata reducedMetadata = new Metadata();
+                        for (String element : reducedElements) {
+                            if (metadata.containsKey(element)) {
+                                reducedMetadata.replaceMetadata(element, metadata.getAllMetadata(element));
+                            }
+                        }
+                        metadata = reducedMetadata;
+                    }
+                    queryResults.add(new QueryResult(prod.getProduct(), metadata));
+                }
+            }
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, e.getMessage());
+            LOG.log(Level.WARNING,
+                    "IOException when opening index directory: ["
+                            + indexFilePath + "] for search: Message: "
+                            + e.getMessage());
+            throw new CatalogException(e.getMessage(), e);
+        } finally {
+            releaseSearcher(searcher);
+        }
+
+        if (complexQuery.getSortByMetKey() != null) {
+            QueryResultComparator qrComparator = new QueryResultComparator();
+            qrComparator.setSortByMetKey(complexQuery.getSortByMetKey());
+            Collections.sort(queryResults, qrComparator);
+        }
+
+        return queryResults;
+    }
+
     /*
      * (non-Javadoc)
      * 
      * @see org.apache.oodt.cas.filemgr.catalog.Catalog#getTopNProducts(int)
      */
     @Override
-    public synchronized List<Product> getTopNProducts(int n) throws CatalogException {
+    public List<Product> getTopNProducts(int n) throws CatalogException {
         List<Product> products = new Vector<Product>();
         IndexSearcher searcher = null;
 
         try {
-            try {
-                reader = DirectoryReader.open(indexDir);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            searcher = new IndexSearcher(reader);
+            searcher = acquireSearcher();
 
             // construct a Boolean query here
             BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
@@ -781,12 +940,7 @@ public class LuceneCatalog implements Catalog {
                             + e.getMessage());
             throw new CatalogException(e.getMessage(), e);
         } finally {
-            if (searcher != null) {
-                try {
-                    //TODO CLOSE
-                } catch (Exception ignore) {
-                }
-            }
+            releaseSearcher(searcher);
         }
 
         return products;
@@ -799,7 +953,7 @@ public class LuceneCatalog implements Catalog {
      *      org.apache.oodt.cas.filemgr.structs.ProductType)
      */
     @Override
-    public synchronized List<Product> getTopNProducts(int n, ProductType type)
+    public List<Product> getTopNProducts(int n, ProductType type)
             throws CatalogException {
         int numPages = 1;
         if (n > this.pageSize) {
@@ -1034,83 +1188,238 @@ public class LuceneCatalog implements Catalog {
 
     private synchronized void removeProductDocument(Product product)
             throws CatalogException {
+        LOG.log(Level.FINE,
+                "LuceneCatalog: remove document from index for product: ["
+                        + product.getProductId() + "]");
+        Term productIdTerm = new Term("product_id", product.getProductId());
 
-        try {
-            reader = DirectoryReader.open(indexDir);
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (sharedWriter != null) {
+            try {
+                sharedWriter.deleteDocuments(productIdTerm);
+                onIndexWrite(1);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Exception removing product: ["
+                        + product.getProductName() + "] from index: Message: "
+                        + e.getMessage());
+                throw new CatalogException(e.getMessage(), e);
+            }
+            return;
         }
-        try {
-            LOG.log(Level.FINE,
-                    "LuceneCatalog: remove document from index for product: ["
-                            + product.getProductId() + "]");
-            IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-
-            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-            LogMergePolicy lmp =new LogDocMergePolicy();
-            lmp.setMergeFactor(mergeFactor);
-            config.setMergePolicy(lmp);
-
-                IndexWriter writer = new IndexWriter(indexDir, config);
-            writer.deleteDocuments(new Term("product_id", product
-                    .getProductId()));
-            writer.close();
 
+        IndexWriter writer = null;
+        try {
+            writer = new IndexWriter(indexDir, newWriterConfig());
+            writer.deleteDocuments(productIdTerm);
         } catch (IOException e) {
             LOG.log(Level.WARNING, "Exception removing product: ["
                     + product.getProductName() + "] from index: Message: "
                     + e.getMessage());
             throw new CatalogException(e.getMessage(), e);
         } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (Exception ignore) {
-                }
+            closeWriter(writer);
+        }
+    }
+
+    /**
+     * Replaces the document of an indexed product in one step, so that no
+     * reader ever sees the product missing from the index.
+     */
+    private synchronized void updateCompleteProductInIndex(CompleteProduct cp)
+            throws CatalogException {
+        Term productIdTerm = new Term("product_id", cp.getProduct()
+                .getProductId());
+        Document doc = toDoc(cp.getProduct(), cp.getMetadata());
 
+        if (sharedWriter != null) {
+            try {
+                sharedWriter.updateDocument(productIdTerm, doc);
+                onIndexWrite(1);
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Unable to update product: ["
+                        + cp.getProduct().getProductName() + "] in index: "
+                        + "Message: " + e.getMessage(), e);
+                throw new CatalogException("Unable to update product: ["
+                        + cp.getProduct().getProductName() + "] in index: "
+                        + "Message: " + e.getMessage(), e);
             }
+            return;
+        }
 
+        IndexWriter writer = null;
+        try {
+            writer = new IndexWriter(indexDir, newWriterConfig());
+            writer.updateDocument(productIdTerm, doc);
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Unable to update product: ["
+                    + cp.getProduct().getProductName() + "] in index: "
+                    + "Message: " + e.getMessage(), e);
+            throw new CatalogException("Unable to update product: ["
+                    + cp.getProduct().getProductName() + "] in index: "
+                    + "Message: " + e.getMessage(), e);
+        } finally {
+            closeWriter(writer);
         }
     }
 
     private synchronized void addCompleteProductToIndex(CompleteProduct cp)
             throws CatalogException {
-        IndexWriter writer = null;
-        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        addCompleteProductsToIndex(Collections.singletonList(cp));
+    }
 
-        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-        LogMergePolicy lmp = new LogDocMergePolicy();
-        lmp.setMergeFactor(mergeFactor);
-        config.setMergePolicy(lmp);
+    private synchronized void addCompleteProductsToIndex(List<CompleteProduct> cps)
+            throws CatalogException {
+        if (cps.isEmpty()) {
+            return;
+        }
 
-        try {
-            writer = new IndexWriter(indexDir, config);
-        } catch (IOException e) {
-            e.printStackTrace();
+        List<Document> docs = new ArrayList<Document>(cps.size());
+        for (CompleteProduct cp : cps) {
+            docs.add(toDoc(cp.getProduct(), cp.getMetadata()));
         }
 
-        Document doc = toDoc(cp.getProduct(), cp.getMetadata());
+        if (sharedWriter != null) {
+            try {
+                sharedWriter.addDocuments(docs);
+                onIndexWrite(docs.size());
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Unable to index products: ["
+                        + getProductNames(cps) + "]: Message: "
+                        + e.getMessage(), e);
+                throw new CatalogException("Unable to index products: ["
+                        + getProductNames(cps) + "]: Message: "
+                        + e.getMessage(), e);
+            }
+            return;
+        }
+
+        IndexWriter writer = null;
         try {
-            writer.addDocument(doc);
-            writer.close();
+            writer = new IndexWriter(indexDir, newWriterConfig());
+            writer.addDocuments(docs);
             // TODO: determine a better way to optimize the index
         } catch (Exception e) {
-            LOG.log(Level.WARNING, "Unable to index product: ["
-                    + cp.getProduct().getProductName() + "]: Message: "
+            LOG.log(Level.WARNING, "Unable to index products: ["
+                    + getProductNames(cps) + "]: Message: "
                     + e.getMessage(), e);
-            throw new CatalogException("Unable to index product: ["
-                    + cp.getProduct().getProductName() + "]: Message: "
+            throw new CatalogException("Unable to index products: ["
+                    + getProductNames(cps) + "]: Message: "
                     + e.getMessage(), e);
         } finally {
+            closeWriter(writer);
+        }
+
+    }
+
+    private String getProductNames(List<CompleteProduct> cps) {
+        StringBuilder names = new StringBuilder();
+        for (CompleteProduct cp : cps) {
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(cp.getProduct().getProductName());
+        }
+        return names.toString();
+    }
+
+    private IndexWriterConfig newWriterConfig() {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        LogMergePolicy lmp = new LogDocMergePolicy();
+        lmp.setMergeFactor(mergeFactor);
+        config.setMergePolicy(lmp);
+        return config;
+    }
+
+    private void closeWriter(IndexWriter writer) {
+        if (writer != null) {
             try {
-                if (writer != null) {
-                    writer.close();
-                }
+                writer.close();
             } catch (Exception e) {
-                System.out.println("failed" + e.getLocalizedMessage());
+                LOG.log(Level.WARNING, "Unable to close index writer for: ["
+                        + indexFilePath + "]: Message: " + e.getMessage());
             }
         }
+    }
 
+    /**
+     * Records a change made through the shared writer: readers will refresh
+     * before their next search, and the writer is committed once
+     * <code>commitMaxDocs</code> changes have accumulated.
+     */
+    private void onIndexWrite(int changes) throws IOException {
+        writeGeneration.incrementAndGet();
+        if (pendingChanges.addAndGet(changes) >= commitMaxDocs
+                && commitMaxDocs > 0) {
+            commitSharedWriter(sharedWriter);
+        }
+    }
+
+    private void commitSharedWriter(IndexWriter writer) throws IOException {
+        int pending = pendingChanges.getAndSet(0);
+        if (pending > 0) {
+            LOG.log(Level.FINE, "LuceneCatalog: committing [" + pending
+                    + "] changes to index: [" + indexFilePath + "]");
+            writer.commit();
+        }
+    }
+
+    private IndexSearcher acquireSearcher() throws IOException {
+        if (searcherManager == null) {
+            return new IndexSearcher(DirectoryReader.open(indexDir));
+        }
+
+        long generation = writeGeneration.get();
+        if (generation > refreshedGeneration.get()) {
+            searcherManager.maybeRefreshBlocking();
+            long refreshed = refreshedGeneration.get();
+            while (refreshed < generation
+                    && !refreshedGeneration.compareAndSet(refreshed, generation)) {
+                refreshed = refreshedGeneration.get();
+            }
+        }
+        return searcherManager.acquire();
+    }
+
+    private void releaseSearcher(IndexSearcher searcher) {
+        if (searcher == null) {
+            return;
+        }
+
+        try {
+            if (searcherManager != null) {
+                searcherManager.release(searcher);
+            } else {
+                searcher.getIndexReader().close();
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Unable to release searcher for index: ["
+                    + indexFilePath + "]: Message: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Commits any outstanding changes and releases the shared
+     * {@link IndexWriter} and {@link SearcherManager}, if near-real-time mode
+     * is enabled. Does nothing otherwise.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (commitExecutor != null) {
+            commitExecutor.shutdownNow();
+            commitExecutor = null;
+        }
+        if (searcherManager != null) {
+            searcherManager.close();
+            searcherManager = null;
+        }
+        if (sharedWriter != null) {
+            try {
+                commitSharedWriter(sharedWriter);
+            } finally {
+                sharedWriter.close();
+                sharedWriter = null;
+            }
+        }
     }
 
     private CompleteProduct toCompleteProduct(Document doc) {
@@ -1333,12 +1642,7 @@ public class LuceneCatalog implements Catalog {
 
         int numHits = -1;
         try {
-            reader = DirectoryReader.open(indexDir);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        try {
-            searcher = new IndexSearcher(reader);
+            searcher = acquireSearcher();
 
             // construct a Boolean query here
             BooleanQuery.Builder booleanQuery =  new BooleanQuery.Builder();
@@ -1368,18 +1672,13 @@ public class LuceneCatalog implements Catalog {
                             + e.getMessage());
             throw new CatalogException(e.getMessage());
         } finally {
-            if (searcher != null) {
-                try {
-                    //TODO CLOSE
-                } catch (Exception ignore) {
-                }
-            }
+            releaseSearcher(searcher);
         }
 
         return numHits;
     }
 
-    private synchronized List<Product> paginateQuery(Query query, ProductType type, int pageNum, ProductPage page)
+    private List<Product> paginateQuery(Query query, ProductType type, int pageNum, ProductPage page)
             throws CatalogException {
         List<Product> products = new Vector<Product>(pageSize);
         IndexSearcher searcher = null;
@@ -1391,35 +1690,17 @@ public class LuceneCatalog implements Catalog {
         }
 
         try {
-            reader = DirectoryReader.open(indexDir);
-        } catch (IOException e) {
-            logger.error("Error when creating directory reader, indexDir: {}, error: {}", indexDir, e.getMessage());
-        }
-
-        try {
-            searcher = new IndexSearcher(reader);
-
-            // construct a Boolean query here
-            BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
-
-            // add the product type as the first clause
-            TermQuery prodTypeTermQuery = new TermQuery(new Term(
-                    "product_type_id", type.getProductTypeId()));
-            booleanQuery.add(prodTypeTermQuery, BooleanClause.Occur.MUST);
-
-            //convert filemgr query into a lucene query
-            for (QueryCriteria queryCriteria : query.getCriteria()) {
-                booleanQuery.add(this.getQuery(queryCriteria), BooleanClause.Occur.MUST);
-            }
+            searcher = acquireSearcher();
 
+            org.apache.lucene.search.Query booleanQuery = getQuery(query, type);
             Sort sort = new Sort(new SortField("CAS.ProductReceivedTime",
                     SortField.Type.STRING, true));
             LOG.log(Level.FINE, "Querying LuceneCatalog: q: [" + booleanQuery
                     + "]");
             //TODO FIX NUMBER OF RECORDS
-            TopDocs check = searcher.search(booleanQuery.build(),1, sort);
+            TopDocs check = searcher.search(booleanQuery,1, sort);
             if(check.totalHits>0) {
-                TopDocs topDocs = searcher.search(booleanQuery.build(), check.totalHits, sort);
+                TopDocs topDocs = searcher.search(booleanQuery, check.totalHits, sort);
 
                 // Calculate page size and set it while we have the results
                 if (page != null) {
@@ -1469,18 +1750,29 @@ public class LuceneCatalog implements Catalog {
                             + e.getMessage());
             throw new CatalogException(e.getMessage());
         } finally {
-            if (searcher != null) {
-                try {
-                    //TODO CLOSE
-                } catch (Exception ignore) {
-                }
-            }
+            releaseSearcher(searcher);
         }
 
         return products;
 
     }
 
+    private org.apache.lucene.search.Query getQuery(Query query, ProductType type) throws CatalogException {
+        // construct a Boolean query here
+        BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
+
+        // add the product type as the first clause
+        TermQuery prodTypeTermQuery = new TermQuery(new Term(
+                "product_type_id", type.getProductTypeId()));
+        booleanQuery.add(prodTypeTermQuery, BooleanClause.Occur.MUST);
+
+        //convert filemgr query into a lucene query
+        for (QueryCriteria queryCriteria : query.getCriteria()) {
+            booleanQuery.add(this.getQuery(queryCriteria), BooleanClause.Occur.MUST);
+        }
+        return booleanQuery.build();
+    }
+
     private org.apache.lucene.search.Query getQuery(QueryCriteria queryCriteria) throws CatalogException {
         if (queryCriteria instanceof BooleanQueryCriteria) {
             BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
@@ -51,6 +51,8 @@ public class LuceneCatalogFactory implements CatalogFactory {
   public static final int VAL1 = 60;
   public static final int VAL2 = 60;
   public static final int VAL3 = 20;
+  public static final int VAL4 = 1000;
+  public static final int VAL5 = 5;
   /* path to the index directory for lucene catalogs */
 	private String indexFilePath = null;
 	private IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
@@ -69,6 +71,15 @@ public class LuceneCatalogFactory implements CatalogFactory {
 	
 	/* the merge factor */
 	private int mergeFactor = -1;
+
+	/* whether to keep a shared writer and near-real-time searchers open */
+	private boolean nearRealTime = false;
+
+	/* number of changes after which the shared writer is committed */
+	private int commitMaxDocs = -1;
+
+	/* interval in seconds between timed commits of the shared writer */
+	private long commitIntervalSeconds = -1L;
 	
 	/* Whether or not to enforce strict definition of metadata fields:
 	 * 'lenient=false' means that all metadata fields need to be explicitly defined in the XML configuration file */
@@ -115,6 +126,12 @@ public class LuceneCatalogFactory implements CatalogFactory {
 				VAL2);
 		mergeFactor = Integer.getInteger(
 			"org.apache.oodt.cas.filemgr.catalog.lucene.mergeFactor", VAL3);
+		nearRealTime = Boolean.parseBoolean(System.getProperty(
+			"org.apache.oodt.cas.filemgr.catalog.lucene.nrt", "false"));
+		commitMaxDocs = Integer.getInteger(
+			"org.apache.oodt.cas.filemgr.catalog.lucene.commit.maxDocs", VAL4);
+		commitIntervalSeconds = Long.getLong(
+			"org.apache.oodt.cas.filemgr.catalog.lucene.commit.interval.seconds", VAL5);
 	}
 
 	/*
@@ -149,7 +166,8 @@ public class LuceneCatalogFactory implements CatalogFactory {
 	        }
 	    }
 		return new LuceneCatalog(indexFilePath, validationLayer, pageSize,
-				commitLockTimeOut, writeLockTimeOut, mergeFactor);
+				commitLockTimeOut, writeLockTimeOut, mergeFactor, nearRealTime,
+				commitMaxDocs, commitIntervalSeconds);
 	}
 
 }
@@ -18,6 +18,7 @@
 package org.apache.oodt.cas.filemgr.catalog;
 
 //JDK imports
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Properties;
 import javax.sql.DataSource;
@@ -30,8 +31,11 @@ import org.apache.oodt.cas.filemgr.structs.ProductType;
 import org.apache.oodt.cas.filemgr.structs.Query;
 import org.apache.oodt.cas.filemgr.structs.Reference;
 import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
+import org.apache.oodt.cas.filemgr.structs.query.ComplexQuery;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
 import org.apache.oodt.cas.filemgr.validation.ValidationLayer;
 import org.apache.oodt.cas.metadata.Metadata;
+import org.apache.oodt.commons.database.StatementBatch;
 
 /**
  * @author mattmann
@@ -104,6 +108,47 @@ public class MappedDataSourceCatalog extends DataSourceCatalog {
         product.getProductType().setName(origProductTypeName);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.filemgr.catalog.DataSourceCatalog#addReferencesToBatch(
+     *      org.apache.oodt.commons.database.StatementBatch,
+     *      org.apache.oodt.cas.filemgr.structs.Product)
+     */
+    @Override
+    protected void addReferencesToBatch(StatementBatch batch, Product product)
+            throws SQLException {
+        String origProductTypeName = product.getProductType().getName();
+        product.getProductType().setName(
+                getProductTypeTableName(origProductTypeName));
+        try {
+            super.addReferencesToBatch(batch, product);
+        } finally {
+            product.getProductType().setName(origProductTypeName);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.filemgr.catalog.DataSourceCatalog#addMetadataToBatch(
+     *      org.apache.oodt.commons.database.StatementBatch,
+     *      org.apache.oodt.cas.metadata.Metadata,
+     *      org.apache.oodt.cas.filemgr.structs.Product)
+     */
+    @Override
+    protected void addMetadataToBatch(StatementBatch batch, Metadata metadata,
+            Product product) throws CatalogException, SQLException {
+        String origProductTypeName = product.getProductType().getName();
+        product.getProductType().setName(
+                getProductTypeTableName(origProductTypeName));
+        try {
+            super.addMetadataToBatch(batch, metadata, product);
+        } finally {
+            product.getProductType().setName(origProductTypeName);
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -201,6 +246,24 @@ public class MappedDataSourceCatalog extends DataSourceCatalog {
         return page;
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.oodt.cas.filemgr.catalog.DataSourceCatalog#seekPage(org.apache.oodt.cas.filemgr.structs.ProductType,
+     *      java.lang.String)
+     */
+    @Override
+    protected ProductPage seekPage(ProductType type, String cursor)
+            throws CatalogException {
+        String origProductTypeName = type.getName();
+        type.setName(getProductTypeTableName(origProductTypeName));
+        try {
+            return super.seekPage(type, cursor);
+        } finally {
+            type.setName(origProductTypeName);
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -216,6 +279,24 @@ public class MappedDataSourceCatalog extends DataSourceCatalog {
         return results;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.filemgr.catalog.DataSourceCatalog#complexQuery(org.apache.oodt.cas.filemgr.structs.query.ComplexQuery,
+     *      org.apache.oodt.cas.filemgr.structs.ProductType)
+     */
+    @Override
+    public List<QueryResult> complexQuery(ComplexQuery complexQuery, ProductType type)
+            throws CatalogException {
+        String origProductTypeName = type.getName();
+        type.setName(getProductTypeTableName(origProductTypeName));
+        try {
+            return super.complexQuery(complexQuery, type);
+        } finally {
+            type.setName(origProductTypeName);
+        }
+    }
+
     protected String getProductTypeTableName(String origName) {
         if (typeMap != null && typeMap.containsKey(origName)) {
             return typeMap.getProperty(origName);
@@ -22,6 +22,9 @@ import org.apache.oodt.cas.filemgr.structs.ProductType;
 import org.apache.oodt.cas.filemgr.structs.Query;
 import org.apache.oodt.cas.filemgr.structs.Reference;
 import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
+import org.apache.oodt.cas.filemgr.structs.query.ComplexQuery;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResultComparator;
 import org.apache.oodt.cas.filemgr.util.DbStructFactory;
 import org.apache.oodt.cas.filemgr.validation.ValidationLayer;
 import org.apache.oodt.cas.metadata.Metadata;
@@ -382,6 +385,18 @@ public class ScienceDataCatalog implements Catalog {
 
   }
 
+  public void addProducts(List<Product> products, List<Metadata> metadata)
+      throws CatalogException {
+    // products and references are not stored by this catalog, only metadata
+    if (metadata != null) {
+      for (int i = 0; i < products.size(); i++) {
+        if (metadata.get(i) != null) {
+          addMetadata(metadata.get(i), products.get(i));
+        }
+      }
+    }
+  }
+
   public Metadata getMetadata(Product product) throws CatalogException {
     Metadata met = new Metadata();
     met.addMetadata("Filename", product.getProductName());
@@ -740,6 +755,32 @@ public class ScienceDataCatalog implements Catalog {
     return null;
   }
 
+  public List<QueryResult> complexQuery(ComplexQuery complexQuery,
+      ProductType type) throws CatalogException {
+    List<QueryResult> queryResults = new Vector<QueryResult>();
+    List<String> productIds = this.query(complexQuery, type);
+    if (productIds == null) {
+      return queryResults;
+    }
+
+    for (String productId : productIds) {
+      Product product = this.getProductById(productId);
+      product.setProductType(type);
+      Metadata met = complexQuery.getReducedMetadata() != null
+          && complexQuery.getReducedMetadata().size() > 0 ? this
+          .getReducedMetadata(product, complexQuery.getReducedMetadata())
+          : this.getMetadata(product);
+      queryResults.add(new QueryResult(product, met));
+    }
+
+    if (complexQuery.getSortByMetKey() != null) {
+      QueryResultComparator qrComparator = new QueryResultComparator();
+      qrComparator.setSortByMetKey(complexQuery.getSortByMetKey());
+      Collections.sort(queryResults, qrComparator);
+    }
+    return queryResults;
+  }
+
   public void removeMetadata(Metadata arg0, Product arg1)
       throws CatalogException {
     // TODO Auto-generated method stub
@@ -17,12 +17,14 @@
 package org.apache.oodt.cas.filemgr.catalog.solr;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
 import org.apache.oodt.cas.filemgr.catalog.Catalog;
+import org.apache.oodt.cas.filemgr.metadata.CoreMetKeys;
 import org.apache.oodt.cas.filemgr.structs.Product;
 import org.apache.oodt.cas.filemgr.structs.ProductPage;
 import org.apache.oodt.cas.filemgr.structs.ProductType;
@@ -30,6 +32,9 @@ import org.apache.oodt.cas.filemgr.structs.Query;
 import org.apache.oodt.cas.filemgr.structs.QueryCriteria;
 import org.apache.oodt.cas.filemgr.structs.Reference;
 import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
+import org.apache.oodt.cas.filemgr.structs.query.ComplexQuery;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResultComparator;
 import org.apache.oodt.cas.filemgr.validation.ValidationLayer;
 import org.apache.oodt.cas.metadata.Metadata;
 import org.apache.oodt.commons.pagination.PaginationUtils;
@@ -61,6 +66,18 @@ public class SolrCatalog implements Catalog {
 		this.solrClient = new SolrClient(solrUrl);
 	}
 
+	/**
+	 * @param commitWithin : if positive, let Solr commit changes within this many
+	 * milliseconds instead of committing explicitly after each update
+	 * @param softCommit : whether explicit commits are soft commits
+	 */
+	public SolrCatalog(String solrUrl, ProductIdGenerator productIdGenerator, ProductSerializer productSerializer,
+			int commitWithin, boolean softCommit) {
+		this(solrUrl, productIdGenerator, productSerializer);
+		this.solrClient.setCommitWithin(commitWithin);
+		this.solrClient.setSoftCommit(softCommit);
+	}
+
 	@Override
 	public void addMetadata(Metadata metadata, Product product) throws CatalogException {
 
@@ -189,6 +206,54 @@ public class SolrCatalog implements Catalog {
 
 	}
 
+	/**
+	 * This method implementation sends the product, reference and metadata documents
+	 * for the whole batch to Solr in a single update request, followed by a single commit.
+	 */
+	@Override
+	public void addProducts(List<Product> products, List<Metadata> metadata) throws CatalogException {
+
+		if (metadata != null && metadata.size() != products.size()) {
+			throw new CatalogException("Unable to add products: [" + products.size()
+					+ "] products but [" + metadata.size() + "] metadata entries");
+		}
+
+		List<String> docs = new ArrayList<String>();
+		for (int i = 0; i < products.size(); i++) {
+			Product product = products.get(i);
+			if (product.getProductId()!=null && this.getCompleteProductById(product.getProductId()) !=null) {
+				throw new CatalogException(
+						"Attempt to add a product that already existed: product: ["
+								+ product.getProductName() + "]");
+			}
+			LOG.info("Adding product:" + product.getProductName());
+
+			// generate product identifier if not existing already
+			if (!StringUtils.hasText(product.getProductId())) {
+				product.setProductId(this.productIdGenerator.generateId(product));
+			}
+
+			docs.addAll(productSerializer.serialize(product, true)); // create=true
+			if (product.getProductReferences() != null && !product.getProductReferences().isEmpty()) {
+				docs.addAll(productSerializer.serialize(product.getProductId(), product.getRootRef(),
+						product.getProductReferences(), true));
+			}
+
+			Metadata m = metadata != null ? metadata.get(i) : null;
+			if (m != null) {
+				if (m.containsKey("_version_")) {
+					m.removeMetadata("_version_");
+				}
+				m.replaceMetadata(CoreMetKeys.PRODUCT_ID, product.getProductId());
+				docs.addAll(productSerializer.serialize(product.getProductId(), m, false));
+			}
+		}
+
+		// send all records to Solr
+		solrClient.index(docs, true, productSerializer.getMimeType());
+
+	}
+
 	@Override
 	public void addProductReferences(Product product) throws CatalogException {
 
@@ -376,6 +441,44 @@ public class SolrCatalog implements Catalog {
 
 	}
 
+	/**
+	 * This method implementation retrieves the matching products, together with their metadata,
+	 * with the same paginated Solr requests used by {@link #query(Query, ProductType)}.
+	 */
+	@Override
+	public List<QueryResult> complexQuery(ComplexQuery complexQuery, ProductType type) throws CatalogException {
+
+		// execute request for ALL results
+		QueryResponse queryResponse = this.getProducts(complexQuery, type, 0, -1);
+
+		List<String> reducedElements = complexQuery.getReducedMetadata();
+		List<QueryResult> queryResults = new ArrayList<QueryResult>();
+		for (CompleteProduct cp : queryResponse.getCompleteProducts()) {
+			Metadata metadata = cp.getMetadata();
+			if (reducedElements != null && reducedElements.size() > 0) {
+				Metadata reducedMetadata = new Metadata();
+				for (String element : reducedElements) {
+					if (metadata.containsKey(element)) {
+						reducedMetadata.replaceMetadata(element, metadata.getAllMetadata(element));
+					}
+				}
+				metadata = reducedMetadata;
+			}
+			cp.getProduct().setProductType(type);
+			queryResults.add(new QueryResult(cp.getProduct(), metadata));
+		}
+
+		// sort
+		if (complexQuery.getSortByMetKey() != null) {
+			QueryResultComparator qrComparator = new QueryResultComparator();
+			qrComparator.setSortByMetKey(complexQuery.getSortByMetKey());
+			Collections.sort(queryResults, qrComparator);
+		}
+
+		return queryResults;
+
+	}
+
 	@Override
 	public List<Product> getTopNProducts(int n) throws CatalogException {
 
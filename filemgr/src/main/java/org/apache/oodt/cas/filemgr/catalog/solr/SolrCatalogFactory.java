@@ -34,6 +34,8 @@ public class SolrCatalogFactory implements CatalogFactory {
 	private String solrUrl;
 	private ProductIdGenerator productIdGenerator;
 	private ProductSerializer productSerializer;
+	private int commitWithin;
+	private boolean softCommit;
 	
 	private static final Logger LOG = Logger.getLogger(SolrCatalogFactory.class.getName());
 	
@@ -82,12 +84,16 @@ public class SolrCatalogFactory implements CatalogFactory {
 			productIdGenerator = new UUIDProductIdGenerator();
 		}
 		
+		// commit policy: commitWithin (milliseconds) replaces explicit commits
+		commitWithin = Integer.getInteger("org.apache.oodt.cas.filemgr.catalog.solr.commitWithin", -1);
+		softCommit = Boolean.getBoolean("org.apache.oodt.cas.filemgr.catalog.solr.softCommit");
+		
 	}
 
 	@Override
 	public Catalog createCatalog() {
 		LOG.info("Creating Solr Catalog for URL="+this.solrUrl);
-		return new SolrCatalog(solrUrl, productIdGenerator, productSerializer);
+		return new SolrCatalog(solrUrl, productIdGenerator, productSerializer, commitWithin, softCommit);
 	}
 
 }
@@ -31,7 +31,8 @@ import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.BasicResponseHandler;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.oodt.cas.filemgr.structs.ProductType;
 import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
@@ -48,21 +49,38 @@ import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Class containing client-side functionality for interacting with a Solr server.
- * This class uses an {@link HttpClient} for all HTTP communication.
+ * This class uses an {@link HttpClient} for all HTTP communication, shared by all
+ * instances and backed by a pool of keep-alive connections.
  *
  * @author Luca Cinquini
  *
  */
 public class SolrClient {
 
+	// maximum number of pooled connections, in total and to one Solr server
+	public static final String MAX_CONNECTIONS_PROPERTY = "org.apache.oodt.cas.filemgr.catalog.solr.http.maxConnections";
+
+	// pooled connections idle for longer than this many seconds are closed
+	public static final String IDLE_TIMEOUT_PROPERTY = "org.apache.oodt.cas.filemgr.catalog.solr.http.idleTimeout.seconds";
+
+	private static HttpClient sharedHttpClient;
+
 	// base URL of Solr server
 	private String solrUrl;
 
+	// if positive, changes are committed by Solr within this many milliseconds
+	// instead of by an explicit commit
+	private int commitWithin = -1;
+
+	// whether explicit commits are soft commits
+	private boolean softCommit = false;
+
 	private final Logger LOG = Logger.getLogger(this.getClass().getName());
 
 	/**
@@ -75,6 +93,35 @@ public class SolrClient {
 
 	}
 
+	/**
+	 * Makes committed changes visible through Solr's commitWithin instead of an
+	 * explicit, blocking commit after each update. Changes may then not be visible
+	 * to queries until the given time has passed.
+	 *
+	 * @param commitWithin : milliseconds, or a value &lt;= 0 for explicit commits
+	 */
+	public void setCommitWithin(int commitWithin) {
+		this.commitWithin = commitWithin;
+	}
+
+	public int getCommitWithin() {
+		return commitWithin;
+	}
+
+	/**
+	 * Makes explicit commits soft commits, which open a new searcher without
+	 * flushing the index to stable storage.
+	 *
+	 * @param softCommit
+	 */
+	public void setSoftCommit(boolean softCommit) {
+		this.softCommit = softCommit;
+	}
+
+	public boolean isSoftCommit() {
+		return softCommit;
+	}
+
 	/**
 	 * Method to send one or more documents to be indexed to Solr.
 	 *
@@ -91,7 +138,9 @@ public class SolrClient {
 			final String url = this.buildUpdateUrl();
 
 			// build message
-			StringBuilder message = new StringBuilder("<add>");
+			boolean commitWithinDocs = commit && commitWithin > 0;
+			StringBuilder message = new StringBuilder(commitWithinDocs
+					? "<add commitWithin=\"" + commitWithin + "\">" : "<add>");
 			for (String doc : docs) {
 				message.append(doc);
 			}
@@ -103,7 +152,7 @@ public class SolrClient {
 			LOG.info(response);
 
 			// commit changes ?
-			if (commit) {
+			if (commit && !commitWithinDocs) {
 				this.commit();
 			}
 
@@ -131,7 +180,13 @@ public class SolrClient {
 			// build POST request
 			String url = this.buildUpdateUrl();
 			if (commit) {
-				url += "?commit=true";
+				if (commitWithin > 0) {
+					url += "?commitWithin=" + commitWithin;
+				} else if (softCommit) {
+					url += "?softCommit=true";
+				} else {
+					url += "?commit=true";
+				}
 			}
 			String message = "<delete><query>id:"+id+"</query></delete>";
 
@@ -212,7 +267,8 @@ public class SolrClient {
 	 */
 	public void commit() throws IOException, CatalogException {
 
-		String message = "<commit waitSearcher=\"true\"/>";
+		String message = softCommit ? "<commit softCommit=\"true\" waitSearcher=\"true\"/>"
+				: "<commit waitSearcher=\"true\"/>";
 		String url =  this.buildUpdateUrl();
 		doPost(url, message, Parameters.MIME_TYPE_XML);
 
@@ -310,10 +366,9 @@ public class SolrClient {
 		BufferedReader br = null;
 		try {
 
-			// send request
-			HttpClient httpClient = new DefaultHttpClient();
-			// OODT-719 Prevent httpclient from spawning closewait tcp connections
-			method.setHeader("Connection", "close");
+			// send request over a pooled connection; the response is always consumed
+			// below so that the connection goes back to the pool (OODT-719)
+			HttpClient httpClient = getHttpClient();
 
 			HttpResponse statusCode = httpClient.execute(method);
 
@@ -350,6 +405,33 @@ public class SolrClient {
 
 	}
 
+	/**
+	 * Returns the HTTP client shared by all instances, creating it on first use.
+	 * Idle pooled connections are validated before reuse and closed after the idle
+	 * timeout, so the server closing them does not leave them in CLOSE_WAIT.
+	 * @return
+	 */
+	static synchronized HttpClient getHttpClient() {
+
+		if (sharedHttpClient == null) {
+			int maxConnections = Integer.getInteger(MAX_CONNECTIONS_PROPERTY, 20);
+			long idleTimeout = Long.getLong(IDLE_TIMEOUT_PROPERTY, 30L);
+
+			PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+			connectionManager.setMaxTotal(maxConnections);
+			connectionManager.setDefaultMaxPerRoute(maxConnections);
+			connectionManager.setValidateAfterInactivity(2000);
+
+			sharedHttpClient = HttpClients.custom()
+					.setConnectionManager(connectionManager)
+					.evictExpiredConnections()
+					.evictIdleConnections(idleTimeout, TimeUnit.SECONDS)
+					.build();
+		}
+		return sharedHttpClient;
+
+	}
+
 	/**
 	 * Builds the URL used to update the Solr index.
 	 *
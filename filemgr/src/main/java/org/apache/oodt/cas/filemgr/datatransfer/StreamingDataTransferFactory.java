@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.filemgr.datatransfer;
+
+//JDK imports
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * A Factory for constructing {@link StreamingDataTransferer} objects.
+ * </p>
+ *
+ */
+public class StreamingDataTransferFactory implements DataTransferFactory {
+
+  /* the port of the file manager's streaming transfer server */
+  private int port;
+
+  /* max number of parallel range streams per file */
+  private int numStreams;
+
+  /* smallest range a file is split into */
+  private long minRangeSize;
+
+  /* number of retries per failed range */
+  private int maxRetries;
+
+  /* our log stream */
+  private static final Logger LOG = Logger
+      .getLogger(StreamingDataTransferFactory.class.getName());
+
+  public StreamingDataTransferFactory() {
+    port = Integer.getInteger(StreamingTransferServer.PORT_PROPERTY, -1);
+    numStreams = Integer.getInteger(
+        "org.apache.oodt.cas.filemgr.datatransfer.streaming.streams", 4);
+    minRangeSize = Long.getLong(
+        "org.apache.oodt.cas.filemgr.datatransfer.streaming.minRangeSize",
+        64L * 1024 * 1024);
+    maxRetries = Integer.getInteger(
+        "org.apache.oodt.cas.filemgr.datatransfer.streaming.retries", 3);
+
+    if (port <= 0) {
+      LOG.log(Level.WARNING, "StreamingDataTransfer enabled without ["
+          + StreamingTransferServer.PORT_PROPERTY + "] set: transfers will fail");
+    } else {
+      LOG.log(Level.INFO, "StreamingDataTransfer enabled: using port: [" + port
+          + "], streams: [" + numStreams + "], min range size: ["
+          + minRangeSize + "]");
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see org.apache.oodt.cas.filemgr.datatransfer.DataTransferFactory#createDataTransfer()
+   */
+  public DataTransfer createDataTransfer() {
+    return new StreamingDataTransferer(port, numStreams, minRangeSize,
+        maxRetries);
+  }
+
+}
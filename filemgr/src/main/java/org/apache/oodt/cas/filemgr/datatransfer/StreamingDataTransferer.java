@@ -0,0 +1,469 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.filemgr.datatransfer;
+
+//OODT imports
+import org.apache.oodt.cas.filemgr.structs.Product;
+import org.apache.oodt.cas.filemgr.structs.Reference;
+import org.apache.oodt.cas.filemgr.structs.exceptions.ConnectionException;
+import org.apache.oodt.cas.filemgr.structs.exceptions.DataTransferException;
+import org.apache.oodt.cas.filemgr.system.FileManagerClient;
+import org.apache.oodt.cas.filemgr.util.RpcCommunicationFactory;
+
+//JDK imports
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * An implementation of the {@link DataTransfer} interface that streams files
+ * to and from a remote file manager's {@link StreamingTransferServer} over
+ * dedicated sockets, instead of shipping them chunk by chunk over XML-RPC
+ * like the {@link RemoteDataTransferer}. File bytes move with
+ * {@link FileChannel#transferTo} and {@link FileChannel#transferFrom} on both
+ * ends. Files larger than the configured range size are split into ranges
+ * that are streamed over parallel connections, and a range that fails is
+ * retried from the last offset known to have arrived: for downloads the
+ * bytes received, for uploads the bytes the server says it stored.
+ * </p>
+ *
+ * <p>
+ * The File Manager Client is still used to notify the file manager of
+ * transfer start and completion.
+ * </p>
+ *
+ */
+public class StreamingDataTransferer implements DataTransfer {
+
+  /* our log stream */
+  private static final Logger LOG = Logger
+      .getLogger(StreamingDataTransferer.class.getName());
+
+  /* the url of the file manager that we'll remotely transfer files to */
+  private URL fileManagerUrl = null;
+
+  /* our file manager client */
+  private FileManagerClient client = null;
+
+  /* the port of the file manager's streaming transfer server */
+  private int port;
+
+  /* max number of parallel range streams per file */
+  private int numStreams;
+
+  /* files are only split into ranges at least this large */
+  private long minRangeSize;
+
+  /* number of times a failed range is retried */
+  private int maxRetries;
+
+  /**
+   * @param port
+   *          The port of the remote {@link StreamingTransferServer}.
+   * @param numStreams
+   *          The maximum number of parallel streams used per file.
+   * @param minRangeSize
+   *          The smallest range a file is split into.
+   * @param maxRetries
+   *          The number of times a failed range is retried.
+   */
+  public StreamingDataTransferer(int port, int numStreams, long minRangeSize,
+      int maxRetries) {
+    this.port = port;
+    this.numStreams = Math.max(1, numStreams);
+    this.minRangeSize = Math.max(1L, minRangeSize);
+    this.maxRetries = Math.max(0, maxRetries);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see
+   * org.apache.oodt.cas.filemgr.datatransfer.DataTransfer#setFileManagerUrl
+   * (java.net.URL)
+   */
+  public void setFileManagerUrl(URL url) {
+    this.fileManagerUrl = url;
+    try {
+      client = RpcCommunicationFactory.createClient(url);
+      LOG.log(Level.INFO, "Streaming Data Transfer to: [" + url.getHost()
+          + ":" + port + "] enabled");
+    } catch (ConnectionException e) {
+      LOG.log(Level.WARNING, "Connection exception for filemgr: [" + url
+          + "]");
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see
+   * org.apache.oodt.cas.filemgr.datatransfer.DataTransfer#transferProduct(
+   * org.apache.oodt.cas.filemgr.structs.Product)
+   */
+  public void transferProduct(Product product) throws DataTransferException,
+      IOException {
+    checkConfigured("transfer product: [" + product.getProductName() + "]");
+
+    quietNotifyTransferProduct(product);
+
+    for (Reference r : product.getProductReferences()) {
+      File refFile;
+      try {
+        refFile = new File(new URI(r.getOrigReference()));
+      } catch (URISyntaxException e) {
+        LOG.log(Level.WARNING, "Unable to test if reference: ["
+            + r.getOrigReference() + "] is a directory: skipping it");
+        continue;
+      }
+
+      if (!refFile.isDirectory()) {
+        LOG.log(Level.FINE, "Reference: [" + r.getOrigReference()
+            + "] is file: transferring it");
+        try {
+          String destPath = new File(new URI(r.getDataStoreReference()))
+              .getAbsolutePath();
+          transferFile(refFile, destPath);
+        } catch (URISyntaxException e) {
+          throw new DataTransferException("Malformed data store reference: ["
+              + r.getDataStoreReference() + "]", e);
+        }
+      } else {
+        LOG.log(Level.FINE, "StreamingTransfer: skipping reference: ["
+            + refFile.getAbsolutePath() + "] of product: ["
+            + product.getProductName() + "]: ref is a directory");
+      }
+    }
+
+    quietNotifyProductTransferComplete(product);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see
+   * org.apache.oodt.cas.filemgr.datatransfer.DataTransfer#retrieveProduct(org.
+   * apache.oodt.cas.filemgr.structs.Product, java.io.File)
+   */
+  public void retrieveProduct(Product product, File directory)
+      throws DataTransferException, IOException {
+    checkConfigured("retrieve product: [" + product.getProductName() + "]");
+
+    for (Reference reference : product.getProductReferences()) {
+      File dataStoreFile;
+      try {
+        dataStoreFile = new File(new URI(reference.getDataStoreReference()));
+      } catch (URISyntaxException e) {
+        throw new DataTransferException("Malformed data store reference: ["
+            + reference.getDataStoreReference() + "]", e);
+      }
+      File dest = new File(directory, dataStoreFile.getName());
+      LOG.log(Level.INFO, "StreamingDataTransfer: Copying File: " + "fmp:"
+          + dataStoreFile.getAbsolutePath() + " to " + "file:"
+          + dest.getAbsolutePath());
+      retrieveFile(dataStoreFile.getAbsolutePath(), dest);
+    }
+  }
+
+  @Override
+  public void deleteProduct(Product product) throws DataTransferException,
+      IOException {
+    for (Reference ref : product.getProductReferences()) {
+      File dataFile = new File(URI.create(ref.getDataStoreReference()).toURL()
+          .getPath());
+      if (!dataFile.delete()) {
+        throw new IOException(String.format(
+            "Failed to delete file %s - delete returned false", dataFile));
+      }
+    }
+  }
+
+  /**
+   * Streams <code>source</code> to <code>destPath</code> on the remote file
+   * manager, overwriting any existing file there.
+   *
+   * @param source
+   *          The local file to send.
+   * @param destPath
+   *          The absolute path of the file on the file manager's host.
+   * @throws DataTransferException
+   *           If any range cannot be sent after all retries.
+   */
+  public void transferFile(File source, String destPath)
+      throws DataTransferException {
+    try {
+      long ack = request(StreamingTransferServer.OP_CREATE, destPath, 0L, 0L);
+      if (ack < 0) {
+        throw new IOException("Unable to create remote file");
+      }
+      streamRanges(source, destPath, source.length(), true);
+    } catch (IOException e) {
+      throw new DataTransferException("Error streaming file: ["
+          + source.getAbsolutePath() + "] to [" + destPath + "]: Message: "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Streams the remote file at <code>remotePath</code> into
+   * <code>dest</code>, overwriting it.
+   *
+   * @param remotePath
+   *          The absolute path of the file on the file manager's host.
+   * @param dest
+   *          The local file to write.
+   * @throws DataTransferException
+   *           If the remote file does not exist or any range cannot be
+   *           retrieved after all retries.
+   */
+  public void retrieveFile(String remotePath, File dest)
+      throws DataTransferException {
+    try {
+      long size = request(StreamingTransferServer.OP_SIZE, remotePath, 0L, 0L);
+      if (size < 0) {
+        throw new IOException("No such remote file");
+      }
+      // preallocate so each range can be written at its own offset
+      RandomAccessFile raf = new RandomAccessFile(dest, "rw");
+      try {
+        raf.setLength(size);
+      } finally {
+        raf.close();
+      }
+      streamRanges(dest, remotePath, size, false);
+    } catch (IOException e) {
+      throw new DataTransferException("Error streaming file: [" + remotePath
+          + "] to [" + dest.getAbsolutePath() + "]: Message: "
+          + e.getMessage(), e);
+    }
+  }
+
+  private void streamRanges(final File localFile, final String remotePath,
+      long size, final boolean upload) throws IOException {
+    int numRanges = (int) Math.max(1L,
+        Math.min(numStreams, size / minRangeSize));
+    long rangeSize = (size + numRanges - 1) / numRanges;
+
+    if (numRanges == 1) {
+      streamRange(localFile, remotePath, 0L, size, upload);
+      return;
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(numRanges - 1,
+        new StreamingTransferServer.DaemonThreadFactory(
+            "StreamingDataTransferer"));
+    try {
+      List<Future<Void>> pending = new ArrayList<Future<Void>>();
+      for (int i = 1; i < numRanges; i++) {
+        final long start = i * rangeSize;
+        final long count = Math.min(rangeSize, size - start);
+        pending.add(pool.submit(new Callable<Void>() {
+          public Void call() throws IOException {
+            streamRange(localFile, remotePath, start, count, upload);
+            return null;
+          }
+        }));
+      }
+      streamRange(localFile, remotePath, 0L, Math.min(rangeSize, size), upload);
+      for (Future<Void> f : pending) {
+        try {
+          f.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while streaming ranges", e);
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private void streamRange(File localFile, String remotePath, long start,
+      long count, boolean upload) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(localFile, upload ? "r" : "rw");
+    try {
+      FileChannel fileChannel = raf.getChannel();
+      long done = 0L;
+      int attempt = 0;
+      while (true) {
+        long[] progress = new long[1];
+        try {
+          if (upload) {
+            putRange(fileChannel, remotePath, start + done, count - done);
+          } else {
+            getRange(fileChannel, remotePath, start + done, count - done,
+                progress);
+          }
+          return;
+        } catch (IOException e) {
+          // pick up where the last attempt stopped
+          done += upload ? storedBytes(remotePath, start + done) : progress[0];
+          if (++attempt > maxRetries) {
+            throw e;
+          }
+          LOG.log(Level.WARNING, "Streaming range [" + start + ", "
+              + (start + count) + ") of file: [" + remotePath
+              + "] failed: retrying from offset [" + (start + done)
+              + "]: Message: " + e.getMessage());
+        }
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
+  private void putRange(FileChannel fileChannel, String remotePath,
+      long offset, long count) throws IOException {
+    SocketChannel channel = connect();
+    try {
+      StreamingTransferServer.writeHeader(channel,
+          StreamingTransferServer.OP_PUT, remotePath, offset, count);
+      StreamingTransferServer.copyTo(fileChannel, channel, offset, count);
+      long written = StreamingTransferServer.readLong(channel);
+      if (written != count) {
+        throw new IOException("Server stored [" + written + "] of [" + count
+            + "] bytes");
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * @return The bytes a failed upload to <code>remotePath</code> at
+   *         <code>offset</code> stored on the server, or <code>0</code> if
+   *         the server can't tell, in which case the whole range is resent.
+   */
+  private long storedBytes(String remotePath, long offset) {
+    try {
+      return Math.max(0L, request(StreamingTransferServer.OP_STORED,
+          remotePath, offset, 0L));
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Unable to ask what range at [" + offset
+          + "] of file: [" + remotePath + "] stored: Message: "
+          + e.getMessage());
+      return 0L;
+    }
+  }
+
+  private void getRange(FileChannel fileChannel, String remotePath,
+      long offset, long count, long[] progress) throws IOException {
+    SocketChannel channel = connect();
+    try {
+      StreamingTransferServer.writeHeader(channel,
+          StreamingTransferServer.OP_GET, remotePath, offset, count);
+      long available = StreamingTransferServer.readLong(channel);
+      if (available != count) {
+        throw new IOException("Server offered [" + available + "] of ["
+            + count + "] bytes");
+      }
+      while (progress[0] < count) {
+        long n = fileChannel.transferFrom(channel, offset + progress[0], Math
+            .min(StreamingTransferServer.MAX_TRANSFER_SLICE, count
+                - progress[0]));
+        if (n <= 0) {
+          throw new EOFException("Stream ended after [" + progress[0]
+              + "] of [" + count + "] bytes");
+        }
+        progress[0] += n;
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  private long request(byte op, String remotePath, long offset, long length)
+      throws IOException {
+    SocketChannel channel = connect();
+    try {
+      StreamingTransferServer.writeHeader(channel, op, remotePath, offset,
+          length);
+      return StreamingTransferServer.readLong(channel);
+    } finally {
+      channel.close();
+    }
+  }
+
+  private SocketChannel connect() throws IOException {
+    SocketChannel channel = SocketChannel.open(new InetSocketAddress(
+        fileManagerUrl.getHost(), port));
+    channel.socket().setTcpNoDelay(true);
+    return channel;
+  }
+
+  private void checkConfigured(String action) throws DataTransferException {
+    if (fileManagerUrl == null) {
+      throw new DataTransferException(
+          "No file manager url specified for streaming data transfer: cannot "
+              + action + "!");
+    }
+    if (port <= 0) {
+      throw new DataTransferException(
+          "No streaming transfer port specified: cannot " + action + "!");
+    }
+  }
+
+  private void quietNotifyTransferProduct(Product p) {
+    if (client == null) {
+      return;
+    }
+    try {
+      client.transferringProduct(p);
+    } catch (DataTransferException e) {
+      LOG.log(Level.WARNING,
+          "Error notifying file manager of product transfer initiation for product: ["
+              + p.getProductId() + "]: Message: " + e.getMessage());
+    }
+  }
+
+  private void quietNotifyProductTransferComplete(Product p) {
+    if (client == null) {
+      return;
+    }
+    try {
+      client.removeProductTransferStatus(p);
+    } catch (DataTransferException e) {
+      LOG.log(Level.WARNING,
+          "Error notifying file manager of product transfer completion for product: ["
+              + p.getProductId() + "]: Message: " + e.getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,618 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.filemgr.datatransfer;
+
+//JDK imports
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * A raw socket endpoint that streams file ranges to and from the File
+ * Manager's disk using {@link FileChannel#transferFrom} and
+ * {@link FileChannel#transferTo}, so file bytes never pass through the
+ * XML-RPC layer. It is the server side of the
+ * {@link StreamingDataTransferer}.
+ * </p>
+ *
+ * <p>
+ * Each connection carries a single request. A request header is an operation
+ * byte, a file offset, a length and a UTF-8 encoded file path. Every
+ * operation answers with a single long: the number of bytes written or about
+ * to be streamed back, or <code>-1</code> if the operation failed. Ranges are
+ * positioned reads and writes, so a client may open several connections to
+ * move disjoint ranges of the same file in parallel. After a dropped upload,
+ * a client asks ({@link #OP_STORED}) how much of the range was stored and
+ * resends only the rest.
+ * </p>
+ *
+ * <p>
+ * A connection that sends nothing for the read timeout is closed, so idle or
+ * stalled clients do not hold on to the server's threads.
+ * </p>
+ *
+ * <p>
+ * The server only reads and writes files under its data root. A request path
+ * is resolved against the root (if relative) and canonicalized, and requests
+ * for a path outside the root, whether through <code>..</code>, an absolute
+ * path or a symbolic link, fail. The server has no authentication, so it
+ * listens on the loopback interface unless another host is configured.
+ * </p>
+ *
+ */
+public class StreamingTransferServer {
+
+  /* truncates (or creates) the file at path, making its parent dirs */
+  public static final byte OP_CREATE = 1;
+
+  /* writes length bytes following the header at offset */
+  public static final byte OP_PUT = 2;
+
+  /* streams length bytes (or to EOF if length < 0) starting at offset */
+  public static final byte OP_GET = 3;
+
+  /* answers the current size of the file at path */
+  public static final byte OP_SIZE = 4;
+
+  /*
+   * answers how many bytes a failed OP_PUT to path at offset stored, waiting
+   * for it to end first; 0 if there was none, -1 if it is still running
+   */
+  public static final byte OP_STORED = 5;
+
+  public static final Charset PATH_ENCODING = Charset.forName("UTF-8");
+
+  /* op + offset + length + path length */
+  private static final int HEADER_SIZE = 1 + 8 + 8 + 4;
+
+  private static final int MAX_PATH_LENGTH = 64 * 1024;
+
+  /* the largest slice handed to a single transferTo/transferFrom call */
+  static final long MAX_TRANSFER_SLICE = 8L * 1024 * 1024;
+
+  public static final String PORT_PROPERTY = "org.apache.oodt.cas.filemgr.datatransfer.streaming.port";
+
+  public static final String HOST_PROPERTY = "org.apache.oodt.cas.filemgr.datatransfer.streaming.host";
+
+  public static final String ROOT_PROPERTY = "org.apache.oodt.cas.filemgr.datatransfer.streaming.root";
+
+  public static final String THREADS_PROPERTY = "org.apache.oodt.cas.filemgr.datatransfer.streaming.server.threads";
+
+  public static final String TIMEOUT_PROPERTY = "org.apache.oodt.cas.filemgr.datatransfer.streaming.server.timeout.seconds";
+
+  public static final int DEFAULT_TIMEOUT_SECONDS = 60;
+
+  /* our log stream */
+  private static final Logger LOG = Logger
+      .getLogger(StreamingTransferServer.class.getName());
+
+  private String host;
+
+  private int port;
+
+  private int numThreads;
+
+  private File root;
+
+  private int readTimeoutMillis;
+
+  /* uploads in flight or failed, by file and offset: the bytes stored */
+  private final ConcurrentHashMap<String, PutProgress> puts = new ConcurrentHashMap<String, PutProgress>();
+
+  /* the canonical root, ending with a separator */
+  private String rootPrefix = null;
+
+  private ServerSocketChannel serverChannel = null;
+
+  private ExecutorService workers = null;
+
+  private Thread acceptor = null;
+
+  private volatile boolean running = false;
+
+  /**
+   * @param host
+   *          The host name or address to listen on.
+   * @param port
+   *          The port to listen on, or <code>0</code> for any free port.
+   * @param numThreads
+   *          The number of connections served concurrently.
+   * @param root
+   *          The directory that every file read or written must be under.
+   */
+  public StreamingTransferServer(String host, int port, int numThreads,
+      File root) {
+    this(host, port, numThreads, root, DEFAULT_TIMEOUT_SECONDS * 1000);
+  }
+
+  /**
+   * @param host
+   *          The host name or address to listen on.
+   * @param port
+   *          The port to listen on, or <code>0</code> for any free port.
+   * @param numThreads
+   *          The number of connections served concurrently.
+   * @param root
+   *          The directory that every file read or written must be under.
+   * @param readTimeoutMillis
+   *          How long a connection may send nothing before it is closed.
+   */
+  public StreamingTransferServer(String host, int port, int numThreads,
+      File root, int readTimeoutMillis) {
+    this.host = host;
+    this.port = port;
+    this.numThreads = Math.max(1, numThreads);
+    this.root = root;
+    this.readTimeoutMillis = Math.max(1, readTimeoutMillis);
+  }
+
+  /**
+   * @return A server configured from the
+   *         <code>org.apache.oodt.cas.filemgr.datatransfer.streaming.*</code>
+   *         system properties, or <code>null</code> if no streaming port or
+   *         no data root is configured.
+   */
+  public static StreamingTransferServer createFromProperties() {
+    int port = Integer.getInteger(PORT_PROPERTY, -1);
+    if (port <= 0) {
+      return null;
+    }
+    String root = System.getProperty(ROOT_PROPERTY);
+    if (root == null || root.trim().isEmpty()) {
+      LOG.log(Level.SEVERE, "Streaming data transfer port: [" + port
+          + "] configured without [" + ROOT_PROPERTY
+          + "]: not starting the streaming transfer server");
+      return null;
+    }
+    return new StreamingTransferServer(System.getProperty(HOST_PROPERTY,
+        "localhost"), port, Integer.getInteger(THREADS_PROPERTY, 16),
+        new File(root.trim()), Integer.getInteger(TIMEOUT_PROPERTY,
+            DEFAULT_TIMEOUT_SECONDS) * 1000);
+  }
+
+  /**
+   * Binds the listening socket and starts accepting connections.
+   *
+   * @throws IOException
+   *           If the data root is not a directory or the port cannot be
+   *           bound.
+   */
+  public synchronized void startUp() throws IOException {
+    if (running) {
+      return;
+    }
+    File canonicalRoot = root.getCanonicalFile();
+    if (!canonicalRoot.isDirectory()) {
+      throw new IOException("Streaming transfer root: ["
+          + root.getAbsolutePath() + "] is not a directory");
+    }
+    rootPrefix = canonicalRoot.getPath().endsWith(File.separator) ? canonicalRoot
+        .getPath() : canonicalRoot.getPath() + File.separator;
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.socket().setReuseAddress(true);
+    serverChannel.socket().bind(new InetSocketAddress(host, port));
+    port = serverChannel.socket().getLocalPort();
+    workers = Executors.newFixedThreadPool(numThreads,
+        new DaemonThreadFactory("StreamingTransferServer-" + port));
+    running = true;
+
+    final ServerSocketChannel server = serverChannel;
+    final ExecutorService pool = workers;
+    acceptor = new Thread(new Runnable() {
+      public void run() {
+        acceptConnections(server, pool);
+      }
+    }, "StreamingTransferServer-acceptor-" + port);
+    acceptor.setDaemon(true);
+    acceptor.start();
+    LOG.log(Level.INFO, "Streaming data transfer server listening on: ["
+        + host + ":" + port + "] with [" + numThreads
+        + "] threads, serving files under: [" + rootPrefix + "]");
+  }
+
+  /**
+   * Stops accepting connections and closes the listening socket. Transfers
+   * in flight are interrupted.
+   */
+  public synchronized void shutdown() {
+    running = false;
+    if (serverChannel != null) {
+      try {
+        serverChannel.close();
+      } catch (IOException ignore) {
+      }
+      serverChannel = null;
+    }
+    if (workers != null) {
+      workers.shutdownNow();
+      workers = null;
+    }
+    acceptor = null;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * @return The port actually bound, which differs from the constructor
+   *         argument when that was <code>0</code>.
+   */
+  public int getPort() {
+    return port;
+  }
+
+  private void acceptConnections(ServerSocketChannel server,
+      ExecutorService pool) {
+    while (running) {
+      try {
+        final SocketChannel channel = server.accept();
+        try {
+          pool.execute(new Runnable() {
+            public void run() {
+              serve(channel);
+            }
+          });
+        } catch (RuntimeException e) {
+          closeQuietly(channel);
+        }
+      } catch (ClosedChannelException e) {
+        break;
+      } catch (IOException e) {
+        if (running) {
+          LOG.log(Level.WARNING, "Error accepting streaming transfer "
+              + "connection: Message: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  private void serve(SocketChannel channel) {
+    String path = null;
+    try {
+      channel.socket().setTcpNoDelay(true);
+      // SO_TIMEOUT only bounds reads made through the socket's stream, not
+      // reads on the channel itself
+      channel.socket().setSoTimeout(readTimeoutMillis);
+      ReadableByteChannel in = Channels.newChannel(channel.socket()
+          .getInputStream());
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      readFully(in, header);
+      header.flip();
+      byte op = header.get();
+      long offset = header.getLong();
+      long length = header.getLong();
+      int pathLength = header.getInt();
+      if (pathLength <= 0 || pathLength > MAX_PATH_LENGTH || offset < 0) {
+        throw new IOException("Malformed streaming transfer request");
+      }
+      ByteBuffer pathBuf = ByteBuffer.allocate(pathLength);
+      readFully(in, pathBuf);
+      path = new String(pathBuf.array(), PATH_ENCODING);
+      File file = resolve(path);
+
+      switch (op) {
+      case OP_CREATE:
+        writeLong(channel, create(file));
+        break;
+      case OP_PUT:
+        writeLong(channel, put(file, in, offset, length));
+        break;
+      case OP_GET:
+        get(file, channel, offset, length);
+        break;
+      case OP_SIZE:
+        writeLong(channel, file.isFile() ? file.length() : -1L);
+        break;
+      case OP_STORED:
+        writeLong(channel, stored(file, offset));
+        break;
+      default:
+        throw new IOException("Unknown streaming transfer operation: [" + op
+            + "]");
+      }
+    } catch (SocketTimeoutException e) {
+      LOG.log(Level.WARNING, "Streaming transfer of file: [" + path
+          + "] timed out after [" + readTimeoutMillis
+          + "] ms without data: closing connection");
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Streaming transfer of file: [" + path
+          + "] failed: Message: " + e.getMessage());
+      try {
+        writeLong(channel, -1L);
+      } catch (IOException ignore) {
+      }
+    } finally {
+      closeQuietly(channel);
+    }
+  }
+
+  /**
+   * Resolves a request path against the data root.
+   *
+   * @return The canonical file the path names.
+   * @throws IOException
+   *           If the path names a file outside the root.
+   */
+  File resolve(String path) throws IOException {
+    File file = new File(path);
+    if (!file.isAbsolute()) {
+      file = new File(rootPrefix, path);
+    }
+    File canonical = file.getCanonicalFile();
+    if (!canonical.getPath().startsWith(rootPrefix)) {
+      throw new IOException("Path: [" + path
+          + "] is outside the streaming transfer root");
+    }
+    return canonical;
+  }
+
+  private long create(File file) throws IOException {
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs()
+        && !parent.exists()) {
+      throw new IOException("Unable to create directory: ["
+          + parent.getAbsolutePath() + "]");
+    }
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(0);
+    } finally {
+      raf.close();
+    }
+    // what failed uploads stored is gone with the old contents
+    String prefix = file.getPath() + "@";
+    for (String key : puts.keySet()) {
+      if (key.startsWith(prefix)) {
+        puts.remove(key);
+      }
+    }
+    return 0L;
+  }
+
+  private long put(File file, ReadableByteChannel source, long offset,
+      long length) throws IOException {
+    String key = file.getPath() + "@" + offset;
+    PutProgress progress = new PutProgress();
+    puts.put(key, progress);
+    boolean stored = false;
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      // transferFrom writes nothing past EOF, so a range that lands beyond
+      // ranges still in flight extends the file first; ranges are disjoint,
+      // so growing to this range's offset never cuts into another one
+      synchronized (this) {
+        if (raf.length() < offset) {
+          raf.setLength(offset);
+        }
+      }
+      long copied = copyFrom(source, raf.getChannel(), offset, length,
+          progress);
+      stored = true;
+      return copied;
+    } finally {
+      raf.close();
+      if (stored) {
+        puts.remove(key, progress);
+      }
+      // a failed upload is kept until the client asks what it stored
+      progress.finish();
+    }
+  }
+
+  private long stored(File file, long offset) {
+    String key = file.getPath() + "@" + offset;
+    PutProgress progress = puts.get(key);
+    if (progress == null) {
+      return 0L;
+    }
+    long stored = progress.await(readTimeoutMillis);
+    if (stored >= 0) {
+      puts.remove(key, progress);
+    }
+    return stored;
+  }
+
+  private void get(File file, SocketChannel channel, long offset, long length)
+      throws IOException {
+    if (!file.isFile()) {
+      throw new IOException("No such file: [" + file.getAbsolutePath() + "]");
+    }
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel fileChannel = raf.getChannel();
+      long available = Math.max(0L, fileChannel.size() - offset);
+      long count = length < 0 ? available : Math.min(length, available);
+      writeLong(channel, count);
+      copyTo(fileChannel, channel, offset, count);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Copies exactly <code>count</code> bytes from <code>source</code> into
+   * <code>file</code> at <code>position</code>, recording in
+   * <code>progress</code> how many have been stored.
+   *
+   * @return The number of bytes copied.
+   * @throws EOFException
+   *           If the source ends before <code>count</code> bytes were read.
+   */
+  private static long copyFrom(ReadableByteChannel source, FileChannel file,
+      long position, long count, PutProgress progress) throws IOException {
+    long copied = 0;
+    while (copied < count) {
+      long n = file.transferFrom(source, position + copied,
+          Math.min(MAX_TRANSFER_SLICE, count - copied));
+      if (n <= 0) {
+        throw new EOFException("Stream ended after [" + copied + "] of ["
+            + count + "] bytes");
+      }
+      copied += n;
+      progress.stored(copied);
+    }
+    return copied;
+  }
+
+  /**
+   * Copies exactly <code>count</code> bytes of <code>file</code> starting at
+   * <code>position</code> to <code>target</code>.
+   */
+  static void copyTo(FileChannel file, WritableByteChannel target,
+      long position, long count) throws IOException {
+    long copied = 0;
+    while (copied < count) {
+      long n = file.transferTo(position + copied,
+          Math.min(MAX_TRANSFER_SLICE, count - copied), target);
+      if (n <= 0) {
+        throw new EOFException("File ended after [" + copied + "] of ["
+            + count + "] bytes");
+      }
+      copied += n;
+    }
+  }
+
+  /**
+   * Writes a request header for <code>op</code> to <code>channel</code>.
+   */
+  static void writeHeader(WritableByteChannel channel, byte op, String path,
+      long offset, long length) throws IOException {
+    byte[] pathBytes = path.getBytes(PATH_ENCODING);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + pathBytes.length);
+    header.put(op).putLong(offset).putLong(length).putInt(pathBytes.length)
+        .put(pathBytes);
+    header.flip();
+    writeFully(channel, header);
+  }
+
+  static long readLong(ReadableByteChannel channel) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(8);
+    readFully(channel, buf);
+    buf.flip();
+    return buf.getLong();
+  }
+
+  static void writeLong(WritableByteChannel channel, long value)
+      throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(8);
+    buf.putLong(value);
+    buf.flip();
+    writeFully(channel, buf);
+  }
+
+  private static void readFully(ReadableByteChannel channel, ByteBuffer buf)
+      throws IOException {
+    while (buf.hasRemaining()) {
+      if (channel.read(buf) < 0) {
+        throw new EOFException("Unexpected end of stream");
+      }
+    }
+  }
+
+  private static void writeFully(WritableByteChannel channel, ByteBuffer buf)
+      throws IOException {
+    while (buf.hasRemaining()) {
+      channel.write(buf);
+    }
+  }
+
+  private static void closeQuietly(SocketChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException ignore) {
+    }
+  }
+
+  /**
+   * The bytes an upload has stored so far, readable once it has ended.
+   */
+  private static class PutProgress {
+
+    private long stored = 0L;
+
+    private boolean finished = false;
+
+    synchronized void stored(long stored) {
+      this.stored = stored;
+    }
+
+    synchronized void finish() {
+      finished = true;
+      notifyAll();
+    }
+
+    /**
+     * @return The bytes stored by the upload once it has ended, or
+     *         <code>-1</code> if it is still running after
+     *         <code>timeoutMillis</code>.
+     */
+    synchronized long await(long timeoutMillis) {
+      long deadline = System.currentTimeMillis() + timeoutMillis;
+      long remaining = timeoutMillis;
+      while (!finished && remaining > 0) {
+        try {
+          wait(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+        remaining = deadline - System.currentTimeMillis();
+      }
+      return finished ? stored : -1L;
+    }
+  }
+
+  static class DaemonThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    DaemonThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+
+}
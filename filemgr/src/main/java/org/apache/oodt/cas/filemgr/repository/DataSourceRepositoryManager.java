@@ -21,9 +21,11 @@ package org.apache.oodt.cas.filemgr.repository;
 import org.apache.oodt.cas.filemgr.structs.ProductType;
 import org.apache.oodt.cas.filemgr.structs.exceptions.RepositoryManagerException;
 import org.apache.oodt.cas.filemgr.util.DbStructFactory;
+import org.apache.oodt.commons.database.PreparedStatements;
 
 //JDK imports
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -175,29 +177,26 @@ public class DataSourceRepositoryManager implements RepositoryManager {
     public synchronized void modifyProductType(ProductType productType)
             throws RepositoryManagerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            String modifyProductTypeSql = "UPDATE product_types SET product_type_name='"
-                    + productType.getName()
-                    + "', product_type_description='"
-                    + productType.getDescription()
-                    + "', "
-                    + "product_type_versioner_class='"
-                    + productType.getVersioner()
-                    + "', product_type_repository_path='"
-                    + productType.getProductRepositoryPath()
-                    + "' "
-                    + "WHERE product_type_id = "
-                    + productType.getProductTypeId();
+            String modifyProductTypeSql = "UPDATE product_types SET product_type_name = ?, "
+                    + "product_type_description = ?, "
+                    + "product_type_versioner_class = ?, "
+                    + "product_type_repository_path = ? "
+                    + "WHERE product_type_id = ?";
 
             LOG.log(Level.FINE, "modifyProductType: Executing: "
                     + modifyProductTypeSql);
-            statement.execute(modifyProductTypeSql);
+            statement = PreparedStatements.prepare(conn, modifyProductTypeSql,
+                    productType.getName(), productType.getDescription(),
+                    productType.getVersioner(),
+                    productType.getProductRepositoryPath(),
+                    productTypeIdParam(productType.getProductTypeId()));
+            statement.executeUpdate();
             conn.commit();
 
         } catch (Exception e) {
@@ -245,19 +244,19 @@ public class DataSourceRepositoryManager implements RepositoryManager {
     public void removeProductType(ProductType productType)
             throws RepositoryManagerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            String deleteProductTypeSql = "DELETE FROM product_types WHERE product_type_id = "
-                    + productType.getProductTypeId();
+            String deleteProductTypeSql = "DELETE FROM product_types WHERE product_type_id = ?";
 
             LOG.log(Level.FINE, "removeProductType: Executing: "
                     + deleteProductTypeSql);
-            statement.execute(deleteProductTypeSql);
+            statement = PreparedStatements.prepare(conn, deleteProductTypeSql,
+                    productTypeIdParam(productType.getProductTypeId()));
+            statement.executeUpdate();
 
             // TODO: Decide if it makes sense to delete the references table
             // and the metadata table here. For now, we won't because maybe
@@ -310,21 +309,21 @@ public class DataSourceRepositoryManager implements RepositoryManager {
     public ProductType getProductTypeById(String productTypeId)
             throws RepositoryManagerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         ProductType productType = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
-            String getProductTypeSql = "SELECT * from product_types WHERE product_type_id = "
-                    + productTypeId;
+            String getProductTypeSql = "SELECT * from product_types WHERE product_type_id = ?";
 
             LOG.log(Level.FINE, "getProductTypeById: Executing: "
                     + getProductTypeSql);
-            rs = statement.executeQuery(getProductTypeSql);
+            statement = PreparedStatements.prepare(conn, getProductTypeSql,
+                    productTypeIdParam(productTypeId));
+            rs = statement.executeQuery();
 
             while (rs.next()) {
                 productType = DbStructFactory.getProductType(rs);
@@ -383,21 +382,21 @@ public class DataSourceRepositoryManager implements RepositoryManager {
     public ProductType getProductTypeByName(String productTypeName)
             throws RepositoryManagerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         ProductType productType = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
-            String getProductTypeSql = "SELECT * from product_types WHERE product_type_name = '"
-                    + productTypeName + "'";
+            String getProductTypeSql = "SELECT * from product_types WHERE product_type_name = ?";
 
             LOG.log(Level.FINE, "getProductTypeByName: Executing: "
                     + getProductTypeSql);
-            rs = statement.executeQuery(getProductTypeSql);
+            statement = PreparedStatements.prepare(conn, getProductTypeSql,
+                    productTypeName);
+            rs = statement.executeQuery();
 
             while (rs.next()) {
                 productType = DbStructFactory.getProductType(rs);
@@ -455,20 +454,20 @@ public class DataSourceRepositoryManager implements RepositoryManager {
      */
     public List<ProductType> getProductTypes() throws RepositoryManagerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         List<ProductType> productTypes = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
             String getProductTypeSql = "SELECT * from product_types";
 
             LOG.log(Level.FINE, "getProductTypes: Executing: "
                     + getProductTypeSql);
-            rs = statement.executeQuery(getProductTypeSql);
+            statement = conn.prepareStatement(getProductTypeSql);
+            rs = statement.executeQuery();
 
             productTypes = new Vector<ProductType>();
             while (rs.next()) {
@@ -525,4 +524,8 @@ public class DataSourceRepositoryManager implements RepositoryManager {
         return productTypes;
     }
 
+    /* product type ids are assigned by the database */
+    private static Object productTypeIdParam(String productTypeId) {
+        return PreparedStatements.idParam(productTypeId, false);
+    }
 }
@@ -50,6 +50,9 @@ public class ProductPage implements Serializable {
     /* the computed number of total hits for the query */
     private long numOfHits;
 
+    /* opaque token to seek to the page after this one, if the catalog gives one */
+    private String cursor = null;
+
 
     /**
      * <p>
@@ -167,7 +170,28 @@ public class ProductPage implements Serializable {
      */
     public void setNumOfHits(long numOfHits) {
       this.numOfHits = numOfHits;
-    }    
+    }
+
+    /**
+     * Gets the token that the {@link org.apache.oodt.cas.filemgr.util.Pagination}
+     * methods use to seek directly to the page after this one, instead of
+     * counting and skipping over every earlier product. The token is opaque
+     * and only meaningful to the catalog that issued it.
+     * 
+     * @return The cursor for the next page, or null if the catalog did not
+     *         give one (e.g. this is the last page).
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @param cursor
+     *            The cursor for the next page to set.
+     */
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
 
     /**
      * 
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oodt.cas.filemgr.structs.query.filter;
+
+//JDK imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 
+ * @version $Revision$
+ *
+ * <p>
+ * Keeps the run of {@link TimeEvent}s that covers the most time, breaking ties
+ * by the greatest total priority. An event may follow another if it starts
+ * after it and overlaps its end by less than epsilon, the same rule the
+ * weighted hash in <code>org.apache.oodt.commons.filter</code> uses, but the
+ * best run is found by dynamic programming over the events' start and end
+ * times in O(n log n) rather than by building a graph of every event.
+ * </p>.
+ */
+public class WeightedIntervalFilterAlgor extends FilterAlgor {
+
+    public List<TimeEvent> filterEvents(List<TimeEvent> events) {
+        int n = events.size();
+        if (n == 0) {
+            return new ArrayList<TimeEvent>();
+        }
+
+        // events by start time, equal starts kept in the order given
+        TimeEvent[] sorted = events.toArray(new TimeEvent[n]);
+        Arrays.sort(sorted);
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        double[] priorities = new double[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = sorted[i].getStartTime();
+            ends[i] = sorted[i].getEndTime();
+            priorities[i] = sorted[i].getPriority();
+        }
+        long[] endRanks = ends.clone();
+        Arrays.sort(endRanks);
+
+        // best run ending with each event, and the event before it
+        long[] weights = new long[n];
+        double[] priorityWeights = new double[n];
+        int[] previous = new int[n];
+
+        // for a prefix of end times, the event ending the best run
+        int[] tree = new int[n + 1];
+        Arrays.fill(tree, -1);
+
+        int best = -1;
+        for (int groupStart = 0; groupStart < n;) {
+            int groupEnd = groupStart;
+            while (groupEnd < n && starts[groupEnd] == starts[groupStart]) {
+                groupEnd++;
+            }
+
+            // an event can only follow one that started before it, so the
+            // events starting together are added once all of them are done
+            for (int i = groupStart; i < groupEnd; i++) {
+                int before = countBelow(endRanks, starts[i] + epsilon);
+                int prev = -1;
+                for (int k = before; k > 0; k -= k & -k) {
+                    prev = better(tree[k], prev, weights, priorityWeights);
+                }
+                previous[i] = prev;
+                weights[i] = ends[i] - starts[i]
+                        + (prev >= 0 ? weights[prev] : 0);
+                priorityWeights[i] = priorities[i]
+                        + (prev >= 0 ? priorityWeights[prev] : 0);
+                best = better(best, i, weights, priorityWeights);
+            }
+            for (int i = groupStart; i < groupEnd; i++) {
+                for (int k = countBelow(endRanks, ends[i]) + 1; k <= n; k += k
+                        & -k) {
+                    tree[k] = better(tree[k], i, weights, priorityWeights);
+                }
+            }
+            groupStart = groupEnd;
+        }
+
+        List<TimeEvent> run = new ArrayList<TimeEvent>();
+        for (int i = best; i >= 0; i = previous[i]) {
+            run.add(sorted[i]);
+        }
+        Collections.reverse(run);
+        return run;
+    }
+
+    /* the number of values below the given one */
+    private static int countBelow(long[] values, long value) {
+        int low = 0, high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /* the event ending the better run, preferring the first on a tie */
+    private static int better(int first, int second, long[] weights,
+            double[] priorityWeights) {
+        if (first < 0) {
+            return second;
+        } else if (second < 0) {
+            return first;
+        } else if (weights[second] > weights[first]
+                || (weights[second] == weights[first] && priorityWeights[second] > priorityWeights[first])) {
+            return second;
+        } else {
+            return first;
+        }
+    }
+
+}
@@ -18,6 +18,8 @@
 package org.apache.oodt.cas.filemgr.system;
 
 import org.apache.avro.AvroRemoteException;
+import org.apache.avro.ipc.CallFuture;
+import org.apache.avro.ipc.Callback;
 import org.apache.avro.ipc.NettyTransceiver;
 import org.apache.avro.ipc.Transceiver;
 import org.apache.avro.ipc.specific.SpecificRequestor;
@@ -32,6 +34,7 @@ import org.apache.oodt.cas.filemgr.structs.Reference;
 import org.apache.oodt.cas.filemgr.structs.avrotypes.AvroElement;
 import org.apache.oodt.cas.filemgr.structs.avrotypes.AvroFileManager;
 import org.apache.oodt.cas.filemgr.structs.avrotypes.AvroFileTransferStatus;
+import org.apache.oodt.cas.filemgr.structs.avrotypes.AvroMetadata;
 import org.apache.oodt.cas.filemgr.structs.avrotypes.AvroProduct;
 import org.apache.oodt.cas.filemgr.structs.avrotypes.AvroProductType;
 import org.apache.oodt.cas.filemgr.structs.avrotypes.AvroQueryResult;
@@ -57,6 +60,12 @@ import java.net.URL;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author radu
@@ -67,11 +76,19 @@ public class AvroFileManagerClient implements FileManagerClient {
 
     private static final Logger logger = LoggerFactory.getLogger(AvroFileManagerClient.class);
 
+    /** the most calls sent without waiting that may be unanswered at once */
+    public static final String MAX_IN_FLIGHT_PROPERTY = "org.apache.oodt.cas.filemgr.system.avro.maxInFlight";
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 64;
+
     /** Avro-Rpc client */
     private transient Transceiver client;
 
-    /** proxy for the server */
-    private transient AvroFileManager proxy;
+    /** proxy for the server, which can also send calls without waiting */
+    private transient AvroFileManager.Callback proxy;
+
+    /** bounds the calls sent without waiting that are not yet answered */
+    private transient Semaphore inFlight;
 
     /* URL where the fileManager is */
     private URL fileManagerUrl;
@@ -89,7 +106,8 @@ public class AvroFileManagerClient implements FileManagerClient {
             this.fileManagerUrl = url;
             InetSocketAddress inetSocketAddress = new InetSocketAddress(url.getHost(), this.fileManagerUrl.getPort());
             this.client = new NettyTransceiver(inetSocketAddress, 40000L);
-            proxy = (AvroFileManager) SpecificRequestor.getClient(AvroFileManager.class, client);
+            proxy = SpecificRequestor.getClient(AvroFileManager.Callback.class, client);
+            inFlight = new Semaphore(Math.max(1, Integer.getInteger(MAX_IN_FLIGHT_PROPERTY, DEFAULT_MAX_IN_FLIGHT)));
         } catch (IOException e) {
             logger.error("Error occurred when creating file manager: {}", url, e);
         }
@@ -592,67 +610,7 @@ public class AvroFileManagerClient implements FileManagerClient {
                     clientTransfer);
 
             if (clientTransfer) {
-                logger.debug("clientTransfer enabled: transfering product: {}", product.getProductName());
-
-                // we need to transfer the product ourselves
-                // make sure we have the product ID
-                if (productId == null) {
-                    logger.error("Product ID is null for product: {}", product.getProductName());
-                    throw new Exception("Request to ingest product: "
-                            + product.getProductName()
-                            + " but no product ID returned from File "
-                            + "Manager ingest");
-                }
-
-                if (dataTransfer == null) {
-                    logger.warn("Data transferer is null. Product: {}", product.getProductName());
-                    throw new Exception("Request to ingest product: ["
-                            + product.getProductName()
-                            + "] using client transfer, but no "
-                            + "dataTransferer specified!");
-                }
-
-                product.setProductId(productId);
-
-                if (!Boolean.getBoolean("org.apache.oodt.cas.filemgr.serverside.versioning")) {
-                    // version the product
-                    Versioner versioner = GenericFileManagerObjectFactory
-                            .getVersionerFromClassName(product.getProductType()
-                                    .getVersioner());
-                    versioner.createDataStoreReferences(product, metadata);
-
-                    // add the newly versioned references to the data store
-                    try {
-                        addProductReferences(product);
-                    } catch (CatalogException e) {
-                        logger.error("Error when adding Product references for Product [{}] to repository manager: {}",
-                                product.getProductName(), e.getMessage());
-                        throw e;
-                    }
-                } else {
-                    product.setProductReferences(getProductReferences(product));
-                }
-
-                // now transfer the product
-                try {
-                    dataTransfer.transferProduct(product);
-                    // now update the product's transfer status in the data
-                    // store
-                    product.setTransferStatus(Product.STATUS_RECEIVED);
-
-                    try {
-                        setProductTransferStatus(product);
-                    } catch (CatalogException e) {
-                        logger.error("Error when updating product transfer status for Product[{}]: {}",
-                                product.getProductName(), e.getMessage());
-                        throw e;
-                    }
-                } catch (Exception e) {
-                    logger.error("DataTransferException when transferring Product[{}]: {}",
-                            product.getProductName(), e.getMessage());
-                    throw new DataTransferException(e);
-                }
-
+                transferIngestedProduct(product, metadata, productId);
             }
             return productId;
 
@@ -673,6 +631,129 @@ public class AvroFileManagerClient implements FileManagerClient {
         }
     }
 
+    @Override
+    public List<String> ingestProducts(List<Product> products, List<Metadata> metadata, boolean clientTransfer) throws Exception {
+        logger.debug("Ingesting {} products", products.size());
+        List<AvroProduct> avroProducts = new ArrayList<AvroProduct>(products.size());
+        for (Product product : products) {
+            avroProducts.add(AvroTypeFactory.getAvroProduct(product));
+        }
+        List<AvroMetadata> avroMetadata = new ArrayList<AvroMetadata>(metadata.size());
+        for (Metadata m : metadata) {
+            avroMetadata.add(AvroTypeFactory.getAvroMetadata(m));
+        }
+
+        List<String> productIds = null;
+        int transferring = -1;
+        try {
+            // on a server transfer failure, the server rolls the batch back
+            // itself and says what became of each product
+            productIds = this.proxy.ingestProducts(avroProducts, avroMetadata, clientTransfer);
+
+            if (clientTransfer) {
+                for (transferring = 0; transferring < products.size(); transferring++) {
+                    transferIngestedProduct(products.get(transferring), metadata.get(transferring),
+                            productIds.get(transferring));
+                }
+            }
+            return productIds;
+        } catch (Exception e) {
+            logger.error("Failed to ingest {} products. -- rolling back ingest", products.size(), e);
+            for (int i = 0; productIds != null && i < productIds.size(); i++) {
+                Product product = products.get(i);
+                product.setProductId(productIds.get(i));
+                try {
+                    this.proxy.removeProduct(AvroTypeFactory.getAvroProduct(product));
+                } catch (Exception e1) {
+                    logger.error("Failed to rollback ingest of product [{}]", product, e1);
+                }
+            }
+            throw new Exception("Failed to ingest " + products.size() + " products : " + e.getMessage()
+                    + " : " + getRollbackStatus(products, transferring));
+        }
+    }
+
+    private static String getRollbackStatus(List<Product> products, int failed) {
+        if (failed < 0) {
+            return "rolled back the batch before any transfer";
+        }
+        List<String> transferred = new ArrayList<String>();
+        List<String> skipped = new ArrayList<String>();
+        for (int i = 0; i < products.size(); i++) {
+            if (i < failed) {
+                transferred.add(products.get(i).getProductName());
+            } else if (i > failed) {
+                skipped.add(products.get(i).getProductName());
+            }
+        }
+        return "rolled back the batch: transferred " + transferred
+                + ", failed [" + products.get(failed).getProductName()
+                + "], not transferred " + skipped;
+    }
+
+    private void transferIngestedProduct(Product product, Metadata metadata, String productId) throws Exception {
+        logger.debug("clientTransfer enabled: transfering product: {}", product.getProductName());
+
+        // we need to transfer the product ourselves
+        // make sure we have the product ID
+        if (productId == null) {
+            logger.error("Product ID is null for product: {}", product.getProductName());
+            throw new Exception("Request to ingest product: "
+                    + product.getProductName()
+                    + " but no product ID returned from File "
+                    + "Manager ingest");
+        }
+
+        if (dataTransfer == null) {
+            logger.warn("Data transferer is null. Product: {}", product.getProductName());
+            throw new Exception("Request to ingest product: ["
+                    + product.getProductName()
+                    + "] using client transfer, but no "
+                    + "dataTransferer specified!");
+        }
+
+        product.setProductId(productId);
+
+        if (!Boolean.getBoolean("org.apache.oodt.cas.filemgr.serverside.versioning")) {
+            // version the product
+            Versioner versioner = GenericFileManagerObjectFactory
+                    .getVersionerFromClassName(product.getProductType()
+                            .getVersioner());
+            versioner.createDataStoreReferences(product, metadata);
+
+            // add the newly versioned references to the data store
+            try {
+                addProductReferences(product);
+            } catch (CatalogException e) {
+                logger.error("Error when adding Product references for Product [{}] to repository manager: {}",
+                        product.getProductName(), e.getMessage());
+                throw e;
+            }
+        } else {
+            product.setProductReferences(getProductReferences(product));
+        }
+
+        // now transfer the product
+        try {
+            dataTransfer.transferProduct(product);
+            // now update the product's transfer status in the data
+            // store
+            product.setTransferStatus(Product.STATUS_RECEIVED);
+
+            try {
+                setProductTransferStatus(product);
+            } catch (CatalogException e) {
+                logger.error("Error when updating product transfer status for Product[{}]: {}",
+                        product.getProductName(), e.getMessage());
+                throw e;
+            }
+        } catch (Exception e) {
+            logger.error("DataTransferException when transferring Product[{}]: {}",
+                    product.getProductName(), e.getMessage());
+            throw new DataTransferException(e);
+        }
+    }
+
     @Override
     public Metadata getCatalogValues(Metadata metadata, ProductType productType) throws Exception {
         return AvroTypeFactory.getMetadata(this.proxy.getCatalogValues(
@@ -714,6 +795,100 @@ public class AvroFileManagerClient implements FileManagerClient {
         this.dataTransfer = dataTransfer;
     }
 
+    /**
+     * Sends {@link #ingestProduct(Product, Metadata, boolean)} without waiting
+     * for the answer. The file manager moves the product's files itself.
+     *
+     * @return The product's id, once ingested.
+     */
+    public Future<String> ingestProductAsync(final Product product, final Metadata metadata) {
+        return new AsyncCall<String, String>() {
+            @Override
+            protected void send() throws Exception {
+                proxy.ingestProduct(AvroTypeFactory.getAvroProduct(product),
+                        AvroTypeFactory.getAvroMetadata(metadata), false, this);
+            }
+
+            @Override
+            protected String convert(String productId) {
+                return productId;
+            }
+        }.start();
+    }
+
+    /**
+     * Sends {@link #getProductById(String)} without waiting for the answer.
+     */
+    public Future<Product> getProductByIdAsync(final String productId) {
+        return new AsyncCall<AvroProduct, Product>() {
+            @Override
+            protected void send() throws Exception {
+                proxy.getProductById(productId, this);
+            }
+
+            @Override
+            protected Product convert(AvroProduct product) {
+                return AvroTypeFactory.getProduct(product);
+            }
+        }.start();
+    }
+
+    /**
+     * Sends {@link #getMetadata(Product)} without waiting for the answer.
+     */
+    public Future<Metadata> getMetadataAsync(final Product product) {
+        return new AsyncCall<AvroMetadata, Metadata>() {
+            @Override
+            protected void send() throws Exception {
+                proxy.getMetadata(AvroTypeFactory.getAvroProduct(product), this);
+            }
+
+            @Override
+            protected Metadata convert(AvroMetadata metadata) {
+                return AvroTypeFactory.getMetadata(metadata);
+            }
+        }.start();
+    }
+
+    /**
+     * Sends {@link #complexQuery(ComplexQuery)} without waiting for the answer.
+     */
+    public Future<List<QueryResult>> complexQueryAsync(final ComplexQuery complexQuery) {
+        return new AsyncCall<List<AvroQueryResult>, List<QueryResult>>() {
+            @Override
+            protected void send() throws Exception {
+                proxy.complexQuery(AvroTypeFactory.getAvroComplexQuery(complexQuery), this);
+            }
+
+            @Override
+            protected List<QueryResult> convert(List<AvroQueryResult> avroQueryResults) {
+                List<QueryResult> queryResults = new ArrayList<QueryResult>();
+                for (AvroQueryResult aqr : avroQueryResults) {
+                    queryResults.add(AvroTypeFactory.getQueryResult(aqr));
+                }
+                return queryResults;
+            }
+        }.start();
+    }
+
+    /**
+     * Sends {@link #retrieveFile(String, int, int)} without waiting for the
+     * answer, so that the chunks of a file can be fetched back to back.
+     */
+    public Future<byte[]> retrieveFileAsync(final String filePath, final int offset, final int numBytes) {
+        return new AsyncCall<ByteBuffer, byte[]>() {
+            @Override
+            protected void send() throws Exception {
+                proxy.retrieveFile(filePath, offset, numBytes, this);
+            }
+
+            @Override
+            protected byte[] convert(ByteBuffer data) {
+                return data.array();
+            }
+        }.start();
+    }
+
     @Override
     public void close() throws IOException {
         logger.info("Closing file manager client for URL: {}", fileManagerUrl);
@@ -721,4 +896,90 @@ public class AvroFileManagerClient implements FileManagerClient {
             client.close();
         }
     }
+
+    /**
+     * <p>A call sent without waiting for its answer. Sending blocks while
+     * {@link #MAX_IN_FLIGHT_PROPERTY} calls are unanswered. {@link #get()}
+     * throws an {@link ExecutionException} holding the error if the call
+     * failed; calls can't be cancelled once sent.</p>
+     */
+    private abstract class AsyncCall<A, T> implements Callback<A>, Future<T> {
+
+        private final CallFuture<A> answer = new CallFuture<A>();
+
+        private final AtomicBoolean answered = new AtomicBoolean(false);
+
+        /** sends the call, with this as its callback */
+        protected abstract void send() throws Exception;
+
+        /** converts the answer from its Avro type */
+        protected abstract T convert(A result) throws Exception;
+
+        Future<T> start() {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                answered.set(true);
+                answer.handleError(e);
+                return this;
+            }
+            try {
+                send();
+            } catch (Exception e) {
+                handleError(e);
+            }
+            return this;
+        }
+
+        @Override
+        public void handleResult(A result) {
+            if (answered.compareAndSet(false, true)) {
+                inFlight.release();
+                answer.handleResult(result);
+            }
+        }
+
+        @Override
+        public void handleError(Throwable error) {
+            if (answered.compareAndSet(false, true)) {
+                inFlight.release();
+                answer.handleError(error);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return answer.isDone();
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            return converted(answer.get());
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+                TimeoutException {
+            return converted(answer.get(timeout, unit));
+        }
+
+        private T converted(A result) throws ExecutionException {
+            try {
+                return convert(result);
+            } catch (Exception e) {
+                throw new ExecutionException(e);
+            }
+        }
+    }
 }
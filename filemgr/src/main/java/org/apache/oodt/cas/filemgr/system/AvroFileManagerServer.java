@@ -24,6 +24,7 @@ import org.apache.avro.ipc.Server;
 import org.apache.avro.ipc.specific.SpecificResponder;
 import org.apache.oodt.cas.filemgr.catalog.Catalog;
 import org.apache.oodt.cas.filemgr.datatransfer.DataTransfer;
+import org.apache.oodt.cas.filemgr.datatransfer.StreamingTransferServer;
 import org.apache.oodt.cas.filemgr.structs.Element;
 import org.apache.oodt.cas.filemgr.structs.FileTransferStatus;
 import org.apache.oodt.cas.filemgr.structs.Product;
@@ -40,6 +41,15 @@ import org.apache.oodt.cas.filemgr.structs.exceptions.VersioningException;
 import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
 import org.apache.oodt.cas.filemgr.util.AvroTypeFactory;
 import org.apache.oodt.cas.filemgr.util.GenericFileManagerObjectFactory;
+import org.apache.oodt.cas.metadata.Metadata;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.execution.ExecutionHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +59,7 @@ import java.net.URL;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
 /**
  * @author radu
  *
@@ -61,8 +72,19 @@ public class AvroFileManagerServer implements AvroFileManager, FileManagerServer
     /*port for server*/
     protected int port = 1999;
 
+    /* how many threads answer calls */
+    public static final String WORKER_THREADS_PROPERTY = "org.apache.oodt.cas.filemgr.system.avro.workerThreads";
+
+    public static final int DEFAULT_WORKER_THREADS = 16;
+
     private Server server;
 
+    /* hands calls from the Netty I/O threads to the workers */
+    private ExecutionHandler executionHandler;
+
+    /* optional socket endpoint for the StreamingDataTransferer */
+    private StreamingTransferServer streamingServer;
+
     /* file manager tools */
     private FileManager fileManager;
 
@@ -72,18 +94,63 @@ public class AvroFileManagerServer implements AvroFileManager, FileManagerServer
 
     @Override
     public boolean startUp() throws Exception {
-        server = new NettyServer(new SpecificResponder(AvroFileManager.class,this),new InetSocketAddress(this.port));
-        server.start();
         try {
             this.fileManager = new FileManager();
             this.loadConfiguration();
+            streamingServer = StreamingTransferServer.createFromProperties();
+            if (streamingServer != null) {
+                streamingServer.startUp();
+            }
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         }
+
+        // answer calls on a pool of workers so that a slow call doesn't hold
+        // up the Netty I/O thread, and the calls a client pipelines run
+        // side by side
+        int workerThreads = Integer.getInteger(WORKER_THREADS_PROPERTY,
+                DEFAULT_WORKER_THREADS);
+        executionHandler = new ExecutionHandler(Executors.newFixedThreadPool(
+                workerThreads));
+        server = newNettyServer(this, this.port, executionHandler);
+        server.start();
         return true;
     }
 
+    /**
+     * Creates a Netty server answering calls to the given implementation of
+     * the protocol on the given port, handing them to the given
+     * {@link ExecutionHandler} to run. Replies are sent without waiting to be
+     * coalesced (TCP_NODELAY), which Avro's server does not ask for, so that
+     * the replies to calls a client pipelines are not held back.
+     *
+     * @param fileManager The implementation of the protocol.
+     * @param port The port to listen on; 0 for any free port.
+     * @param executionHandler Runs the calls off the Netty I/O threads.
+     * @return The server, already bound.
+     */
+    public static NettyServer newNettyServer(AvroFileManager fileManager, int port,
+            ExecutionHandler executionHandler) {
+        return new NettyServer(new SpecificResponder(AvroFileManager.class, fileManager),
+                new InetSocketAddress(port),
+                new NioServerSocketChannelFactory(Executors.newCachedThreadPool(),
+                        Executors.newCachedThreadPool()),
+                new ChannelPipelineFactory() {
+                    @Override
+                    public ChannelPipeline getPipeline() {
+                        return Channels.pipeline(new SimpleChannelUpstreamHandler() {
+                            @Override
+                            public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent e)
+                                    throws Exception {
+                                e.getChannel().getConfig().setOption("tcpNoDelay", true);
+                                super.channelOpen(ctx, e);
+                            }
+                        });
+                    }
+                }, executionHandler);
+    }
+
     public void loadConfiguration() throws IOException {
         fileManager.loadConfiguration();
 
@@ -105,7 +172,14 @@ public class AvroFileManagerServer implements AvroFileManager, FileManagerServer
 
     @Override
     public boolean shutdown() {
-        this.server.close();
+        if (this.streamingServer != null) {
+            this.streamingServer.shutdown();
+        }
+        if (this.server != null) {
+            this.server.close();
+            this.executionHandler.releaseExternalResources();
+        }
+        this.fileManager.shutdown();
         return true;
     }
 
@@ -198,9 +272,12 @@ public class AvroFileManagerServer implements AvroFileManager, FileManagerServer
 
     @Override
     public AvroProductPage getNextPage(AvroProductType type, AvroProductPage currPage) throws AvroRemoteException {
-
-        return AvroTypeFactory.getAvroProductPage(this.fileManager
-                        .getNextPage(AvroTypeFactory.getProductType(type), AvroTypeFactory.getProductPage(currPage)));
+        try {
+            return AvroTypeFactory.getAvroProductPage(this.fileManager
+                    .getNextPage(AvroTypeFactory.getProductType(type), AvroTypeFactory.getProductPage(currPage)));
+        } catch (CatalogException e) {
+            throw new AvroRemoteException(e.getMessage());
+        }
     }
 
     @Override
@@ -477,6 +554,23 @@ public class AvroFileManagerServer implements AvroFileManager, FileManagerServer
         }
     }
 
+    @Override
+    public List<String> ingestProducts(List<AvroProduct> products, List<AvroMetadata> metadata, boolean clientTransfer) throws AvroRemoteException {
+        List<Product> productList = new ArrayList<Product>(products.size());
+        for (AvroProduct p : products) {
+            productList.add(AvroTypeFactory.getProduct(p));
+        }
+        List<Metadata> metadataList = new ArrayList<Metadata>(metadata.size());
+        for (AvroMetadata m : metadata) {
+            metadataList.add(AvroTypeFactory.getMetadata(m));
+        }
+        try {
+            return this.fileManager.ingestProducts(productList, metadataList, clientTransfer);
+        } catch (CatalogException e) {
+            throw new AvroRemoteException(e.getMessage());
+        }
+    }
+
     @Override
     public ByteBuffer retrieveFile(String filePath, int offset, int numBytes) throws AvroRemoteException {
         try {
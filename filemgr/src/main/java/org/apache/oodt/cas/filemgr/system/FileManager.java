@@ -96,6 +96,18 @@ public class FileManager {
                 + System.getProperty("user.name", "unknown"));
     }
 
+    /**
+     * Creates a FileManager over components that have already been configured,
+     * without loading any configuration of its own. Used by the legacy
+     * {@link XmlRpcFileManager} to share the ingest logic.
+     */
+    FileManager(Catalog catalog, RepositoryManager repositoryManager,
+            DataTransfer dataTransfer) {
+        this.catalog = catalog;
+        this.repositoryManager = repositoryManager;
+        this.dataTransfer = dataTransfer;
+    }
+
     public void setCatalog(Catalog catalog) {
         LOG.fine("Setting catalog: " + catalog.toString());
         this.catalog = catalog;
@@ -220,7 +232,8 @@ public class FileManager {
         return page;
     }
 
-    public ProductPage getNextPage(ProductType type , ProductPage currPage) {
+    public ProductPage getNextPage(ProductType type , ProductPage currPage)
+            throws CatalogException {
         LOG.fine("Getting next page for : " + type.toString());
         ProductPage page = catalog.getNextPage(type, currPage);
         try {
@@ -472,21 +485,34 @@ public class FileManager {
                             .getProductTypeByName(productTypeName));
             }
 
-            // get Metadata
-            List<QueryResult> queryResults = new LinkedList<QueryResult>();
+            // get Metadata: one catalog pass per product type, with the
+            // results already sorted by the catalog
+            List<QueryResult> queryResults = new ArrayList<QueryResult>();
+            int sortedRuns = 0;
             for (ProductType productType : productTypes) {
-                List<String> productIds = catalog.query(this.getCatalogQuery(
-                        complexQuery, productType), productType);
-                for (String productId : productIds) {
-                    Product product = catalog.getProductById(productId);
-                    product.setProductType(productType);
-                    QueryResult qr = new QueryResult(product, this
-                            .getReducedMetadata(product, complexQuery
-                                    .getReducedMetadata()));
+                this.getCatalogQuery(complexQuery, productType);
+                List<QueryResult> typeResults = catalog.complexQuery(
+                        complexQuery, productType);
+                if (typeResults.isEmpty()) {
+                    continue;
+                }
+                List<TypeHandler> handlers = this.repositoryManager
+                        .getProductTypeById(productType.getProductTypeId())
+                        .getHandlers();
+                for (QueryResult qr : typeResults) {
+                    Metadata m = qr.getMetadata();
+                    if (this.expandProductMet)
+                        m = this.buildProductMetadata(qr.getProduct(), m);
+                    if (handlers != null) {
+                        for (TypeHandler handler : handlers)
+                            handler.postGetMetadataHandle(m);
+                    }
+                    qr.setMetadata(m);
                     qr.setToStringFormat(complexQuery
                             .getToStringResultFormat());
-                    queryResults.add(qr);
                 }
+                queryResults.addAll(typeResults);
+                sortedRuns++;
             }
 
             LOG.log(Level.INFO, "Query returned " + queryResults.size()
@@ -496,12 +522,13 @@ public class FileManager {
             if (complexQuery.getQueryFilter() != null) {
                 queryResults = applyFilterToResults(queryResults, complexQuery
                         .getQueryFilter());
+                sortedRuns = Integer.MAX_VALUE;
                 LOG.log(Level.INFO, "Filter returned " + queryResults.size()
                         + " results");
             }
 
-            // sort query results
-            if (complexQuery.getSortByMetKey() != null)
+            // merge the sorted results of each product type
+            if (complexQuery.getSortByMetKey() != null && sortedRuns > 1)
                 queryResults = sortQueryResultList(queryResults, complexQuery
                         .getSortByMetKey());
 
@@ -612,6 +639,173 @@ public class FileManager {
 
     }
 
+    /**
+     * Ingests a batch of {@link Product}s. Handlers, extractors and (when the
+     * server is responsible for it) versioning are applied to each product in
+     * memory, and the whole batch is then written to the {@link Catalog} with a
+     * single call to {@link Catalog#addProducts(List, List)}. Versioners that
+     * depend on the <code>CAS.ProductId</code> met key are not supported here,
+     * since ids are only assigned once the batch reaches the catalog.
+     *
+     * @param products       The products to ingest.
+     * @param metadata       The metadata for each product, in the same order.
+     * @param clientTransfer Whether or not the client will transfer the products.
+     * @return The ids of the ingested products, in the same order.
+     * @throws CatalogException If any error occurs ingesting the batch. When
+     *                          the server transfer of a product fails, the
+     *                          whole batch is removed from the catalog and
+     *                          the message gives the status of each product.
+     */
+    public List<String> ingestProducts(List<Product> products,
+                                       List<Metadata> metadata, boolean clientTransfer)
+            throws CatalogException {
+        if (products.size() != metadata.size()) {
+            throw new CatalogException("ingestProducts: received ["
+                    + products.size() + "] products but [" + metadata.size()
+                    + "] metadata objects");
+        }
+
+        boolean serverVersioning = !clientTransfer
+                || Boolean.getBoolean("org.apache.oodt.cas.filemgr.serverside.versioning");
+        List<Metadata> expandedMetadata = new Vector<Metadata>(products.size());
+
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            p.setTransferStatus(Product.STATUS_TRANSFER);
+            Metadata m = metadata.get(i);
+
+            //apply handlers
+            try {
+                m = this.getCatalogValues(m, p.getProductType());
+            } catch (Exception e) {
+                LOG.log(Level.SEVERE, "Failed to get handlers for product '" + p
+                        + "' : " + e.getMessage());
+            }
+
+            Metadata met = runExtractors(p, m);
+            removeNullValues(met);
+            expandedMetadata.add(met);
+
+            if (serverVersioning) {
+                try {
+                    Versioner versioner = GenericFileManagerObjectFactory
+                            .getVersionerFromClassName(p.getProductType().getVersioner());
+                    if (versioner != null) {
+                        versioner.createDataStoreReferences(p, met);
+                    }
+                } catch (Exception e) {
+                    LOG.log(Level.SEVERE,
+                            "ingestProducts: VersioningException when versioning Product: "
+                                    + p.getProductName() + " with Versioner "
+                                    + p.getProductType().getVersioner() + ": Message: "
+                                    + e.getMessage());
+                    throw new CatalogException("Error versioning product [" + p
+                            + "] : " + e.getMessage(), e);
+                }
+            } else {
+                // the client versions and adds the references itself
+                p.setProductReferences(new Vector<Reference>());
+            }
+        }
+
+        try {
+            catalog.addProducts(products, expandedMetadata);
+        } catch (CatalogException e) {
+            LOG.log(Level.SEVERE,
+                    "ingestProducts: CatalogException when adding ["
+                            + products.size() + "] products to Catalog: Message: "
+                            + e.getMessage());
+            throw e;
+        }
+
+        List<String> productIds = new Vector<String>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            if (!clientTransfer) {
+                LOG.log(Level.FINEST,
+                        "File Manager: ingest: no client transfer enabled, "
+                                + "server transfering product: [" + p.getProductName() + "]");
+                try {
+                    dataTransfer.transferProduct(p);
+                    p.setTransferStatus(Product.STATUS_RECEIVED);
+                    catalog.setProductTransferStatus(p);
+                } catch (Exception e) {
+                    LOG.log(Level.SEVERE,
+                            "ingestProducts: Exception when transfering Product: "
+                                    + p.getProductName() + ": Message: " + e.getMessage());
+                    rollbackIngest(products, i);
+                    throw new CatalogException("Error transferring product ["
+                            + p.getProductName() + "] : " + e.getMessage()
+                            + " : " + getRollbackStatus(products, i), e);
+                }
+            }
+            productIds.add(p.getProductId());
+        }
+
+        return productIds;
+    }
+
+    /*
+     * Undoes a batch ingest whose transfer failed at product number failed:
+     * every product of the batch is already in the catalog, and the files of
+     * the products up to the failed one may be in the archive.
+     */
+    private void rollbackIngest(List<Product> products, int failed) {
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            if (i <= failed) {
+                try {
+                    dataTransfer.deleteProduct(p);
+                } catch (Exception e) {
+                    LOG.log(Level.WARNING, "ingestProducts: unable to delete the "
+                            + "transferred files of Product: " + p.getProductName()
+                            + ": Message: " + e.getMessage());
+                }
+            }
+            try {
+                catalog.removeProduct(p);
+            } catch (CatalogException e) {
+                LOG.log(Level.SEVERE, "ingestProducts: unable to roll back Product: "
+                        + p.getProductName() + ": Message: " + e.getMessage());
+            }
+        }
+    }
+
+    private static String getRollbackStatus(List<Product> products, int failed) {
+        List<String> transferred = new Vector<String>();
+        List<String> skipped = new Vector<String>();
+        for (int i = 0; i < products.size(); i++) {
+            if (i < failed) {
+                transferred.add(products.get(i).getProductName());
+            } else if (i > failed) {
+                skipped.add(products.get(i).getProductName());
+            }
+        }
+        return "rolled back the batch: transferred " + transferred
+                + ", failed [" + products.get(failed).getProductName()
+                + "], not transferred " + skipped;
+    }
+
+    /*
+     * Product ids are only assigned once a batch reaches the catalog, so the
+     * extractors record null for any key they derive from the id; catalogs
+     * can't store those.
+     */
+    private static void removeNullValues(Metadata met) {
+        for (String key : met.getAllKeys()) {
+            List<String> values = met.getAllMetadata(key);
+            if (values != null && values.contains(null)) {
+                List<String> kept = new Vector<String>(values);
+                kept.removeAll(Collections.singleton((String) null));
+                if (kept.isEmpty()) {
+                    met.removeMetadata(key);
+                } else {
+                    met.replaceMetadata(key, kept);
+                }
+            }
+        }
+    }
+
     public byte[] retrieveFile(String filePath, int offset, int numBytes)
             throws DataTransferException {
         FileInputStream is = null;
@@ -1018,11 +1212,23 @@ public class FileManager {
     private List<QueryResult> applyFilterToResults(
             List<QueryResult> queryResults, QueryFilter queryFilter)
             throws Exception {
-        List<TimeEvent> events = new LinkedList<TimeEvent>();
+        Map<String, List<TypeHandler>> handlersByType = new HashMap<String, List<TypeHandler>>();
+        List<TimeEvent> events = new ArrayList<TimeEvent>(queryResults.size());
         for (QueryResult queryResult : queryResults) {
+            String productTypeId = queryResult.getProduct().getProductType().getProductTypeId();
+            if (!handlersByType.containsKey(productTypeId)) {
+                handlersByType.put(productTypeId, this.repositoryManager
+                        .getProductTypeById(productTypeId).getHandlers());
+            }
+            List<TypeHandler> handlers = handlersByType.get(productTypeId);
+
             Metadata m = new Metadata();
             m.addMetadata(queryFilter.getPriorityMetKey(), queryResult
                     .getMetadata().getMetadata(queryFilter.getPriorityMetKey()));
+            if (handlers != null) {
+                for (TypeHandler handler : handlers)
+                    handler.preAddMetadataHandle(m);
+            }
             events.add(new ObjectTimeEvent<QueryResult>(
                     DateUtils.getTimeInMillis(DateUtils.toCalendar(queryResult
                             .getMetadata().getMetadata(queryFilter.getStartDateTimeMetKey()),
@@ -1031,13 +1237,11 @@ public class FileManager {
                             .getMetadata(queryFilter.getEndDateTimeMetKey()),
                             DateUtils.FormatType.UTC_FORMAT),
                             DateUtils.julianEpoch), queryFilter.getConverter()
-                    .convertToPriority(this.getCatalogValues(m,
-                            queryResult.getProduct().getProductType())
-                            .getMetadata(queryFilter.getPriorityMetKey())),
+                    .convertToPriority(m.getMetadata(queryFilter.getPriorityMetKey())),
                     queryResult));
         }
         events = queryFilter.getFilterAlgor().filterEvents(events);
-        List<QueryResult> filteredQueryResults = new LinkedList<QueryResult>();
+        List<QueryResult> filteredQueryResults = new ArrayList<QueryResult>(events.size());
         for (TimeEvent event : events)
             filteredQueryResults.add(((ObjectTimeEvent<QueryResult>) event)
                     .getTimeObject());
@@ -1047,12 +1251,11 @@ public class FileManager {
 
     private List<QueryResult> sortQueryResultList(List<QueryResult> queryResults,
                                                   String sortByMetKey) {
-        QueryResult[] resultsArray = queryResults
-                .toArray(new QueryResult[queryResults.size()]);
         QueryResultComparator qrComparator = new QueryResultComparator();
         qrComparator.setSortByMetKey(sortByMetKey);
-        Arrays.sort(resultsArray, qrComparator);
-        return Arrays.asList(resultsArray);
+        // the sort is stable and merges the already sorted runs it is given
+        Collections.sort(queryResults, qrComparator);
+        return queryResults;
     }
 
     private Metadata buildProductMetadata(Product product, Metadata metadata)
@@ -1110,6 +1313,7 @@ public class FileManager {
                 .getProperty("filemgr.repository.factory",
                         "org.apache.oodt.cas.filemgr.repository.DataSourceRepositoryManagerFactory");
 
+        closeCatalog();
         catalog = GenericFileManagerObjectFactory
                 .getCatalogServiceFromFactory(metaFactory);
         repositoryManager = GenericFileManagerObjectFactory
@@ -1126,6 +1330,25 @@ public class FileManager {
                 .getBoolean("org.apache.oodt.cas.filemgr.metadata.expandProduct");
     }
 
+    /**
+     * Releases any resources (e.g., open index writers) held by the current
+     * {@link Catalog}.
+     */
+    public void shutdown() {
+        closeCatalog();
+    }
+
+    private void closeCatalog() {
+        if (catalog instanceof Closeable) {
+            try {
+                ((Closeable) catalog).close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Unable to close catalog: Message: "
+                        + e.getMessage());
+            }
+        }
+    }
+
     public void setDataTransfer(DataTransfer dataTransfer){
         this.dataTransfer = dataTransfer;
     }
@@ -162,6 +162,8 @@ public interface FileManagerClient extends Closeable, Serializable {
 
     public String ingestProduct(Product product, Metadata metadata,boolean clientTransfer) throws Exception;
 
+    public List<String> ingestProducts(List<Product> products, List<Metadata> metadata, boolean clientTransfer) throws Exception;
+
     @SuppressWarnings("unchecked")
     public Metadata getCatalogValues(Metadata metadata, ProductType productType)throws Exception;
 
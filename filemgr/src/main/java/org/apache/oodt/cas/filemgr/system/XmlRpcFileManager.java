@@ -59,7 +59,9 @@ import org.apache.oodt.config.ConfigurationListener;
 import org.apache.oodt.config.ConfigurationManager;
 import org.apache.oodt.config.ConfigurationManagerFactory;
 import org.apache.xmlrpc.WebServer;
+import org.apache.xmlrpc.XmlRpc;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -69,9 +71,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Hashtable;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
@@ -154,6 +156,10 @@ public class XmlRpcFileManager {
     configurationManager.addConfigurationListener(configurationListener);
     this.loadConfiguration();
 
+    // let clients reuse their connection for the next call
+    XmlRpc.setKeepAlive(Boolean.parseBoolean(System.getProperty(
+        "org.apache.oodt.cas.filemgr.system.xmlrpc.keepAlive", "true")));
+
     LOG.log(Level.INFO, "File Manager started by " + System.getProperty("user.name", "unknown"));
   }
 
@@ -348,13 +354,13 @@ public class XmlRpcFileManager {
 
   public Map<String, Object> getNextPage(
       Hashtable<String, Object> productTypeHash,
-      Hashtable<String, Object> currentPageHash) {
+      Hashtable<String, Object> currentPageHash) throws CatalogException {
     return this.getNextPageCore(productTypeHash, currentPageHash);
   }
 
   public Map<String, Object> getNextPageCore(
       Map<String, Object> productTypeHash,
-      Map<String, Object> currentPageHash) {
+      Map<String, Object> currentPageHash) throws CatalogException {
     ProductType type = XmlRpcStructFactory
         .getProductTypeFromXmlRpc(productTypeHash);
     ProductPage currPage = XmlRpcStructFactory
@@ -719,21 +725,35 @@ public class XmlRpcFileManager {
         }
       }
 
-      // get Metadata
-      List<QueryResult> queryResults = new LinkedList<QueryResult>();
+      // get Metadata: one catalog pass per product type, with the
+      // results already sorted by the catalog
+      List<QueryResult> queryResults = new ArrayList<QueryResult>();
+      int sortedRuns = 0;
       for (ProductType productType : productTypes) {
-        List<String> productIds = catalog.query(this.getCatalogQuery(
-            complexQuery, productType), productType);
-        for (String productId : productIds) {
-          Product product = catalog.getProductById(productId);
-          product.setProductType(productType);
-          QueryResult qr = new QueryResult(product, this
-              .getReducedMetadata(product, complexQuery
-                  .getReducedMetadata()));
+        this.getCatalogQuery(complexQuery, productType);
+        List<QueryResult> typeResults = catalog.complexQuery(complexQuery,
+            productType);
+        if (typeResults.isEmpty()) {
+          continue;
+        }
+        List<TypeHandler> handlers = this.repositoryManager.getProductTypeById(
+            productType.getProductTypeId()).getHandlers();
+        for (QueryResult qr : typeResults) {
+          Metadata m = qr.getMetadata();
+          if (this.expandProductMet) {
+            m = this.buildProductMetadata(qr.getProduct(), m);
+          }
+          if (handlers != null) {
+            for (TypeHandler handler : handlers) {
+              handler.postGetMetadataHandle(m);
+            }
+          }
+          qr.setMetadata(m);
           qr.setToStringFormat(complexQuery
               .getToStringResultFormat());
-          queryResults.add(qr);
         }
+        queryResults.addAll(typeResults);
+        sortedRuns++;
       }
 
       LOG.log(Level.INFO, "Query returned " + queryResults.size()
@@ -743,12 +763,13 @@ public class XmlRpcFileManager {
       if (complexQuery.getQueryFilter() != null) {
         queryResults = applyFilterToResults(queryResults, complexQuery
             .getQueryFilter());
+        sortedRuns = Integer.MAX_VALUE;
         LOG.log(Level.INFO, "Filter returned " + queryResults.size()
                             + " results");
       }
 
-      // sort query results
-      if (complexQuery.getSortByMetKey() != null) {
+      // merge the sorted results of each product type
+      if (complexQuery.getSortByMetKey() != null && sortedRuns > 1) {
         queryResults = sortQueryResultList(queryResults, complexQuery
             .getSortByMetKey());
       }
@@ -937,6 +958,30 @@ public class XmlRpcFileManager {
 
   }
 
+  public Vector<String> ingestProducts(Vector<Hashtable<String, Object>> productHashes,
+                                       Vector<Hashtable<String, String>> metadata, boolean ct)
+      throws CatalogException {
+    return this.ingestProductsCore(productHashes, metadata, ct);
+  }
+
+  public Vector<String> ingestProductsCore(List<? extends Map<String, Object>> productHashes,
+                                           List<? extends Map<String, String>> metadata,
+                                           boolean clientTransfer)
+      throws CatalogException {
+    List<Product> products = new Vector<Product>(productHashes.size());
+    for (Map<String, Object> productHash : productHashes) {
+      products.add(XmlRpcStructFactory.getProductFromXmlRpc(productHash));
+    }
+    List<Metadata> metadataList = new Vector<Metadata>(metadata.size());
+    for (Map<String, String> metHash : metadata) {
+      Metadata m = new Metadata();
+      m.addMetadata((Map) metHash);
+      metadataList.add(m);
+    }
+    return new Vector<String>(new FileManager(catalog, repositoryManager, dataTransfer)
+        .ingestProducts(products, metadataList, clientTransfer));
+  }
+
   public byte[] retrieveFile(String filePath, int offset, int numBytes)
       throws DataTransferException {
     FileInputStream is = null;
@@ -1243,6 +1288,7 @@ public class XmlRpcFileManager {
   public boolean shutdown() {
     configurationManager.removeConfigurationListener(configurationListener);
     configurationManager.clearConfiguration();
+    closeCatalog();
     if (this.webServer != null) {
       this.webServer.shutdown();
       this.webServer = null;
@@ -1252,6 +1298,16 @@ public class XmlRpcFileManager {
     }
   }
 
+  private void closeCatalog() {
+    if (catalog instanceof Closeable) {
+      try {
+        ((Closeable) catalog).close();
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "Unable to close catalog: Message: " + e.getMessage());
+      }
+    }
+  }
+
   private synchronized String catalogProduct(Product p)
       throws CatalogException {
     try {
@@ -1475,11 +1531,24 @@ public class XmlRpcFileManager {
   private List<QueryResult> applyFilterToResults(
       List<QueryResult> queryResults, QueryFilter queryFilter)
       throws Exception {
-    List<TimeEvent> events = new LinkedList<TimeEvent>();
+    Map<String, List<TypeHandler>> handlersByType = new HashMap<String, List<TypeHandler>>();
+    List<TimeEvent> events = new ArrayList<TimeEvent>(queryResults.size());
     for (QueryResult queryResult : queryResults) {
+      String productTypeId = queryResult.getProduct().getProductType().getProductTypeId();
+      if (!handlersByType.containsKey(productTypeId)) {
+        handlersByType.put(productTypeId, this.repositoryManager
+            .getProductTypeById(productTypeId).getHandlers());
+      }
+      List<TypeHandler> handlers = handlersByType.get(productTypeId);
+
       Metadata m = new Metadata();
       m.addMetadata(queryFilter.getPriorityMetKey(), queryResult
           .getMetadata().getMetadata(queryFilter.getPriorityMetKey()));
+      if (handlers != null) {
+        for (TypeHandler handler : handlers) {
+          handler.preAddMetadataHandle(m);
+        }
+      }
       events.add(new ObjectTimeEvent<QueryResult>(
           DateUtils.getTimeInMillis(DateUtils.toCalendar(queryResult
                   .getMetadata().getMetadata(queryFilter.getStartDateTimeMetKey()),
@@ -1488,13 +1557,11 @@ public class XmlRpcFileManager {
                                                                     .getMetadata(queryFilter.getEndDateTimeMetKey()),
                   DateUtils.FormatType.UTC_FORMAT),
               DateUtils.julianEpoch), queryFilter.getConverter()
-                                                 .convertToPriority(this.getCatalogValues(m,
-                                                     queryResult.getProduct().getProductType())
-                                                                        .getMetadata(queryFilter.getPriorityMetKey())),
+                                                 .convertToPriority(m.getMetadata(queryFilter.getPriorityMetKey())),
           queryResult));
     }
     events = queryFilter.getFilterAlgor().filterEvents(events);
-    List<QueryResult> filteredQueryResults = new LinkedList<QueryResult>();
+    List<QueryResult> filteredQueryResults = new ArrayList<QueryResult>(events.size());
     for (TimeEvent event : events) {
       filteredQueryResults.add(((ObjectTimeEvent<QueryResult>) event)
           .getTimeObject());
@@ -1505,12 +1572,11 @@ public class XmlRpcFileManager {
 
   private List<QueryResult> sortQueryResultList(List<QueryResult> queryResults,
                                                 String sortByMetKey) {
-    QueryResult[] resultsArray = queryResults
-        .toArray(new QueryResult[queryResults.size()]);
     QueryResultComparator qrComparator = new QueryResultComparator();
     qrComparator.setSortByMetKey(sortByMetKey);
-    Arrays.sort(resultsArray, qrComparator);
-    return Arrays.asList(resultsArray);
+    // the sort is stable and merges the already sorted runs it is given
+    Collections.sort(queryResults, qrComparator);
+    return queryResults;
   }
 
   private Metadata buildProductMetadata(Product product, Metadata metadata)
@@ -1568,6 +1634,7 @@ public class XmlRpcFileManager {
     transferFactory = System.getProperty("filemgr.datatransfer.factory",
         "org.apache.oodt.cas.filemgr.datatransfer.LocalDataTransferFactory");
 
+    closeCatalog();
     catalog = GenericFileManagerObjectFactory
         .getCatalogServiceFromFactory(metaFactory);
     repositoryManager = GenericFileManagerObjectFactory
@@ -17,14 +17,6 @@
 
 package org.apache.oodt.cas.filemgr.system;
 
-import org.apache.http.auth.AuthSchemeProvider;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.HttpRequestRetryHandler;
-import org.apache.http.client.config.RequestConfig;
-import org.apache.http.config.Registry;
-import org.apache.http.config.RegistryBuilder;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.protocol.HttpContext;
 import org.apache.oodt.cas.cli.CmdLineUtility;
 import org.apache.oodt.cas.filemgr.datatransfer.DataTransfer;
 import org.apache.oodt.cas.filemgr.exceptions.FileManagerException;
@@ -47,11 +39,9 @@ import org.apache.oodt.cas.filemgr.util.GenericFileManagerObjectFactory;
 import org.apache.oodt.cas.filemgr.util.XmlRpcStructFactory;
 import org.apache.oodt.cas.filemgr.versioning.Versioner;
 import org.apache.oodt.cas.metadata.Metadata;
+import org.apache.oodt.commons.xmlrpc.PooledXmlRpcTransportFactory;
 import org.apache.xmlrpc.XmlRpcClient;
-import org.apache.xmlrpc.XmlRpcClientException;
 import org.apache.xmlrpc.XmlRpcException;
-import org.apache.xmlrpc.XmlRpcTransport;
-import org.apache.xmlrpc.XmlRpcTransportFactory;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -79,6 +69,9 @@ public class XmlRpcFileManagerClient implements FileManagerClient {
   /* our xml rpc client */
   private transient XmlRpcClient client = null;
 
+  /* the pooled http connections our client's calls share */
+  private transient PooledXmlRpcTransportFactory transportFactory = null;
+
   /* our log stream */
   private static Logger LOG = Logger.getLogger(XmlRpcFileManagerClient.class
           .getName());
@@ -119,66 +112,9 @@ public class XmlRpcFileManagerClient implements FileManagerClient {
 
     }
 
-    XmlRpcTransportFactory transportFactory = new XmlRpcTransportFactory() {
-
-      public XmlRpcTransport createTransport()
-              throws XmlRpcClientException {
-
-        HttpRequestRetryHandler myRetryHandler = new HttpRequestRetryHandler() {
-          public boolean retryRequest(
-                  IOException exception,
-                  int count,
-                  HttpContext context){
-            if (count < Integer
-                    .getInteger(
-                            "org.apache.oodt.cas.filemgr.system.xmlrpc.connection.retries",
-                            3)) {
-              try {
-                Thread
-                        .sleep(Integer
-                                .getInteger(
-                                        "org.apache.oodt.cas.filemgr.system.xmlrpc.connection.retry.interval.seconds",
-                                        0) * 1000);
-                return true;
-              } catch (Exception ignored) {
-              }
-            }
-            return false;
-          }
-        };
-        RequestConfig config = RequestConfig.custom()
-                .setSocketTimeout(Integer
-                        .getInteger(
-                                "org.apache.oodt.cas.filemgr.system.xmlrpc.connectionTimeout.minutes",
-                                20) * 60 * 1000)
-                .setConnectTimeout(Integer
-                        .getInteger(
-                                "org.apache.oodt.cas.filemgr.system.xmlrpc.requestTimeout.minutes",
-                                60) * 60 * 1000)
-                .build();
-        Registry<AuthSchemeProvider> r = RegistryBuilder.<AuthSchemeProvider>create().build();
-        HttpClient client = HttpClients.custom().setRetryHandler(myRetryHandler).setDefaultAuthSchemeRegistry(r).setDefaultRequestConfig(config).build();
-
-        CommonsXmlRpcTransport transport = new CommonsXmlRpcTransport(url, client);
-        transport
-                .setConnectionTimeout(Integer
-                        .getInteger(
-                                "org.apache.oodt.cas.filemgr.system.xmlrpc.connectionTimeout.minutes",
-                                20) * 60 * 1000);
-        transport
-                .setTimeout(Integer
-                        .getInteger(
-                                "org.apache.oodt.cas.filemgr.system.xmlrpc.requestTimeout.minutes",
-                                60) * 60 * 1000);
-
-        return transport;
-      }
-
-      public void setProperty(String arg0, Object arg1) {
-      }
-
-    };
-
+    // one pool of keep-alive connections for all of our calls
+    transportFactory = new PooledXmlRpcTransportFactory(url,
+            "org.apache.oodt.cas.filemgr.system.xmlrpc");
     client = new XmlRpcClient(url, transportFactory);
     fileManagerUrl = url;
 
@@ -1206,83 +1142,7 @@ public class XmlRpcFileManagerClient implements FileManagerClient {
               argList);
 
       if (clientTransfer) {
-        LOG.log(Level.FINEST,
-                "File Manager Client: clientTransfer enabled: "
-                        + "transfering product ["
-                        + product.getProductName() + "]");
-
-        // we need to transfer the product ourselves
-        // make sure we have the product ID
-        if (productId == null) {
-          throw new Exception("Request to ingest product: "
-                  + product.getProductName()
-                  + " but no product ID returned from File "
-                  + "Manager ingest");
-        }
-
-        if (dataTransfer == null) {
-          throw new Exception("Request to ingest product: ["
-                  + product.getProductName()
-                  + "] using client transfer, but no "
-                  + "dataTransferer specified!");
-        }
-
-        product.setProductId(productId);
-
-        if (!Boolean.getBoolean("org.apache.oodt.cas.filemgr.serverside.versioning")) {
-          // version the product
-          Versioner versioner = GenericFileManagerObjectFactory
-                  .getVersionerFromClassName(product.getProductType()
-                          .getVersioner());
-          if (versioner != null) {
-            versioner.createDataStoreReferences(product, metadata);
-          }
-
-          // add the newly versioned references to the data store
-          try {
-            addProductReferences(product);
-          } catch (CatalogException e) {
-            LOG
-                    .log(
-                            Level.SEVERE,
-                            "ingestProduct: RepositoryManagerException "
-                                    + "when adding Product References for Product : "
-                                    + product.getProductName()
-                                    + " to RepositoryManager: Message: "
-                                    + e);
-            throw e;
-          }
-        } else {
-          product.setProductReferences(getProductReferences(product));
-        }
-
-        // now transfer the product
-        try {
-          dataTransfer.transferProduct(product);
-          // now update the product's transfer status in the data
-          // store
-          product.setTransferStatus(Product.STATUS_RECEIVED);
-
-          try {
-            setProductTransferStatus(product);
-          } catch (CatalogException e) {
-            LOG
-                    .log(
-                            Level.SEVERE,
-                            "ingestProduct: RepositoryManagerException "
-                                    + "when updating product transfer status for Product: "
-                                    + product.getProductName()
-                                    + " Message: " + e);
-            throw e;
-          }
-        } catch (Exception e) {
-          LOG.log(Level.SEVERE,
-                  "ingestProduct: DataTransferException when transfering Product: "
-                          + product.getProductName() + ": Message: "
-                          + e);
-          throw new DataTransferException(e);
-        }
-
+        transferIngestedProduct(product, metadata, productId);
       }
       return productId;
 
@@ -1328,6 +1188,162 @@ public class XmlRpcFileManagerClient implements FileManagerClient {
 
   }
 
+  public List<String> ingestProducts(List<Product> products, List<Metadata> metadata,
+                                     boolean clientTransfer)
+          throws XmlRpcException, FileManagerException {
+    List<String> productIds = null;
+    int transferring = -1;
+    try {
+      Vector<Object> argList = new Vector<Object>();
+      Vector<Map<String, Object>> productHashes = XmlRpcStructFactory
+              .getXmlRpcProductList(products);
+      Vector<Hashtable<String, Object>> metadataHashes = new Vector<Hashtable<String, Object>>();
+      for (Metadata m : metadata) {
+        metadataHashes.add(m.getHashTable());
+      }
+      argList.add(productHashes);
+      argList.add(metadataHashes);
+      argList.add(clientTransfer);
+      // on a server transfer failure, the server rolls the batch back
+      // itself and says what became of each product
+      productIds = (List<String>) client.execute("filemgr.ingestProducts",
+              argList);
+
+      if (clientTransfer) {
+        for (transferring = 0; transferring < products.size(); transferring++) {
+          transferIngestedProduct(products.get(transferring),
+                  metadata.get(transferring), productIds.get(transferring));
+        }
+      }
+      return productIds;
+    } catch (XmlRpcException e) {
+      LOG.log(Level.SEVERE, "Failed to ingest [" + products.size()
+              + "] products: " + e.getMessage() + " -- rolling back ingest");
+      rollbackIngest(products, productIds);
+      throw e;
+    } catch (Exception e) {
+      LOG.log(Level.SEVERE, "Failed to ingest [" + products.size()
+              + "] products: " + e + " -- rolling back ingest");
+      rollbackIngest(products, productIds);
+      throw new FileManagerException("Failed to ingest [" + products.size()
+              + "] products : " + e + " : "
+              + getRollbackStatus(products, transferring));
+    }
+  }
+
+  private static String getRollbackStatus(List<Product> products, int failed) {
+    if (failed < 0) {
+      return "rolled back the batch before any transfer";
+    }
+    List<String> transferred = new Vector<String>();
+    List<String> skipped = new Vector<String>();
+    for (int i = 0; i < products.size(); i++) {
+      if (i < failed) {
+        transferred.add(products.get(i).getProductName());
+      } else if (i > failed) {
+        skipped.add(products.get(i).getProductName());
+      }
+    }
+    return "rolled back the batch: transferred " + transferred
+            + ", failed [" + products.get(failed).getProductName()
+            + "], not transferred " + skipped;
+  }
+
+  private void rollbackIngest(List<Product> products, List<String> productIds) {
+    for (int i = 0; productIds != null && i < productIds.size(); i++) {
+      Product product = products.get(i);
+      product.setProductId(productIds.get(i));
+      try {
+        Vector<Object> argList = new Vector<Object>();
+        argList.add(XmlRpcStructFactory.getXmlRpcProduct(product));
+        client.execute("filemgr.removeProduct", argList);
+      } catch (Exception e) {
+        LOG.log(Level.SEVERE, "Failed to rollback ingest of product ["
+                + product + "] : " + e);
+      }
+    }
+  }
+
+  private void transferIngestedProduct(Product product, Metadata metadata,
+                                       String productId) throws Exception {
+    LOG.log(Level.FINEST,
+            "File Manager Client: clientTransfer enabled: "
+                    + "transfering product ["
+                    + product.getProductName() + "]");
+
+    // we need to transfer the product ourselves
+    // make sure we have the product ID
+    if (productId == null) {
+      throw new Exception("Request to ingest product: "
+              + product.getProductName()
+              + " but no product ID returned from File "
+              + "Manager ingest");
+    }
+
+    if (dataTransfer == null) {
+      throw new Exception("Request to ingest product: ["
+              + product.getProductName()
+              + "] using client transfer, but no "
+              + "dataTransferer specified!");
+    }
+
+    product.setProductId(productId);
+
+    if (!Boolean.getBoolean("org.apache.oodt.cas.filemgr.serverside.versioning")) {
+      // version the product
+      Versioner versioner = GenericFileManagerObjectFactory
+              .getVersionerFromClassName(product.getProductType()
+                      .getVersioner());
+      if (versioner != null) {
+        versioner.createDataStoreReferences(product, metadata);
+      }
+
+      // add the newly versioned references to the data store
+      try {
+        addProductReferences(product);
+      } catch (CatalogException e) {
+        LOG
+                .log(
+                        Level.SEVERE,
+                        "ingestProduct: RepositoryManagerException "
+                                + "when adding Product References for Product : "
+                                + product.getProductName()
+                                + " to RepositoryManager: Message: "
+                                + e);
+        throw e;
+      }
+    } else {
+      product.setProductReferences(getProductReferences(product));
+    }
+
+    // now transfer the product
+    try {
+      dataTransfer.transferProduct(product);
+      // now update the product's transfer status in the data
+      // store
+      product.setTransferStatus(Product.STATUS_RECEIVED);
+
+      try {
+        setProductTransferStatus(product);
+      } catch (CatalogException e) {
+        LOG
+                .log(
+                        Level.SEVERE,
+                        "ingestProduct: RepositoryManagerException "
+                                + "when updating product transfer status for Product: "
+                                + product.getProductName()
+                                + " Message: " + e);
+        throw e;
+      }
+    } catch (Exception e) {
+      LOG.log(Level.SEVERE,
+              "ingestProduct: DataTransferException when transfering Product: "
+                      + product.getProductName() + ": Message: "
+                      + e);
+      throw new DataTransferException(e);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public Metadata getCatalogValues(Metadata metadata, ProductType productType)
           throws XmlRpcException, IOException {
@@ -1386,7 +1402,12 @@ public class XmlRpcFileManagerClient implements FileManagerClient {
     this.fileManagerUrl = fileManagerUrl;
 
     // reset the client
-    this.client = new XmlRpcClient(fileManagerUrl);
+    if (transportFactory != null) {
+      transportFactory.close();
+    }
+    transportFactory = new PooledXmlRpcTransportFactory(fileManagerUrl,
+            "org.apache.oodt.cas.filemgr.system.xmlrpc");
+    this.client = new XmlRpcClient(fileManagerUrl, transportFactory);
   }
 
   /**
@@ -1406,7 +1427,9 @@ public class XmlRpcFileManagerClient implements FileManagerClient {
 
   @Override
   public void close() throws IOException {
-
+    if (transportFactory != null) {
+      transportFactory.close();
+    }
   }
 
 }
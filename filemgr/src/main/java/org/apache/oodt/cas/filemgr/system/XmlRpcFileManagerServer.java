@@ -19,6 +19,7 @@ package org.apache.oodt.cas.filemgr.system;
 
 import org.apache.oodt.cas.filemgr.catalog.Catalog;
 import org.apache.oodt.cas.filemgr.datatransfer.DataTransfer;
+import org.apache.oodt.cas.filemgr.datatransfer.StreamingTransferServer;
 import org.apache.oodt.cas.filemgr.structs.FileTransferStatus;
 import org.apache.oodt.cas.filemgr.structs.ProductPage;
 import org.apache.oodt.cas.filemgr.structs.ProductType;
@@ -35,6 +36,7 @@ import org.apache.oodt.cas.filemgr.util.GenericFileManagerObjectFactory;
 import org.apache.oodt.cas.filemgr.util.XmlRpcStructFactory;
 import org.apache.oodt.cas.metadata.Metadata;
 import org.apache.xmlrpc.WebServer;
+import org.apache.xmlrpc.XmlRpc;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Hashtable;
@@ -54,6 +56,9 @@ public class XmlRpcFileManagerServer implements FileManagerServer {
     /* our xml rpc web server */
     private WebServer webServer = null;
 
+    /* optional socket endpoint for the StreamingDataTransferer */
+    private StreamingTransferServer streamingServer = null;
+
     /* file manager tools */
     FileManager fileManager;
     
@@ -79,6 +84,13 @@ public class XmlRpcFileManagerServer implements FileManagerServer {
         webServer.start();
         this.fileManager = new FileManager();
         this.loadConfiguration();
+        // let clients reuse their connection for the next call
+        XmlRpc.setKeepAlive(Boolean.parseBoolean(System.getProperty(
+                "org.apache.oodt.cas.filemgr.system.xmlrpc.keepAlive", "true")));
+        streamingServer = StreamingTransferServer.createFromProperties();
+        if (streamingServer != null) {
+            streamingServer.startUp();
+        }
         return true;
     }
 
@@ -191,7 +203,7 @@ public class XmlRpcFileManagerServer implements FileManagerServer {
 
     public Map<String, Object> getNextPage(
             Hashtable<String, Object> productTypeHash,
-            Hashtable<String, Object> currentPageHash) {
+            Hashtable<String, Object> currentPageHash) throws CatalogException {
         ProductType type = XmlRpcStructFactory
                 .getProductTypeFromXmlRpc(productTypeHash);
         ProductPage currPage = XmlRpcStructFactory
@@ -391,6 +403,24 @@ public class XmlRpcFileManagerServer implements FileManagerServer {
         return fileManager.ingestProduct(p, m, clientTransfer);
     }
 
+    public Vector<String> ingestProducts(Vector<Hashtable<String, Object>> productHashes,
+                                         Vector<Hashtable<String, String>> metadata, boolean clientTransfer)
+            throws CatalogException {
+        List<Product> products = new Vector<Product>(productHashes.size());
+        for (Hashtable<String, Object> productHash : productHashes) {
+            products.add(XmlRpcStructFactory.getProductFromXmlRpc(productHash));
+        }
+
+        List<Metadata> metadataList = new Vector<Metadata>(metadata.size());
+        for (Hashtable<String, String> metHash : metadata) {
+            Metadata m = new Metadata();
+            m.addMetadata((Hashtable) metHash);
+            metadataList.add(m);
+        }
+
+        return new Vector<String>(fileManager.ingestProducts(products, metadataList, clientTransfer));
+    }
+
     public byte[] retrieveFile(String filePath, int offset, int numBytes)
             throws DataTransferException {
         return fileManager.retrieveFile(filePath, offset, numBytes);
@@ -451,6 +481,10 @@ public class XmlRpcFileManagerServer implements FileManagerServer {
     }
 
     public boolean shutdown() {
+        if (this.streamingServer != null) {
+            this.streamingServer.shutdown();
+            this.streamingServer = null;
+        }
         if (this.webServer != null) {
             this.webServer.shutdown();
             this.webServer = null;
@@ -385,7 +385,8 @@ public class AvroTypeFactory {
                 productPage.getTotalPages(),
                 productPage.getPageSize(),
                 avroProducts,
-                productPage.getNumOfHits());
+                productPage.getNumOfHits(),
+                productPage.getCursor());
     }
 
     public static ProductPage getProductPage(AvroProductPage avroProductPage){
@@ -400,6 +401,7 @@ public class AvroTypeFactory {
                 products
                 );
         pp.setNumOfHits(avroProductPage.getNumOfHits());
+        pp.setCursor(avroProductPage.getCursor());
         return pp;
     }
 
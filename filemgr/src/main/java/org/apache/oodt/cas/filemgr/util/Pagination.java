@@ -20,6 +20,7 @@ package org.apache.oodt.cas.filemgr.util;
 //CAS imports
 import org.apache.oodt.cas.filemgr.structs.ProductPage;
 import org.apache.oodt.cas.filemgr.structs.ProductType;
+import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
 
 
 /**
@@ -58,8 +59,11 @@ public interface Pagination {
      *            obtain is.
      * @return The next page in the ProductType product list, given the
      *         currentPage.
+     * @throws CatalogException
+     *             If the current page carries a cursor that is not valid.
      */
-    ProductPage getNextPage(ProductType type, ProductPage currentPage);
+    ProductPage getNextPage(ProductType type, ProductPage currentPage)
+            throws CatalogException;
 
     /**
      * 
@@ -117,6 +117,9 @@ public final class XmlRpcStructFactory {
     productPageHash.put("pageSize", page.getPageSize());
     productPageHash.put("pageProducts", getXmlRpcProductList(page
         .getPageProducts()));
+    if (page.getCursor() != null) {
+      productPageHash.put("cursor", page.getCursor());
+    }
     return productPageHash;
   }
 
@@ -129,6 +132,7 @@ public final class XmlRpcStructFactory {
     page.setTotalPages((Integer) productPageHash.get("totalPages"));
     page.setPageProducts(getProductListFromXmlRpc((Vector<Map<String, Object>>) productPageHash
         .get("pageProducts")));
+    page.setCursor((String) productPageHash.get("cursor"));
     return page;
   }
 
@@ -22,11 +22,12 @@ import org.apache.oodt.cas.filemgr.structs.Element;
 import org.apache.oodt.cas.filemgr.structs.ProductType;
 import org.apache.oodt.cas.filemgr.structs.exceptions.ValidationLayerException;
 import org.apache.oodt.cas.filemgr.util.DbStructFactory;
+import org.apache.oodt.commons.database.PreparedStatements;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.List;
 import java.util.Vector;
 import java.util.logging.Level;
@@ -59,6 +60,9 @@ public class DataSourceValidationLayer implements ValidationLayer {
     /* should we quote product_type_id? */
     private boolean quoteFields = false;
 
+    /* the elements and product type mappings read so far */
+    private final SchemaCache cache = new SchemaCache();
+
     /**
      * <p>
      * Default Constructor
@@ -76,29 +80,29 @@ public class DataSourceValidationLayer implements ValidationLayer {
      */
     public void addElement(Element element) throws ValidationLayerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            String addMetaElemSql = "INSERT INTO elements (element_name, dc_element, element_description) VALUES ('"
-                    + element.getElementName()
-                    + ", '"
-                    + element.getDCElement()
-                    + "', '" + element.getDescription() + "')";
+            String addMetaElemSql = "INSERT INTO elements (element_name, dc_element, element_description) VALUES (?, ?, ?)";
 
             LOG.log(Level.FINE, "addMetadataElement: Executing: "
                     + addMetaElemSql);
-            statement.execute(addMetaElemSql);
+            statement = PreparedStatements.prepare(conn, addMetaElemSql,
+                    element.getElementName(), element.getDCElement(),
+                    element.getDescription());
+            statement.executeUpdate();
+            statement.close();
 
             String elementId = "";
 
             String getMetaIdSql = "SELECT MAX(element_id) AS max_id FROM elements";
             LOG.log(Level.FINE, "addElement: Executing: " + getMetaIdSql);
-            rs = statement.executeQuery(getMetaIdSql);
+            statement = conn.prepareStatement(getMetaIdSql);
+            rs = statement.executeQuery();
 
             while (rs.next()) {
                 elementId = String.valueOf(rs.getInt("max_id"));
@@ -106,6 +110,7 @@ public class DataSourceValidationLayer implements ValidationLayer {
 
             element.setElementId(elementId);
             conn.commit();
+            cache.invalidate();
 
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -160,22 +165,24 @@ public class DataSourceValidationLayer implements ValidationLayer {
      */
     public void modifyElement(Element element) throws ValidationLayerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            String elementSql = "UPDATE elements SET element_name = '"
-                    + element.getElementName() + "', dc_element='"
-                    + element.getDCElement() + "', " + "element_description='"
-                    + element.getDescription() + "' WHERE " + "element_id = "
-                    + element.getElementId();
+            String elementSql = "UPDATE elements SET element_name = ?, "
+                    + "dc_element = ?, element_description = ? "
+                    + "WHERE element_id = ?";
 
             LOG.log(Level.FINE, "modifyElement: Executing: " + elementSql);
-            statement.execute(elementSql);
+            statement = PreparedStatements.prepare(conn, elementSql,
+                    element.getElementName(), element.getDCElement(),
+                    element.getDescription(),
+                    elementIdParam(element.getElementId()));
+            statement.executeUpdate();
             conn.commit();
+            cache.invalidate();
 
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -220,21 +227,22 @@ public class DataSourceValidationLayer implements ValidationLayer {
      */
     public void removeElement(Element element) throws ValidationLayerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            String deleteElementSql = "DELETE FROM elements WHERE element_id = "
-                    + element.getElementId();
+            String deleteElementSql = "DELETE FROM elements WHERE element_id = ?";
 
             LOG
                     .log(Level.FINE, "removeElement: Executing: "
                             + deleteElementSql);
-            statement.execute(deleteElementSql);
+            statement = PreparedStatements.prepare(conn, deleteElementSql,
+                    elementIdParam(element.getElementId()));
+            statement.executeUpdate();
             conn.commit();
+            cache.invalidate();
 
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -280,26 +288,22 @@ public class DataSourceValidationLayer implements ValidationLayer {
     public void addElementToProductType(ProductType type, Element element)
             throws ValidationLayerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
-
-            String addMetaElemSql = "INSERT INTO product_type_element_map (product_type_id, element_id) VALUES(";
 
-            if (quoteFields) {
-                addMetaElemSql += "'" + type.getProductTypeId() + "',";
-            } else {
-                addMetaElemSql += type.getProductTypeId() + ",";
-            }
-            addMetaElemSql += " " + element.getElementId() + ")";
+            String addMetaElemSql = "INSERT INTO product_type_element_map (product_type_id, element_id) VALUES (?, ?)";
 
             LOG.log(Level.FINE, "addElementToProductType: Executing: "
                     + addMetaElemSql);
-            statement.execute(addMetaElemSql);
+            statement = PreparedStatements.prepare(conn, addMetaElemSql,
+                    typeIdParam(type.getProductTypeId()),
+                    elementIdParam(element.getElementId()));
+            statement.executeUpdate();
             conn.commit();
+            cache.invalidate();
 
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -346,27 +350,22 @@ public class DataSourceValidationLayer implements ValidationLayer {
     public void removeElementFromProductType(ProductType type, Element element)
             throws ValidationLayerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
-
-            String deleteElemSql = "DELETE FROM product_type_element_map WHERE product_type_id = ";
 
-            if (quoteFields) {
-                deleteElemSql += "'" + type.getProductTypeId() + "'";
-            } else {
-                deleteElemSql += type.getProductTypeId();
-            }
-
-            deleteElemSql += " AND element_id = " + element.getElementId();
+            String deleteElemSql = "DELETE FROM product_type_element_map WHERE product_type_id = ? AND element_id = ?";
 
             LOG.log(Level.FINE, "removeElementFromProductType: Executing: "
                     + deleteElemSql);
-            statement.execute(deleteElemSql);
+            statement = PreparedStatements.prepare(conn, deleteElemSql,
+                    typeIdParam(type.getProductTypeId()),
+                    elementIdParam(element.getElementId()));
+            statement.executeUpdate();
             conn.commit();
+            cache.invalidate();
 
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -407,26 +406,21 @@ public class DataSourceValidationLayer implements ValidationLayer {
     public void addParentToProductType(ProductType type, String parent)
             throws ValidationLayerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            String addParentInfoSql = "INSERT INTO sub_to_super_map (product_type_id, parent_id) VALUES(";
-            if (quoteFields) {
-                addParentInfoSql += "'" + type.getProductTypeId() + "','"
-                        + parent + "')";
-            } else {
-                addParentInfoSql += type.getProductTypeId() + "," + parent
-                        + ")";
-            }
+            String addParentInfoSql = "INSERT INTO sub_to_super_map (product_type_id, parent_id) VALUES (?, ?)";
 
             LOG.log(Level.FINE, "addParentToProductType: Executing: "
                     + addParentInfoSql);
-            statement.execute(addParentInfoSql);
+            statement = PreparedStatements.prepare(conn, addParentInfoSql,
+                    typeIdParam(type.getProductTypeId()), typeIdParam(parent));
+            statement.executeUpdate();
             conn.commit();
+            cache.invalidate();
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
             LOG.log(Level.WARNING,
@@ -464,27 +458,21 @@ public class DataSourceValidationLayer implements ValidationLayer {
     public void removeParentFromProductType(ProductType type, String parent)
             throws ValidationLayerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
-            String deleteParSql = "DELETE FROM sub_to_super_map WHERE product_type_id = ";
-
-            if (quoteFields) {
-                deleteParSql += "'" + type.getProductTypeId()
-                        + "' AND parent_id ='" + parent + "'";
-            } else {
-                deleteParSql += type.getProductTypeId() + " AND parent_id ="
-                        + parent;
-            }
+            String deleteParSql = "DELETE FROM sub_to_super_map WHERE product_type_id = ? AND parent_id = ?";
 
             LOG.log(Level.FINE, "removeParentFromProductType: Executing: "
                     + deleteParSql);
-            statement.execute(deleteParSql);
+            statement = PreparedStatements.prepare(conn, deleteParSql,
+                    typeIdParam(type.getProductTypeId()), typeIdParam(parent));
+            statement.executeUpdate();
             conn.commit();
+            cache.invalidate();
 
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -528,9 +516,13 @@ public class DataSourceValidationLayer implements ValidationLayer {
     public List<Element> getElements(ProductType type)
             throws ValidationLayerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
-        List<Element> elements;
+        long version = cache.getVersion();
+        List<Element> elements = cache.getElements(type.getProductTypeId());
+        if (elements != null) {
+            return elements;
+        }
 
         elements = new Vector<Element>();
 
@@ -539,20 +531,14 @@ public class DataSourceValidationLayer implements ValidationLayer {
 
             try {
                 conn = dataSource.getConnection();
-                statement = conn.createStatement();
-
-                String elementSql = "SELECT elements.* from elements, product_type_element_map WHERE product_type_element_map.product_type_id = ";
-
-                if (quoteFields) {
-                    elementSql += "'" + currProduct + "'";
-                } else {
-                    elementSql += currProduct;
-                }
-
-                elementSql += " AND product_type_element_map.element_id = elements.element_id";
+    
+                String elementSql = "SELECT elements.* from elements, product_type_element_map WHERE product_type_element_map.product_type_id = ?"
+                        + " AND product_type_element_map.element_id = elements.element_id";
 
                 LOG.log(Level.FINE, "getElements: Executing: " + elementSql);
-                rs = statement.executeQuery(elementSql);
+                statement = PreparedStatements.prepare(conn, elementSql,
+                        typeIdParam(currProduct));
+                rs = statement.executeQuery();
 
                 while (rs.next()) {
                     Element element = DbStructFactory.getElement(rs);
@@ -598,17 +584,13 @@ public class DataSourceValidationLayer implements ValidationLayer {
             // advance to the product parent
             try {
                 conn = dataSource.getConnection();
-                statement = conn.createStatement();
-
-                String getParentSql = "SELECT parent_id from sub_to_super_map where product_type_id = ";
-                if (quoteFields) {
-                    getParentSql += "'" + currProduct + "'";
-                } else {
-                    getParentSql += currProduct;
-                }
+    
+                String getParentSql = "SELECT parent_id from sub_to_super_map where product_type_id = ?";
 
                 LOG.log(Level.FINE, "getElements: Executing: " + getParentSql);
-                rs = statement.executeQuery(getParentSql);
+                statement = PreparedStatements.prepare(conn, getParentSql,
+                        typeIdParam(currProduct));
+                rs = statement.executeQuery();
 
                 currProduct = null;
                 while (rs.next()) {
@@ -647,6 +629,7 @@ public class DataSourceValidationLayer implements ValidationLayer {
 
         }
 
+        cache.putElements(type.getProductTypeId(), elements, version);
         return elements;
     }
 
@@ -657,18 +640,22 @@ public class DataSourceValidationLayer implements ValidationLayer {
      */
     public List<Element> getElements() throws ValidationLayerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
-        List<Element> elements = null;
+        long version = cache.getVersion();
+        List<Element> elements = cache.getElements();
+        if (elements != null) {
+            return elements;
+        }
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
             String dataTypeSql = "SELECT * from elements";
 
             LOG.log(Level.FINE, "getElements: Executing: " + dataTypeSql);
-            rs = statement.executeQuery(dataTypeSql);
+            statement = conn.prepareStatement(dataTypeSql);
+            rs = statement.executeQuery();
 
             elements = new Vector<Element>();
 
@@ -678,6 +665,7 @@ public class DataSourceValidationLayer implements ValidationLayer {
                         + element.getElementName());
                 elements.add(element);
             }
+            cache.putElements(elements, version);
 
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -723,25 +711,32 @@ public class DataSourceValidationLayer implements ValidationLayer {
     public Element getElementById(String elementId)
             throws ValidationLayerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
-        Element element = null;
+        long version = cache.getVersion();
+        Element element = cache.getElementById(elementId);
+        if (element != null) {
+            return element;
+        }
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
-            String elementSql = "SELECT * from elements WHERE element_id = "
-                    + elementId;
+            String elementSql = "SELECT * from elements WHERE element_id = ?";
 
             LOG.log(Level.FINE, "getElementById: Executing: " + elementSql);
-            rs = statement.executeQuery(elementSql);
+            statement = PreparedStatements.prepare(conn, elementSql,
+                    elementIdParam(elementId));
+            rs = statement.executeQuery();
 
             while (rs.next()) {
                 element = DbStructFactory.getElement(rs);
                 LOG.log(Level.FINE, "getElementById: adding element: "
                         + element.getElementName());
             }
+            if (element != null) {
+                cache.putElementById(element, version);
+            }
 
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -787,25 +782,32 @@ public class DataSourceValidationLayer implements ValidationLayer {
     public Element getElementByName(String elementName)
             throws ValidationLayerException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
-        Element element = null;
+        long version = cache.getVersion();
+        Element element = cache.getElementByName(elementName);
+        if (element != null) {
+            return element;
+        }
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
-            String elementSql = "SELECT * from elements WHERE element_name = "
-                    + elementName;
+            String elementSql = "SELECT * from elements WHERE element_name = ?";
 
             LOG.log(Level.FINE, "getElementByName: Executing: " + elementSql);
-            rs = statement.executeQuery(elementSql);
+            statement = PreparedStatements.prepare(conn, elementSql,
+                    elementName);
+            rs = statement.executeQuery();
 
             while (rs.next()) {
                 element = DbStructFactory.getElement(rs);
                 LOG.log(Level.FINE, "getElementByName: adding element: "
                         + element.getElementName());
             }
+            if (element != null) {
+                cache.putElementByName(element, version);
+            }
 
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
@@ -842,4 +844,22 @@ public class DataSourceValidationLayer implements ValidationLayer {
 
         return element;
     }
+
+    /**
+     * @return The cache of the elements and product type mappings this layer
+     *         has read, e.g. to check its hit and miss counts.
+     */
+    public SchemaCache getSchemaCache() {
+        return cache;
+    }
+
+    /* product type ids are quoted only if quoteFields is set */
+    private Object typeIdParam(String productTypeId) {
+        return PreparedStatements.idParam(productTypeId, quoteFields);
+    }
+
+    /* element ids are assigned by the database, and never quoted */
+    private static Object elementIdParam(String elementId) {
+        return PreparedStatements.idParam(elementId, false);
+    }
 }
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.filemgr.validation;
+
+//OODT imports
+import org.apache.oodt.cas.filemgr.structs.Element;
+
+//JDK imports
+import java.util.Collections;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * An in-memory copy of the schema a {@link ValidationLayer} serves: the
+ * elements of each product type (including those it inherits), and elements
+ * by id and by name. The layer fills it as it reads its backing store and
+ * calls {@link #invalidate()} whenever it changes that store. Each
+ * invalidation starts a new version, and a value read under an older version
+ * is not kept, so a read racing a change can't bring a stale schema back.
+ * </p>
+ *
+ * <p>
+ * {@link Element}s are mutable, so the cache keeps its own copies of what it
+ * is given and hands out fresh copies of what it holds: changes a caller
+ * makes to a returned list or element never reach the cache.
+ * </p>
+ *
+ * <p>
+ * Changes made to the backing store by anything other than the layer itself
+ * (e.g. another file manager sharing the database) are not seen until the
+ * next invalidation.
+ * </p>
+ *
+ */
+public class SchemaCache {
+
+    private static final String ALL_ELEMENTS = "elements";
+
+    private static final String TYPE_PREFIX = "type:";
+
+    private static final String ID_PREFIX = "id:";
+
+    private static final String NAME_PREFIX = "name:";
+
+    private final ConcurrentHashMap<String, Object> entries = new ConcurrentHashMap<String, Object>();
+
+    private volatile long version = 0L;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @return The current version: pass it to the <code>put</code> methods
+     *         along with what was read under it.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Forgets everything cached, e.g. after a change to the schema.
+     */
+    public synchronized void invalidate() {
+        version++;
+        entries.clear();
+    }
+
+    /**
+     * @return A copy of the elements of the given product type, or null if
+     *         they are not cached.
+     */
+    public List<Element> getElements(String productTypeId) {
+        return copy(this.<List<Element>> get(TYPE_PREFIX + productTypeId));
+    }
+
+    public void putElements(String productTypeId, List<Element> elements,
+            long readVersion) {
+        put(TYPE_PREFIX + productTypeId, frozen(elements), readVersion);
+    }
+
+    /**
+     * @return A copy of all of the elements, or null if they are not cached.
+     */
+    public List<Element> getElements() {
+        return copy(this.<List<Element>> get(ALL_ELEMENTS));
+    }
+
+    public void putElements(List<Element> elements, long readVersion) {
+        put(ALL_ELEMENTS, frozen(elements), readVersion);
+    }
+
+    /**
+     * @return A copy of the element with the given id, or null if it is not
+     *         cached.
+     */
+    public Element getElementById(String elementId) {
+        return copy(this.<Element> get(ID_PREFIX + elementId));
+    }
+
+    public void putElementById(Element element, long readVersion) {
+        put(ID_PREFIX + element.getElementId(), copy(element), readVersion);
+    }
+
+    /**
+     * @return A copy of the element with the given name, or null if it is not
+     *         cached.
+     */
+    public Element getElementByName(String elementName) {
+        return copy(this.<Element> get(NAME_PREFIX + elementName));
+    }
+
+    public void putElementByName(Element element, long readVersion) {
+        put(NAME_PREFIX + element.getElementName(), copy(element),
+                readVersion);
+    }
+
+    /**
+     * @return The number of lookups answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of lookups that had to go to the backing store.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String key) {
+        Object value = entries.get(key);
+        if (value != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return (T) value;
+    }
+
+    private synchronized void put(String key, Object value, long readVersion) {
+        if (value != null && readVersion == version) {
+            entries.put(key, value);
+        }
+    }
+
+    private static List<Element> frozen(List<Element> elements) {
+        return elements != null ? Collections.unmodifiableList(copy(elements))
+                : null;
+    }
+
+    private static List<Element> copy(List<Element> elements) {
+        if (elements == null) {
+            return null;
+        }
+        List<Element> copies = new Vector<Element>(elements.size());
+        for (Element element : elements) {
+            copies.add(copy(element));
+        }
+        return copies;
+    }
+
+    private static Element copy(Element element) {
+        if (element == null) {
+            return null;
+        }
+        Element copy = new Element();
+        copy.setElementId(element.getElementId());
+        copy.setElementName(element.getElementName());
+        copy.setDCElement(element.getDCElement());
+        copy.setDescription(element.getDescription());
+        return copy;
+    }
+}
@@ -52,6 +52,7 @@ public class ScienceDataValidationLayer implements ValidationLayer {
 
   private static Logger LOG = Logger.getLogger(ScienceDataValidationLayer.class.getName());
   private DataSource ds;
+  private final SchemaCache cache = new SchemaCache();
 
   public ScienceDataValidationLayer(DataSource ds) {
     this.ds = ds;
@@ -77,6 +78,7 @@ public class ScienceDataValidationLayer implements ValidationLayer {
       conn = ds.getConnection();
       statement = conn.createStatement();
       statement.execute(sql);
+      cache.invalidate();
     } catch (SQLException e) {
       LOG.log(Level.SEVERE, e.getMessage());
     } finally {
@@ -116,6 +118,7 @@ public class ScienceDataValidationLayer implements ValidationLayer {
       conn = ds.getConnection();
       statement = conn.createStatement();
       statement.execute(sql);
+      cache.invalidate();
     } catch (SQLException e) {
       LOG.log(Level.SEVERE, e.getMessage());
     } finally {
@@ -145,12 +148,16 @@ public class ScienceDataValidationLayer implements ValidationLayer {
    */
   public Element getElementById(String elementId)
       throws ValidationLayerException {
+    long version = cache.getVersion();
+    Element element = cache.getElementById(elementId);
+    if (element != null) {
+      return element;
+    }
     String sql = "SELECT parameter_id, shortName, description from parameter WHERE parameter_id = "
         + elementId;
     Connection conn = null;
     Statement statement = null;
     ResultSet rs = null;
-    Element element = null;
 
     try {
       conn = ds.getConnection();
@@ -159,6 +166,9 @@ public class ScienceDataValidationLayer implements ValidationLayer {
       while (rs.next()) {
         element = DbStructFactory.toScienceDataElement(rs);
       }
+      if (element != null) {
+        cache.putElementById(element, version);
+      }
     } catch (SQLException e) {
       LOG.log(Level.SEVERE, e.getMessage());
     } finally {
@@ -197,12 +207,16 @@ public class ScienceDataValidationLayer implements ValidationLayer {
    */
   public Element getElementByName(String elementName)
       throws ValidationLayerException {
+    long version = cache.getVersion();
+    Element element = cache.getElementByName(elementName);
+    if (element != null) {
+      return element;
+    }
     String sql = "SELECT parameter_id, shortName, description from parameter WHERE shortName = '"
         + elementName + "'";
     Connection conn = null;
     Statement statement = null;
     ResultSet rs = null;
-    Element element = null;
 
     try {
       conn = ds.getConnection();
@@ -211,6 +225,9 @@ public class ScienceDataValidationLayer implements ValidationLayer {
       while (rs.next()) {
         element = DbStructFactory.toScienceDataElement(rs);
       }
+      if (element != null) {
+        cache.putElementByName(element, version);
+      }
     } catch (SQLException e) {
       LOG.log(Level.SEVERE, e.getMessage());
     } finally {
@@ -246,11 +263,16 @@ public class ScienceDataValidationLayer implements ValidationLayer {
    * @see org.apache.oodt.cas.filemgr.validation.ValidationLayer#getElements()
    */
   public List<Element> getElements() throws ValidationLayerException {
+    long version = cache.getVersion();
+    List<Element> elements = cache.getElements();
+    if (elements != null) {
+      return elements;
+    }
     String sql = "SELECT parameter_id, shortName, description from parameter ORDER by parameter_id DESC";
     Connection conn = null;
     Statement statement = null;
     ResultSet rs = null;
-    List<Element> elements = new Vector<Element>();
+    elements = new Vector<Element>();
 
     try {
       conn = ds.getConnection();
@@ -259,6 +281,7 @@ public class ScienceDataValidationLayer implements ValidationLayer {
       while (rs.next()) {
         elements.add(DbStructFactory.toScienceDataElement(rs));
       }
+      cache.putElements(elements, version);
     } catch (SQLException e) {
       LOG.log(Level.SEVERE, e.getMessage());
     } finally {
@@ -296,12 +319,17 @@ public class ScienceDataValidationLayer implements ValidationLayer {
    * .nasa.jpl.oodt.cas.filemgr.structs.ProductType)
    */
   public List<Element> getElements(ProductType productType) {
+    long version = cache.getVersion();
+    List<Element> elements = cache.getElements(productType.getProductTypeId());
+    if (elements != null) {
+      return elements;
+    }
     String sql = "SELECT parameter_id, shortName, description from parameter WHERE dataset_id = "
         + productType.getProductTypeId() + " ORDER by parameter_id DESC";
     Connection conn = null;
     Statement statement = null;
     ResultSet rs = null;
-    List<Element> elements = new Vector<Element>();
+    elements = new Vector<Element>();
 
     try {
       conn = ds.getConnection();
@@ -310,6 +338,7 @@ public class ScienceDataValidationLayer implements ValidationLayer {
       while (rs.next()) {
         elements.add(DbStructFactory.toScienceDataElement(rs));
       }
+      cache.putElements(productType.getProductTypeId(), elements, version);
     } catch (SQLException e) {
       LOG.log(Level.SEVERE, e.getMessage());
     } finally {
@@ -359,6 +388,7 @@ public class ScienceDataValidationLayer implements ValidationLayer {
       conn = ds.getConnection();
       statement = conn.createStatement();
       statement.execute(sql);
+      cache.invalidate();
     } catch (SQLException e) {
       LOG.log(Level.SEVERE, e.getMessage());
     } finally {
@@ -398,6 +428,7 @@ public class ScienceDataValidationLayer implements ValidationLayer {
       conn = ds.getConnection();
       statement = conn.createStatement();
       statement.execute(sql);
+      cache.invalidate();
     } catch (SQLException e) {
       LOG.log(Level.SEVERE, e.getMessage());
     } finally {
@@ -440,6 +471,7 @@ public class ScienceDataValidationLayer implements ValidationLayer {
       conn = ds.getConnection();
       statement = conn.createStatement();
       statement.execute(sql);
+      cache.invalidate();
     } catch (SQLException e) {
       LOG.log(Level.SEVERE, e.getMessage());
     } finally {
@@ -461,4 +493,12 @@ public class ScienceDataValidationLayer implements ValidationLayer {
 
   }
 
+  /**
+   * @return The cache of the parameters and dataset mappings this layer has
+   *         read, e.g. to check its hit and miss counts.
+   */
+  public SchemaCache getSchemaCache() {
+    return cache;
+  }
+
 }
@@ -72,6 +72,9 @@ public class XMLValidationLayer implements ValidationLayer {
     /* element map */
     private ConcurrentHashMap<String, Element> elementMap = new ConcurrentHashMap<String, Element>();
 
+    /* inherited elements and name lookups read so far */
+    private final SchemaCache cache = new SchemaCache();
+
     /*
      * URIs pointing to directories with product-type-element-map.xml and
      * elements.xml files
@@ -94,6 +97,7 @@ public class XMLValidationLayer implements ValidationLayer {
      */
     public void addElement(Element element) throws ValidationLayerException {
         elementMap.put(element.getElementId(), element);
+        cache.invalidate();
         saveElementsAndMappings();
 
     }
@@ -111,6 +115,7 @@ public class XMLValidationLayer implements ValidationLayer {
              elem.setDCElement(element.getDCElement());
            }
         }
+        cache.invalidate();
         saveElementsAndMappings();
 
     }
@@ -122,6 +127,7 @@ public class XMLValidationLayer implements ValidationLayer {
      */
     public void removeElement(Element element) throws ValidationLayerException {
         elementMap.remove(element.getElementId());
+        cache.invalidate();
         saveElementsAndMappings();
 
     }
@@ -142,6 +148,7 @@ public class XMLValidationLayer implements ValidationLayer {
             productTypeElementMap.put(type.getProductTypeId(), elements);
         }
         elements.add(element);
+        cache.invalidate();
         saveElementsAndMappings();
     }
 
@@ -159,6 +166,7 @@ public class XMLValidationLayer implements ValidationLayer {
       for (Element elementObj : elements) {
         if (elementObj.getElementId().equals(element.getElementId())) {
           elements.remove(elementObj);
+          cache.invalidate();
           saveElementsAndMappings();
           break;
         }
@@ -173,7 +181,13 @@ public class XMLValidationLayer implements ValidationLayer {
      */
     public List<Element> getElements(ProductType type)
             throws ValidationLayerException {
-    	return this.getElements(type, false);
+        long version = cache.getVersion();
+        List<Element> elements = cache.getElements(type.getProductTypeId());
+        if (elements == null) {
+            elements = this.getElements(type, false);
+            cache.putElements(type.getProductTypeId(), elements, version);
+        }
+        return elements;
     }
 
     /*
@@ -203,9 +217,15 @@ public class XMLValidationLayer implements ValidationLayer {
      */
     public Element getElementByName(String elementName)
             throws ValidationLayerException {
+      long version = cache.getVersion();
+      Element cached = cache.getElementByName(elementName);
+      if (cached != null) {
+        return cached;
+      }
       for (Map.Entry<String, Element> elementId : elementMap.entrySet()) {
         Element element = elementId.getValue();
         if (element.getElementName().equals(elementName)) {
+          cache.putElementByName(element, version);
           return element;
         }
       }
@@ -241,6 +261,14 @@ public class XMLValidationLayer implements ValidationLayer {
         return elems;
     }
     
+    /**
+     * @return The cache of the inherited elements and name lookups this layer
+     *         has served, e.g. to check its hit and miss counts.
+     */
+    public SchemaCache getSchemaCache() {
+        return cache;
+    }
+
     /**
      * Gets the parent-child relationship between product types
      * 
@@ -259,6 +287,7 @@ public class XMLValidationLayer implements ValidationLayer {
      */
     public void addParentForProductType(ProductType type, String parentId) {
         subToSuperMap.put(type.getProductTypeId(), parentId);
+        cache.invalidate();
         saveElementsAndMappings();
     }
 
@@ -270,6 +299,7 @@ public class XMLValidationLayer implements ValidationLayer {
      */
     public void removeParentForProductType(ProductType type) {
         subToSuperMap.remove(type.getProductTypeId());
+        cache.invalidate();
         saveElementsAndMappings();
     }
     
@@ -27,6 +27,8 @@ import org.apache.oodt.cas.filemgr.structs.ProductType;
 import org.apache.oodt.cas.filemgr.structs.Query;
 import org.apache.oodt.cas.filemgr.structs.Reference;
 import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
+import org.apache.oodt.cas.filemgr.structs.query.ComplexQuery;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
 import org.apache.oodt.cas.filemgr.validation.ValidationLayer;
 import org.apache.oodt.cas.metadata.Metadata;
 
@@ -81,6 +83,14 @@ public class MockCatalog implements Catalog {
       products.put(product.getProductId(), product);
    }
 
+   @Override
+   public void addProducts(List<Product> products, List<Metadata> metadata)
+         throws CatalogException {
+      for (Product product : products) {
+         addProduct(product);
+      }
+   }
+
    @Override
    public void modifyProduct(Product product) throws CatalogException {
       products.put(product.getProductId(), product);
@@ -158,6 +168,12 @@ public class MockCatalog implements Catalog {
       return null;
    }
 
+   @Override
+   public List<QueryResult> complexQuery(ComplexQuery complexQuery,
+         ProductType type) throws CatalogException {
+      return Lists.newArrayList();
+   }
+
    @Override
    public ProductPage pagedQuery(Query query, ProductType type, int pageNum)
          throws CatalogException {
@@ -26,15 +26,23 @@ import org.apache.oodt.cas.filemgr.structs.ProductPage;
 import org.apache.oodt.cas.filemgr.structs.ProductType;
 import org.apache.oodt.cas.filemgr.structs.Query;
 import org.apache.oodt.cas.filemgr.structs.Reference;
+import org.apache.oodt.cas.filemgr.structs.TermQueryCriteria;
 import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
+import org.apache.oodt.cas.filemgr.structs.query.ComplexQuery;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
 import org.apache.oodt.cas.filemgr.util.SqlParser;
 import org.apache.oodt.cas.metadata.Metadata;
 import org.apache.oodt.commons.database.DatabaseConnectionBuilder;
 import org.apache.oodt.commons.database.SqlScript;
 
+import com.google.common.collect.Lists;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -264,7 +272,7 @@ public class TestDataSourceCatalog extends TestCase {
      * @since OODT-133
      * 
      */
-    public void testFirstProductOnlyOnFirstPage() {
+    public void testFirstProductOnlyOnFirstPage() throws CatalogException {
         // add catPageSize of the test Product
         // then add a product called "ShouldBeFirstForPage.txt"
         // make sure it's the first one on the 1st page
@@ -319,6 +327,107 @@ public class TestDataSourceCatalog extends TestCase {
 
     }
 
+    public void testCursorPagesMatchNumberedPages() throws CatalogException {
+        Product testProd = getTestProduct();
+        for (int i = 0; i < 2 * catPageSize + 5; i++) {
+            testProd.setProductName("page-test-" + i);
+            myCat.addProduct(testProd);
+            myCat.addMetadata(getTestMetadata(testProd.getProductName()),
+                testProd);
+        }
+
+        ProductType type = new ProductType();
+        type.setProductTypeId("urn:oodt:GenericFile");
+        type.setName("GenericFile");
+
+        ProductPage page = myCat.getFirstPage(type);
+        assertEquals(3, page.getTotalPages());
+        assertEquals(2 * catPageSize + 5, page.getNumOfHits());
+        for (int pageNum = 1; pageNum <= 3; pageNum++) {
+            assertEquals(pageNum, page.getPageNum());
+            assertEquals(pageNum < 3, page.getCursor() != null);
+
+            ProductPage numbered = myCat.pagedQuery(new Query(), type, pageNum);
+            assertEquals(numbered.getPageProducts().size(),
+                page.getPageProducts().size());
+            for (int i = 0; i < page.getPageProducts().size(); i++) {
+                assertEquals(numbered.getPageProducts().get(i).getProductId(),
+                    page.getPageProducts().get(i).getProductId());
+            }
+            page = myCat.getNextPage(type, page);
+        }
+        assertEquals(5, page.getPageProducts().size());
+        assertEquals("page-test-0", page.getPageProducts().get(4)
+            .getProductName());
+    }
+
+    public void testStringIdCursorKeepsProductsWithoutDatetime()
+            throws Exception {
+        setUpStringIdCatalog();
+        List<String> undated = new ArrayList<String>();
+        for (int i = 0; i < 2 * catPageSize + 5; i++) {
+            Product testProd = getTestProduct();
+            testProd.setProductName("page-test-" + i);
+            myCat.addProduct(testProd);
+            myCat.addMetadata(getTestMetadata(testProd.getProductName()),
+                testProd);
+            if (i % 3 == 0) {
+                undated.add(testProd.getProductId());
+            }
+        }
+        clearDatetimes(undated);
+
+        ProductType type = new ProductType();
+        type.setProductTypeId("urn:oodt:GenericFile");
+        type.setName("GenericFile");
+
+        List<String> seen = new ArrayList<String>();
+        ProductPage page = myCat.getFirstPage(type);
+        assertEquals(3, page.getTotalPages());
+        while (true) {
+            for (Product p : page.getPageProducts()) {
+                assertFalse(seen.contains(p.getProductId()));
+                seen.add(p.getProductId());
+            }
+            if (page.getCursor() == null) {
+                break;
+            }
+            page = myCat.getNextPage(type, page);
+        }
+        assertEquals(2 * catPageSize + 5, seen.size());
+
+        // the products without a datetime come last
+        List<String> tail = seen.subList(seen.size() - undated.size(),
+            seen.size());
+        assertTrue(tail.containsAll(undated));
+    }
+
+    public void testInvalidCursorIsRejected() throws Exception {
+        ProductType type = new ProductType();
+        type.setProductTypeId("urn:oodt:GenericFile");
+        type.setName("GenericFile");
+
+        assertInvalidCursor(type, "1:3:45:not-an-id");
+        assertInvalidCursor(type, "1:3:45");
+
+        setUpStringIdCatalog();
+        assertInvalidCursor(type, "1:3:45:not-a-date|some-id");
+        assertInvalidCursor(type, "1:3:45:no-separator");
+        assertInvalidCursor(type, "1:3:45:2020-01-01 00:00:00.0|");
+    }
+
+    private void assertInvalidCursor(ProductType type, String cursor) {
+        ProductPage page = new ProductPage();
+        page.setPageNum(1);
+        page.setTotalPages(3);
+        page.setCursor(cursor);
+        try {
+            myCat.getNextPage(type, page);
+            fail("Cursor [" + cursor + "] should have been rejected");
+        } catch (CatalogException expected) {
+        }
+    }
+
     public void testAddProduct() {
 
         Product testProduct = getTestProduct();
@@ -347,6 +456,116 @@ public class TestDataSourceCatalog extends TestCase {
 
     }
 
+    public void testAddProducts() throws CatalogException {
+        List<Product> products = new ArrayList<Product>();
+        List<Metadata> metadata = new ArrayList<Metadata>();
+        for (int i = 0; i < 3; i++) {
+            Product testProduct = getTestProduct();
+            testProduct.setProductName("batch" + i);
+            Reference ref = new Reference("file:///batch" + i + ".txt",
+                    "file:///archive/batch" + i + ".txt", 100 + i);
+            List<Reference> refs = new ArrayList<Reference>();
+            refs.add(ref);
+            testProduct.setProductReferences(refs);
+            products.add(testProduct);
+
+            Metadata met = new Metadata();
+            met.addMetadata("Filename", "batch" + i + ".txt");
+            metadata.add(met);
+        }
+
+        myCat.addProducts(products, metadata);
+
+        for (int i = 0; i < 3; i++) {
+            Product retProduct = myCat.getProductByName("batch" + i);
+            assertNotNull(retProduct);
+            assertEquals(products.get(i).getProductId(), retProduct.getProductId());
+            assertEquals(retProduct.getProductId(), metadata.get(i)
+                    .getMetadata(CoreMetKeys.PRODUCT_ID));
+
+            List<Reference> refs = myCat.getProductReferences(products.get(i));
+            assertEquals(1, refs.size());
+            assertEquals(100 + i, refs.get(0).getFileSize());
+
+            Metadata retMet = myCat.getMetadata(products.get(i));
+            assertEquals("batch" + i + ".txt", retMet.getMetadata("Filename"));
+        }
+    }
+
+    public void testComplexQuery() throws Exception {
+        List<Product> products = new ArrayList<Product>();
+        List<Metadata> metadata = new ArrayList<Metadata>();
+        String[] filenames = { "b.txt", "c.txt", "a.txt" };
+        for (String filename : filenames) {
+            Product testProduct = getTestProduct();
+            testProduct.setProductName(filename);
+            products.add(testProduct);
+
+            Metadata met = new Metadata();
+            met.addMetadata("Filename", filename);
+            met.addMetadata("CAS.ProductName", filename);
+            metadata.add(met);
+        }
+        myCat.addProducts(products, metadata);
+
+        ComplexQuery complexQuery = new ComplexQuery();
+        complexQuery.setReducedMetadata(Lists.newArrayList("Filename"));
+        complexQuery.setSortByMetKey("Filename");
+        List<QueryResult> results = myCat.complexQuery(complexQuery,
+                products.get(0).getProductType());
+        assertEquals(3, results.size());
+        assertEquals("a.txt", results.get(0).getProduct().getProductName());
+        assertEquals("b.txt", results.get(1).getMetadata().getMetadata("Filename"));
+        assertEquals("c.txt", results.get(2).getMetadata().getMetadata("Filename"));
+        assertFalse(results.get(0).getMetadata().containsKey("CAS.ProductName"));
+
+        complexQuery.addCriterion(SqlParser.parseSqlWhereClause("Filename == 'c.txt'"));
+        complexQuery.setReducedMetadata(null);
+        results = myCat.complexQuery(complexQuery, products.get(0).getProductType());
+        assertEquals(1, results.size());
+        assertEquals(products.get(1).getProductId(), results.get(0).getProduct().getProductId());
+        assertEquals("c.txt", results.get(0).getMetadata().getMetadata("CAS.ProductName"));
+    }
+
+    public void testComplexQueryPagesSortedResults() throws Exception {
+        int count = 2 * catPageSize + 5;
+        List<Product> products = new ArrayList<Product>();
+        List<Metadata> metadata = new ArrayList<Metadata>();
+        for (int i = 0; i < count; i++) {
+            Product testProduct = getTestProduct();
+            testProduct.setProductName("sort-test-" + i);
+            products.add(testProduct);
+
+            // the file names sort in the reverse order of ingest, and the
+            // first product has none
+            Metadata met = new Metadata();
+            met.addMetadata("CAS.ProductName", testProduct.getProductName());
+            if (i > 0) {
+                met.addMetadata("Filename", String.format("%02d'.txt", count - i));
+            }
+            metadata.add(met);
+        }
+        myCat.addProducts(products, metadata);
+
+        ComplexQuery complexQuery = new ComplexQuery();
+        complexQuery.setReducedMetadata(Lists.newArrayList("Filename"));
+        complexQuery.setSortByMetKey("Filename");
+        List<QueryResult> results = myCat.complexQuery(complexQuery,
+                products.get(0).getProductType());
+        assertEquals(count, results.size());
+        for (int i = 0; i < count - 1; i++) {
+            assertEquals(String.format("%02d'.txt", i + 1),
+                results.get(i).getMetadata().getMetadata("Filename"));
+        }
+        assertEquals("sort-test-0", results.get(count - 1).getProduct().getProductName());
+
+        complexQuery.addCriterion(new TermQueryCriteria("Filename", "07'.txt"));
+        results = myCat.complexQuery(complexQuery, products.get(0).getProductType());
+        assertEquals(1, results.size());
+        assertEquals(products.get(count - 7).getProductId(),
+            results.get(0).getProduct().getProductId());
+    }
+
     public void testAddMetadata() {
         Metadata met = new Metadata();
         met.addMetadata("ProductStructure", Product.STRUCTURE_FLAT);
@@ -373,6 +592,25 @@ public class TestDataSourceCatalog extends TestCase {
 
     }
 
+    public void testQuotesInValues() throws CatalogException {
+        Product testProduct = getTestProduct();
+        testProduct.setProductName("O'Brien's product");
+        myCat.addProduct(testProduct);
+
+        Metadata met = new Metadata();
+        met.addMetadata("Filename", "it's a file");
+        myCat.addMetadata(met, testProduct);
+
+        Product retProduct = myCat.getProductByName("O'Brien's product");
+        assertNotNull(retProduct);
+        assertEquals(testProduct.getProductId(), retProduct.getProductId());
+        assertEquals("it's a file", myCat.getMetadata(testProduct)
+                .getMetadata("Filename"));
+
+        myCat.removeMetadata(met, testProduct);
+        assertNull(myCat.getMetadata(testProduct).getMetadata("Filename"));
+    }
+
     public void testRemoveMetadata() {
         Metadata met = new Metadata();
         met.addMetadata("Filename", "tempProduct");
@@ -563,7 +801,48 @@ public class TestDataSourceCatalog extends TestCase {
         return new DataSourceCatalogFactory().createCatalog();
     }
     
+    private void setUpStringIdCatalog() {
+        System.setProperty(
+            "org.apache.oodt.cas.filemgr.catalog.datasource.productId.string",
+            "true");
+        myCat = getCatalog();
+        createSchema(new File(this.getClass().getResource(
+            "/testcat.stringid.sql").getFile()).getAbsolutePath());
+    }
+
+    private void clearDatetimes(List<String> productIds) throws SQLException {
+        Connection conn = getDataSource().getConnection();
+        try {
+            PreparedStatement statement = conn.prepareStatement(
+                "UPDATE products SET product_datetime = NULL WHERE product_id = ?");
+            for (String productId : productIds) {
+                statement.setString(1, productId);
+                statement.executeUpdate();
+            }
+            statement.close();
+        } finally {
+            conn.close();
+        }
+    }
+
+    private DataSource getDataSource() {
+        String url = System
+                .getProperty("org.apache.oodt.cas.filemgr.catalog.datasource.jdbc.url");
+        String user = System
+                .getProperty("org.apache.oodt.cas.filemgr.catalog.datasource.jdbc.user");
+        String pass = System
+                .getProperty("org.apache.oodt.cas.filemgr.catalog.datasource.jdbc.pass");
+        String driver = System
+                .getProperty("org.apache.oodt.cas.filemgr.catalog.datasource.jdbc.driver");
+        return DatabaseConnectionBuilder.buildDataSource(user, pass, driver,
+                url);
+    }
+
     private void createSchema() {
+        createSchema(getSchemaPath());
+    }
+
+    private void createSchema(String schemaPath) {
         String url = System
                 .getProperty("org.apache.oodt.cas.filemgr.catalog.datasource.jdbc.url");
         String user = System
@@ -577,7 +856,7 @@ public class TestDataSourceCatalog extends TestCase {
                 driver, url);
         try {
             SqlScript coreSchemaScript = new SqlScript(
-                    new File(getSchemaPath()).getAbsolutePath(), ds);
+                    new File(schemaPath).getAbsolutePath(), ds);
             coreSchemaScript.loadScript();
             coreSchemaScript.execute();
         } catch (Exception e) {
@@ -27,6 +27,8 @@ import org.apache.oodt.cas.filemgr.structs.Query;
 import org.apache.oodt.cas.filemgr.structs.Reference;
 import org.apache.oodt.cas.filemgr.structs.TermQueryCriteria;
 import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
+import org.apache.oodt.cas.filemgr.structs.query.ComplexQuery;
+import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
 import org.apache.oodt.cas.metadata.Metadata;
 
 import com.google.common.collect.Lists;
@@ -67,6 +69,14 @@ public class TestLuceneCatalog extends TestCase {
     private Properties initialProperties = new Properties(
       System.getProperties());
 
+    private static final String NRT_PROPERTY = "org.apache.oodt.cas.filemgr.catalog.lucene.nrt";
+
+    private static final String COMMIT_MAX_DOCS_PROPERTY = "org.apache.oodt.cas.filemgr.catalog.lucene.commit.maxDocs";
+
+    private String oldNrt;
+
+    private String oldCommitMaxDocs;
+
     public void setUpProperties() {
 
         Properties properties = new Properties(System.getProperties());
@@ -145,6 +155,8 @@ public class TestLuceneCatalog extends TestCase {
      * @see junit.framework.TestCase#setUp()
      */
     protected void setUp() throws Exception {
+        oldNrt = System.getProperty(NRT_PROPERTY);
+        oldCommitMaxDocs = System.getProperty(COMMIT_MAX_DOCS_PROPERTY);
         setUpProperties();
         myCat = (LuceneCatalog) new LuceneCatalogFactory().createCatalog();
     }
@@ -175,6 +187,16 @@ public class TestLuceneCatalog extends TestCase {
         }
 
       //  System.setProperties(initialProperties);
+        restoreProperty(NRT_PROPERTY, oldNrt);
+        restoreProperty(COMMIT_MAX_DOCS_PROPERTY, oldCommitMaxDocs);
+    }
+
+    private static void restoreProperty(String key, String value) {
+        if (value != null) {
+            System.setProperty(key, value);
+        } else {
+            System.clearProperty(key);
+        }
     }
     
     /**
@@ -875,6 +897,65 @@ public class TestLuceneCatalog extends TestCase {
 
     }
 
+    public void testAddProducts() throws CatalogException {
+        List<Product> products = new Vector<Product>();
+        List<Metadata> metadata = new Vector<Metadata>();
+        for (int i = 0; i < 3; i++) {
+            Product testProduct = getTestProduct();
+            testProduct.setProductName("batch" + i);
+            products.add(testProduct);
+            Metadata met = new Metadata();
+            met.addMetadata(CoreMetKeys.FILE_LOCATION, "/loc/batch" + i);
+            metadata.add(met);
+        }
+
+        myCat.addProducts(products, metadata);
+
+        assertEquals(3, myCat.getNumProducts(products.get(0).getProductType()));
+        for (int i = 0; i < 3; i++) {
+            Product retProduct = myCat.getProductByName("batch" + i);
+            assertNotNull(retProduct);
+            assertEquals(products.get(i).getProductId(), retProduct.getProductId());
+            assertEquals(1, myCat.getProductReferences(retProduct).size());
+            assertEquals(retProduct.getProductId(), metadata.get(i)
+                    .getMetadata(CoreMetKeys.PRODUCT_ID));
+            Metadata retMet = myCat.getMetadata(retProduct);
+            assertEquals("/loc/batch" + i, retMet.getMetadata(CoreMetKeys.FILE_LOCATION));
+        }
+    }
+
+    public void testComplexQuery() throws CatalogException {
+        List<Product> products = new Vector<Product>();
+        List<Metadata> metadata = new Vector<Metadata>();
+        String[] locations = { "/loc/b", "/loc/c", "/loc/a" };
+        for (String location : locations) {
+            Product testProduct = getTestProduct();
+            testProduct.setProductName(location);
+            products.add(testProduct);
+
+            Metadata met = getTestMetadata(location);
+            met.addMetadata(CoreMetKeys.FILE_LOCATION, location);
+            metadata.add(met);
+        }
+        myCat.addProducts(products, metadata);
+
+        ComplexQuery complexQuery = new ComplexQuery();
+        complexQuery.setReducedMetadata(Lists.newArrayList(CoreMetKeys.FILE_LOCATION));
+        complexQuery.setSortByMetKey(CoreMetKeys.FILE_LOCATION);
+        List<QueryResult> results = myCat.complexQuery(complexQuery,
+                products.get(0).getProductType());
+        assertEquals(3, results.size());
+        assertEquals("/loc/a", results.get(0).getProduct().getProductName());
+        assertEquals("/loc/b", results.get(1).getMetadata().getMetadata(CoreMetKeys.FILE_LOCATION));
+        assertEquals("/loc/c", results.get(2).getMetadata().getMetadata(CoreMetKeys.FILE_LOCATION));
+        assertEquals(1, results.get(0).getMetadata().getHashTable().size());
+
+        complexQuery.addCriterion(new TermQueryCriteria(CoreMetKeys.FILE_LOCATION, "/loc/c"));
+        results = myCat.complexQuery(complexQuery, products.get(0).getProductType());
+        assertEquals(1, results.size());
+        assertEquals(products.get(1).getProductId(), results.get(0).getProduct().getProductId());
+    }
+
     public void testAddMetadata() {
         Metadata met = new Metadata();
         met.addMetadata("ProductStructure", Product.STRUCTURE_FLAT);
@@ -900,6 +981,52 @@ public class TestLuceneCatalog extends TestCase {
 
     }
 
+    public void testNearRealTimeMode() throws Exception {
+        System.setProperty(NRT_PROPERTY, "true");
+        System.setProperty(COMMIT_MAX_DOCS_PROPERTY, "2");
+        LuceneCatalog nrtCat = null;
+        try {
+            nrtCat = (LuceneCatalog) new LuceneCatalogFactory().createCatalog();
+            List<Product> added = new Vector<Product>();
+            for (int i = 0; i < 3; i++) {
+                Product testProduct = getTestProduct();
+                testProduct.setProductName("nrt" + i);
+                nrtCat.addProduct(testProduct);
+                nrtCat.addProductReferences(testProduct);
+                nrtCat.addMetadata(getTestMetadata("nrt" + i), testProduct);
+                added.add(testProduct);
+
+                // changes must be searchable before any commit happens
+                assertEquals(i + 1, nrtCat.getNumProducts(testProduct.getProductType()));
+                assertEquals("nrt" + i, nrtCat.getProductById(
+                        testProduct.getProductId()).getProductName());
+            }
+
+            Product modified = added.get(0);
+            modified.setTransferStatus(Product.STATUS_RECEIVED);
+            nrtCat.setProductTransferStatus(modified);
+            assertEquals(Product.STATUS_RECEIVED, nrtCat.getProductById(
+                    modified.getProductId()).getTransferStatus());
+            assertEquals("nrt0", nrtCat.getMetadata(modified)
+                    .getMetadata("CAS.ProductName"));
+
+            // updates replace the product's document rather than adding one
+            nrtCat.addMetadata(getTestMetadata("nrt0-renamed"), modified);
+            assertEquals("nrt0-renamed", nrtCat.getMetadata(modified)
+                    .getMetadata("CAS.ProductName"));
+            assertEquals(3, nrtCat.getNumProducts(modified.getProductType()));
+            assertEquals(3, nrtCat.getProductsByProductType(
+                    modified.getProductType()).size());
+        } finally {
+            if (nrtCat != null) {
+                nrtCat.close();
+            }
+        }
+
+        // everything is committed on close and visible to a fresh reader
+        assertEquals(3, myCat.getNumProducts(getTestProduct().getProductType()));
+    }
+
     public void testRemoveMetadata() {
         Metadata met = new Metadata();
         met.addMetadata("Filename", "tempProduct");
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.filemgr.catalog.solr;
+
+//JDK imports
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+//APACHE imports
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.BasicResponseHandler;
+import org.apache.http.impl.client.DefaultHttpClient;
+
+//Sun imports
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+//Junit imports
+import junit.framework.TestCase;
+
+/**
+ * Test case for the {@link SolrClient}, run against a stand-in for the Solr
+ * HTTP API that records the requests it receives.
+ */
+public class TestSolrClient extends TestCase {
+
+    private static final Logger LOG = Logger.getLogger(TestSolrClient.class
+            .getName());
+
+    private static final String RESPONSE = "<response><result numFound=\"0\" start=\"0\"/></response>";
+
+    private HttpServer server;
+
+    private String solrUrl;
+
+    /* request line and body of each request received */
+    private final List<String> requests = new Vector<String>();
+
+    /* the client ports requests came from, one per connection */
+    private final Set<Integer> clientPorts = Collections
+            .newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+    public void setUp() throws Exception {
+        // like Solr's own container, answer without waiting on Nagle's
+        // algorithm; otherwise every reused connection pays a delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/solr", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                requests.add(exchange.getRequestURI() + " "
+                        + readFully(exchange.getRequestBody()));
+                byte[] body = RESPONSE.getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        solrUrl = "http://localhost:" + server.getAddress().getPort()
+                + "/solr";
+    }
+
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    public void testQueriesReuseConnections() throws Exception {
+        SolrClient client = new SolrClient(solrUrl);
+        for (int i = 0; i < 20; i++) {
+            client.queryProductById("id" + i, Parameters.MIME_TYPE_XML);
+        }
+        assertEquals(20, requests.size());
+        assertEquals(1, clientPorts.size());
+    }
+
+    public void testHardCommitByDefault() throws Exception {
+        SolrClient client = new SolrClient(solrUrl);
+        client.index(Arrays.asList("<doc/>"), true, Parameters.MIME_TYPE_XML);
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(0).endsWith("<add><doc/></add>"));
+        assertTrue(requests.get(1).endsWith("<commit waitSearcher=\"true\"/>"));
+
+        client.delete("id", true);
+        assertTrue(requests.get(2).startsWith("/solr/update?commit=true"));
+    }
+
+    public void testCommitWithin() throws Exception {
+        SolrClient client = new SolrClient(solrUrl);
+        client.setCommitWithin(5000);
+        client.index(Arrays.asList("<doc/>", "<doc/>"), true,
+                Parameters.MIME_TYPE_XML);
+        assertEquals(1, requests.size());
+        assertTrue(requests.get(0).endsWith(
+                "<add commitWithin=\"5000\"><doc/><doc/></add>"));
+
+        client.delete("id", true);
+        assertTrue(requests.get(1).startsWith(
+                "/solr/update?commitWithin=5000"));
+    }
+
+    public void testSoftCommit() throws Exception {
+        SolrClient client = new SolrClient(solrUrl);
+        client.setSoftCommit(true);
+        client.index(Arrays.asList("<doc/>"), true, Parameters.MIME_TYPE_XML);
+        assertTrue(requests.get(1).endsWith(
+                "<commit softCommit=\"true\" waitSearcher=\"true\"/>"));
+
+        client.delete("id", true);
+        assertTrue(requests.get(2).startsWith("/solr/update?softCommit=true"));
+    }
+
+    public void testLatencyAgainstConnectionPerRequest() throws Exception {
+        int lookups = 500;
+        SolrClient client = new SolrClient(solrUrl);
+        String selectUrl = solrUrl + "/select?q=id:x";
+
+        // warm up both paths
+        for (int i = 0; i < 50; i++) {
+            client.queryProductById("x", Parameters.MIME_TYPE_XML);
+            closingGet(selectUrl);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            closingGet(selectUrl);
+        }
+        long closingNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            client.queryProductById("x", Parameters.MIME_TYPE_XML);
+        }
+        long pooledNanos = System.nanoTime() - start;
+
+        LOG.info("Solr lookup latency: connection per request: ["
+                + (closingNanos / lookups / 1000) + "] us, pooled: ["
+                + (pooledNanos / lookups / 1000) + "] us");
+        // every closing lookup needed a connection of its own
+        assertTrue(clientPorts.size() > lookups);
+    }
+
+    /* a lookup the way SolrClient made them before connections were pooled */
+    private static void closingGet(String url) throws IOException {
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+        HttpGet method = new HttpGet(url);
+        method.setHeader("Connection", "close");
+        try {
+            new BasicResponseHandler().handleResponse(httpClient
+                    .execute(method));
+        } finally {
+            method.releaseConnection();
+            httpClient.getConnectionManager().shutdown();
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int read;
+        while ((read = in.read(buf)) != -1) {
+            out.write(buf, 0, read);
+        }
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oodt.cas.filemgr.datatransfer;
+
+//Apache imports
+import org.apache.commons.io.FileUtils;
+
+//OODT imports
+import org.apache.oodt.cas.filemgr.structs.Product;
+import org.apache.oodt.cas.filemgr.structs.Reference;
+import org.apache.oodt.cas.filemgr.system.AbstractFileManagerServerTest;
+import org.apache.oodt.cas.filemgr.system.FileManagerServer;
+import org.apache.oodt.cas.filemgr.system.XmlRpcFileManagerServer;
+
+//JDK imports
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test class for {@link StreamingDataTransferer} and the
+ * {@link StreamingTransferServer}.
+ */
+public class TestStreamingDataTransferer extends AbstractFileManagerServerTest {
+
+   private static final int STREAMING_PORT = 50002;
+
+   private File testDir;
+   private File origDir;
+   private File repoDir;
+   private File destDir;
+
+   @Override
+   public void setUp() throws Exception {
+      File testFile = File.createTempFile("test", ".txt");
+      testFile.delete();
+      testDir = new File(testFile.getParentFile(), UUID.randomUUID().toString());
+      origDir = new File(testDir, "orig");
+      repoDir = new File(testDir, "repo");
+      destDir = new File(testDir, "dest");
+      if (!origDir.mkdirs() || !repoDir.mkdirs() || !destDir.mkdirs()) {
+         throw new Exception("Failed to create test directories!");
+      }
+      super.setUp();
+   }
+
+   @Override
+   public void tearDown() throws Exception {
+      FileUtils.forceDelete(testDir);
+      System.clearProperty(StreamingTransferServer.PORT_PROPERTY);
+      System.clearProperty(StreamingTransferServer.ROOT_PROPERTY);
+      super.tearDown();
+   }
+
+   public void testTransferAndRetrieveInRanges() throws Exception {
+      File origFile = createFile("granule.dat", 3 * 1024 * 1024 + 17);
+      Product product = createProduct(origFile);
+      StreamingDataTransferer transfer = createTransfer(512 * 1024);
+
+      transfer.transferProduct(product);
+      File repoFile = new File(repoDir, origFile.getName());
+      assertTrue("Repo file does not exist", repoFile.exists());
+      assertTrue("Repo file does not have the same contents as orig file",
+            FileUtils.contentEquals(origFile, repoFile));
+
+      transfer.retrieveProduct(product, destDir);
+      File destFile = new File(destDir, origFile.getName());
+      assertTrue("Destination file does not exist", destFile.exists());
+      assertTrue("Destination file does not have the same contents as orig file",
+            FileUtils.contentEquals(origFile, destFile));
+   }
+
+   public void testTransferOverwrites() throws Exception {
+      StreamingDataTransferer transfer = createTransfer(1024 * 1024);
+      File bigFile = createFile("big.dat", 64 * 1024);
+      File smallFile = createFile("small.dat", 1000);
+      String destPath = new File(repoDir, "overwritten.dat").getAbsolutePath();
+
+      transfer.transferFile(bigFile, destPath);
+      transfer.transferFile(smallFile, destPath);
+      assertTrue(FileUtils.contentEquals(smallFile, new File(destPath)));
+
+      File emptyFile = createFile("empty.dat", 0);
+      transfer.transferFile(emptyFile, destPath);
+      assertEquals(0L, new File(destPath).length());
+   }
+
+   public void testRetrieveMissingFile() throws Exception {
+      StreamingDataTransferer transfer = createTransfer(1024 * 1024);
+      try {
+         transfer.retrieveFile(new File(repoDir, "missing.dat")
+               .getAbsolutePath(), new File(destDir, "missing.dat"));
+         fail("Retrieving a missing file should fail");
+      } catch (Exception expected) {
+      }
+   }
+
+   public void testRejectsPathsOutsideRoot() throws Exception {
+      StreamingDataTransferer transfer = createTransfer(1024 * 1024);
+      File file = createFile("escape.dat", 1000);
+      File outside = new File(testDir, "escaped.dat");
+      Files.createSymbolicLink(new File(repoDir, "link").toPath(),
+            testDir.toPath());
+      String[] paths = { outside.getAbsolutePath(),
+            repoDir.getAbsolutePath() + "/../escaped.dat", "../escaped.dat",
+            "link/escaped.dat" };
+      for (String path : paths) {
+         try {
+            transfer.transferFile(file, path);
+            fail("Transfer to: [" + path + "] outside the root should fail");
+         } catch (Exception expected) {
+         }
+         assertFalse(outside.exists());
+      }
+
+      try {
+         transfer.retrieveFile(new File(origDir, "escape.dat").getAbsolutePath(),
+               new File(destDir, "escape.dat"));
+         fail("Retrieving a file outside the root should fail");
+      } catch (Exception expected) {
+      }
+
+      // relative paths resolve against the root
+      transfer.transferFile(file, "relative.dat");
+      assertTrue(FileUtils.contentEquals(file, new File(repoDir, "relative.dat")));
+   }
+
+   public void testIdleConnectionIsClosed() throws Exception {
+      StreamingTransferServer server = new StreamingTransferServer(
+            "localhost", 0, 1, repoDir, 200);
+      server.startUp();
+      Socket socket = new Socket("localhost", server.getPort());
+      try {
+         socket.setSoTimeout(10000);
+         // the server hangs up rather than wait for a request forever
+         assertEquals(-1, socket.getInputStream().read());
+      } finally {
+         socket.close();
+         server.shutdown();
+      }
+   }
+
+   public void testFailedUploadResumesFromStoredOffset() throws Exception {
+      int size = 1024 * 1024;
+      int limit = 300 * 1024;
+      File origFile = createFile("resumed.dat", size);
+      DroppingProxy proxy = new DroppingProxy(STREAMING_PORT, limit);
+      try {
+         StreamingDataTransferer transfer = new StreamingDataTransferer(
+               proxy.getPort(), 1, size, 1);
+         transfer.setFileManagerUrl(new URL("http://localhost:" + FM_PORT));
+         File repoFile = new File(repoDir, origFile.getName());
+         transfer.transferFile(origFile, repoFile.getAbsolutePath());
+
+         assertTrue(proxy.isDropped());
+         assertTrue(FileUtils.contentEquals(origFile, repoFile));
+         // only what the dropped upload did not store was sent again
+         assertTrue("Sent [" + proxy.getBytesSent() + "] bytes",
+               proxy.getBytesSent() < size + 4096);
+      } finally {
+         proxy.close();
+      }
+   }
+
+   private StreamingDataTransferer createTransfer(long minRangeSize)
+         throws Exception {
+      StreamingDataTransferer transfer = new StreamingDataTransferer(
+            STREAMING_PORT, 4, minRangeSize, 1);
+      transfer.setFileManagerUrl(new URL("http://localhost:" + FM_PORT));
+      return transfer;
+   }
+
+   private File createFile(String name, int size) throws IOException {
+      byte[] data = new byte[size];
+      new Random(size).nextBytes(data);
+      File file = new File(origDir, name);
+      FileOutputStream out = new FileOutputStream(file);
+      try {
+         out.write(data);
+      } finally {
+         out.close();
+      }
+      return file;
+   }
+
+   private Product createProduct(File origFile) {
+      Product product = Product.getDefaultFlatProduct(origFile.getName(),
+            "urn:oodt:GenericFile");
+      product.getProductReferences().add(
+            new Reference(origFile.toURI().toString(), new File(repoDir,
+                  origFile.getName()).toURI().toString(), origFile.length()));
+      return product;
+   }
+
+   /**
+    * Forwards connections to the streaming server, cutting off the first one
+    * that sends <code>limit</code> bytes.
+    */
+   private static class DroppingProxy implements Closeable {
+
+      private final ServerSocket serverSocket;
+
+      private final AtomicLong bytesSent = new AtomicLong();
+
+      private final AtomicBoolean dropped = new AtomicBoolean();
+
+      DroppingProxy(final int targetPort, final long limit) throws IOException {
+         serverSocket = new ServerSocket(0);
+         Thread acceptor = new Thread(new Runnable() {
+            public void run() {
+               try {
+                  while (true) {
+                     Socket client = serverSocket.accept();
+                     Socket upstream = new Socket("localhost", targetPort);
+                     pump(client, upstream, dropped.get() ? Long.MAX_VALUE
+                           : limit, bytesSent, dropped);
+                     pump(upstream, client, Long.MAX_VALUE, new AtomicLong(),
+                           new AtomicBoolean());
+                  }
+               } catch (IOException ignore) {
+                  // closed
+               }
+            }
+         });
+         acceptor.setDaemon(true);
+         acceptor.start();
+      }
+
+      boolean isDropped() {
+         return dropped.get();
+      }
+
+      int getPort() {
+         return serverSocket.getLocalPort();
+      }
+
+      long getBytesSent() {
+         return bytesSent.get();
+      }
+
+      public void close() throws IOException {
+         serverSocket.close();
+      }
+
+      private static void pump(final Socket from, final Socket to,
+            final long limit, final AtomicLong count,
+            final AtomicBoolean limitReached) {
+         Thread pump = new Thread(new Runnable() {
+            public void run() {
+               byte[] buf = new byte[8192];
+               long forwarded = 0;
+               try {
+                  InputStream in = from.getInputStream();
+                  OutputStream out = to.getOutputStream();
+                  int n;
+                  while (forwarded < limit && (n = in.read(buf, 0,
+                        (int) Math.min(buf.length, limit - forwarded))) > 0) {
+                     out.write(buf, 0, n);
+                     forwarded += n;
+                     count.addAndGet(n);
+                  }
+                  if (forwarded == limit) {
+                     limitReached.set(true);
+                  }
+               } catch (IOException ignore) {
+               } finally {
+                  try {
+                     from.close();
+                  } catch (IOException ignore) {
+                  }
+                  try {
+                     to.close();
+                  } catch (IOException ignore) {
+                  }
+               }
+            }
+         });
+         pump.setDaemon(true);
+         pump.start();
+      }
+   }
+
+   @Override
+   protected void setProperties() {
+      System.setProperty("filemgr.server", "org.apache.oodt.cas.filemgr.system.rpc.XmlRpcFileManagerServerFactory");
+      System.setProperty("filemgr.client", "org.apache.oodt.cas.filemgr.system.rpc.XmlRpcFileManagerClientFactory");
+      System.setProperty(StreamingTransferServer.PORT_PROPERTY,
+            String.valueOf(STREAMING_PORT));
+      System.setProperty(StreamingTransferServer.ROOT_PROPERTY,
+            repoDir.getAbsolutePath());
+   }
+
+   @Override
+   protected FileManagerServer newFileManagerServer(int port) throws Exception {
+      return new XmlRpcFileManagerServer(port);
+   }
+
+   @Override
+   protected boolean shouldExpandProduct() {
+      return false;
+   }
+}
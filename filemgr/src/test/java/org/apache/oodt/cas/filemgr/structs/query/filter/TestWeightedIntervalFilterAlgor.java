@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oodt.cas.filemgr.structs.query.filter;
+
+//OODT imports
+import org.apache.oodt.commons.filter.TimeEventWeightedHash;
+
+//JDK imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//Junit imports
+import junit.framework.TestCase;
+
+/**
+ * @version $Revision$
+ * 
+ * <p>
+ * Test case for {@link WeightedIntervalFilterAlgor}
+ * </p>.
+ */
+public class TestWeightedIntervalFilterAlgor extends TestCase {
+
+    public void testFilterEvents() {
+        List<TimeEvent> events = new ArrayList<TimeEvent>();
+        events.add(new ObjectTimeEvent<String>(31, 32, 2, "1"));
+        events.add(new ObjectTimeEvent<String>(20, 30, 1, "2"));
+        events.add(new ObjectTimeEvent<String>(1, 8, 2, "3"));
+        events.add(new ObjectTimeEvent<String>(8, 15, 1, "4"));
+        events.add(new ObjectTimeEvent<String>(18, 20, 3, "5"));
+        events.add(new ObjectTimeEvent<String>(10, 12, 1, "6"));
+        events.add(new ObjectTimeEvent<String>(20, 30, 2, "7"));
+        events.add(new ObjectTimeEvent<String>(1, 20, 1, "8"));
+        events.add(new ObjectTimeEvent<String>(11, 13, 1, "9"));
+        events.add(new ObjectTimeEvent<String>(15, 20, 1, "10"));
+        events.add(new ObjectTimeEvent<String>(18, 20, 2, "11"));
+        events.add(new ObjectTimeEvent<String>(1, 15, 1, "12"));
+        events.add(new ObjectTimeEvent<String>(1, 18, 2, "13"));
+
+        assertEquals("[13, 7, 1]",
+                names(new WeightedIntervalFilterAlgor().filterEvents(events)));
+    }
+
+    public void testFilterEventsWithEpsilon() {
+        long[][] times = { { 33, 215 }, { 215, 359 }, { 358, 541 },
+                { 541, 723 }, { 723, 904 }, { 904, 904 }, { 904, 1045 },
+                { 905, 905 }, { 906, 907 }, { 907, 908 }, { 908, 908 },
+                { 908, 909 }, { 923, 924 }, { 926, 927 }, { 927, 928 },
+                { 942, 943 }, { 945, 946 }, { 946, 946 }, { 947, 947 },
+                { 1004, 1005 }, { 1005, 1005 }, { 1006, 1006 },
+                { 1007, 1007 }, { 1025, 1026 }, { 1026, 1026 },
+                { 1027, 1028 }, { 1045, 1046 }, { 1045, 1225 },
+                { 1225, 1406 }, { 1225, 1226 }, { 1226, 1227 },
+                { 1227, 1227 }, { 1228, 1228 }, { 1406, 1546 },
+                { 1545, 1725 }, { 1545, 1554 }, { 1725, 1906 },
+                { 1906, 2047 }, { 1906, 1922 }, { 2047, 2228 },
+                { 2228, 2412 } };
+        List<TimeEvent> events = new ArrayList<TimeEvent>();
+        for (int i = 0; i < times.length; i++) {
+            events.add(new ObjectTimeEvent<String>(times[i][0], times[i][1],
+                    1, Integer.toString(i + 1)));
+        }
+
+        FilterAlgor algor = new WeightedIntervalFilterAlgor();
+        algor.setEpsilon(2);
+        assertEquals("[1, 2, 3, 4, 5, 7, 28, 29, 34, 35, 37, 38, 40, 41]",
+                names(algor.filterEvents(events)));
+
+        // without the overlap allowance 3 can't follow 2, nor 35 follow 34
+        algor.setEpsilon(0);
+        List<String> run = toNames(algor.filterEvents(events));
+        assertFalse(run.contains("2") && run.contains("3"));
+        assertFalse(run.contains("34") && run.contains("35"));
+    }
+
+    public void testMatchesWeightedHash() {
+        Random random = new Random(1234);
+        for (int corpus = 0; corpus < 40; corpus++) {
+            long epsilon = corpus % 2 == 0 ? 0 : random.nextInt(5);
+            List<TimeEvent> events = new ArrayList<TimeEvent>();
+            List<org.apache.oodt.commons.filter.TimeEvent> hashEvents = new ArrayList<org.apache.oodt.commons.filter.TimeEvent>();
+            long start = 0;
+            for (int i = 0; i < 60; i++) {
+                start += random.nextInt(10);
+                long end = start + 1 + random.nextInt(30);
+                double priority = random.nextDouble();
+                events.add(new ObjectTimeEvent<String>(start, end, priority,
+                        Integer.toString(i)));
+                hashEvents
+                        .add(new org.apache.oodt.commons.filter.ObjectTimeEvent<String>(
+                                start, end, priority, Integer.toString(i)));
+            }
+
+            FilterAlgor algor = new WeightedIntervalFilterAlgor();
+            algor.setEpsilon(epsilon);
+            List<String> expected = new ArrayList<String>();
+            for (org.apache.oodt.commons.filter.TimeEvent event : TimeEventWeightedHash
+                    .buildHash(hashEvents, epsilon)
+                    .getGreatestWeightedPathAsOrderedList()) {
+                expected.add(((org.apache.oodt.commons.filter.ObjectTimeEvent<?>) event)
+                        .getTimeObject().toString());
+            }
+            assertEquals("corpus " + corpus + ", epsilon " + epsilon,
+                    expected, toNames(algor.filterEvents(events)));
+        }
+    }
+
+    public void testFilterNoEvents() {
+        assertTrue(new WeightedIntervalFilterAlgor().filterEvents(
+                new ArrayList<TimeEvent>()).isEmpty());
+    }
+
+    private static String names(List<TimeEvent> events) {
+        return toNames(events).toString();
+    }
+
+    private static List<String> toNames(List<TimeEvent> events) {
+        List<String> names = new ArrayList<String>();
+        for (TimeEvent event : events) {
+            names.add(((ObjectTimeEvent<?>) event).getTimeObject().toString());
+        }
+        return names;
+    }
+
+}
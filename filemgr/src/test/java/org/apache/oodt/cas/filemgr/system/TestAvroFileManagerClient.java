@@ -21,22 +21,27 @@ import org.apache.oodt.cas.filemgr.ingest.StdIngester;
 import org.apache.oodt.cas.filemgr.metadata.CoreMetKeys;
 import org.apache.oodt.cas.filemgr.structs.Product;
 import org.apache.oodt.cas.filemgr.structs.ProductType;
+import org.apache.oodt.cas.filemgr.structs.Reference;
 import org.apache.oodt.cas.filemgr.structs.query.ComplexQuery;
 import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
 import org.apache.oodt.cas.filemgr.util.SqlParser;
 import org.apache.oodt.cas.metadata.Metadata;
 import org.apache.oodt.cas.metadata.SerializableMetadata;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.net.URI;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Future;
 
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
@@ -109,6 +114,59 @@ public class TestAvroFileManagerClient extends AbstractFileManagerServerTest {
         deleteAllFiles("/tmp/test-type");
     }
 
+    public void testAsyncCalls() throws Exception {
+        URL ingestUrl = this.getClass().getResource("/ingest");
+        URL refUrl = this.getClass().getResource("/ingest/test.txt");
+
+        Metadata prodMet = new Metadata();
+        prodMet.addMetadata(CoreMetKeys.FILE_LOCATION, new File(
+                ingestUrl.getFile()).getCanonicalPath());
+        prodMet.addMetadata(CoreMetKeys.FILENAME, "test.txt");
+        prodMet.addMetadata(CoreMetKeys.PRODUCT_NAME, "TestFile");
+        prodMet.addMetadata(CoreMetKeys.PRODUCT_TYPE, "GenericFile");
+
+        StdIngester ingester = new StdIngester(transferServiceFacClass);
+        String productId = ingester.ingest(
+                new URL("http://localhost:" + FM_PORT),
+                new File(refUrl.getFile()), prodMet);
+
+        // a window smaller than the number of calls sent
+        System.setProperty(AvroFileManagerClient.MAX_IN_FLIGHT_PROPERTY, "2");
+        AvroFileManagerClient fmc = new AvroFileManagerClient(new URL("http://localhost:" + FM_PORT));
+        try {
+            List<Future<Product>> products = new ArrayList<Future<Product>>();
+            for (int i = 0; i < 10; i++) {
+                products.add(fmc.getProductByIdAsync(productId));
+            }
+            List<Future<Metadata>> metadata = new ArrayList<Future<Metadata>>();
+            for (Future<Product> product : products) {
+                assertEquals("TestFile", product.get().getProductName());
+                metadata.add(fmc.getMetadataAsync(product.get()));
+            }
+            for (Future<Metadata> m : metadata) {
+                assertEquals("test.txt", m.get().getMetadata("Filename"));
+            }
+
+            // fetch the stored file in pipelined chunks
+            Reference ref = fmc.getProductReferences(products.get(0).get()).get(0);
+            String filePath = new File(new URI(ref.getDataStoreReference())).getAbsolutePath();
+            byte[] expected = Files.readAllBytes(Paths.get(filePath));
+            List<Future<byte[]>> chunks = new ArrayList<Future<byte[]>>();
+            for (int offset = 0; offset < expected.length; offset += 4) {
+                chunks.add(fmc.retrieveFileAsync(filePath, offset, Math.min(4, expected.length - offset)));
+            }
+            ByteArrayOutputStream retrieved = new ByteArrayOutputStream();
+            for (Future<byte[]> chunk : chunks) {
+                retrieved.write(chunk.get());
+            }
+            assertTrue(Arrays.equals(expected, retrieved.toByteArray()));
+        } finally {
+            System.clearProperty(AvroFileManagerClient.MAX_IN_FLIGHT_PROPERTY);
+            fmc.close();
+            deleteAllFiles("/tmp/test-type");
+        }
+    }
+
     /**
      * todo This is an incomplete test. No verification done after the file is deleted
      *
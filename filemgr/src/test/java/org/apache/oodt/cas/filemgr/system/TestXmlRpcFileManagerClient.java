@@ -27,6 +27,7 @@ import org.apache.oodt.cas.filemgr.structs.ProductType;
 import org.apache.oodt.cas.filemgr.structs.query.ComplexQuery;
 import org.apache.oodt.cas.filemgr.structs.query.QueryResult;
 import org.apache.oodt.cas.filemgr.util.SqlParser;
+import org.apache.oodt.cas.filemgr.versioning.VersioningUtils;
 import org.apache.oodt.cas.metadata.Metadata;
 import org.apache.oodt.cas.metadata.SerializableMetadata;
 
@@ -37,6 +38,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Vector;
@@ -211,6 +213,80 @@ public class TestXmlRpcFileManagerClient extends AbstractFileManagerServerTest {
         assertEquals("[test-file-1.txt, test-file-2.txt]", queryResults.toString());
     }
 
+    public void testIngestProducts() throws Exception {
+        FileManagerClient fmc = new XmlRpcFileManagerClient(new URL("http://localhost:" + FM_PORT));
+        ProductType type = fmc.getProductTypeByName("GenericFile");
+        List<Product> products = new ArrayList<Product>();
+        List<Metadata> metadata = new ArrayList<Metadata>();
+        for (String name : new String[] { "test-file-1.txt", "test-file-2.txt" }) {
+            File file = new File(this.getClass().getResource("/ingest/" + name).getFile());
+            Product product = new Product();
+            product.setProductName(name);
+            product.setProductStructure(Product.STRUCTURE_FLAT);
+            product.setProductType(type);
+            VersioningUtils.addRefsFromUris(product,
+                    Collections.singletonList(file.toURI().toString()));
+            products.add(product);
+
+            Metadata prodMet = new Metadata();
+            prodMet.addMetadata(CoreMetKeys.FILE_LOCATION, file.getParentFile().getCanonicalPath());
+            prodMet.addMetadata(CoreMetKeys.FILENAME, name);
+            prodMet.addMetadata(CoreMetKeys.PRODUCT_TYPE, "GenericFile");
+            metadata.add(prodMet);
+        }
+
+        List<String> productIds = fmc.ingestProducts(products, metadata, false);
+        assertEquals(2, productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            Product product = fmc.getProductById(productIds.get(i));
+            assertEquals(products.get(i).getProductName(), product.getProductName());
+            assertEquals(Product.STATUS_RECEIVED, product.getTransferStatus());
+            assertEquals(products.get(i).getProductName(),
+                    fmc.getMetadata(product).getMetadata(CoreMetKeys.FILENAME));
+        }
+    }
+
+    public void testFailedIngestProductsIsRolledBack() throws Exception {
+        FileManagerClient fmc = new XmlRpcFileManagerClient(new URL("http://localhost:" + FM_PORT));
+        ProductType type = fmc.getProductTypeByName("GenericFile");
+        int numProducts = fmc.getNumProducts(type);
+
+        Path stagingDir = Files.createTempDirectory("rollback-test");
+        Path staged = Files.copy(Paths.get(this.getClass().getResource(
+                "/ingest/test-file-1.txt").toURI()), stagingDir.resolve("rollback-test-1.txt"));
+        // the second product's file doesn't exist, so its transfer fails
+        File[] files = { staged.toFile(), stagingDir.resolve("rollback-test-2.txt").toFile() };
+        List<Product> products = new ArrayList<Product>();
+        List<Metadata> metadata = new ArrayList<Metadata>();
+        for (File file : files) {
+            Product product = new Product();
+            product.setProductName(file.getName());
+            product.setProductStructure(Product.STRUCTURE_FLAT);
+            product.setProductType(type);
+            VersioningUtils.addRefsFromUris(product,
+                    Collections.singletonList(file.toURI().toString()));
+            products.add(product);
+
+            Metadata prodMet = new Metadata();
+            prodMet.addMetadata(CoreMetKeys.FILE_LOCATION, stagingDir.toString());
+            prodMet.addMetadata(CoreMetKeys.FILENAME, file.getName());
+            prodMet.addMetadata(CoreMetKeys.PRODUCT_TYPE, "GenericFile");
+            metadata.add(prodMet);
+        }
+
+        try {
+            fmc.ingestProducts(products, metadata, false);
+            fail("The batch ingest should have failed");
+        } catch (Exception e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(
+                    "transferred [rollback-test-1.txt], failed [rollback-test-2.txt]"));
+        } finally {
+            Files.delete(staged);
+            Files.delete(stagingDir);
+        }
+        assertEquals(numProducts, fmc.getNumProducts(type));
+    }
+
     @Override
     protected void setProperties() {
         System.setProperty("filemgr.server", "org.apache.oodt.cas.filemgr.system.rpc.XmlRpcFileManagerServerFactory");
@@ -222,6 +222,39 @@ public class TestXMLValidationLayer extends TestCase {
                 4, elementList.size());
     }
 
+    public void testSchemaCache() throws ValidationLayerException {
+        ProductType type = new ProductType();
+        type.setProductTypeId("urn:oodt:GenericFile");
+        SchemaCache cache = validationLayer.getSchemaCache();
+
+        List<Element> first = validationLayer.getElements(type);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // callers get their own copy of the cached list and its elements
+        first.clear();
+        List<Element> second = validationLayer.getElements(type);
+        assertEquals(4, second.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        String name = second.get(0).getElementName();
+        second.get(0).setElementName("Changed");
+        assertEquals(name, validationLayer.getElements(type).get(0)
+                .getElementName());
+        assertEquals(2, cache.getHits());
+
+        long version = cache.getVersion();
+        Element elem = new Element();
+        elem.setElementId("urn:oodt:TestElement");
+        elem.setElementName("TestElement");
+        validationLayer.addElement(elem);
+        validationLayer.addElementToProductType(type, elem);
+        assertTrue(cache.getVersion() > version);
+
+        assertEquals(5, validationLayer.getElements(type).size());
+        assertEquals(2, cache.getMisses());
+    }
+
 
 
 
@@ -15,13 +15,14 @@
 
 package org.apache.oodt.cas.metadata;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
-import java.util.StringTokenizer;
 import java.util.Vector;
 
 /**
@@ -30,6 +31,14 @@ import java.util.Vector;
  * values. So, each key can map to potentially many values, but also can map to
  * null, or to a single value.
  * 
+ * <p>
+ * Keys are <code>/</code> separated paths, each part of which is a group. They
+ * are held in one flat table, in the order they were first added, of interned
+ * full paths to arrays of values; groups are entries without values, made as
+ * keys below them are added, and listed by scanning the table. Copies share the
+ * table of the Metadata they were made from until either of them is changed.
+ * </p>
+ * 
  * @author mattmann
  * @author bfoster
  * @version $Revision$
@@ -37,15 +46,24 @@ import java.util.Vector;
  */
 public class Metadata {
 
-  private Group root;
+  /* the key of the root group */
+  private static final String ROOT = "";
+
+  private static final String[] NO_VALUES = new String[0];
+
+  /* full key path -> values, a group that has no values of its own maps to NO_VALUES */
+  private Map<String, String[]> table;
+
+  /* whether the table may also be held by another Metadata, and so must be copied before a change */
+  private boolean shared = false;
 
   public Metadata() {
-    this.root = this.createNewRoot();
+    this.table = new LinkedHashMap<String, String[]>();
   }
 
   public Metadata(Metadata metadata) {
-    this();
-    this.addMetadata(metadata);
+    this.table = metadata.share();
+    this.shared = true;
   }
 
   /**
@@ -55,8 +73,19 @@ public class Metadata {
    *          Metadata to add metadata from
    */
   public void addMetadata(Metadata metadata) {
-    for (String key : metadata.getAllKeys()) {
-      this.addMetadata(key, metadata.getAllMetadata(key));
+    Map<String, String[]> other = metadata.share();
+    synchronized (this) {
+      if (this.table.isEmpty()) {
+        this.table = other;
+        this.shared = true;
+        return;
+      }
+      Map<String, String[]> table = this.writableTable();
+      for (Map.Entry<String, String[]> entry : other.entrySet()) {
+        if (entry.getValue().length > 0) {
+          append(table, entry.getKey(), entry.getValue());
+        }
+      }
     }
   }
 
@@ -64,8 +93,14 @@ public class Metadata {
     if (group == null) {
       this.addMetadata(metadata);
     } else {
-      for (String key : metadata.getAllKeys()) {
-        this.addMetadata(group + "/" + key, metadata.getAllMetadata(key));
+      Map<String, String[]> other = metadata.share();
+      synchronized (this) {
+        Map<String, String[]> table = this.writableTable();
+        for (Map.Entry<String, String[]> entry : other.entrySet()) {
+          if (entry.getValue().length > 0) {
+            append(table, normalize(group + "/" + entry.getKey()), entry.getValue());
+          }
+        }
       }
     }
   }
@@ -76,8 +111,19 @@ public class Metadata {
    * @param metadata
    */
   public void replaceMetadata(Metadata metadata) {
-    for (String key : metadata.getAllKeys()) {
-      this.replaceMetadata(key, metadata.getAllMetadata(key));
+    Map<String, String[]> other = metadata.share();
+    synchronized (this) {
+      if (this.table.isEmpty()) {
+        this.table = other;
+        this.shared = true;
+        return;
+      }
+      Map<String, String[]> table = this.writableTable();
+      for (Map.Entry<String, String[]> entry : other.entrySet()) {
+        if (entry.getValue().length > 0) {
+          put(table, entry.getKey(), entry.getValue());
+        }
+      }
     }
   }
 
@@ -85,8 +131,14 @@ public class Metadata {
     if (group == null) {
       this.replaceMetadata(metadata);
     } else {
-      for (String key : metadata.getAllKeys()) {
-        this.replaceMetadata(group + "/" + key, metadata.getAllMetadata(key));
+      Map<String, String[]> other = metadata.share();
+      synchronized (this) {
+        Map<String, String[]> table = this.writableTable();
+        for (Map.Entry<String, String[]> entry : other.entrySet()) {
+          if (entry.getValue().length > 0) {
+            put(table, normalize(group + "/" + entry.getKey()), entry.getValue());
+          }
+        }
       }
     }
   }
@@ -99,8 +151,8 @@ public class Metadata {
    * @param value
    *          Value of key to be added
    */
-  public void addMetadata(String key, String value) {
-    this.getGroup(key).addValue(value);
+  public synchronized void addMetadata(String key, String value) {
+    append(this.writableTable(), normalize(key), new String[] { value });
   }
 
   /**
@@ -111,8 +163,8 @@ public class Metadata {
    * @param value
    *          Value of key to be added
    */
-  public void replaceMetadata(String key, String value) {
-    this.getGroup(key).setValue(value);
+  public synchronized void replaceMetadata(String key, String value) {
+    put(this.writableTable(), normalize(key), new String[] { value });
   }
 
   /**
@@ -123,8 +175,8 @@ public class Metadata {
    * @param values
    *          Values of key to be added
    */
-  public void addMetadata(String key, List<String> values) {
-    this.getGroup(key).addValues(values);
+  public synchronized void addMetadata(String key, List<String> values) {
+    append(this.writableTable(), normalize(key), toArray(values));
   }
 
   /**
@@ -135,8 +187,8 @@ public class Metadata {
    * @param values
    *          Values of key to be added
    */
-  public void replaceMetadata(String key, List<String> values) {
-    this.getGroup(key).setValues(values);
+  public synchronized void replaceMetadata(String key, List<String> values) {
+    put(this.writableTable(), normalize(key), toArray(values));
   }
 
   /**
@@ -145,13 +197,14 @@ public class Metadata {
    * @param key
    *          Key to remove
    */
-  public void removeMetadata(String key) {
-    Group removeGroup = this.getGroup(key, false);
-    if (removeGroup != null && removeGroup.hasValues()) {
-      if (removeGroup.getChildren().size() > 0) {
-        removeGroup.clearValues();
+  public synchronized void removeMetadata(String key) {
+    String path = normalize(key);
+    String[] values = this.table.get(path);
+    if (values != null && values.length > 0) {
+      if (this.hasChildren(path)) {
+        this.writableTable().put(path, NO_VALUES);
       } else {
-        removeGroup.getParent().removeChild(removeGroup.getName());
+        this.writableTable().remove(path);
       }
     }
   }
@@ -160,10 +213,15 @@ public class Metadata {
    * Removes key
    *
    */
-  public void removeMetadataGroup(String group) {
-    Group removeGroup = this.getGroup(group, false);
-    if (removeGroup != null && removeGroup.getChildren().size() > 0) {
-      removeGroup.getParent().removeChild(removeGroup.getName());
+  public synchronized void removeMetadataGroup(String group) {
+    String path = normalize(group);
+    if (this.hasChildren(path)) {
+      Iterator<String> keys = this.writableTable().keySet().iterator();
+      while (keys.hasNext()) {
+        if (isInGroup(keys.next(), path, true)) {
+          keys.remove();
+        }
+      }
     }
   }
 
@@ -174,9 +232,9 @@ public class Metadata {
    *          Key to check for
    * @return True if key exists, false otherwise
    */
-  public boolean containsKey(String key) {
-    Group group = this.getGroup(key, false);
-    return group != null && group.hasValues();
+  public synchronized boolean containsKey(String key) {
+    String[] values = this.table.get(normalize(key));
+    return values != null && values.length > 0;
   }
 
   /**
@@ -186,9 +244,9 @@ public class Metadata {
    *          Key to check for
    * @return True is key exists and has more than one value, false otherwise
    */
-  public boolean isMultiValued(String key) {
-    Group group = this.getGroup(key, false);
-    return group != null && group.getValues().size() > 1;
+  public synchronized boolean isMultiValued(String key) {
+    String[] values = this.table.get(normalize(key));
+    return values != null && values.length > 1;
   }
 
   /**
@@ -198,11 +256,14 @@ public class Metadata {
    *          The Group to grab
    * @return Metadata containing group and all keys below it
    */
-  public Metadata getSubMetadata(String group) {
+  public synchronized Metadata getSubMetadata(String group) {
     Metadata m = new Metadata();
-    Group newRoot = this.getGroup(group, false);
-    if (newRoot != null) {
-      m.root.addChildren(newRoot.clone().getChildren());
+    String path = normalize(group);
+    int prefix = path.equals(ROOT) ? 0 : path.length() + 1;
+    for (Map.Entry<String, String[]> entry : this.table.entrySet()) {
+      if (isInGroup(entry.getKey(), path, false)) {
+        m.table.put(entry.getKey().substring(prefix).intern(), entry.getValue());
+      }
     }
     return m;
   }
@@ -214,10 +275,10 @@ public class Metadata {
    *          The key for which the first value will be returned
    * @return First value for given key, or null if key does not exist
    */
-  public String getMetadata(String key) {
-    Group group = this.getGroup(key, false);
-    if (group != null) {
-      return group.getValue();
+  public synchronized String getMetadata(String key) {
+    String[] values = this.table.get(normalize(key));
+    if (values != null && values.length > 0) {
+      return values[0];
     } else {
       return null;
     }
@@ -230,10 +291,14 @@ public class Metadata {
    *          The key for which all values will be return
    * @return All values for given key, or null if key does not exist
    */
-  public List<String> getAllMetadata(String key) {
-    Group group = this.getGroup(key, false);
-    if (group != null) {
-      return new Vector<String>(group.getValues());
+  public synchronized List<String> getAllMetadata(String key) {
+    String path = normalize(key);
+    String[] values = this.table.get(path);
+    if (values == null && path.equals(ROOT)) {
+      values = NO_VALUES;
+    }
+    if (values != null) {
+      return new Vector<String>(Arrays.asList(values));
     } else {
       return null;
     }
@@ -246,13 +311,15 @@ public class Metadata {
    *          The group in question
    * @return All keys for the given group and below
    */
-  public List<String> getKeys(String group) {
-    Group foundGroup = this.getGroup(group);
-    if (foundGroup != null) {
-      return this.getKeys(foundGroup);
-    } else {
-      return new Vector<String>();
+  public synchronized List<String> getKeys(String group) {
+    Vector<String> keys = new Vector<String>();
+    String path = normalize(group);
+    for (Map.Entry<String, String[]> entry : this.table.entrySet()) {
+      if (entry.getValue().length > 0 && isChildOf(entry.getKey(), path)) {
+        keys.add(entry.getKey());
+      }
     }
+    return keys;
   }
 
   /**
@@ -261,17 +328,7 @@ public class Metadata {
    * @return All keys in this Metadata
    */
   public List<String> getKeys() {
-    return this.getKeys(this.root);
-  }
-
-  protected List<String> getKeys(Group group) {
-    Vector<String> keys = new Vector<String>();
-    for (Group child : group.getChildren()) {
-      if (child.hasValues()) {
-        keys.add(child.getFullPath());
-      }
-    }
-    return keys;
+    return this.getKeys(null);
   }
 
   /**
@@ -281,13 +338,15 @@ public class Metadata {
    *          The group in question
    * @return All keys for the given group and below
    */
-  public List<String> getAllKeys(String group) {
-    Group foundGroup = this.getGroup(group);
-    if (foundGroup != null) {
-      return this.getAllKeys(foundGroup);
-    } else {
-      return new Vector<String>();
+  public synchronized List<String> getAllKeys(String group) {
+    Vector<String> keys = new Vector<String>();
+    String path = normalize(group);
+    for (Map.Entry<String, String[]> entry : this.table.entrySet()) {
+      if (entry.getValue().length > 0 && isInGroup(entry.getKey(), path, false)) {
+        keys.add(entry.getKey());
+      }
     }
+    return keys;
   }
 
   /**
@@ -296,18 +355,7 @@ public class Metadata {
    * @return All keys in this Metadata
    */
   public List<String> getAllKeys() {
-    return this.getAllKeys(this.root);
-  }
-
-  protected List<String> getAllKeys(Group group) {
-    Vector<String> keys = new Vector<String>();
-    for (Group child : group.getChildren()) {
-      if (child.hasValues()) {
-        keys.add(child.getFullPath());
-      }
-      keys.addAll(this.getAllKeys(child));
-    }
-    return keys;
+    return this.getAllKeys(null);
   }
   
   /**
@@ -315,18 +363,18 @@ public class Metadata {
    * @param key leaf key name
    * @return list of keys with the given leaf key name
    */
-  public List<String> getAllKeysWithName(String key) {
-	  List<String> keys = new Vector<String>();
-	  Stack<Group> stack = new Stack<Group>();
-	  stack.add(this.root);
-	  while (!stack.empty()) {
-		  Group curGroup = stack.pop();
-		  if (curGroup.getName().equals(key) && curGroup.hasValues()) {
-            keys.add(curGroup.getFullPath());
-          }
-		  stack.addAll(curGroup.getChildren());
-	  }
-	  return keys;
+  public synchronized List<String> getAllKeysWithName(String key) {
+    List<String> keys = new Vector<String>();
+    for (Map.Entry<String, String[]> entry : this.table.entrySet()) {
+      String path = entry.getKey();
+      if (entry.getValue().length > 0
+          && path.endsWith(key)
+          && (path.length() == key.length() || path.charAt(path.length() - key.length() - 1) == '/')
+          && !path.equals(ROOT)) {
+        keys.add(path);
+      }
+    }
+    return keys;
   }
 
   /**
@@ -335,11 +383,7 @@ public class Metadata {
    * @return All Values in root group
    */
   public List<String> getValues() {
-    Vector<String> values = new Vector<String>();
-    for (String key : this.getKeys()) {
-      values.addAll(this.getAllMetadata(key));
-    }
-    return values;
+    return this.getValues(null);
   }
 
   /**
@@ -349,10 +393,13 @@ public class Metadata {
    *          Group in question
    * @return Values in given group
    */
-  public List<String> getValues(String group) {
+  public synchronized List<String> getValues(String group) {
     Vector<String> values = new Vector<String>();
-    for (String key : this.getKeys(group)) {
-      values.addAll(this.getAllMetadata(key));
+    String path = normalize(group);
+    for (Map.Entry<String, String[]> entry : this.table.entrySet()) {
+      if (isChildOf(entry.getKey(), path)) {
+        values.addAll(Arrays.asList(entry.getValue()));
+      }
     }
     return values;
   }
@@ -363,11 +410,7 @@ public class Metadata {
    * @return All values in this Metadata
    */
   public List<String> getAllValues() {
-    Vector<String> values = new Vector<String>();
-    for (String key : this.getAllKeys()) {
-      values.addAll(this.getAllMetadata(key));
-    }
-    return values;
+    return this.getAllValues(null);
   }
 
   /**
@@ -377,10 +420,13 @@ public class Metadata {
    *          Group in question
    * @return All values in and below given group
    */
-  public List<String> getAllValues(String group) {
+  public synchronized List<String> getAllValues(String group) {
     Vector<String> values = new Vector<String>();
-    for (String key : this.getAllKeys(group)) {
-      values.addAll(this.getAllMetadata(key));
+    String path = normalize(group);
+    for (Map.Entry<String, String[]> entry : this.table.entrySet()) {
+      if (isInGroup(entry.getKey(), path, false)) {
+        values.addAll(Arrays.asList(entry.getValue()));
+      }
     }
     return values;
   }
@@ -419,196 +465,157 @@ public class Metadata {
 
 
   public void replaceMetadata(Map<String, Object> metadata) {
-    this.root = this.createNewRoot();
+    synchronized (this) {
+      this.table = new LinkedHashMap<String, String[]>();
+      this.shared = false;
+    }
     this.addMetadata(metadata);
   }
 
-  public boolean containsGroup(String group) {
-    return this.getGroup(group, false) != null;
+  public synchronized boolean containsGroup(String group) {
+    String path = normalize(group);
+    return path.equals(ROOT) || this.table.containsKey(path);
   }
 
   public List<String> getGroups() {
-    return this.getGroups(this.root);
-  }
-
-  public List<String> getGroups(String group) {
-    return this.getGroups(this.getGroup(group));
+    return this.getGroups(null);
   }
 
-  protected List<String> getGroups(Group group) {
+  public synchronized List<String> getGroups(String group) {
     Vector<String> groupNames = new Vector<String>();
-    for (Group child : group.getChildren()) {
-      groupNames.add(child.getName());
+    String path = normalize(group);
+    int prefix = path.equals(ROOT) ? 0 : path.length() + 1;
+    for (String key : this.table.keySet()) {
+      if (isChildOf(key, path)) {
+        groupNames.add(key.substring(prefix));
+      }
     }
     return groupNames;
   }
 
-  protected Group getGroup(String key) {
-    return getGroup(key, true);
+  /* hands out the table to a copy: from now on neither side may change it in place */
+  private synchronized Map<String, String[]> share() {
+    this.shared = true;
+    return this.table;
   }
 
-  protected Group getGroup(String key, boolean create) {
-    if (key == null) {
-      return this.root;
-    }
-    StringTokenizer tokenizer = new StringTokenizer(key, "/");
-    Group curGroup = this.root;
-    while (tokenizer.hasMoreTokens()) {
-      String groupName = tokenizer.nextToken();
-      Group childGroup = curGroup.getChild(groupName);
-      if (childGroup == null) {
-        if (!create) {
-          return null;
-        }
-        childGroup = new Group(groupName);
-        curGroup.addChild(childGroup);
-      }
-      curGroup = childGroup;
+  private Map<String, String[]> writableTable() {
+    if (this.shared) {
+      this.table = new LinkedHashMap<String, String[]>(this.table);
+      this.shared = false;
     }
-    return curGroup;
-  }
-
-  protected Group createNewRoot() {
-    return new Group(Group.ROOT_GROUP_NAME);
+    return this.table;
   }
 
-  protected class Group {
-
-    private static final String ROOT_GROUP_NAME = "root";
-
-    private String name;
-    private List<String> values;
-    private Group parent;
-    private Map<String, Group> children;
-
-    public Group(String name) {
-      this.name = name;
-      this.values = new Vector<String>();
-      this.children = new Hashtable<String, Group>();
-    }
-
-    /**
-     * Create Metadata Group.
-     * By default we create a group using a Hashtable for XMLRPC support. Once this has been superceeded by the Avro
-     * Impl we should make the HashMap implementation the default.
-     * @param name
-     * @param legacy
-     */
-    public Group(String name, boolean legacy) {
-      this.name = name;
-      this.values = new Vector<String>();
-      this.children = legacy ? new Hashtable<String, Group>() : new ConcurrentHashMap<String, Group>();
-
-    }
-
-    public String getName() {
-      return this.name;
-    }
-
-    public String getFullPath() {
-      if (this.parent != null && !this.parent.getName().equals(ROOT_GROUP_NAME)) {
-        return this.parent.getFullPath() + "/" + this.name;
-      } else {
-        return this.name;
+  private boolean hasChildren(String path) {
+    for (String key : this.table.keySet()) {
+      if (isInGroup(key, path, false)) {
+        return true;
       }
     }
+    return false;
+  }
 
-    public Group getParent() {
-      return this.parent;
-    }
-
-    public void setValue(String value) {
-      this.values.clear();
-      this.values.add(value);
-    }
-
-    public void setValues(List<String> values) {
-      this.values.clear();
-      this.values.addAll(values);
-    }
-
-    public void clearValues() {
-      this.values.clear();
+  /* whether key is below group, or is the group itself if self is set */
+  private static boolean isInGroup(String key, String group, boolean self) {
+    if (group.equals(ROOT)) {
+      return self || !key.equals(ROOT);
     }
+    return key.startsWith(group)
+        && (key.length() == group.length() ? self : key.charAt(group.length()) == '/');
+  }
 
-    public void addValue(String value) {
-      this.values.add(value);
-    }
+  /* whether key is directly below group */
+  private static boolean isChildOf(String key, String group) {
+    return isInGroup(key, group, false)
+        && key.indexOf('/', group.equals(ROOT) ? 0 : group.length() + 1) < 0;
+  }
 
-    public void addValues(List<String> value) {
-      this.values.addAll(value);
+  /* adds the values to the key, creating it and the groups above it if need be */
+  private static void append(Map<String, String[]> table, String key, String[] values) {
+    String[] current = table.get(key);
+    if (current == null) {
+      addKey(table, key, values);
+    } else if (values.length > 0) {
+      String[] appended = Arrays.copyOf(current, current.length + values.length);
+      System.arraycopy(values, 0, appended, current.length, values.length);
+      table.put(key, appended);
     }
+  }
 
-    public boolean hasValues() {
-      return this.values.size() > 0;
+  /* sets the values of the key, creating it and the groups above it if need be */
+  private static void put(Map<String, String[]> table, String key, String[] values) {
+    if (table.containsKey(key)) {
+      table.put(key, values);
+    } else {
+      addKey(table, key, values);
     }
+  }
 
-    public String getValue() {
-      if (this.hasValues()) {
-        return this.values.get(0);
-      } else {
-        return null;
+  private static void addKey(Map<String, String[]> table, String key, String[] values) {
+    for (int sep = key.indexOf('/'); sep >= 0; sep = key.indexOf('/', sep + 1)) {
+      String group = key.substring(0, sep);
+      if (!table.containsKey(group)) {
+        table.put(group.intern(), NO_VALUES);
       }
     }
+    table.put(key.intern(), values);
+  }
 
-    public List<String> getValues() {
-      return this.values;
-    }
-
-    public void addChild(Group child) {
-      this.children.put(child.getName(), child);
-      child.parent = this;
-    }
-
-    public void addChildren(List<Group> children) {
-      for (Group child : children) {
-        this.addChild(child);
+  /* the key as the path of non-empty groups it names, e.g. "/a//b/" is "a/b" */
+  private static String normalize(String key) {
+    if (key == null) {
+      return ROOT;
+    }
+    int length = key.length();
+    if (length > 0 && key.charAt(0) != '/' && key.charAt(length - 1) != '/'
+        && key.indexOf("//") < 0) {
+      return key;
+    }
+    StringBuilder path = new StringBuilder(length);
+    for (String group : key.split("/")) {
+      if (group.length() > 0) {
+        if (path.length() > 0) {
+          path.append('/');
+        }
+        path.append(group);
       }
     }
+    return path.toString();
+  }
 
-    public List<Group> getChildren() {
-      return new Vector<Group>(this.children.values());
-    }
-
-    public void removeChild(String name) {
-      this.children.remove(name);
-    }
-
-    public Group getChild(String name) {
-      return this.children.get(name);
-    }
-
-    @Override
-    public Group clone() {
-      Group clone = new Group(this.name);
-      clone.setValues(this.values);
-      for (Group child : this.children.values()) {
-        clone.addChild(child.clone());
-      }
-      return clone;
+  private static String[] toArray(List<String> values) {
+    if (values.isEmpty()) {
+      return NO_VALUES;
     }
-
-    @Override
-    public String toString() {
-      return this.getFullPath();
+    // values may come from untyped (e.g. XML-RPC) lists
+    List<?> untyped = values;
+    String[] array = new String[untyped.size()];
+    int i = 0;
+    for (Object value : untyped) {
+      array[i++] = value == null || value instanceof String ? (String) value : value.toString();
     }
-
+    return array;
   }
 
 
   @Deprecated
-  public Hashtable<String, Object> getHashTable() {
+  public synchronized Hashtable<String, Object> getHashTable() {
     Hashtable<String, Object> table = new Hashtable<String, Object>();
-    for (String key : this.getAllKeys()) {
-      table.put(key, this.getAllMetadata(key));
+    for (Map.Entry<String, String[]> entry : this.table.entrySet()) {
+      if (entry.getValue().length > 0 && !entry.getKey().equals(ROOT)) {
+        table.put(entry.getKey(), new Vector<String>(Arrays.asList(entry.getValue())));
+      }
     }
     return table;
   }
 
-  public Map<String, Object> getMap() {
+  public synchronized Map<String, Object> getMap() {
     Map<String, Object> table = new ConcurrentHashMap<String, Object>();
-    for (String key : this.getAllKeys()) {
-      table.put(key, this.getAllMetadata(key));
+    for (Map.Entry<String, String[]> entry : this.table.entrySet()) {
+      if (entry.getValue().length > 0 && !entry.getKey().equals(ROOT)) {
+        table.put(entry.getKey(), new Vector<String>(Arrays.asList(entry.getValue())));
+      }
     }
     return table;
   }
@@ -616,17 +623,18 @@ public class Metadata {
   public boolean equals(Object obj) {
     if (obj instanceof Metadata) {
       Metadata compMet = (Metadata) obj;
-      if (this.getKeys().equals(compMet.getKeys())) {
-        for (String key : this.getKeys()) {
-          if (!this.getAllMetadata(key).equals(compMet.getAllMetadata(key))) {
-            return false;
-          }
-        }
-        return true;
-      } else {
+      List<String> keys = this.getKeys();
+      List<String> compKeys = compMet.getKeys();
+      if (keys.size() != compKeys.size()) {
         return false;
       }
-
+      for (String key : keys) {
+        List<String> compValues = compMet.getAllMetadata(key);
+        if (compValues == null || !compValues.equals(this.getAllMetadata(key))) {
+          return false;
+        }
+      }
+      return true;
     } else {
       return false;
     }
@@ -634,6 +642,7 @@ public class Metadata {
 
   @Override
   public int hashCode() {
-    return root != null ? root.hashCode() : 0;
+    // identity based, as Metadata is mutable
+    return super.hashCode();
   }
 }
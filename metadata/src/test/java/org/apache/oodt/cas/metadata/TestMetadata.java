@@ -165,4 +165,55 @@ public class TestMetadata extends TestCase {
     assertFalse(m2.equals(m1));
   }
 
+  public void testCopiesAreIndependent() {
+    Metadata m1 = new Metadata();
+    m1.addMetadata("key1", "val1");
+    m1.addMetadata("Group1/key2", "val2");
+
+    Metadata m2 = new Metadata(m1);
+    Metadata m3 = new Metadata();
+    m3.addMetadata(m1);
+    assertEquals(m1, m2);
+
+    m2.addMetadata("key1", "val3");
+    m2.removeMetadata("Group1/key2");
+    m1.replaceMetadata("key1", "val4");
+
+    assertEquals(2, m2.getAllMetadata("key1").size());
+    assertEquals("val1", m2.getMetadata("key1"));
+    assertFalse(m2.containsKey("Group1/key2"));
+    assertEquals("val4", m1.getMetadata("key1"));
+    assertEquals("val2", m1.getMetadata("Group1/key2"));
+    assertEquals("val1", m3.getMetadata("key1"));
+    assertEquals("val2", m3.getMetadata("Group1/key2"));
+  }
+
+  public void testGroups() {
+    Metadata m1 = new Metadata();
+    m1.addMetadata("/Group1//key1/", "val1");
+    m1.addMetadata("Group1/sub1/key2", "val2");
+    m1.addMetadata("key3", "val3");
+
+    assertEquals("val1", m1.getMetadata("Group1/key1"));
+    assertTrue(m1.containsGroup("Group1/sub1"));
+    assertFalse(m1.containsKey("Group1/sub1"));
+    assertEquals(0, m1.getAllMetadata("Group1").size());
+    assertNull(m1.getAllMetadata("Group2"));
+    assertEquals(2, m1.getGroups().size());
+    assertTrue(m1.getGroups().contains("Group1"));
+    assertEquals(1, m1.getKeys().size());
+    assertEquals(1, m1.getKeys("Group1").size());
+    assertEquals(2, m1.getAllKeys("Group1").size());
+    assertEquals(3, m1.getAllValues().size());
+
+    Metadata sub = m1.getSubMetadata("Group1");
+    assertEquals("val1", sub.getMetadata("key1"));
+    assertEquals("val2", sub.getMetadata("sub1/key2"));
+
+    m1.removeMetadataGroup("Group1");
+    assertFalse(m1.containsGroup("Group1"));
+    assertNull(m1.getMetadata("Group1/sub1/key2"));
+    assertEquals(1, m1.getAllKeys().size());
+  }
+
 }
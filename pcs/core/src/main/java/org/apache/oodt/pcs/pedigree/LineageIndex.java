@@ -0,0 +1,600 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.pcs.pedigree;
+
+//OODT imports
+import org.apache.oodt.cas.filemgr.metadata.CoreMetKeys;
+import org.apache.oodt.cas.filemgr.structs.Product;
+import org.apache.oodt.cas.filemgr.structs.ProductPage;
+import org.apache.oodt.cas.filemgr.structs.ProductType;
+import org.apache.oodt.cas.metadata.Metadata;
+import org.apache.oodt.commons.util.DateConvert;
+import org.apache.oodt.pcs.metadata.PCSMetadata;
+import org.apache.oodt.pcs.util.FileManagerUtils;
+
+//JDK imports
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ *
+ * A graph of PCS {@link Product} lineage: the files each product was made
+ * from (its {@link PCSMetadata#INPUT_FILES}), the products made from each file,
+ * and the products each workflow instance ({@link PCSMetadata#JOB_ID}) made.
+ * {@link Pedigree} answers from it instead of querying every product type in
+ * the File Manager once per file, per product and per level.
+ *
+ * <p>
+ * An index only remembers what it is told, so it can answer upstream lookups
+ * for products it has seen but not downstream ones, which need every product
+ * made from a file. It answers those too once it is complete: once
+ * {@link #backfill(FileManagerUtils)} has indexed every product already in the
+ * File Manager, after which the products ingested since are indexed at ingest
+ * time (see {@link LineageIndexingAction}). An index can be backed by a
+ * journal file, which is appended to as products are indexed or removed,
+ * records the backfill, and is replayed when the index is opened.
+ * </p>
+ *
+ * <p>
+ * A product indexed again (e.g. re-ingested with new lineage) replaces what
+ * was indexed for it before, and a product removed from the File Manager is
+ * dropped with {@link #remove(String)}. A backfill drops the products that are
+ * no longer in the File Manager and re-indexes those whose ID has changed.
+ * </p>
+ *
+ * @version $Revision$
+ */
+public class LineageIndex implements PCSMetadata, CoreMetKeys {
+
+  /* our log stream */
+  private static final Logger LOG = Logger.getLogger(LineageIndex.class
+      .getName());
+
+  /* journal record types */
+  private static final String PRODUCT_RECORD = "P";
+
+  private static final String FILENAME_RECORD = "F";
+
+  private static final String INPUT_RECORD = "I";
+
+  private static final String JOB_RECORD = "J";
+
+  private static final String COMPLETE_RECORD = "C";
+
+  private static final String REMOVE_RECORD = "R";
+
+  private static final String FIELD_SEPARATOR = "\t";
+
+  /* product name to product */
+  private Map<String, Product> products = new HashMap<String, Product>();
+
+  /* file name to the name of the product holding it */
+  private Map<String, String> fileProducts = new HashMap<String, String>();
+
+  /* product name to the names of the files it holds */
+  private Map<String, Set<String>> productFiles = new HashMap<String, Set<String>>();
+
+  /* product name to the names of the files it was made from */
+  private Map<String, Set<String>> inputFiles = new HashMap<String, Set<String>>();
+
+  /* file name to the names of the products made from it */
+  private Map<String, Set<String>> consumers = new HashMap<String, Set<String>>();
+
+  /* workflow instance id to the names of the products it made */
+  private Map<String, Set<String>> jobProducts = new HashMap<String, Set<String>>();
+
+  /* product name to the ids of the workflow instances that made it */
+  private Map<String, Set<String>> productJobs = new HashMap<String, Set<String>>();
+
+  /* names of the products remembered but not journaled */
+  private Set<String> unjournaled = new HashSet<String>();
+
+  private Writer journal = null;
+
+  private boolean complete = false;
+
+  /**
+   * Constructs a new, empty, in-memory LineageIndex.
+   */
+  public LineageIndex() {
+  }
+
+  /**
+   * Constructs a new LineageIndex backed by the given journal file, replaying
+   * it if it exists and appending to it from then on.
+   *
+   * @param journalFile
+   *          The file recording every product indexed so far.
+   * @throws IOException
+   *           If the journal can't be read or opened for appending.
+   */
+  public LineageIndex(File journalFile) throws IOException {
+    this(journalFile, true);
+  }
+
+  /**
+   * Constructs a new LineageIndex from the given journal file, replaying it if
+   * it exists.
+   *
+   * @param journalFile
+   *          The file recording every product indexed so far.
+   * @param append
+   *          Whether products indexed from now on are appended to the
+   *          journal, or only kept in memory.
+   * @throws IOException
+   *           If the journal can't be read or opened for appending.
+   */
+  public LineageIndex(File journalFile, boolean append) throws IOException {
+    if (journalFile.exists()) {
+      replay(journalFile);
+    }
+    if (append) {
+      this.journal = new OutputStreamWriter(new FileOutputStream(journalFile,
+          true), "UTF-8");
+    }
+  }
+
+  /**
+   * Indexes a product from its ingest metadata, e.g. as a crawler action: the
+   * product is named by its {@link CoreMetKeys#PRODUCT_NAME} (or else its
+   * first {@link CoreMetKeys#FILENAME}).
+   *
+   * @param metadata
+   *          The {@link Metadata} the product was ingested with.
+   */
+  public void index(Metadata metadata) {
+    String productName = metadata.getMetadata(PRODUCT_NAME);
+    if (productName == null) {
+      productName = metadata.getMetadata(FILENAME);
+    }
+    if (productName == null) {
+      LOG.log(Level.WARNING, "Unable to index product lineage: metadata has "
+          + "no [" + PRODUCT_NAME + "] or [" + FILENAME + "]");
+      return;
+    }
+
+    Product product = new Product();
+    product.setProductName(productName);
+    ProductType type = new ProductType();
+    type.setName(metadata.getMetadata(PRODUCT_TYPE));
+    product.setProductType(type);
+    index(product, metadata);
+  }
+
+  /**
+   * Indexes the lineage of a {@link Product}: the files it holds, the files it
+   * was made from and the workflow instance that made it. A product already
+   * in the index is replaced, e.g. when it has been removed and ingested
+   * again.
+   *
+   * @param product
+   *          The {@link Product} to index.
+   * @param metadata
+   *          The product's {@link Metadata}.
+   */
+  public synchronized void index(Product product, Metadata metadata) {
+    index(product, metadata, true);
+  }
+
+  /**
+   * Remembers the lineage of a {@link Product} looked up elsewhere, e.g. by
+   * {@link Pedigree}, without recording it in the journal: the journal only
+   * holds what was indexed at ingest time or by a backfill. A product already
+   * in the index is left as it is.
+   *
+   * @param product
+   *          The {@link Product} to remember.
+   * @param metadata
+   *          The product's {@link Metadata}.
+   */
+  public synchronized void remember(Product product, Metadata metadata) {
+    index(product, metadata, false);
+  }
+
+  /**
+   * Drops a product removed from the File Manager from the index, so that it
+   * is no longer returned as a consumer of its input files or as made by its
+   * workflow instance.
+   *
+   * @param productName
+   *          The name of the removed product.
+   */
+  public synchronized void remove(String productName) {
+    if (!products.containsKey(productName)) {
+      return;
+    }
+    boolean journaled = !unjournaled.contains(productName);
+    removeProduct(productName);
+    if (journaled) {
+      StringBuilder record = new StringBuilder();
+      append(record, REMOVE_RECORD, productName, "");
+      writeJournal(record, "removal of product: [" + productName + "]");
+    }
+  }
+
+  /**
+   * Indexes every product in the File Manager that is not indexed yet, and
+   * re-indexes those whose ID has changed since they were indexed, i.e. that
+   * were removed and ingested again. Drops the indexed products that are no
+   * longer in the File Manager, then marks the index (and its journal)
+   * complete, so that downstream lookups are answered from it. Products
+   * ingested or removed while the backfill runs must be indexed or removed
+   * as they are for the index to stay complete.
+   *
+   * @param fm
+   *          The File Manager holding the products.
+   * @throws IOException
+   *           If a product or its metadata can't be read from the File
+   *           Manager, in which case the index is left incomplete.
+   */
+  public void backfill(FileManagerUtils fm) throws IOException {
+    List types = fm.safeGetProductTypes();
+    if (types == null) {
+      throw new IOException("Unable to get product types from file manager");
+    }
+    Set<String> catalogued = new HashSet<String>();
+    for (Object typeObj : types) {
+      ProductType type = (ProductType) typeObj;
+      ProductPage page = fm.safeFirstPage(type);
+      while (page != null && page.getPageProducts() != null
+          && page.getPageProducts().size() > 0) {
+        for (Product product : page.getPageProducts()) {
+          catalogued.add(product.getProductName());
+          if (isJournaled(product.getProductName(), product.getProductId())) {
+            continue;
+          }
+          Metadata metadata = fm.safeGetMetadata(product);
+          if (metadata == null) {
+            throw new IOException("Unable to get metadata of product: ["
+                + product.getProductName() + "]");
+          }
+          if (product.getProductType() == null) {
+            product.setProductType(type);
+          }
+          index(product, metadata);
+        }
+        if (page.isLastPage()) {
+          break;
+        }
+        page = fm.safeNextPage(type, page);
+      }
+      if (page == null) {
+        throw new IOException("Unable to page through products of type: ["
+            + type.getName() + "]");
+      }
+    }
+
+    synchronized (this) {
+      for (String productName : new Vector<String>(products.keySet())) {
+        if (!catalogued.contains(productName)) {
+          remove(productName);
+        }
+      }
+      StringBuilder record = new StringBuilder();
+      append(record, COMPLETE_RECORD, String.valueOf(products.size()),
+          DateConvert.isoFormat(new Date()));
+      writeJournal(record, "backfill");
+      this.complete = true;
+    }
+  }
+
+  private void index(Product product, Metadata metadata, boolean journaled) {
+    String productName = product.getProductName();
+    if (productName == null) {
+      return;
+    }
+    if (products.containsKey(productName)) {
+      if (!journaled) {
+        return;
+      }
+      // re-ingested, or only remembered so far
+      removeProduct(productName);
+    }
+    if (!journaled) {
+      unjournaled.add(productName);
+    }
+
+    String typeName = product.getProductType() != null ? product
+        .getProductType().getName() : null;
+    StringBuilder record = new StringBuilder();
+    addProduct(productName, product.getProductId(), typeName);
+    append(record, PRODUCT_RECORD, productName, product.getProductId(),
+        typeName);
+
+    addFilename(productName, productName);
+    List<String> filenames = metadata.getAllMetadata(FILENAME);
+    if (filenames != null) {
+      for (String filename : filenames) {
+        addFilename(productName, filename);
+        append(record, FILENAME_RECORD, productName, filename);
+      }
+    }
+
+    List<String> inputs = metadata.getAllMetadata(INPUT_FILES);
+    if (inputs != null) {
+      for (String input : inputs) {
+        addInput(productName, input);
+        append(record, INPUT_RECORD, productName, input);
+      }
+    }
+
+    String jobId = metadata.getMetadata(JOB_ID);
+    if (jobId != null) {
+      addJob(productName, jobId);
+      append(record, JOB_RECORD, productName, jobId);
+    }
+
+    if (journaled) {
+      writeJournal(record, "product: [" + productName + "]");
+    }
+  }
+
+  /**
+   * @return Whether or not this index has been backfilled with every product
+   *         in the File Manager, and so can answer downstream lookups by
+   *         itself.
+   */
+  public boolean isComplete() {
+    return this.complete;
+  }
+
+  /**
+   * @param productName
+   *          The name of a product.
+   * @return Whether or not the product has been indexed.
+   */
+  public synchronized boolean isIndexed(String productName) {
+    return products.containsKey(productName);
+  }
+
+  /**
+   * @param filename
+   *          The name of a file.
+   * @return The indexed {@link Product} holding the file, or null if there
+   *         isn't one.
+   */
+  public synchronized Product getProductByFilename(String filename) {
+    String productName = fileProducts.get(filename);
+    return productName != null ? products.get(productName) : null;
+  }
+
+  /**
+   * @param productName
+   *          The name of a product.
+   * @return The names of the files the product was made from, or null if the
+   *         product has not been indexed.
+   */
+  public synchronized List<String> getInputFiles(String productName) {
+    if (!products.containsKey(productName)) {
+      return null;
+    }
+    Set<String> inputs = inputFiles.get(productName);
+    return inputs != null ? new Vector<String>(inputs) : new Vector<String>();
+  }
+
+  /**
+   * @param filename
+   *          The name of a file.
+   * @return The indexed {@link Product}s made from the file.
+   */
+  public synchronized List<Product> getConsumers(String filename) {
+    return toProducts(consumers.get(filename));
+  }
+
+  /**
+   * @param jobId
+   *          The ID of a workflow instance.
+   * @return The indexed {@link Product}s the workflow instance made.
+   */
+  public synchronized List<Product> getJobProducts(String jobId) {
+    return toProducts(jobProducts.get(jobId));
+  }
+
+  /**
+   * Closes the journal, if there is one.
+   */
+  public synchronized void close() {
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (IOException ignore) {
+      }
+      journal = null;
+    }
+  }
+
+  private synchronized boolean isJournaled(String productName,
+      String productId) {
+    Product product = products.get(productName);
+    if (product == null || unjournaled.contains(productName)) {
+      return false;
+    }
+    // products indexed from ingest metadata have no ID to compare
+    return product.getProductId() == null || productId == null
+        || product.getProductId().equals(productId);
+  }
+
+  private void writeJournal(StringBuilder record, String what) {
+    if (journal != null) {
+      try {
+        journal.write(record.toString());
+        journal.flush();
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "Unable to journal lineage of " + what
+            + ": Message: " + e.getMessage(), e);
+      }
+    }
+  }
+
+  private void replay(File journalFile) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(
+        new FileInputStream(journalFile), "UTF-8"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split(FIELD_SEPARATOR, -1);
+        if (fields.length < 3) {
+          continue;
+        }
+        if (fields[0].equals(PRODUCT_RECORD) && fields.length >= 4) {
+          // a product journaled again replaces what was journaled before
+          removeProduct(fields[1]);
+          addProduct(fields[1], emptyToNull(fields[2]), emptyToNull(fields[3]));
+          addFilename(fields[1], fields[1]);
+        } else if (fields[0].equals(FILENAME_RECORD)) {
+          addFilename(fields[1], fields[2]);
+        } else if (fields[0].equals(INPUT_RECORD)) {
+          addInput(fields[1], fields[2]);
+        } else if (fields[0].equals(JOB_RECORD)) {
+          addJob(fields[1], fields[2]);
+        } else if (fields[0].equals(REMOVE_RECORD)) {
+          removeProduct(fields[1]);
+        } else if (fields[0].equals(COMPLETE_RECORD)) {
+          this.complete = true;
+        } else {
+          LOG.log(Level.WARNING, "Skipping unknown lineage record: [" + line
+              + "] in: [" + journalFile + "]");
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  private void addProduct(String productName, String productId,
+      String typeName) {
+    if (products.containsKey(productName)) {
+      return;
+    }
+    Product product = new Product();
+    product.setProductName(productName);
+    product.setProductId(productId);
+    ProductType type = new ProductType();
+    type.setName(typeName);
+    product.setProductType(type);
+    products.put(productName, product);
+  }
+
+  private void removeProduct(String productName) {
+    products.remove(productName);
+    unjournaled.remove(productName);
+    Set<String> filenames = productFiles.remove(productName);
+    if (filenames != null) {
+      for (String filename : filenames) {
+        fileProducts.remove(filename);
+      }
+    }
+    Set<String> inputs = inputFiles.remove(productName);
+    if (inputs != null) {
+      for (String input : inputs) {
+        removeFrom(consumers, input, productName);
+      }
+    }
+    Set<String> jobIds = productJobs.remove(productName);
+    if (jobIds != null) {
+      for (String jobId : jobIds) {
+        removeFrom(jobProducts, jobId, productName);
+      }
+    }
+  }
+
+  private void addFilename(String productName, String filename) {
+    if (!fileProducts.containsKey(filename)) {
+      fileProducts.put(filename, productName);
+      addTo(productFiles, productName, filename);
+    }
+  }
+
+  private void addInput(String productName, String input) {
+    addTo(inputFiles, productName, input);
+    addTo(consumers, input, productName);
+  }
+
+  private void addJob(String productName, String jobId) {
+    addTo(jobProducts, jobId, productName);
+    addTo(productJobs, productName, jobId);
+  }
+
+  private List<Product> toProducts(Collection<String> productNames) {
+    List<Product> prods = new Vector<Product>();
+    if (productNames != null) {
+      for (String productName : productNames) {
+        Product product = products.get(productName);
+        if (product != null) {
+          prods.add(product);
+        }
+      }
+    }
+    return prods;
+  }
+
+  private static void addTo(Map<String, Set<String>> map, String key,
+      String value) {
+    Set<String> values = map.get(key);
+    if (values == null) {
+      values = new LinkedHashSet<String>();
+      map.put(key, values);
+    }
+    values.add(value);
+  }
+
+  private static void removeFrom(Map<String, Set<String>> map, String key,
+      String value) {
+    Set<String> values = map.get(key);
+    if (values != null) {
+      values.remove(value);
+      if (values.isEmpty()) {
+        map.remove(key);
+      }
+    }
+  }
+
+  private static void append(StringBuilder record, String... fields) {
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) {
+        record.append(FIELD_SEPARATOR);
+      }
+      // tabs and line breaks would split the record
+      record.append(fields[i] != null ? fields[i].replaceAll("[\t\r\n]", " ")
+          : "");
+    }
+    record.append('\n');
+  }
+
+  private static String emptyToNull(String value) {
+    return value.length() > 0 ? value : null;
+  }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.pcs.pedigree;
+
+//OODT imports
+import org.apache.oodt.cas.crawl.action.CrawlerAction;
+import org.apache.oodt.cas.crawl.structs.exceptions.CrawlerActionException;
+import org.apache.oodt.cas.metadata.Metadata;
+
+//JDK imports
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Spring imports
+import org.springframework.beans.factory.annotation.Required;
+
+/**
+ *
+ * Crawler action that records the lineage of each ingested product in the
+ * {@link LineageIndex} journal read by {@link Pedigree}. Run it as a
+ * postIngestSuccess action, and backfill the journal with the products
+ * ingested before it was configured (<code>PCSTrace --backfillLineage</code>)
+ * before relying on it for downstream lookups. Products removed from the File
+ * Manager are dropped from the journal by the next backfill.
+ *
+ * @version $Revision$
+ */
+public class LineageIndexingAction extends CrawlerAction {
+
+  /* one index per journal, shared by every action writing to it */
+  private static final ConcurrentHashMap<String, LineageIndex> INDEXES = new ConcurrentHashMap<String, LineageIndex>();
+
+  private String journal;
+
+  public boolean performAction(File product, Metadata productMetadata)
+      throws CrawlerActionException {
+    getIndex().index(productMetadata);
+    return true;
+  }
+
+  @Override
+  public void validate() throws CrawlerActionException {
+    super.validate();
+    if (journal == null) {
+      throw new CrawlerActionException("Must specify journal");
+    }
+  }
+
+  @Required
+  public void setJournal(String journal) {
+    this.journal = journal;
+  }
+
+  private LineageIndex getIndex() throws CrawlerActionException {
+    File journalFile = new File(journal).getAbsoluteFile();
+    synchronized (INDEXES) {
+      LineageIndex index = INDEXES.get(journalFile.getPath());
+      if (index == null) {
+        try {
+          index = new LineageIndex(journalFile);
+        } catch (IOException e) {
+          throw new CrawlerActionException("Failed to open lineage journal: ["
+              + journalFile + "]: " + e.getMessage(), e);
+        }
+        INDEXES.put(journalFile.getPath(), index);
+      }
+      return index;
+    }
+  }
+
+}
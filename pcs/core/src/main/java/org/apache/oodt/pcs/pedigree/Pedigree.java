@@ -20,7 +20,7 @@ package org.apache.oodt.pcs.pedigree;
 //OODT imports
 import org.apache.oodt.pcs.metadata.PCSMetadata;
 import org.apache.oodt.pcs.metadata.PCSConfigMetadata;
-import org.apache.oodt.pcs.query.FilenameQuery;
+import org.apache.oodt.pcs.query.FilenamesQuery;
 import org.apache.oodt.pcs.query.InputFilesQuery;
 import org.apache.oodt.pcs.query.JobIdQuery;
 import org.apache.oodt.pcs.util.FileManagerUtils;
@@ -28,7 +28,10 @@ import org.apache.oodt.cas.filemgr.structs.Product;
 import org.apache.oodt.cas.metadata.Metadata;
 
 //JDK imports
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Stack;
 import java.util.Vector;
 
@@ -36,6 +39,14 @@ import java.util.Vector;
  * 
  * A class to provide pedigre tracking for PCS {@link Product}s.
  * 
+ * <p>
+ * Lineage is looked up in a {@link LineageIndex} first. Products missing from
+ * it are looked up in the File Manager, by batches of file names rather than
+ * one name at a time, and then remembered by it (but not journaled).
+ * Downstream and workflow instance lookups only trust the index once it is
+ * complete, and otherwise query the File Manager.
+ * </p>
+ * 
  * @author mattmann
  * @version $Revision$
  */
@@ -50,6 +61,12 @@ public class Pedigree implements PCSMetadata, PCSConfigMetadata {
   /* are there any product types that we should exclude from the pedigree? */
   private List prodTypeExcludeList;
 
+  /* the lineage we know without asking the file manager */
+  private LineageIndex index;
+
+  /* how many file names to look up per file manager query */
+  private static final int FILENAME_BATCH_SIZE = 100;
+
   /**
    * 
    * Constructs a new Pedigree object that will connect to the file manager at
@@ -86,9 +103,33 @@ public class Pedigree implements PCSMetadata, PCSConfigMetadata {
    *          excluded from the Pedigree.
    */
   public Pedigree(FileManagerUtils fm, boolean listNotCat, List excludeList) {
+    this(fm, listNotCat, excludeList, new LineageIndex());
+  }
+
+  /**
+   * 
+   * Constructs a new Pedigree object that will connect to the file manager
+   * specified by the {@link FileManagerUtils} object passed in, and answer
+   * from the given {@link LineageIndex} where it can.
+   * 
+   * @param fm
+   *          The PCS interface to the File Manager.
+   * @param listNotCat
+   *          Whether or not we should include non-cataloged products in the
+   *          pedigree.
+   * @param excludeList
+   *          A {@link List} of String {@link ProductType} names that should be
+   *          excluded from the Pedigree.
+   * @param index
+   *          The {@link LineageIndex} to use, e.g. one kept up to date at
+   *          ingest time.
+   */
+  public Pedigree(FileManagerUtils fm, boolean listNotCat, List excludeList,
+      LineageIndex index) {
     this.fm = fm;
     this.listNotCataloged = listNotCat;
     this.prodTypeExcludeList = excludeList;
+    this.index = index;
   }
 
   /**
@@ -155,8 +196,16 @@ public class Pedigree implements PCSMetadata, PCSConfigMetadata {
         (orig.getProductType().getName() == null) || (orig.getProductType().getName().equals(UNKNOWN))) {
       return new Vector();
     }
-    Metadata pMet = fm.safeGetMetadata(orig);
-    return getProducts(pMet.getAllMetadata(INPUT_FILES));
+    List<String> inputFiles = index.getInputFiles(orig.getProductName());
+    if (inputFiles == null) {
+      Metadata pMet = fm.safeGetMetadata(orig);
+      if (pMet == null) {
+        return new Vector();
+      }
+      index.remember(orig, pMet);
+      inputFiles = pMet.getAllMetadata(INPUT_FILES);
+    }
+    return getProducts(inputFiles);
 
   }
 
@@ -170,6 +219,9 @@ public class Pedigree implements PCSMetadata, PCSConfigMetadata {
    *         given {@link Product}.
    */
   public List getDownstreamPedigreedProducts(Product orig) {
+    if (index.isComplete()) {
+      return excludeTypes(index.getConsumers(orig.getProductName()));
+    }
     return fm.queryAllTypes(new InputFilesQuery(orig.getProductName(), fm)
         .buildQuery(), this.prodTypeExcludeList);
   }
@@ -186,6 +238,9 @@ public class Pedigree implements PCSMetadata, PCSConfigMetadata {
    *         Workflow Instance ID.
    */
   public List getWorkflowInstProds(String wInstId) {
+    if (index.isComplete()) {
+      return excludeTypes(index.getJobProducts(wInstId));
+    }
     return fm.queryAllTypes(new JobIdQuery(wInstId, fm).buildQuery(),
         this.prodTypeExcludeList);
   }
@@ -195,14 +250,21 @@ public class Pedigree implements PCSMetadata, PCSConfigMetadata {
       return new Vector();
     }
 
+    Set<String> unindexed = new LinkedHashSet<String>();
+    for (Object prodName : prodNames) {
+      if (index.getProductByFilename((String) prodName) == null) {
+        unindexed.add((String) prodName);
+      }
+    }
+    lookupProducts(new ArrayList<String>(unindexed));
+
     List prods = new Vector(prodNames.size());
 
     for (Object prodName1 : prodNames) {
       String prodName = (String) prodName1;
-      List prodList = fm.queryAllTypes(new FilenameQuery(prodName, fm)
-          .buildQuery(), this.prodTypeExcludeList);
-      if (prodList != null && prodList.size() > 0) {
-        prods.add((Product) prodList.get(0));
+      Product prod = index.getProductByFilename(prodName);
+      if (prod != null && !isExcluded(prod)) {
+        prods.add(prod);
       } else {
         if (this.listNotCataloged) {
           // create a new product and add it
@@ -214,4 +276,44 @@ public class Pedigree implements PCSMetadata, PCSConfigMetadata {
     return prods;
   }
 
+  private void lookupProducts(List<String> fileNames) {
+    for (int i = 0; i < fileNames.size(); i += FILENAME_BATCH_SIZE) {
+      List<String> batch = fileNames.subList(i,
+          Math.min(i + FILENAME_BATCH_SIZE, fileNames.size()));
+      List prodList = fm.queryAllTypes(new FilenamesQuery(batch, fm)
+          .buildQuery(), this.prodTypeExcludeList);
+      if (prodList == null) {
+        continue;
+      }
+      for (Object prod : prodList) {
+        Product p = (Product) prod;
+        if (index.isIndexed(p.getProductName())) {
+          continue;
+        }
+        // we need the metadata to tell which file names matched, and
+        // the next level up needs its input files anyway
+        Metadata pMet = fm.safeGetMetadata(p);
+        if (pMet != null) {
+          index.remember(p, pMet);
+        }
+      }
+    }
+  }
+
+  private List excludeTypes(List<Product> prods) {
+    List included = new Vector(prods.size());
+    for (Product prod : prods) {
+      if (!isExcluded(prod)) {
+        included.add(prod);
+      }
+    }
+    return included;
+  }
+
+  private boolean isExcluded(Product prod) {
+    return this.prodTypeExcludeList != null
+        && prod.getProductType() != null
+        && this.prodTypeExcludeList.contains(prod.getProductType().getName());
+  }
+
 }
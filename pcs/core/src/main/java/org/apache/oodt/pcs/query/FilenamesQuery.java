@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.pcs.query;
+
+//OODT imports
+import org.apache.oodt.pcs.util.FileManagerUtils;
+import org.apache.oodt.cas.filemgr.structs.BooleanQueryCriteria;
+import org.apache.oodt.cas.filemgr.structs.Query;
+import org.apache.oodt.cas.filemgr.structs.TermQueryCriteria;
+import org.apache.oodt.cas.filemgr.structs.exceptions.QueryFormulationException;
+
+//JDK imports
+import java.util.List;
+
+/**
+ * 
+ * A query to the File Manager for any of several <code>Filename</code>s at
+ * once, so that looking up n files costs one query rather than n.
+ * 
+ * @version $Revision$
+ */
+public class FilenamesQuery extends AbstractPCSQuery {
+
+  /* the file names that we're querying for */
+  private List<String> fileNames;
+
+  public FilenamesQuery(List<String> names, FileManagerUtils fm) {
+    super(fm);
+    this.fileNames = names;
+  }
+
+  /**
+   * @return the fileNames
+   */
+  public List<String> getFileNames() {
+    return fileNames;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.oodt.pcs.query.PCSQuery#buildQuery()
+   */
+  public Query buildQuery() {
+    Query query = new Query();
+    if (this.fileNames.size() == 1) {
+      query.addCriterion(new TermQueryCriteria(FILENAME, this.fileNames.get(0)));
+      return query;
+    }
+
+    BooleanQueryCriteria crit = new BooleanQueryCriteria();
+    try {
+      crit.setOperator(BooleanQueryCriteria.OR);
+      for (String fileName : this.fileNames) {
+        crit.addTerm(new TermQueryCriteria(FILENAME, fileName));
+      }
+    } catch (QueryFormulationException e) {
+      // only thrown for NOT with more than one term
+      throw new IllegalStateException(e);
+    }
+    query.addCriterion(crit);
+    return query;
+  }
+
+}
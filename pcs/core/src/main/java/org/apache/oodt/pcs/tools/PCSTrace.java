@@ -23,11 +23,14 @@ import org.apache.oodt.cas.metadata.Metadata;
 import org.apache.oodt.cas.workflow.structs.WorkflowInstance;
 import org.apache.oodt.pcs.metadata.PCSConfigMetadata;
 import org.apache.oodt.pcs.metadata.PCSMetadata;
+import org.apache.oodt.pcs.pedigree.LineageIndex;
 import org.apache.oodt.pcs.pedigree.Pedigree;
 import org.apache.oodt.pcs.pedigree.PedigreeTree;
 import org.apache.oodt.pcs.util.FileManagerUtils;
 import org.apache.oodt.pcs.util.WorkflowManagerUtils;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
@@ -56,6 +59,9 @@ public final class PCSTrace implements PCSMetadata, PCSConfigMetadata {
   /* exclude list */
   private List excludeTypeList;
 
+  /* lineage recorded at ingest time, if any */
+  private LineageIndex lineageIndex = new LineageIndex();
+
   private static final String REPORT_LINE_SEPARATOR = "-------------------------------------------------- ";
 
   public PCSTrace(URL wmgrUrl, URL fmUrl) {
@@ -83,6 +89,14 @@ public final class PCSTrace implements PCSMetadata, PCSConfigMetadata {
     return excludeTypeList;
   }
 
+  /**
+   * @param lineageIndex
+   *          the lineageIndex to trace from
+   */
+  public void setLineageIndex(LineageIndex lineageIndex) {
+    this.lineageIndex = lineageIndex;
+  }
+
   /**
    * Outputs a trace report in the following format:
    * 
@@ -122,7 +136,7 @@ public final class PCSTrace implements PCSMetadata, PCSConfigMetadata {
     Product prod = fm.safeGetProductByName(productName);
 
     Pedigree pedigree = new Pedigree(fm, this.listNotCataloged,
-        this.excludeTypeList);
+        this.excludeTypeList, this.lineageIndex);
 
     System.out.println("");
     System.out.println(REPORT_LINE_SEPARATOR);
@@ -191,14 +205,18 @@ public final class PCSTrace implements PCSMetadata, PCSConfigMetadata {
    * @param args
    * @throws Exception
    */
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
     String productName = null;
+    String lineageJournal = null;
+    boolean backfillLineage = false;
     String workflowUrlStr = null, filemgrUrlStr = null;
     boolean enableNotCat = false;
     List exList = null;
 
     String usage = "PCSTrace --fm <url> --wm <url> --product <name> "
-        + " [--enableNonCat] [--exclude <type name 1>,<type name 2>...,<type name n>]\n";
+        + " [--enableNonCat] [--exclude <type name 1>,<type name 2>...,<type name n>]"
+        + " [--lineageIndex <journal file>]\n"
+        + "PCSTrace --fm <url> --lineageIndex <journal file> --backfillLineage\n";
 
     for (int i = 0; i < args.length; i++) {
       if (args[i].equals("--fm")) {
@@ -212,10 +230,29 @@ public final class PCSTrace implements PCSMetadata, PCSConfigMetadata {
       } else if (args[i].equals("--exclude")) {
         String[] excludeTypes = args[++i].split(",");
         exList = Arrays.asList(excludeTypes);
+      } else if (args[i].equals("--lineageIndex")) {
+        lineageJournal = args[++i];
+      } else if (args[i].equals("--backfillLineage")) {
+        backfillLineage = true;
       }
 
     }
 
+    if (backfillLineage) {
+      if (filemgrUrlStr == null || lineageJournal == null) {
+        System.err.println(usage);
+        System.exit(1);
+      }
+      LineageIndex index = new LineageIndex(new File(lineageJournal));
+      try {
+        index.backfill(new FileManagerUtils(FileManagerUtils
+            .safeGetUrlFromString(filemgrUrlStr)));
+      } finally {
+        index.close();
+      }
+      return;
+    }
+
     if (productName == null || workflowUrlStr == null || filemgrUrlStr == null) {
       System.err.println(usage);
       System.exit(1);
@@ -228,6 +265,10 @@ public final class PCSTrace implements PCSMetadata, PCSConfigMetadata {
     if (exList != null) {
       tracer.setExcludeTypeList(exList);
     }
+    if (lineageJournal != null) {
+      // the journal belongs to the ingest side, so don't append to it
+      tracer.setLineageIndex(new LineageIndex(new File(lineageJournal), false));
+    }
     tracer.doTrace(productName);
 
   }
@@ -392,6 +392,29 @@ public class FileManagerUtils implements PCSConfigMetadata, Serializable {
     return page;
   }
 
+  /**
+   * Get the page of Products after the given one using the pagination API.
+   * 
+   * @param type
+   *          Gets the next page of products for this type.
+   * @param page
+   *          The current page.
+   * @return The next page of products for this type, or null if it can't be
+   *         obtained.
+   */
+  public ProductPage safeNextPage(ProductType type, ProductPage page) {
+    if (!isConnected())
+      return ProductPage.blankPage();
+    ProductPage nextPage = null;
+    try {
+      nextPage = this.fmgrClient.getNextPage(type, page);
+    } catch (Exception e) {
+      LOG.log(Level.WARNING, "Unable to get next page of products for: ["
+          + type.getName() + "]: Message: " + e.getMessage());
+    }
+    return nextPage;
+  }
+
   public String getFilePath(Product prod) {
     if (!isConnected())
       return "N/A";
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.pcs.pedigree;
+
+//OODT imports
+import org.apache.oodt.cas.filemgr.metadata.CoreMetKeys;
+import org.apache.oodt.cas.filemgr.structs.Product;
+import org.apache.oodt.cas.filemgr.structs.ProductPage;
+import org.apache.oodt.cas.filemgr.structs.ProductType;
+import org.apache.oodt.cas.filemgr.structs.Query;
+import org.apache.oodt.cas.filemgr.system.FileManagerClient;
+import org.apache.oodt.cas.metadata.Metadata;
+import org.apache.oodt.pcs.metadata.PCSMetadata;
+import org.apache.oodt.pcs.util.FileManagerUtils;
+
+//JDK imports
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * A {@link FileManagerUtils} over an in-memory catalog of one product type,
+ * served one product per page, that counts the queries made against it.
+ */
+class StubFileManagerUtils extends FileManagerUtils {
+
+  static final String TYPE_NAME = "GenericFile";
+
+  private final ProductType type = new ProductType();
+
+  private final Map<Product, Metadata> catalog = new LinkedHashMap<Product, Metadata>();
+
+  private List<Product> queryResults = new Vector<Product>();
+
+  int queries = 0;
+
+  StubFileManagerUtils() {
+    super((FileManagerClient) null);
+    type.setName(TYPE_NAME);
+  }
+
+  /**
+   * Adds a product made from the given input files to the catalog.
+   */
+  Product addProduct(String name, String... inputFiles) {
+    Product product = new Product();
+    product.setProductName(name);
+    product.setProductId(name + "-id");
+    product.setProductType(type);
+    Metadata met = new Metadata();
+    met.addMetadata(CoreMetKeys.FILENAME, name);
+    for (String inputFile : inputFiles) {
+      met.addMetadata(PCSMetadata.INPUT_FILES, inputFile);
+    }
+    catalog.put(product, met);
+    return product;
+  }
+
+  void removeProduct(Product product) {
+    catalog.remove(product);
+  }
+
+    void setQueryResults(List<Product> queryResults) {
+    this.queryResults = queryResults;
+  }
+
+  @Override
+  public List safeGetProductTypes() {
+    return Collections.singletonList(type);
+  }
+
+  @Override
+  public ProductPage safeFirstPage(ProductType type) {
+    return getPage(1);
+  }
+
+  @Override
+  public ProductPage safeNextPage(ProductType type, ProductPage page) {
+    return getPage(page.getPageNum() + 1);
+  }
+
+  @Override
+  public Metadata safeGetMetadata(Product product) {
+    return catalog.get(product);
+  }
+
+  @Override
+  public List queryAllTypes(Query query, List excludeTypeList) {
+    queries++;
+    return new Vector<Product>(queryResults);
+  }
+
+  private ProductPage getPage(int pageNum) {
+    List<Product> products = new Vector<Product>(catalog.keySet());
+    List<Product> pageProducts = new Vector<Product>();
+    if (pageNum <= products.size()) {
+      pageProducts.add(products.get(pageNum - 1));
+    }
+    return new ProductPage(pageNum, products.size(), 1, pageProducts);
+  }
+
+}
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.pcs.pedigree;
+
+//OODT imports
+import org.apache.oodt.cas.filemgr.metadata.CoreMetKeys;
+import org.apache.oodt.cas.filemgr.structs.Product;
+import org.apache.oodt.cas.metadata.Metadata;
+import org.apache.oodt.pcs.metadata.PCSMetadata;
+
+//JDK imports
+import java.io.File;
+import java.util.List;
+
+//Junit imports
+import junit.framework.TestCase;
+
+/**
+ * Test case for the {@link LineageIndex}.
+ */
+public class TestLineageIndex extends TestCase {
+
+  private File journalFile;
+
+  public void setUp() throws Exception {
+    journalFile = File.createTempFile("lineage", ".journal");
+    journalFile.delete();
+  }
+
+  public void tearDown() {
+    journalFile.delete();
+  }
+
+  public void testFreshJournalIsIncomplete() throws Exception {
+    LineageIndex index = new LineageIndex(journalFile);
+    assertFalse(index.isComplete());
+
+    index.index(getMetadata("b.dat", "a.dat"));
+    assertFalse(index.isComplete());
+    assertEquals(1, index.getConsumers("a.dat").size());
+    index.close();
+
+    // an ingest-time journal alone never claims to be complete
+    LineageIndex replayed = new LineageIndex(journalFile);
+    assertFalse(replayed.isComplete());
+    assertTrue(replayed.isIndexed("b.dat"));
+    replayed.close();
+  }
+
+  public void testBackfilledJournalReplaysComplete() throws Exception {
+    StubFileManagerUtils fm = new StubFileManagerUtils();
+    fm.addProduct("a.dat");
+    fm.addProduct("b.dat", "a.dat");
+    fm.addProduct("c.dat", "a.dat");
+    fm.addProduct("d.dat", "c.dat");
+
+    LineageIndex index = new LineageIndex(journalFile);
+    index.index(getMetadata("d.dat", "c.dat"));
+    index.backfill(fm);
+    assertTrue(index.isComplete());
+    index.close();
+
+    LineageIndex replayed = new LineageIndex(journalFile);
+    assertTrue(replayed.isComplete());
+    List<Product> consumers = replayed.getConsumers("a.dat");
+    assertEquals(2, consumers.size());
+    assertEquals("b.dat", consumers.get(0).getProductName());
+    assertEquals("c.dat", consumers.get(1).getProductName());
+    assertEquals("d.dat", replayed.getConsumers("c.dat").get(0)
+        .getProductName());
+    replayed.close();
+  }
+
+  public void testRememberedProductsAreNotJournaled() throws Exception {
+    LineageIndex index = new LineageIndex(journalFile);
+    index.index(getMetadata("b.dat", "a.dat"));
+    long length = journalFile.length();
+
+    Product product = new StubFileManagerUtils().addProduct("c.dat", "a.dat");
+    index.remember(product, getMetadata("c.dat", "a.dat"));
+    assertTrue(index.isIndexed("c.dat"));
+    assertEquals(length, journalFile.length());
+
+    // a backfill still journals it
+    StubFileManagerUtils fm = new StubFileManagerUtils();
+    fm.addProduct("c.dat", "a.dat");
+    index.backfill(fm);
+    index.close();
+    assertTrue(new LineageIndex(journalFile, false).isIndexed("c.dat"));
+  }
+
+  public void testReadOnlyIndexLeavesJournalAlone() throws Exception {
+    LineageIndex writer = new LineageIndex(journalFile);
+    writer.index(getMetadata("b.dat", "a.dat"));
+    writer.close();
+    long length = journalFile.length();
+
+    LineageIndex reader = new LineageIndex(journalFile, false);
+    assertTrue(reader.isIndexed("b.dat"));
+    reader.index(getMetadata("c.dat", "a.dat"));
+    reader.close();
+    assertEquals(length, journalFile.length());
+  }
+
+  public void testReingestReplacesLineage() throws Exception {
+    LineageIndex index = new LineageIndex(journalFile);
+    index.index(getMetadata("c.dat", "a.dat"));
+    index.index(getMetadata("c.dat", "b.dat"));
+    assertEquals(0, index.getConsumers("a.dat").size());
+    assertEquals(1, index.getConsumers("b.dat").size());
+    assertEquals(1, index.getInputFiles("c.dat").size());
+    index.close();
+
+    LineageIndex replayed = new LineageIndex(journalFile, false);
+    assertEquals(0, replayed.getConsumers("a.dat").size());
+    assertEquals("b.dat", replayed.getInputFiles("c.dat").get(0));
+    replayed.close();
+  }
+
+  public void testRemovedProductIsDropped() throws Exception {
+    LineageIndex index = new LineageIndex(journalFile);
+    Metadata met = getMetadata("b.dat", "a.dat");
+    met.addMetadata(PCSMetadata.JOB_ID, "job-1");
+    index.index(met);
+    index.remove("b.dat");
+    assertFalse(index.isIndexed("b.dat"));
+    assertNull(index.getProductByFilename("b.dat"));
+    assertEquals(0, index.getConsumers("a.dat").size());
+    assertEquals(0, index.getJobProducts("job-1").size());
+    index.close();
+
+    LineageIndex replayed = new LineageIndex(journalFile, false);
+    assertFalse(replayed.isIndexed("b.dat"));
+    assertEquals(0, replayed.getConsumers("a.dat").size());
+    replayed.close();
+  }
+
+  public void testBackfillReconcilesRemovalAndReingest() throws Exception {
+    StubFileManagerUtils fm = new StubFileManagerUtils();
+    fm.addProduct("a.dat");
+    Product b = fm.addProduct("b.dat", "a.dat");
+    Product c = fm.addProduct("c.dat", "a.dat");
+
+    LineageIndex index = new LineageIndex(journalFile);
+    index.backfill(fm);
+    assertEquals(2, index.getConsumers("a.dat").size());
+
+    // b.dat is removed, c.dat is re-ingested from other inputs
+    fm.removeProduct(b);
+    fm.removeProduct(c);
+    Product reingested = fm.addProduct("c.dat", "x.dat");
+    reingested.setProductId("c.dat-id2");
+    index.backfill(fm);
+    assertFalse(index.isIndexed("b.dat"));
+    assertEquals(0, index.getConsumers("a.dat").size());
+    assertEquals("c.dat-id2", index.getConsumers("x.dat").get(0)
+        .getProductId());
+    index.close();
+
+    LineageIndex replayed = new LineageIndex(journalFile, false);
+    assertFalse(replayed.isIndexed("b.dat"));
+    assertEquals(0, replayed.getConsumers("a.dat").size());
+    assertEquals(1, replayed.getConsumers("x.dat").size());
+    replayed.close();
+  }
+
+  private static Metadata getMetadata(String productName, String... inputs) {
+    Metadata met = new Metadata();
+    met.addMetadata(CoreMetKeys.PRODUCT_NAME, productName);
+    met.addMetadata(CoreMetKeys.PRODUCT_TYPE, StubFileManagerUtils.TYPE_NAME);
+    for (String input : inputs) {
+      met.addMetadata(PCSMetadata.INPUT_FILES, input);
+    }
+    return met;
+  }
+
+}
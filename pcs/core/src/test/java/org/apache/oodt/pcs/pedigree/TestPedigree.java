@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.pcs.pedigree;
+
+//OODT imports
+import org.apache.oodt.cas.filemgr.structs.Product;
+
+//JDK imports
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+//Junit imports
+import junit.framework.TestCase;
+
+/**
+ * Test case for the {@link Pedigree}.
+ */
+public class TestPedigree extends TestCase {
+
+  private File journalFile;
+
+  private StubFileManagerUtils fm;
+
+  private Product a;
+
+  private Product b;
+
+  public void setUp() throws Exception {
+    journalFile = File.createTempFile("lineage", ".journal");
+    journalFile.delete();
+
+    fm = new StubFileManagerUtils();
+    a = fm.addProduct("a.dat");
+    b = fm.addProduct("b.dat", "a.dat");
+  }
+
+  public void tearDown() {
+    journalFile.delete();
+  }
+
+  public void testIncompleteIndexFallsBackToCatalog() throws Exception {
+    // b.dat was ingested before lineage was journaled
+    LineageIndex index = new LineageIndex(journalFile);
+    fm.setQueryResults(Collections.singletonList(b));
+    Pedigree pedigree = new Pedigree(fm, false, null, index);
+
+    List downstream = pedigree.getDownstreamPedigreedProducts(a);
+    assertEquals(1, fm.queries);
+    assertEquals(1, downstream.size());
+    assertEquals("b.dat", ((Product) downstream.get(0)).getProductName());
+    index.close();
+  }
+
+  public void testBackfilledIndexAnswersAlone() throws Exception {
+    LineageIndex index = new LineageIndex(journalFile);
+    index.backfill(fm);
+    Pedigree pedigree = new Pedigree(fm, false, null, index);
+
+    List downstream = pedigree.getDownstreamPedigreedProducts(a);
+    assertEquals(0, fm.queries);
+    assertEquals(1, downstream.size());
+    assertEquals("b.dat", ((Product) downstream.get(0)).getProductName());
+    index.close();
+  }
+
+  public void testLookupsAreNotJournaled() throws Exception {
+    LineageIndex index = new LineageIndex(journalFile);
+    fm.setQueryResults(Collections.singletonList(a));
+    Pedigree pedigree = new Pedigree(fm, false, null, index);
+
+    List upstream = pedigree.getUpstreamPedigreedProducts(b);
+    assertEquals(1, upstream.size());
+    assertEquals("a.dat", ((Product) upstream.get(0)).getProductName());
+    assertTrue(index.isIndexed("a.dat"));
+    assertTrue(index.isIndexed("b.dat"));
+    index.close();
+    assertEquals(0, journalFile.length());
+  }
+
+}
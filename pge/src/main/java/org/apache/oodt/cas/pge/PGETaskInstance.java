@@ -19,6 +19,7 @@ package org.apache.oodt.cas.pge;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.apache.commons.lang.Validate;
 import org.apache.oodt.cas.crawl.AutoDetectProductCrawler;
 import org.apache.oodt.cas.crawl.ProductCrawler;
@@ -65,16 +66,27 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.FileHandler;
 import java.util.logging.SimpleFormatter;
-import java.util.regex.Pattern;
 
 import static org.apache.oodt.cas.pge.metadata.PgeTaskMetKeys.*;
 import static org.apache.oodt.cas.pge.metadata.PgeTaskStatus.CONF_FILE_BUILD;
@@ -432,36 +444,139 @@ public class PGETaskInstance implements WorkflowTaskInstance {
 
    protected void processOutput() throws IOException {
       logger.debug("Processing output");
-      for (final OutputDir outputDir : this.pgeConfig.getOuputDirs()) {
-         File[] createdFiles = new File(outputDir.getPath()).listFiles();
-         if (createdFiles != null) {
-            for (File createdFile : createdFiles) {
-               Metadata outputMetadata = new Metadata();
-               for (RegExprOutputFiles regExprFiles : outputDir
-                       .getRegExprOutputFiles()) {
-                  if (Pattern.matches(regExprFiles.getRegExp(), createdFile
-                          .getName())) {
+      long startTime = System.currentTimeMillis();
+      final String metFileExt = this.pgeMetadata.getMetadata(MET_FILE_EXT);
+      final OutputTimings timings = new OutputTimings();
+      final Queue<String> failedFiles = new ConcurrentLinkedQueue<String>();
+      final AtomicReference<IOException> writeFailure = new AtomicReference<IOException>();
+      // writers are created once per thread rather than once per file
+      final ThreadLocal<Map<String, PcsMetFileWriter>> writers = new ThreadLocal<Map<String, PcsMetFileWriter>>() {
+         @Override
+         protected Map<String, PcsMetFileWriter> initialValue() {
+            return new HashMap<String, PcsMetFileWriter>();
+         }
+      };
+
+      // a single thread processes the files in order, in this thread; with
+      // more, a full queue makes this thread process the file itself
+      int threads = getOutputProcessingThreads();
+      ExecutorService executor = threads == 1 ? MoreExecutors.newDirectExecutorService()
+            : new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                  new ArrayBlockingQueue<Runnable>(threads * 4),
+                  new ThreadPoolExecutor.CallerRunsPolicy());
+      int numFiles = 0;
+      try {
+         // stop submitting files, from every output dir, once a write fails
+         outputDirs:
+         for (final OutputDir outputDir : this.pgeConfig.getOuputDirs()) {
+            File[] createdFiles = new File(outputDir.getPath()).listFiles();
+            if (createdFiles == null) {
+               continue;
+            }
+            for (final File createdFile : createdFiles) {
+               if (writeFailure.get() != null) {
+                  break outputDirs;
+               }
+               numFiles++;
+               executor.execute(new Runnable() {
+                  @Override
+                  public void run() {
                      try {
-                        PcsMetFileWriter writer = (PcsMetFileWriter) Class
-                                .forName(regExprFiles.getConverterClass())
-                                .newInstance();
-                        outputMetadata.replaceMetadata(this.getMetadataForFile(
-                                (regExprFiles.getRenamingConv() != null)
-                                        ? createdFile = this.renameFile(createdFile, regExprFiles.getRenamingConv())
-                                        : createdFile, writer, regExprFiles.getArgs()));
-                     } catch (Exception e) {
-                        logger.error("Failed to create metadata file for '{}'", createdFile, e);
+                        if (!processOutputFile(createdFile, outputDir,
+                              metFileExt, writers.get(), timings)) {
+                           failedFiles.add(createdFile.getName());
+                        }
+                     } catch (IOException e) {
+                        writeFailure.compareAndSet(null, e);
                      }
                   }
-               }
+               });
+            }
+         }
+      } finally {
+         executor.shutdown();
+         try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+         } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted processing output");
+         }
+      }
+
+      long runTime = System.currentTimeMillis() - startTime;
+      logger.info("Processed [{}] output files in [{}] ms: renaming [{}] ms, extraction [{}] ms, met files [{}] ms",
+            numFiles, runTime, timings.renaming.get() / 1000000L,
+            timings.extraction.get() / 1000000L, timings.metWriting.get() / 1000000L);
+      pgeMetadata.replaceMetadata(OUTPUT_PROCESSING_RUNTIME, Long.toString(runTime));
+      pgeMetadata.replaceMetadata(OUTPUT_RENAMING_TIME,
+            Long.toString(timings.renaming.get() / 1000000L));
+      pgeMetadata.replaceMetadata(OUTPUT_EXTRACTION_TIME,
+            Long.toString(timings.extraction.get() / 1000000L));
+      pgeMetadata.replaceMetadata(OUTPUT_MET_WRITING_TIME,
+            Long.toString(timings.metWriting.get() / 1000000L));
+      pgeMetadata.replaceMetadata(OUTPUT_FILES_PROCESSED, Integer.toString(numFiles));
+      if (!failedFiles.isEmpty()) {
+         pgeMetadata.replaceMetadata(OUTPUT_FILES_FAILED, new ArrayList<String>(failedFiles));
+      }
+
+      if (writeFailure.get() != null) {
+         throw writeFailure.get();
+      }
+   }
 
-               if (outputMetadata.getAllKeys().size() > 0) {
-                  this.writeFromMetadata(outputMetadata, createdFile.getAbsolutePath()
-                          + "." + this.pgeMetadata.getMetadata(MET_FILE_EXT));
+   /**
+    * Renames the given PGE output file and writes its metadata file, for each
+    * {@link RegExprOutputFiles} of its {@link OutputDir} which matches it.
+    *
+    * @return false if any of the file's metadata could not be extracted
+    * @throws IOException if the metadata file could not be written
+    */
+   protected boolean processOutputFile(File createdFile, OutputDir outputDir,
+         String metFileExt, Map<String, PcsMetFileWriter> writers,
+         OutputTimings timings) throws IOException {
+      boolean success = true;
+      Metadata outputMetadata = new Metadata();
+      for (RegExprOutputFiles regExprFiles : outputDir.getRegExprOutputFiles()) {
+         if (regExprFiles.getPattern().matcher(createdFile.getName()).matches()) {
+            try {
+               PcsMetFileWriter writer = writers.get(regExprFiles.getConverterClass());
+               if (writer == null) {
+                  writer = (PcsMetFileWriter) Class.forName(
+                        regExprFiles.getConverterClass()).newInstance();
+                  writers.put(regExprFiles.getConverterClass(), writer);
+               }
+               if (regExprFiles.getRenamingConv() != null) {
+                  long renameStart = System.nanoTime();
+                  createdFile = this.renameFile(createdFile, regExprFiles.getRenamingConv());
+                  timings.renaming.addAndGet(System.nanoTime() - renameStart);
                }
+               long extractionStart = System.nanoTime();
+               outputMetadata.replaceMetadata(this.getMetadataForFile(
+                     createdFile, writer, regExprFiles.getArgs()));
+               timings.extraction.addAndGet(System.nanoTime() - extractionStart);
+            } catch (Exception e) {
+               logger.error("Failed to create metadata file for '{}'", createdFile, e);
+               success = false;
             }
          }
       }
+
+      if (outputMetadata.getAllKeys().size() > 0) {
+         long writeStart = System.nanoTime();
+         this.writeFromMetadata(outputMetadata, createdFile.getAbsolutePath()
+               + "." + metFileExt);
+         timings.metWriting.addAndGet(System.nanoTime() - writeStart);
+      }
+      return success;
+   }
+
+   protected int getOutputProcessingThreads() {
+      String threads = pgeMetadata.getMetadata(OUTPUT_PROCESSING_THREADS);
+      if (Strings.isNullOrEmpty(threads)) {
+         return 1;
+      }
+      return Math.max(1, Integer.parseInt(threads));
    }
 
 	protected File renameFile(File file, PathUtilsNamingConvention renamingConv)
@@ -481,8 +596,13 @@ public class PGETaskInstance implements WorkflowTaskInstance {
 
 	protected void writeFromMetadata(Metadata metadata, String toMetFilePath)
 			throws IOException {
-		new SerializableMetadata(metadata, "UTF-8", false)
-				.writeMetadataToXmlStream(new FileOutputStream(toMetFilePath));
+		FileOutputStream out = new FileOutputStream(toMetFilePath);
+		try {
+			new SerializableMetadata(metadata, "UTF-8", false)
+					.writeMetadataToXmlStream(out);
+		} finally {
+			out.close();
+		}
 	}
 
    protected ProductCrawler createProductCrawler()
@@ -596,6 +716,16 @@ public class PGETaskInstance implements WorkflowTaskInstance {
       this.wmClient = wmClient;
    }
 
+   /**
+    * Nanoseconds spent in each step of output processing, summed over all of
+    * the threads doing it.
+    */
+   protected static class OutputTimings {
+      final AtomicLong renaming = new AtomicLong();
+      final AtomicLong extraction = new AtomicLong();
+      final AtomicLong metWriting = new AtomicLong();
+   }
+
    @Override
    public void finalize() throws IOException {
       logger.debug("Finalizing ...");
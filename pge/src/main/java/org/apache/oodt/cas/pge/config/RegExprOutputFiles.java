@@ -20,6 +20,8 @@ package org.apache.oodt.cas.pge.config;
 
 import org.apache.oodt.cas.metadata.filenaming.PathUtilsNamingConvention;
 
+import java.util.regex.Pattern;
+
 /**
  * 
  * @author bfoster
@@ -34,6 +36,8 @@ public class RegExprOutputFiles {
 
     private String regExp;
 
+    private Pattern pattern;
+
     private String converterClass;
 
     private Object[] args;
@@ -43,6 +47,7 @@ public class RegExprOutputFiles {
     public RegExprOutputFiles(String regExp, String converterClass, 
     		PathUtilsNamingConvention renamingConv, Object[] args) {
         this.regExp = regExp;
+        this.pattern = Pattern.compile(regExp);
         this.converterClass = converterClass;
         this.renamingConv = renamingConv;
         this.args = args;
@@ -56,6 +61,13 @@ public class RegExprOutputFiles {
         return this.regExp;
     }
 
+    /**
+     * @return The compiled form of {@link #getRegExp()}.
+     */
+    public Pattern getPattern() {
+        return this.pattern;
+    }
+
     public String getConverterClass() {
         return this.converterClass;
     }
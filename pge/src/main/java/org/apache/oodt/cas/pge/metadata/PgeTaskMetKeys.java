@@ -161,7 +161,58 @@ public enum PgeTaskMetKeys {
     * version of the key for forward compat.
     */
    MET_FILE_EXT("PGETask/Ingest/MetFileExtension", 
-                "PCS_MetFileExtension");
+                "PCS_MetFileExtension"),
+   /**
+    * Number of threads CAS-PGE uses to rename PGE output files and write
+    * their metadata files. If not set, defaults to 1, which processes the
+    * files one at a time as before; met file writers and renaming
+    * conventions must be thread-safe to use more.
+    */
+   OUTPUT_PROCESSING_THREADS(
+         "PGETask/Ingest/OutputProcessingThreads",
+         "PGETask_OutputProcessingThreads"),
+   /**
+    * Set by CAS-PGE to the number of milliseconds it took to process the PGE
+    * output files.
+    */
+   OUTPUT_PROCESSING_RUNTIME(
+         "PGETask/Ingest/OutputProcessingRuntime",
+         "PGETask_OutputProcessingRuntime"),
+   /**
+    * Set by CAS-PGE to the milliseconds spent renaming output files, summed
+    * over all output processing threads.
+    */
+   OUTPUT_RENAMING_TIME(
+         "PGETask/Ingest/OutputRenamingTime",
+         "PGETask_OutputRenamingTime"),
+   /**
+    * Set by CAS-PGE to the milliseconds spent extracting output file
+    * metadata, summed over all output processing threads.
+    */
+   OUTPUT_EXTRACTION_TIME(
+         "PGETask/Ingest/OutputExtractionTime",
+         "PGETask_OutputExtractionTime"),
+   /**
+    * Set by CAS-PGE to the milliseconds spent writing metadata files, summed
+    * over all output processing threads.
+    */
+   OUTPUT_MET_WRITING_TIME(
+         "PGETask/Ingest/OutputMetWritingTime",
+         "PGETask_OutputMetWritingTime"),
+   /**
+    * Set by CAS-PGE to the number of output files it processed.
+    */
+   OUTPUT_FILES_PROCESSED(
+         "PGETask/Ingest/OutputFilesProcessed",
+         "PGETask_OutputFilesProcessed"),
+   /**
+    * Set by CAS-PGE to the names of the output files whose metadata could not
+    * be extracted.
+    */
+   OUTPUT_FILES_FAILED(
+         "PGETask/Ingest/OutputFilesFailed",
+         "PGETask_OutputFilesFailed",
+         true);
 
 
    public static final String USE_LEGACY_PROPERTY = "org.apache.oodt.cas.pge.task.metkeys.legacyMode";
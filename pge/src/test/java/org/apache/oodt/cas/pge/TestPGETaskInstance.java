@@ -32,10 +32,12 @@ import org.apache.oodt.cas.pge.config.DynamicConfigFile;
 import org.apache.oodt.cas.pge.config.MockPgeConfigBuilder;
 import org.apache.oodt.cas.pge.config.OutputDir;
 import org.apache.oodt.cas.pge.config.PgeConfig;
+import org.apache.oodt.cas.pge.config.RegExprOutputFiles;
 import org.apache.oodt.cas.pge.metadata.PgeMetadata;
 import org.apache.oodt.cas.pge.metadata.PgeTaskMetKeys;
 import org.apache.oodt.cas.pge.metadata.PgeTaskStatus;
 import org.apache.oodt.cas.pge.writers.MockDynamicConfigFileWriter;
+import org.apache.oodt.cas.pge.writers.MockPcsMetFileWriter;
 import org.apache.oodt.cas.workflow.metadata.CoreMetKeys;
 import org.apache.oodt.cas.workflow.structs.WorkflowTaskConfiguration;
 import org.apache.oodt.cas.workflow.system.AvroRpcWorkflowManagerClient;
@@ -53,6 +55,7 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.StringReader;
 import java.net.URL;
 import java.util.Collections;
@@ -535,6 +538,71 @@ public class TestPGETaskInstance {
       verify(pc);
    }
 
+  @Test
+   public void testProcessOutput() throws Exception {
+      PGETaskInstance pgeTask = createTestInstance();
+      File outputDir = createTmpDir();
+      for (int i = 0; i < 50; i++) {
+         FileUtils.touch(new File(outputDir, "data-" + i + ".dat"));
+      }
+      FileUtils.touch(new File(outputDir, "bad.dat"));
+      FileUtils.touch(new File(outputDir, "other.txt"));
+      OutputDir dir = new OutputDir(outputDir.getAbsolutePath(), false);
+      dir.addRegExprOutputFiles(new RegExprOutputFiles("data-\\d+\\.dat",
+            MockPcsMetFileWriter.class.getName(), null, null));
+      dir.addRegExprOutputFiles(new RegExprOutputFiles("bad\\.dat",
+            "bogus.BogusMetFileWriter", null, null));
+      pgeTask.pgeConfig.addOuputDirAndExpressions(dir);
+      pgeTask.pgeMetadata.replaceMetadata(MET_FILE_EXT, "met");
+      pgeTask.pgeMetadata.replaceMetadata(OUTPUT_PROCESSING_THREADS, "4");
+
+      pgeTask.processOutput();
+
+      for (int i = 0; i < 50; i++) {
+         assertTrue(new File(outputDir, "data-" + i + ".dat.met").exists());
+      }
+      assertFalse(new File(outputDir, "bad.dat.met").exists());
+      assertFalse(new File(outputDir, "other.txt.met").exists());
+      assertEquals("52", pgeTask.pgeMetadata.getMetadata(OUTPUT_FILES_PROCESSED));
+      assertEquals(Lists.newArrayList("bad.dat"),
+            pgeTask.pgeMetadata.getAllMetadata(OUTPUT_FILES_FAILED));
+      assertNotNull(pgeTask.pgeMetadata.getMetadata(OUTPUT_PROCESSING_RUNTIME));
+      assertNotNull(pgeTask.pgeMetadata.getMetadata(OUTPUT_EXTRACTION_TIME));
+      assertNotNull(pgeTask.pgeMetadata.getMetadata(OUTPUT_MET_WRITING_TIME));
+   }
+
+  @Test
+   public void testProcessOutputStopsAtWriteFailure() throws Exception {
+      PGETaskInstance pgeTask = createTestInstance();
+      File outputDir1 = createTmpDir();
+      FileUtils.touch(new File(outputDir1, "data-0.dat"));
+      // the met file can't be written over a directory
+      assertTrue(new File(outputDir1, "data-0.dat.met").mkdir());
+      File outputDir2 = createTmpDir();
+      for (int i = 1; i < 10; i++) {
+         FileUtils.touch(new File(outputDir2, "data-" + i + ".dat"));
+      }
+      for (File outputDir : new File[] { outputDir1, outputDir2 }) {
+         OutputDir dir = new OutputDir(outputDir.getAbsolutePath(), false);
+         dir.addRegExprOutputFiles(new RegExprOutputFiles("data-\\d+\\.dat",
+               MockPcsMetFileWriter.class.getName(), null, null));
+         pgeTask.pgeConfig.addOuputDirAndExpressions(dir);
+      }
+      pgeTask.pgeMetadata.replaceMetadata(MET_FILE_EXT, "met");
+
+      try {
+         pgeTask.processOutput();
+         fail("Should have thrown");
+      } catch (IOException e) { /* expect throw */ }
+
+      // by default the files are processed one at a time, so none of the
+      // second dir's files were
+      assertEquals("1", pgeTask.pgeMetadata.getMetadata(OUTPUT_FILES_PROCESSED));
+      for (int i = 1; i < 10; i++) {
+         assertFalse(new File(outputDir2, "data-" + i + ".dat.met").exists());
+      }
+   }
+
   @Test
    public void testVerifyIngests() throws Exception {
       PGETaskInstance pgeTask = createTestInstance();
@@ -28,13 +28,16 @@ import org.apache.oodt.cas.resource.structs.ResourceNode;
 import org.apache.oodt.cas.resource.structs.exceptions.JobExecutionException;
 import org.apache.oodt.cas.resource.structs.exceptions.JobRepositoryException;
 import org.apache.oodt.cas.resource.structs.exceptions.MonitorException;
+import org.apache.oodt.cas.resource.util.JobExecutor;
 
 //JDK imports
+import java.io.Closeable;
 import java.util.Collections;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,7 +50,7 @@ import java.util.logging.Logger;
  * An XML-RPC interface to the batch manager.
  * </p>
  */
-public class XmlRpcBatchMgr implements Batchmgr {
+public class XmlRpcBatchMgr implements Batchmgr, Closeable {
     /* our log stream */
     private static final Logger LOG = Logger.getLogger(XmlRpcBatchMgr.class
             .getName());
@@ -60,9 +63,17 @@ public class XmlRpcBatchMgr implements Batchmgr {
 
     private Map specToProxyMap;
 
+    /* job id to the handle of its dispatch on the executor */
+    private Map<String, JobExecutor.JobHandle> jobHandleMap;
+
+    private JobExecutor executor;
+
     public XmlRpcBatchMgr() {
         nodeToJobMap = new ConcurrentHashMap();
         specToProxyMap = new ConcurrentHashMap();
+        jobHandleMap = new ConcurrentHashMap<String, JobExecutor.JobHandle>();
+        executor = JobExecutor.createFromProperties("XmlRpcBatchMgrProxy",
+                "org.apache.oodt.cas.resource.batchmgr.executor");
     }
 
     /*
@@ -90,7 +101,20 @@ public class XmlRpcBatchMgr implements Batchmgr {
                     .put(jobSpec.getJob().getId(), resNode.getNodeId());
         }
 
-        proxy.start();
+        // record the handle before the job can run, so that killJob and the
+        // job's own completion always find it
+        JobExecutor.JobHandle handle = executor.prepare(proxy);
+        jobHandleMap.put(jobSpec.getJob().getId(), handle);
+        try {
+            executor.start(handle);
+        } catch (RejectedExecutionException e) {
+            jobHandleMap.remove(jobSpec.getJob().getId());
+            specToProxyMap.remove(jobSpec.getJob().getId());
+            nodeToJobMap.remove(jobSpec.getJob().getId());
+            throw new JobExecutionException("Batch manager is shut down: "
+                    + "Unable to execute job: [" + jobSpec.getJob().getId()
+                    + "]");
+        }
 
         return true;
     }
@@ -139,9 +163,42 @@ public class XmlRpcBatchMgr implements Batchmgr {
             return false;
         }
 
+        // a job still waiting for a dispatch thread never reached its node
+        JobExecutor.JobHandle handle = jobHandleMap.get(jobId);
+        if (handle != null && handle.cancelIfQueued()) {
+            jobHandleMap.remove(jobId);
+            specToProxyMap.remove(jobId);
+            jobKilled(spec);
+            notifyMonitor(node, spec);
+            return true;
+        }
+
         XmlRpcBatchMgrProxy proxy = new XmlRpcBatchMgrProxy(spec, node, this);
         return proxy.killJob();
     }
+
+    /**
+     * Stops the executor that dispatches jobs to their nodes. Jobs being
+     * dispatched are interrupted.
+     */
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * @return The number of dispatched jobs waiting for a thread to send them
+     *         to their node.
+     */
+    public int getQueueDepth() {
+        return executor.getQueueDepth();
+    }
+
+    /**
+     * @return The number of jobs currently being run on their nodes.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
     
     public List getJobsOnNode(String nodeId){
     	Vector<String> jobIds = new Vector();
@@ -178,6 +235,7 @@ public class XmlRpcBatchMgr implements Batchmgr {
             this.specToProxyMap
                     .remove(spec.getJob().getId());
         }
+        jobHandleMap.remove(spec.getJob().getId());
 
         try {
             repo.updateJob(spec);
@@ -197,6 +255,7 @@ public class XmlRpcBatchMgr implements Batchmgr {
                     .remove(spec.getJob().getId());
 
         }
+        jobHandleMap.remove(spec.getJob().getId());
 
         try {
             repo.updateJob(spec);
@@ -209,6 +268,7 @@ public class XmlRpcBatchMgr implements Batchmgr {
     protected void jobKilled(JobSpec spec) {
         spec.getJob().setStatus(JobStatus.KILLED);
         nodeToJobMap.remove(spec.getJob().getId());
+        jobHandleMap.remove(spec.getJob().getId());
         try {
             repo.updateJob(spec);
         } catch (JobRepositoryException e) {
@@ -40,13 +40,14 @@ import java.util.logging.Logger;
  * @version $Revision$
  * 
  * <p>
- * A {@link Runnable} proxy to an XmlRpcBatchStub that allows the call to the
+ * A {@link Runnable} proxy to an XmlRpcBatchStub, run on the batch manager's
+ * {@link org.apache.oodt.cas.resource.util.JobExecutor}, that allows the call to the
  * XmlRpcBatchStub to be asynchronous rather than synchronous. This allows a
  * {@link org.apache.oodt.cas.resource.scheduler.Scheduler} that calls the {@link XmlRpcBatchMgr} to not be stuck
  * waiting for each job to complete before scheduling the next {@link org.apache.oodt.cas.resource.structs.Job}
  * </p>.
  */
-public class XmlRpcBatchMgrProxy extends Thread implements Runnable {
+public class XmlRpcBatchMgrProxy implements Runnable {
 
 	private static final Logger LOG = Logger.getLogger(XmlRpcBatchMgrProxy.class.getName());
 	
@@ -39,10 +39,11 @@ import java.util.Vector;
  * An implementation of the {@link Monitor} interface that loads its information
  * about the underlying nodes from an XML file called <code>nodes.xml</code>.
  * This implementation additionally uses an in-memory hash map to monitor the
- * load on a given set of {@link ResourceNode}s.
+ * load on a given set of {@link ResourceNode}s, and keeps a
+ * {@link NodeCapacityIndex} of each node's free load in step with it.
  * </p>
  */
-public class AssignmentMonitor implements Monitor {
+public class AssignmentMonitor implements CapacityIndexedMonitor {
 	
     /* our nodes map */
     private ConcurrentHashMap<String, ResourceNode> nodesMap;
@@ -50,16 +51,30 @@ public class AssignmentMonitor implements Monitor {
     /* our load map */
     private ConcurrentHashMap<String, Integer> loadMap;
 
+    /* free load per node, updated with loadMap */
+    private NodeCapacityIndex capacityIndex;
+
     public AssignmentMonitor(List<ResourceNode> nodes) {
         nodesMap = new ConcurrentHashMap<String, ResourceNode>();
         loadMap = new ConcurrentHashMap<String, Integer>();
+        capacityIndex = new NodeCapacityIndex();
         
         for (ResourceNode node : nodes) {
             nodesMap.put(node.getNodeId(), node);
             loadMap.put(node.getNodeId(), 0);
+            capacityIndex.putNode(node.getNodeId(), node.getCapacity());
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.resource.monitor.CapacityIndexedMonitor#getCapacityIndex()
+     */
+    public NodeCapacityIndex getCapacityIndex() {
+        return capacityIndex;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -67,7 +82,7 @@ public class AssignmentMonitor implements Monitor {
      *      gov.nasa.jpl.oodt.cas.resource.structs.ResourceNode, int)
      */
     @Override
-    public boolean assignLoad(ResourceNode node, int loadValue)
+    public synchronized boolean assignLoad(ResourceNode node, int loadValue)
             throws MonitorException {
         int loadCap = node.getCapacity();
         int curLoad = loadMap.get(node.getNodeId());
@@ -75,14 +90,19 @@ public class AssignmentMonitor implements Monitor {
         if (loadValue <= (loadCap - curLoad)) {
             loadMap.remove(node.getNodeId());
             loadMap.put(node.getNodeId(), curLoad + loadValue);
+            capacityIndex.updateNode(node.getNodeId(), loadCap - curLoad
+                    - loadValue, true);
             return true;
         } else {
+            // the index may hold a stale capacity for this node
+            capacityIndex.updateNode(node.getNodeId(), loadCap - curLoad,
+                    false);
             return false;
         }
     }
 
     @Override
-    public boolean reduceLoad(ResourceNode node, int loadValue)
+    public synchronized boolean reduceLoad(ResourceNode node, int loadValue)
             throws MonitorException {
         int load = loadMap.get(node.getNodeId());
         int newVal = load - loadValue;
@@ -91,6 +111,8 @@ public class AssignmentMonitor implements Monitor {
         }
         loadMap.remove(node.getNodeId());
         loadMap.put(node.getNodeId(), newVal);
+        capacityIndex.updateNode(node.getNodeId(), node.getCapacity() - newVal,
+                false);
         return true;
     }
 
@@ -140,15 +162,18 @@ public class AssignmentMonitor implements Monitor {
         return targetResource;
     }
 
-    public void addNode(ResourceNode node) throws MonitorException {
+    public synchronized void addNode(ResourceNode node) throws MonitorException {
         nodesMap.put(node.getNodeId(), node);
         if (!loadMap.containsKey(node.getNodeId())) {
             loadMap.put(node.getNodeId(), 0);
         }
+        capacityIndex.putNode(node.getNodeId(), node.getCapacity()
+                - loadMap.get(node.getNodeId()));
     }
 
-    public void removeNodeById(String nodeId) throws MonitorException {
+    public synchronized void removeNodeById(String nodeId) throws MonitorException {
         nodesMap.remove(nodeId);    
         loadMap.remove(nodeId);
+        capacityIndex.removeNode(nodeId);
     }
 }
@@ -98,8 +98,9 @@ public interface Monitor {
    * @param loadValue
    *          The integer load to assign to the given {@link ResourceNode}.
    *          
-   * @return True if the Monitor was able to assign the load, false
-   * otherwise.
+   * @return True if the Monitor was able to assign the load, false if the
+   *         node has no room for it. When false is returned no load has
+   *         been assigned, and the job must not be placed on the node.
    * @throws MonitorException
    *           If any error occurs assigning the load.
    */
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.resource.monitor;
+
+//JDK imports
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ *
+ * <p>
+ * An index of the free load on each resource node, kept per group of nodes
+ * (a scheduler's queue). Within a group, nodes are bucketed by free
+ * load and each bucket is ordered least-recently-used first, so the
+ * least-recently-used node that can take a given load is found by looking at
+ * the head of each bucket with at least that much room: O(b log n) for b
+ * distinct free-load values, instead of a walk over every node.
+ * </p>
+ *
+ * <p>
+ * All methods are synchronized; a {@link Monitor} updates the index in the
+ * same step that it changes a node's load.
+ * </p>
+ */
+public class NodeCapacityIndex {
+
+    private static final class Entry {
+
+        private final String nodeId;
+
+        private int free;
+
+        private long lastUsed;
+
+        private Entry(String nodeId, int free, long lastUsed) {
+            this.nodeId = nodeId;
+            this.free = free;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private static final Comparator<Entry> LRU_ORDER = new Comparator<Entry>() {
+        public int compare(Entry a, Entry b) {
+            if (a.lastUsed != b.lastUsed) {
+                return a.lastUsed < b.lastUsed ? -1 : 1;
+            }
+            return a.nodeId.compareTo(b.nodeId);
+        }
+    };
+
+    /* node id to its entry */
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /* group to its member node ids */
+    private final Map<String, Set<String>> groups = new HashMap<String, Set<String>>();
+
+    /* node id to the groups it belongs to */
+    private final Map<String, Set<String>> nodeGroups = new HashMap<String, Set<String>>();
+
+    /* group to free load to the indexed members with that much free load */
+    private final Map<String, TreeMap<Integer, TreeSet<Entry>>> buckets = new HashMap<String, TreeMap<Integer, TreeSet<Entry>>>();
+
+    /* logical clock for least-recently-used ordering */
+    private long clock = 0;
+
+    /**
+     * Adds a node to the index, or updates the free load of a node already in
+     * it without changing its place in the least-recently-used order.
+     *
+     * @param nodeId
+     *            The id of the node.
+     * @param free
+     *            The load the node can still take.
+     */
+    public synchronized void putNode(String nodeId, int free) {
+        Entry entry = entries.get(nodeId);
+        if (entry == null) {
+            entry = new Entry(nodeId, free, ++clock);
+            entries.put(nodeId, entry);
+            for (String group : groupsOf(nodeId)) {
+                bucketAdd(group, entry);
+            }
+        } else {
+            update(entry, free, false);
+        }
+    }
+
+    /**
+     * Records a change in the free load of a node.
+     *
+     * @param nodeId
+     *            The id of the node.
+     * @param free
+     *            The load the node can still take.
+     * @param used
+     *            Whether load was just assigned to the node, which makes it
+     *            the most recently used.
+     */
+    public synchronized void updateNode(String nodeId, int free, boolean used) {
+        Entry entry = entries.get(nodeId);
+        if (entry != null) {
+            update(entry, free, used);
+        }
+    }
+
+    public synchronized void removeNode(String nodeId) {
+        Entry entry = entries.remove(nodeId);
+        if (entry != null) {
+            for (String group : groupsOf(nodeId)) {
+                bucketRemove(group, entry);
+            }
+        }
+    }
+
+    /**
+     * Sets the members of a group, replacing any previous members. Members
+     * not (yet) added with {@link #putNode(String, int)} are ignored until
+     * they are.
+     *
+     * @param group
+     *            The name of the group, usually a queue name.
+     * @param nodeIds
+     *            The ids of the nodes in the group.
+     */
+    public synchronized void setGroup(String group, Collection<String> nodeIds) {
+        removeGroup(group);
+        Set<String> members = new HashSet<String>(nodeIds);
+        groups.put(group, members);
+        buckets.put(group, new TreeMap<Integer, TreeSet<Entry>>());
+        for (String nodeId : members) {
+            Set<String> memberOf = nodeGroups.get(nodeId);
+            if (memberOf == null) {
+                memberOf = new HashSet<String>();
+                nodeGroups.put(nodeId, memberOf);
+            }
+            memberOf.add(group);
+            Entry entry = entries.get(nodeId);
+            if (entry != null) {
+                bucketAdd(group, entry);
+            }
+        }
+    }
+
+    public synchronized void removeGroup(String group) {
+        Set<String> members = groups.remove(group);
+        buckets.remove(group);
+        if (members != null) {
+            for (String nodeId : members) {
+                Set<String> memberOf = nodeGroups.get(nodeId);
+                if (memberOf != null) {
+                    memberOf.remove(group);
+                    if (memberOf.isEmpty()) {
+                        nodeGroups.remove(nodeId);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every group, leaving the indexed nodes in place.
+     */
+    public synchronized void clearGroups() {
+        groups.clear();
+        nodeGroups.clear();
+        buckets.clear();
+    }
+
+    public synchronized boolean hasGroup(String group) {
+        return groups.containsKey(group);
+    }
+
+    /**
+     * @param group
+     *            The group to search.
+     * @param load
+     *            The load to be placed.
+     * @return The id of the least-recently-used node in the group with at
+     *         least <code>load</code> free, or null if there is none.
+     */
+    public synchronized String findNode(String group, int load) {
+        TreeMap<Integer, TreeSet<Entry>> byFree = buckets.get(group);
+        if (byFree == null) {
+            return null;
+        }
+        Entry best = null;
+        for (TreeSet<Entry> bucket : byFree.tailMap(load, true).values()) {
+            Entry candidate = bucket.first();
+            if (best == null || LRU_ORDER.compare(candidate, best) < 0) {
+                best = candidate;
+            }
+        }
+        return best != null ? best.nodeId : null;
+    }
+
+    /**
+     * @return The free load recorded for the node, or -1 if it is not
+     *         indexed.
+     */
+    public synchronized int getFree(String nodeId) {
+        Entry entry = entries.get(nodeId);
+        return entry != null ? entry.free : -1;
+    }
+
+    private void update(Entry entry, int free, boolean used) {
+        Set<String> memberOf = groupsOf(entry.nodeId);
+        for (String group : memberOf) {
+            bucketRemove(group, entry);
+        }
+        entry.free = free;
+        if (used) {
+            entry.lastUsed = ++clock;
+        }
+        for (String group : memberOf) {
+            bucketAdd(group, entry);
+        }
+    }
+
+    private Set<String> groupsOf(String nodeId) {
+        Set<String> memberOf = nodeGroups.get(nodeId);
+        return memberOf != null ? memberOf : new HashSet<String>();
+    }
+
+    private void bucketAdd(String group, Entry entry) {
+        NavigableMap<Integer, TreeSet<Entry>> byFree = buckets.get(group);
+        TreeSet<Entry> bucket = byFree.get(entry.free);
+        if (bucket == null) {
+            bucket = new TreeSet<Entry>(LRU_ORDER);
+            byFree.put(entry.free, bucket);
+        }
+        bucket.add(entry);
+    }
+
+    private void bucketRemove(String group, Entry entry) {
+        NavigableMap<Integer, TreeSet<Entry>> byFree = buckets.get(group);
+        TreeSet<Entry> bucket = byFree.get(entry.free);
+        if (bucket != null) {
+            bucket.remove(entry);
+            if (bucket.isEmpty()) {
+                byFree.remove(entry.free);
+            }
+        }
+    }
+
+}
@@ -28,10 +28,8 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.StringReader;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.concurrent.ConcurrentHashMap;
@@ -69,8 +67,7 @@ public class GangliaAdapter {
      */
     public Map<String, Map<String,String>> getResourceNodeStatus()
             throws MonitorException {
-        List<Cluster> gridStatus = parseConfiguration(readXMLDump(this.host, this.port));
-        return filterNodes(gridStatus);
+        return filterNodes(readGridStatus(this.host, this.port));
     }
     
     /**
@@ -106,57 +103,39 @@ public class GangliaAdapter {
     }
 
     /**
-     * Get a XML dump from a ganglia meta daemon.
-     * @return A String that contains all the dump
+     * Read the grid status from a ganglia meta daemon, parsing its XML dump
+     * as it comes off the socket.
+     * @return the parsed grid status
      * @throws org.apache.oodt.cas.resource.monitor.exceptions.MonitorException {@link org.apache.oodt.cas.resource.monitor.exceptions.MonitorException}
-     * if an error occurred during the read.
+     * if an error occurred during the read or the parse.
      */
-    private String readXMLDump(String host, int port) throws MonitorException {
-        StringBuilder buffer = new StringBuilder();
-
+    private List<Cluster> readGridStatus(String host, int port) throws MonitorException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        GangliaXMLParser gangliaXMLParser = new GangliaXMLParser();
+        Socket s = null;
         try {
-            Socket s = new Socket(host, port);
-            BufferedReader reader =
-                    new BufferedReader(new InputStreamReader(s.getInputStream(), ENCODING));
-            String line = reader.readLine();
-            while (line != null) {
-                buffer.append(line);
-                line = reader.readLine();
-            }
-            reader.close();
+            s = new Socket(host, port);
+            InputSource source = new InputSource(new BufferedInputStream(s.getInputStream()));
+            source.setEncoding(ENCODING);
+            factory.newSAXParser().parse(source, gangliaXMLParser);
         } catch (UnknownHostException e) {
             throw new MonitorException
                     ("Unknown host: " + host + ":" + port + "-" + e.getMessage());
-        } catch (IOException e) {
-            throw new MonitorException
-                    ("Unable to get the monitoring report from the GMeta daemon: "
-                            + e.getMessage());
-        }
-        return buffer.toString().trim();
-    }
-
-    /**
-     * Parse a configuration from a XML output of a Ganglia meta daemon.
-     * @param buffer the XML buffer
-     * @return a Configuration
-     * @throws org.apache.oodt.cas.resource.monitor.exceptions.MonitorException {@link org.apache.oodt.cas.resource.monitor.exceptions.MonitorException} if an error occurred
-     */
-    private List<Cluster> parseConfiguration(String buffer)
-            throws MonitorException {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        javax.xml.parsers.SAXParser parser;
-        GangliaXMLParser gangliaXMLParser;
-        try {
-            parser = factory.newSAXParser();
-            gangliaXMLParser = new GangliaXMLParser();
-            parser.parse(new InputSource(new StringReader(buffer)), gangliaXMLParser);
-
         } catch (ParserConfigurationException e) {
             throw new MonitorException("Error while parsing: " + e.getMessage());
         } catch (SAXException e) {
             throw new MonitorException("Error while parsing the XML: " + e.getMessage());
         } catch (IOException e) {
-            throw new MonitorException("I/O error: " + e.getMessage());
+            throw new MonitorException
+                    ("Unable to get the monitoring report from the GMeta daemon: "
+                            + e.getMessage());
+        } finally {
+            if (s != null) {
+                try {
+                    s.close();
+                } catch (IOException ignore) {
+                }
+            }
         }
         return gangliaXMLParser.getGridConfiguration();
     }
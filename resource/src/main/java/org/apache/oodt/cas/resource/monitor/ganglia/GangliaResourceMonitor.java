@@ -23,12 +23,17 @@ import org.apache.oodt.cas.resource.monitor.ganglia.loadcalc.LoadCalculator;
 import org.apache.oodt.cas.resource.structs.ResourceNode;
 import org.apache.oodt.cas.resource.structs.exceptions.MonitorException;
 
+import java.io.Closeable;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,11 +42,19 @@ import static org.apache.oodt.cas.resource.monitor.ganglia.GangliaMetKeys.NAME;
 //JDK imports
 
 /**
+ * A {@link Monitor} that reads node status and load from ganglia meta
+ * daemons. What each gmetad reports is kept as a {@link GangliaSnapshot},
+ * refreshed in the background, so lookups don't go back to gmetad each time.
+ * A snapshot older than the configured maximum age (e.g. because gmetad was
+ * unreachable at the last refresh) is re-read before it is used. The
+ * background refresh runs on a daemon thread until the monitor is
+ * {@link #close() closed}.
+ * 
  * @author rajith
  * @author mattmann
  * @version $Revision$
  */
-public class GangliaResourceMonitor implements Monitor {
+public class GangliaResourceMonitor implements Monitor, Closeable {
 
 	private static final Logger LOG = Logger
 			.getLogger(GangliaResourceMonitor.class.getName());
@@ -49,7 +62,11 @@ public class GangliaResourceMonitor implements Monitor {
 	private Map<String, Integer> loadMap;
 	private Map<String, Map<String, String>> gmetaNodes;
 	private Map<String, GangliaAdapter> gmetaAdapters;
+	private Map<GangliaAdapter, GangliaSnapshot> snapshots;
+	private long maxSnapshotAge;
+	private ScheduledExecutorService refresher;
 	private static final int DEFAULT_PORT = 8649;
+	public static final long DEFAULT_MAX_SNAPSHOT_AGE = 10000L;
 
 	/**
 	 * Make a new GangliaResourceMonitor that reads information from a ganglia
@@ -62,10 +79,31 @@ public class GangliaResourceMonitor implements Monitor {
 	 */
 	public GangliaResourceMonitor(LoadCalculator loadCalculator,
 			String gmetadHost, int gmetadPort) {
+		this(loadCalculator, gmetadHost, gmetadPort, DEFAULT_MAX_SNAPSHOT_AGE);
+	}
+
+	/**
+	 * Make a new GangliaResourceMonitor that reads information from a ganglia
+	 * meta daemon at most <code>maxSnapshotAge</code> milliseconds old.
+	 * 
+	 * @param loadCalculator
+	 *            LoadCalculator
+	 *            {@link org.apache.oodt.cas.resource.monitor.ganglia.loadcalc.LoadCalculator}
+	 *            to calculate load
+	 * @param maxSnapshotAge
+	 *            How old, in milliseconds, what gmetad reported may get
+	 *            before it is read again. Snapshots are refreshed in the
+	 *            background twice as often. Zero or less reads gmetad on
+	 *            every lookup.
+	 */
+	public GangliaResourceMonitor(LoadCalculator loadCalculator,
+			String gmetadHost, int gmetadPort, long maxSnapshotAge) {
 		this.loadCalculator = loadCalculator;
 		this.loadMap = new ConcurrentHashMap<String, Integer>();
 		this.gmetaNodes = new ConcurrentHashMap<String, Map<String, String>>();
 		this.gmetaAdapters = new ConcurrentHashMap<String, GangliaAdapter>();
+		this.snapshots = new ConcurrentHashMap<GangliaAdapter, GangliaSnapshot>();
+		this.maxSnapshotAge = maxSnapshotAge;
 		try {
 			this.initGmetaNodes(gmetadHost, gmetadPort);
 		} catch (Exception e) {
@@ -76,24 +114,27 @@ public class GangliaResourceMonitor implements Monitor {
 							+ e.getMessage());
 		}
 
+		if (maxSnapshotAge > 0) {
+			this.startRefresher(Math.max(1L, maxSnapshotAge / 2));
+		}
 	}
 
 	@Override
 	public int getLoad(ResourceNode node) throws MonitorException {
-		Map<String, String> nodeProperties;
 		String nodeId = node.getNodeId();
-		nodeProperties = this.locateNode(nodeId);
-		if (nodeProperties == null) {
+		GangliaSnapshot snapshot = this.locateSnapshot(nodeId);
+		if (snapshot == null) {
 			throw new MonitorException(
 					"GangliaMonitor: not tracking requested node: [" + nodeId
 							+ "]");
 		}
 
-		// calculate load
-		double calcLoad = this.loadCalculator.calculateLoad(nodeProperties);
-		System.out.println(calcLoad);
-		int load = Long.valueOf(Math.round(calcLoad)).intValue();
-		System.out.println("LOAD is: "+load);
+		Integer load = snapshot.getLoad(nodeId);
+		if (load == null) {
+			// calculate load
+			load = GangliaSnapshot.toLoad(this.loadCalculator
+					.calculateLoad(snapshot.getNode(nodeId)));
+		}
 		return load;
 	}
 
@@ -135,8 +176,8 @@ public class GangliaResourceMonitor implements Monitor {
 		List<ResourceNode> nodes = new Vector<ResourceNode>();
 		if (this.gmetaAdapters != null) {
 			for (GangliaAdapter adapter : this.gmetaAdapters.values()) {
-				Map<String, Map<String, String>> aNodes = adapter
-						.getResourceNodeStatus();
+				Map<String, Map<String, String>> aNodes = this.getSnapshot(
+						adapter).getNodes();
 				for (Map<String, String> map : aNodes.values()) {
 					try {
 						nodes.add(this.nodeFromMap(map));
@@ -165,8 +206,8 @@ public class GangliaResourceMonitor implements Monitor {
 	public ResourceNode getNodeByURL(URL ipAddr) throws MonitorException {
 		if (this.gmetaAdapters != null) {
 			for (GangliaAdapter adapter : this.gmetaAdapters.values()) {
-				Map<String, Map<String, String>> aNodes = adapter
-						.getResourceNodeStatus();
+				Map<String, Map<String, String>> aNodes = this.getSnapshot(
+						adapter).getNodes();
 				for (Map.Entry<String, Map<String, String>> aNodeId : aNodes.entrySet()) {
 					String host = ipAddr.getHost();
 					int port = ipAddr.getPort();
@@ -204,17 +245,17 @@ public class GangliaResourceMonitor implements Monitor {
 	}
 
 	private Map<String, String> locateNode(String nodeId) {
+		GangliaSnapshot snapshot = this.locateSnapshot(nodeId);
+		return snapshot != null ? snapshot.getNode(nodeId) : null;
+	}
+
+	private GangliaSnapshot locateSnapshot(String nodeId) {
 		if (this.gmetaAdapters != null && this.gmetaAdapters.size() > 0) {
-			for (Map.Entry<String, GangliaAdapter> nId : this.gmetaAdapters.entrySet()) {
-				GangliaAdapter adapter = nId.getValue();
+			for (GangliaAdapter adapter : this.gmetaAdapters.values()) {
 				try {
-					System.out.println("Querying gmetad: ["+adapter.getUrlString()+"]");
-					Map<String, Map<String, String>> nodeStatus = adapter
-							.getResourceNodeStatus();
-					System.out.println("Looking for nodeid: ["+nodeId+"]");
-					if (nodeStatus.containsKey(nodeId)) {
-						System.out.println("NODE met: "+nodeStatus.get(nodeId));
-						return nodeStatus.get(nodeId);
+					GangliaSnapshot snapshot = this.getSnapshot(adapter);
+					if (snapshot.getNode(nodeId) != null) {
+						return snapshot;
 					}
 				} catch (MonitorException e) {
 					LOG.log(Level.WARNING,
@@ -229,14 +270,84 @@ public class GangliaResourceMonitor implements Monitor {
 		return null;
 	}
 
+	/**
+	 * Returns what the given gmetad last reported, reading it again first if
+	 * that is older than {@link #maxSnapshotAge}.
+	 */
+	private GangliaSnapshot getSnapshot(GangliaAdapter adapter)
+			throws MonitorException {
+		GangliaSnapshot snapshot = this.snapshots.get(adapter);
+		if (snapshot != null && snapshot.getAge() <= this.maxSnapshotAge) {
+			return snapshot;
+		}
+		synchronized (adapter) {
+			// another thread may have just refreshed it
+			snapshot = this.snapshots.get(adapter);
+			if (snapshot != null && snapshot.getAge() <= this.maxSnapshotAge) {
+				return snapshot;
+			}
+			return this.refreshSnapshot(adapter);
+		}
+	}
+
+	private GangliaSnapshot refreshSnapshot(GangliaAdapter adapter)
+			throws MonitorException {
+		GangliaSnapshot snapshot = new GangliaSnapshot(
+				adapter.getResourceNodeStatus(), this.loadCalculator);
+		if (this.maxSnapshotAge > 0) {
+			this.snapshots.put(adapter, snapshot);
+		}
+		return snapshot;
+	}
+
+	private void startRefresher(long period) {
+		this.refresher = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "ganglia-snapshot-refresher");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		this.refresher.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				for (GangliaAdapter adapter : gmetaAdapters.values()) {
+					try {
+						synchronized (adapter) {
+							refreshSnapshot(adapter);
+						}
+					} catch (Exception e) {
+						// readers fall back to gmetad once the snapshot is too old
+						LOG.log(Level.FINE, "Unable to refresh snapshot of gmetad: ["
+								+ adapter.getUrlString() + "]: Message: "
+								+ e.getMessage());
+					}
+				}
+				// forget snapshots of gmetads no longer monitored
+				snapshots.keySet().retainAll(gmetaAdapters.values());
+			}
+		}, 0, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops refreshing snapshots in the background. Lookups then read gmetad
+	 * whenever a snapshot is older than the maximum age.
+	 */
+	@Override
+	public void close() {
+		if (this.refresher != null) {
+			this.refresher.shutdownNow();
+		}
+	}
+
 	private ResourceNode nodeFromMap(Map<String, String> map)
 			throws MalformedURLException {
 		if (map == null) {
 		  return null;
 		}
 		ResourceNode node = new ResourceNode();
-		System.out.println("MAP IS "+map);
-		System.out.println("Setting hostname to "+map.get(NAME));
 		node.setId(map.get(NAME));
 		node.setIpAddr(new URL("http://" + map.get(NAME) + ":" + DEFAULT_PORT));
 		return node;
@@ -265,7 +376,7 @@ public class GangliaResourceMonitor implements Monitor {
 			LOG.log(Level.FINE,
 					"Removing gmetad node: ["
 							+ gmetaAdapters.get(host).getUrlString() + "]");
-			this.gmetaAdapters.remove(host);
+			this.snapshots.remove(this.gmetaAdapters.remove(host));
 			this.gmetaNodes.remove(host);
 		}
 	}
@@ -51,10 +51,15 @@ public class GangliaResourceMonitorFactory implements MonitorFactory {
 			int gmetadPort = Integer.valueOf(System
 		                .getProperty("org.apache.oodt.cas.resource.monitor.ganglia.gemtad.host.port"));
 
+			long maxSnapshotAge = Long.getLong(
+					"org.apache.oodt.cas.resource.monitor.ganglia.snapshot.maxAge",
+					GangliaResourceMonitor.DEFAULT_MAX_SNAPSHOT_AGE);
+
 			LoadCalculator loadCalculator = GenericResourceManagerObjectFactory
 					.getLoadCalculatorFromServiceFactory(loadCalculatorFactoryStr);
 
-			return new GangliaResourceMonitor(loadCalculator, gmetadHost, gmetadPort);
+			return new GangliaResourceMonitor(loadCalculator, gmetadHost,
+					gmetadPort, maxSnapshotAge);
 		} catch (Exception e) {
 			LOG.log(Level.SEVERE,
 					"Failed to create Resource Monitor : " + e.getMessage(), e);
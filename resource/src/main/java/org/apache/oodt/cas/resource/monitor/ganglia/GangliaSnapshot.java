@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.resource.monitor.ganglia;
+
+//OODT imports
+import org.apache.oodt.cas.resource.monitor.ganglia.loadcalc.LoadCalculator;
+
+//JDK imports
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An immutable view of the nodes a ganglia meta daemon reported at one point
+ * in time, along with the load of each node as worked out by a
+ * {@link LoadCalculator} when the view was taken.
+ *
+ * @version $Revision$
+ */
+public final class GangliaSnapshot {
+
+	private static final Logger LOG = Logger.getLogger(GangliaSnapshot.class
+			.getName());
+
+	private final Map<String, Map<String, String>> nodes;
+
+	private final Map<String, Integer> loads;
+
+	private final long created;
+
+	/**
+	 * @param nodeStatus
+	 *            The node status read from gmetad, keyed by node name.
+	 * @param loadCalculator
+	 *            The {@link LoadCalculator} used to work out each node's
+	 *            load.
+	 */
+	public GangliaSnapshot(Map<String, Map<String, String>> nodeStatus,
+			LoadCalculator loadCalculator) {
+		Map<String, Map<String, String>> nodes = new HashMap<String, Map<String, String>>();
+		Map<String, Integer> loads = new HashMap<String, Integer>();
+		for (Map.Entry<String, Map<String, String>> node : nodeStatus
+				.entrySet()) {
+			Map<String, String> metrics = Collections
+					.unmodifiableMap(new HashMap<String, String>(node
+							.getValue()));
+			nodes.put(node.getKey(), metrics);
+			try {
+				loads.put(node.getKey(),
+						toLoad(loadCalculator.calculateLoad(metrics)));
+			} catch (RuntimeException e) {
+				// left out: getLoad works it out (and fails) on demand
+				LOG.log(Level.WARNING, "Unable to calculate load of node: ["
+						+ node.getKey() + "]: Message: " + e.getMessage());
+			}
+		}
+		this.nodes = Collections.unmodifiableMap(nodes);
+		this.loads = Collections.unmodifiableMap(loads);
+		this.created = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return The status metrics of each node, keyed by node name.
+	 */
+	public Map<String, Map<String, String>> getNodes() {
+		return this.nodes;
+	}
+
+	/**
+	 * @return The status metrics of the given node, or null if gmetad didn't
+	 *         report it.
+	 */
+	public Map<String, String> getNode(String nodeId) {
+		return this.nodes.get(nodeId);
+	}
+
+	/**
+	 * @return The load of the given node, or null if it isn't known.
+	 */
+	public Integer getLoad(String nodeId) {
+		return this.loads.get(nodeId);
+	}
+
+	/**
+	 * @return How long ago, in milliseconds, this snapshot was taken.
+	 */
+	public long getAge() {
+		return System.currentTimeMillis() - this.created;
+	}
+
+	static int toLoad(double calcLoad) {
+		return Long.valueOf(Math.round(calcLoad)).intValue();
+	}
+
+}
@@ -139,16 +139,24 @@ public class QueueMuxMonitor implements Monitor {
     public boolean assignLoad(ResourceNode node, int loadValue)
             throws MonitorException {
         List<String> queues = queuesForNode(node);
-        boolean ret = true;
+        List<Monitor> assigned = new LinkedList<Monitor>();
         for (String queue:queues) {
             try {
-                ret &= backend.getMonitor(queue).assignLoad(node, loadValue);
+                Monitor monitor = backend.getMonitor(queue);
+                if (!monitor.assignLoad(node, loadValue)) {
+                    // no load may stay assigned when the node is refused
+                    for (Monitor mon : assigned) {
+                        mon.reduceLoad(node, loadValue);
+                    }
+                    return false;
+                }
+                assigned.add(monitor);
             } catch (QueueManagerException e) {
                 LOG.log(Level.SEVERE,"Queue '"+queue+"' has dissappeared.");
                 throw new MonitorException(e);
             }
         }
-        return ret;
+        return true;
     }
 
     /* (non-Javadoc)
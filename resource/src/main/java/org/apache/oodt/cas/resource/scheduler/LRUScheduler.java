@@ -19,12 +19,16 @@
 package org.apache.oodt.cas.resource.scheduler;
 
 //JDKimports
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 //OODT imports
 import org.apache.oodt.cas.resource.jobqueue.JobQueue;
+import org.apache.oodt.cas.resource.monitor.CapacityIndexedMonitor;
 import org.apache.oodt.cas.resource.monitor.Monitor;
+import org.apache.oodt.cas.resource.monitor.NodeCapacityIndex;
 import org.apache.oodt.cas.resource.batchmgr.Batchmgr;
 import org.apache.oodt.cas.resource.structs.JobSpec;
 import org.apache.oodt.cas.resource.structs.ResourceNode;
@@ -43,6 +47,14 @@ import org.apache.oodt.cas.resource.structs.exceptions.SchedulerException;
  * href="http://en.wikipedia.org/wiki/Cache_algorithms">least-recently-used</a>
  * algorithm for scheduling {@link Job}s.
  * </p>
+ * 
+ * <p>
+ * The scheduler wakes as soon as a job is added to its {@link JobQueue} or
+ * load is reduced on its {@link Monitor}, and each pass schedules every queued
+ * job that fits on a node. It only waits out
+ * <code>org.apache.oodt.cas.resource.scheduler.wait.seconds</code> when no
+ * such event arrives.
+ * </p>
  */
 public class LRUScheduler implements Scheduler {
 
@@ -62,15 +74,38 @@ public class LRUScheduler implements Scheduler {
     /* our job queue */
     private JobQueue myJobQueue;
 
-    /* our wait time between checking the queue */
+    /* the monitor and queue handed out to others: they wake the scheduler */
+    private SignallingMonitor signallingMonitor;
+
+    private SignallingJobQueue signallingJobQueue;
+
+    /* our wait time between passes when no job or capacity turns up */
     private double waitTime = -1;
 
+    /* set when a job was added or capacity freed since the last pass */
+    private final Object signalLock = new Object();
+
+    private boolean signalled = false;
+
+    private final SchedulerMetrics metrics = new SchedulerMetrics();
+
+    /* queue manager mod count last registered with the capacity index */
+    private int indexedModCount = -1;
+
     public LRUScheduler(Monitor m, Batchmgr b, JobQueue q, LRUQueueManager qm) {
 
     	queueManager = qm;
         myMonitor = m;
         myBatchmgr = b;
         myJobQueue = q;
+        signallingMonitor = new SignallingMonitor(m, this);
+        signallingJobQueue = new SignallingJobQueue(q, this);
+
+        // the batch mgr reduces load when jobs finish: route that through
+        // the signalling monitor so freed capacity is used straight away
+        if (b != null) {
+            b.setMonitor(signallingMonitor);
+        }
 
         String waitStr = System.getProperty(
                 "org.apache.oodt.cas.resource.scheduler.wait.seconds", "20");
@@ -84,42 +119,103 @@ public class LRUScheduler implements Scheduler {
      */
     public void run() {
         for (;;) {
+            schedulePass();
+            awaitSignal((long) (waitTime * DOUBLE));
+        }
+    }
 
-            try {
-            	long sleepTime = (long)(waitTime * DOUBLE);
-                Thread.currentThread().sleep(sleepTime);
-            } catch (Exception ignore) {}
+    /**
+     * Wakes the scheduler so that it makes a pass over the job queue now,
+     * rather than after its wait time.
+     */
+    public void signal() {
+        synchronized (signalLock) {
+            signalled = true;
+            signalLock.notifyAll();
+        }
+    }
 
-            if (!myJobQueue.isEmpty()) {
-                JobSpec exec;
+    /**
+     * @return The queue latency and throughput counters of this scheduler.
+     */
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
 
-                try {
-                    exec = myJobQueue.getNextJob();
-                    LOG.log(Level.INFO, "Obtained Job: ["
-                            + exec.getJob().getId()
-                            + "] from Queue: Scheduling for execution");
-                } catch (Exception e) {
-                    LOG.log(Level.WARNING,
-                            "Error getting next job from JobQueue: Message: "
-                                    + e.getMessage());
-                    continue;
-                }
+    /**
+     * Makes one pass over the job queue, handing every job that fits on a
+     * node to the batch manager. Jobs that do not fit are put back on the
+     * queue once the pass is over, so they are not retried until a job
+     * arrives, capacity is freed or the wait time passes.
+     *
+     * @return The number of jobs scheduled in this pass.
+     */
+    protected int schedulePass() {
+        List<JobSpec> deferred = new ArrayList<JobSpec>();
+        int scheduled = 0;
+        int queued = myJobQueue.getSize();
 
-                try {
-                    schedule(exec);
-                } catch (Exception e) {
-                    LOG.log(Level.WARNING, "Error scheduling job: ["
-                            + exec.getJob().getId() + "]: Message: "
-                            + e.getMessage());
-                    // place the job spec back on the queue
-                    try {
-                        myJobQueue.requeueJob(exec);
-                    } catch (Exception ignore) {
-                    }
+        for (int i = 0; i < queued && !myJobQueue.isEmpty(); i++) {
+            JobSpec exec;
+
+            try {
+                exec = myJobQueue.getNextJob();
+            } catch (Exception e) {
+                LOG.log(Level.WARNING,
+                        "Error getting next job from JobQueue: Message: "
+                                + e.getMessage());
+                break;
+            }
+            if (exec == null) {
+                break;
+            }
+            LOG.log(Level.INFO, "Obtained Job: [" + exec.getJob().getId()
+                    + "] from Queue: Scheduling for execution");
+
+            try {
+                if (assign(exec)) {
+                    scheduled++;
+                } else {
+                    deferred.add(exec);
                 }
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Error scheduling job: ["
+                        + exec.getJob().getId() + "]: Message: "
+                        + e.getMessage());
+                deferred.add(exec);
             }
         }
 
+        // place the jobs that did not fit back on the queue
+        for (JobSpec spec : deferred) {
+            try {
+                myJobQueue.requeueJob(spec);
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Error requeueing job: ["
+                        + spec.getJob().getId() + "]: Message: "
+                        + e.getMessage());
+                metrics.jobRemoved(spec.getJob().getId());
+            }
+        }
+
+        metrics.passCompleted(!deferred.isEmpty());
+        if (scheduled > 0) {
+            LOG.log(Level.INFO, "Scheduled [" + scheduled + "] jobs, ["
+                    + deferred.size() + "] waiting for capacity: " + metrics);
+        }
+        return scheduled;
+    }
+
+    private void awaitSignal(long timeoutMillis) {
+        synchronized (signalLock) {
+            try {
+                if (!signalled) {
+                    signalLock.wait(Math.max(1L, timeoutMillis));
+                }
+            } catch (InterruptedException ignore) {
+            }
+            signalled = false;
+        }
     }
 
     /*
@@ -129,50 +225,77 @@ public class LRUScheduler implements Scheduler {
      */
     public synchronized boolean schedule(JobSpec spec)
             throws SchedulerException {
+        if (!assign(spec)) {
+            // could not find resource, push onto JobQueue
+            try {
+                myJobQueue.requeueJob(spec);
+            } catch (Exception e) {
+                metrics.jobRemoved(spec.getJob().getId());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Assigns the job to the first node with room for its load and hands it
+     * to the batch manager.
+     *
+     * @return False if no node has room for the job, true otherwise (a job
+     *         that the batch manager fails to execute is requeued).
+     */
+    private synchronized boolean assign(JobSpec spec)
+            throws SchedulerException {
         String queueName = spec.getJob().getQueueName();
         int load = spec.getJob().getLoadValue();
 
         ResourceNode node = nodeAvailable(spec);
 
-        if (node != null) {
+        if (node == null) {
+            return false;
+        }
+
+        try {
+            if (!myMonitor.assignLoad(node, load)) {
+                // the node filled up since it was found
+                return false;
+            }
+            queueManager.usedNode(queueName, node.getNodeId());
+
+            // assign via batch system
+            LOG.log(Level.INFO, "Assigning job: ["
+                    + spec.getJob().getName() + "] to node: ["
+                    + node.getNodeId() + "]");
             try {
-                myMonitor.assignLoad(node, load);
-                queueManager.usedNode(queueName, node.getNodeId());
-                
-                // assign via batch system
-                LOG.log(Level.INFO, "Assigning job: ["
-                        + spec.getJob().getName() + "] to node: ["
-                        + node.getNodeId() + "]");
+                myBatchmgr.executeRemotely(spec, node);
+                long latency = metrics.jobScheduled(spec.getJob().getId());
+                if (latency >= 0) {
+                    LOG.log(Level.FINE, "Job: [" + spec.getJob().getId()
+                            + "] waited [" + latency + "] ms in queue");
+                }
+            } catch (JobExecutionException e) {
+                LOG.log(Level.WARNING, "Exception executing job: ["
+                        + spec.getJob().getId() + "] to node: ["
+                        + node.getIpAddr() + "]: Message: "
+                        + e.getMessage());
                 try {
-                    myBatchmgr.executeRemotely(spec, node);
-                } catch (JobExecutionException e) {
-                    LOG.log(Level.WARNING, "Exception executing job: ["
-                            + spec.getJob().getId() + "] to node: ["
-                            + node.getIpAddr() + "]: Message: "
-                            + e.getMessage());
-                    try {
-                        // queue the job back up
-                        LOG.log(Level.INFO, "Requeueing job: ["
-                                + spec.getJob().getId() + "]");
-                        myJobQueue.requeueJob(spec);
-
-                        // make sure to decrement the load
-                        myMonitor.reduceLoad(node, load);
-                    } catch (Exception ignore) {
-                    }
+                    // queue the job back up
+                    LOG.log(Level.INFO, "Requeueing job: ["
+                            + spec.getJob().getId() + "]");
+                    myJobQueue.requeueJob(spec);
+                } catch (Exception ignore) {
+                    metrics.jobRemoved(spec.getJob().getId());
+                }
+                try {
+                    // make sure to decrement the load
+                    myMonitor.reduceLoad(node, load);
+                } catch (Exception ignore) {
                 }
-            } catch (MonitorException e) {
-                LOG.log(Level.WARNING, "Exception assigning load to resource "
-                        + "node: [" + node.getNodeId() + "]: load: [" + load
-                        + "]: Message: " + e.getMessage());
-                throw new SchedulerException(e.getMessage());
-            }
-        } else {
-            // could not find resource, push onto JobQueue
-            try {
-                myJobQueue.requeueJob(spec);
-            } catch (Exception ignore) {
             }
+        } catch (MonitorException e) {
+            LOG.log(Level.WARNING, "Exception assigning load to resource "
+                    + "node: [" + node.getNodeId() + "]: load: [" + load
+                    + "]: Message: " + e.getMessage());
+            throw new SchedulerException(e.getMessage());
         }
         return true;
     }
@@ -192,7 +315,7 @@ public class LRUScheduler implements Scheduler {
      * @see gov.nasa.jpl.oodt.cas.resource.scheduler.Scheduler#getMonitor()
      */
     public Monitor getMonitor() {
-        return myMonitor;
+        return signallingMonitor;
     }
 
     /*
@@ -201,7 +324,7 @@ public class LRUScheduler implements Scheduler {
      * @see gov.nasa.jpl.oodt.cas.resource.scheduler.Scheduler#getJobQueue()
      */
     public JobQueue getJobQueue() {
-        return myJobQueue;
+        return signallingJobQueue;
     }
     
     /*
@@ -220,6 +343,11 @@ public class LRUScheduler implements Scheduler {
      */
     public synchronized ResourceNode nodeAvailable(JobSpec spec)
             throws SchedulerException {
+        if (myMonitor instanceof CapacityIndexedMonitor) {
+            return indexedNodeAvailable(spec,
+                    ((CapacityIndexedMonitor) myMonitor).getCapacityIndex());
+        }
+
         try {
 	    	String queueName = spec.getJob().getQueueName();
 	        int load = spec.getJob().getLoadValue();
@@ -250,4 +378,44 @@ public class LRUScheduler implements Scheduler {
         }
     }
 
+    private ResourceNode indexedNodeAvailable(JobSpec spec,
+            NodeCapacityIndex index) throws SchedulerException {
+        String queueName = spec.getJob().getQueueName();
+        int load = spec.getJob().getLoadValue();
+        try {
+            // re-register the queues with the index when their membership
+            // has changed since the last lookup
+            int modCount = queueManager.getModCount();
+            if (modCount != indexedModCount || !index.hasGroup(queueName)) {
+                index.clearGroups();
+                for (String queue : queueManager.getQueues()) {
+                    index.setGroup(queue, queueManager.getNodes(queue));
+                }
+                indexedModCount = modCount;
+            }
+
+            // check the candidate against the monitor: a node's capacity
+            // can be changed behind the index's back, in which case its entry
+            // is corrected and the lookup repeated
+            String nodeId;
+            while ((nodeId = index.findNode(queueName, load)) != null) {
+                ResourceNode node = myMonitor.getNodeById(nodeId);
+                int free = node != null ? myMonitor.getLoad(node) : -1;
+                if (load <= free) {
+                    return node;
+                }
+                if (node == null) {
+                    index.removeNode(nodeId);
+                } else {
+                    index.updateNode(nodeId, free, false);
+                }
+            }
+            return null;
+        } catch (Exception e) {
+            throw new SchedulerException(
+                    "Failed to find available node for job spec : "
+                            + e.getMessage(), e);
+        }
+    }
+
 }
@@ -41,6 +41,9 @@ import java.util.Vector;
 public class QueueManager {
 
 	protected Map<String, LinkedHashSet<String>> queueToNodesMapping;
+
+	/* bumped whenever a queue or its membership changes */
+	private int modCount = 0;
 	
 	public QueueManager() {
 		this.queueToNodesMapping = new LinkedHashMap<String, LinkedHashSet<String>>();
@@ -64,11 +67,13 @@ public class QueueManager {
 		
 		// put node list back into map
 		this.queueToNodesMapping.put(queueName, nodes);
+		modCount++;
 	}
 
 	public synchronized void addQueue(String queueName) {
 		if (queueName != null && !this.queueToNodesMapping.containsKey(queueName)) {
 		  this.queueToNodesMapping.put(queueName, new LinkedHashSet<String>());
+		  modCount++;
 		}
 	}
 
@@ -98,6 +103,7 @@ public class QueueManager {
 	public synchronized void removeNodeFromQueue(String nodeId, String queueName) throws QueueManagerException {
 		if (queueName != null && this.queueToNodesMapping.containsKey(queueName)) {
 		  this.queueToNodesMapping.get(queueName).remove(nodeId);
+		  modCount++;
 		} else {
 		  throw new QueueManagerException("Queue '" + queueName + "' does not exist");
 		}
@@ -106,8 +112,18 @@ public class QueueManager {
 	public synchronized void removeQueue(String queueName) {
 		if (queueName != null) {
 		  this.queueToNodesMapping.remove(queueName);
+		  modCount++;
 		}
 	}
+
+	/**
+	 * @return A counter that changes whenever a queue is added or removed, or
+	 *         a node is added to or removed from a queue. Reordering nodes
+	 *         within a queue does not change it.
+	 */
+	public synchronized int getModCount() {
+		return modCount;
+	}
 	
 }
 
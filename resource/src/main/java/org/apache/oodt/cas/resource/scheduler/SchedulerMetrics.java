@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.resource.scheduler;
+
+//JDK imports
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * <p>
+ * Queue latency and throughput counters kept by a {@link Scheduler}. Queue
+ * latency is the time between a job being added to the job queue and it being
+ * handed to the batch manager, requeues included.
+ * </p>
+ */
+public class SchedulerMetrics {
+
+    /* job id to the time it was first added to the queue */
+    private final ConcurrentHashMap<String, Long> enqueueTimes = new ConcurrentHashMap<String, Long>();
+
+    private final AtomicLong jobsScheduled = new AtomicLong();
+
+    /* scheduled jobs whose queue time is known */
+    private final AtomicLong timedJobs = new AtomicLong();
+
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    private final AtomicLong lastLatencyMillis = new AtomicLong();
+
+    private final AtomicLong passes = new AtomicLong();
+
+    private final AtomicLong backoffs = new AtomicLong();
+
+    /**
+     * Records that the job with the given id was just added to the queue.
+     *
+     * @param jobId
+     *            The id of the queued job.
+     */
+    public void jobQueued(String jobId) {
+        if (jobId != null) {
+            enqueueTimes.putIfAbsent(jobId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Records that the job with the given id left the queue without being
+     * scheduled, e.g. because the queue was purged or the job could not be
+     * put back on it.
+     *
+     * @param jobId
+     *            The id of the removed job.
+     */
+    public void jobRemoved(String jobId) {
+        if (jobId != null) {
+            enqueueTimes.remove(jobId);
+        }
+    }
+
+    /**
+     * @return The number of jobs whose queue time is being tracked.
+     */
+    public int getQueuedJobs() {
+        return enqueueTimes.size();
+    }
+
+    /**
+     * Records that the job with the given id was handed to the batch
+     * manager.
+     *
+     * @param jobId
+     *            The id of the scheduled job.
+     * @return The queue latency of the job in milliseconds, or
+     *         <code>-1</code> if the job was queued before these metrics were
+     *         being kept.
+     */
+    public long jobScheduled(String jobId) {
+        jobsScheduled.incrementAndGet();
+        Long queuedAt = jobId != null ? enqueueTimes.remove(jobId) : null;
+        if (queuedAt == null) {
+            return -1;
+        }
+        long latency = Math.max(0L, System.currentTimeMillis() - queuedAt);
+        timedJobs.incrementAndGet();
+        totalLatencyMillis.addAndGet(latency);
+        lastLatencyMillis.set(latency);
+        long max;
+        while (latency > (max = maxLatencyMillis.get())
+                && !maxLatencyMillis.compareAndSet(max, latency)) {
+            // retry
+        }
+        return latency;
+    }
+
+    /**
+     * Records one pass over the job queue.
+     *
+     * @param backedOff
+     *            Whether the pass left jobs queued that no node could take.
+     */
+    public void passCompleted(boolean backedOff) {
+        passes.incrementAndGet();
+        if (backedOff) {
+            backoffs.incrementAndGet();
+        }
+    }
+
+    public long getJobsScheduled() {
+        return jobsScheduled.get();
+    }
+
+    public double getMeanQueueLatencyMillis() {
+        long timed = timedJobs.get();
+        return timed == 0 ? 0.0 : (double) totalLatencyMillis.get() / timed;
+    }
+
+    public long getMaxQueueLatencyMillis() {
+        return maxLatencyMillis.get();
+    }
+
+    public long getLastQueueLatencyMillis() {
+        return lastLatencyMillis.get();
+    }
+
+    public long getPasses() {
+        return passes.get();
+    }
+
+    public long getBackoffs() {
+        return backoffs.get();
+    }
+
+    public String toString() {
+        return "scheduled: [" + getJobsScheduled() + "], mean queue latency: ["
+                + (long) getMeanQueueLatencyMillis()
+                + "] ms, max queue latency: [" + getMaxQueueLatencyMillis()
+                + "] ms, passes: [" + getPasses() + "], backoffs: ["
+                + getBackoffs() + "]";
+    }
+
+}
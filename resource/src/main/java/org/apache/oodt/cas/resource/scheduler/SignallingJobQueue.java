@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.resource.scheduler;
+
+//JDK imports
+import java.util.ArrayList;
+import java.util.List;
+
+//OODT imports
+import org.apache.oodt.cas.resource.jobqueue.JobQueue;
+import org.apache.oodt.cas.resource.jobrepo.JobRepository;
+import org.apache.oodt.cas.resource.structs.JobSpec;
+import org.apache.oodt.cas.resource.structs.exceptions.JobQueueException;
+
+/**
+ *
+ * <p>
+ * A {@link JobQueue} that wakes its {@link LRUScheduler} whenever a new job is
+ * added, and stamps the job's queue time into the scheduler's
+ * {@link SchedulerMetrics}, which it also tells about jobs purged from the
+ * queue. Requeues do not wake the scheduler, since they come from the
+ * scheduler itself.
+ * </p>
+ */
+class SignallingJobQueue implements JobQueue {
+
+    private final JobQueue queue;
+
+    private final LRUScheduler scheduler;
+
+    SignallingJobQueue(JobQueue queue, LRUScheduler scheduler) {
+        this.queue = queue;
+        this.scheduler = scheduler;
+    }
+
+    public String addJob(JobSpec spec) throws JobQueueException {
+        String jobId = queue.addJob(spec);
+        scheduler.getMetrics().jobQueued(
+                spec.getJob().getId() != null ? spec.getJob().getId() : jobId);
+        scheduler.signal();
+        return jobId;
+    }
+
+    public String requeueJob(JobSpec spec) throws JobQueueException {
+        return queue.requeueJob(spec);
+    }
+
+    public List getQueuedJobs() {
+        return queue.getQueuedJobs();
+    }
+
+    public void purge() {
+        List<JobSpec> purged = new ArrayList<JobSpec>(queue.getQueuedJobs());
+        queue.purge();
+        for (JobSpec spec : purged) {
+            scheduler.getMetrics().jobRemoved(spec.getJob().getId());
+        }
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    public JobSpec getNextJob() {
+        return queue.getNextJob();
+    }
+
+    public JobRepository getJobRepository() {
+        return queue.getJobRepository();
+    }
+
+    public int getSize() {
+        return queue.getSize();
+    }
+
+    public int getCapacity() {
+        return queue.getCapacity();
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.resource.scheduler;
+
+//JDK imports
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+//OODT imports
+import org.apache.oodt.cas.resource.monitor.Monitor;
+import org.apache.oodt.cas.resource.structs.ResourceNode;
+import org.apache.oodt.cas.resource.structs.exceptions.MonitorException;
+
+/**
+ *
+ * <p>
+ * A {@link Monitor} that wakes its {@link LRUScheduler} whenever capacity is
+ * freed: a job's load is reduced or a node is added. Closing it closes the
+ * wrapped monitor, if that is {@link Closeable}.
+ * </p>
+ */
+class SignallingMonitor implements Monitor, Closeable {
+
+    private final Monitor monitor;
+
+    private final LRUScheduler scheduler;
+
+    SignallingMonitor(Monitor monitor, LRUScheduler scheduler) {
+        this.monitor = monitor;
+        this.scheduler = scheduler;
+    }
+
+    public int getLoad(ResourceNode node) throws MonitorException {
+        return monitor.getLoad(node);
+    }
+
+    public List getNodes() throws MonitorException {
+        return monitor.getNodes();
+    }
+
+    public ResourceNode getNodeById(String nodeId) throws MonitorException {
+        return monitor.getNodeById(nodeId);
+    }
+
+    public ResourceNode getNodeByURL(URL ipAddr) throws MonitorException {
+        return monitor.getNodeByURL(ipAddr);
+    }
+
+    public boolean reduceLoad(ResourceNode node, int loadValue)
+            throws MonitorException {
+        boolean reduced = monitor.reduceLoad(node, loadValue);
+        scheduler.signal();
+        return reduced;
+    }
+
+    public boolean assignLoad(ResourceNode node, int loadValue)
+            throws MonitorException {
+        return monitor.assignLoad(node, loadValue);
+    }
+
+    public void addNode(ResourceNode node) throws MonitorException {
+        monitor.addNode(node);
+        scheduler.signal();
+    }
+
+    public void removeNodeById(String nodeId) throws MonitorException {
+        monitor.removeNodeById(nodeId);
+    }
+
+    public void close() throws IOException {
+        if (monitor instanceof Closeable) {
+            ((Closeable) monitor).close();
+        }
+    }
+
+}
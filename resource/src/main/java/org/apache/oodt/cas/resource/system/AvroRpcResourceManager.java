@@ -21,6 +21,8 @@ import org.apache.avro.AvroRemoteException;
 import org.apache.avro.ipc.NettyServer;
 import org.apache.avro.ipc.Server;
 import org.apache.avro.ipc.specific.SpecificResponder;
+import org.apache.oodt.cas.resource.monitor.Monitor;
+import org.apache.oodt.cas.resource.scheduler.LRUScheduler;
 import org.apache.oodt.cas.resource.scheduler.Scheduler;
 import org.apache.oodt.cas.resource.structs.AvroTypeFactory;
 import org.apache.oodt.cas.resource.structs.Job;
@@ -44,6 +46,7 @@ import org.apache.oodt.config.ConfigurationManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
@@ -258,6 +261,14 @@ public class AvroRpcResourceManager implements org.apache.oodt.cas.resource.stru
         return report.toString();
     }
 
+    @Override
+    public String getSchedulerReport() {
+        if (scheduler instanceof LRUScheduler) {
+            return ((LRUScheduler) scheduler).getMetrics().toString();
+        }
+        return "";
+    }
+
     public List<AvroJob> getQueuedJobs() {
         List<AvroJob> jobs = new ArrayList<>();
         List jobSpecs = this.scheduler.getJobQueue().getQueuedJobs();
@@ -412,6 +423,8 @@ public class AvroRpcResourceManager implements org.apache.oodt.cas.resource.stru
     @Override
     public boolean shutdown() {
         configurationManager.clearConfiguration();
+        closeBatchmgr();
+        closeMonitor();
         executorService.shutdownNow();
 
         if (this.server != null) {
@@ -423,6 +436,26 @@ public class AvroRpcResourceManager implements org.apache.oodt.cas.resource.stru
         }
     }
 
+    private void closeBatchmgr() {
+        if (scheduler != null && scheduler.getBatchmgr() instanceof Closeable) {
+            try {
+                ((Closeable) scheduler.getBatchmgr()).close();
+            } catch (IOException e) {
+                logger.warn("Unable to close batch manager: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void closeMonitor() {
+        if (scheduler != null && scheduler.getMonitor() instanceof Closeable) {
+            try {
+                ((Closeable) scheduler.getMonitor()).close();
+            } catch (IOException e) {
+                logger.warn("Unable to close monitor: {}", e.getMessage(), e);
+            }
+        }
+    }
+
     @Override
     public String getNodeLoad(String nodeId) throws AvroRemoteException {
         ResourceNode node = null;
@@ -464,7 +497,15 @@ public class AvroRpcResourceManager implements org.apache.oodt.cas.resource.stru
     @Override
     public boolean setNodeCapacity(String nodeId, int capacity) throws AvroRemoteException {
         try {
-            this.scheduler.getMonitor().getNodeById(nodeId).setCapacity(capacity);
+            Monitor monitor = this.scheduler.getMonitor();
+            ResourceNode node = monitor.getNodeById(nodeId);
+            if (node == null) {
+                logger.warn("Unable to set capacity on node {}: no such node", nodeId);
+                return false;
+            }
+            node.setCapacity(capacity);
+            // re-adding the node lets the monitor re-index its free load
+            monitor.addNode(node);
         } catch (MonitorException e) {
             logger.warn("Exception setting capacity on node {}: {}", nodeId, e.getMessage());
             return false;
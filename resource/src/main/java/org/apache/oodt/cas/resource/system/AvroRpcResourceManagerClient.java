@@ -165,6 +165,15 @@ public class AvroRpcResourceManagerClient implements ResourceManagerClient {
         return null;
     }
 
+    @Override
+    public String getSchedulerReport() throws JobQueueException {
+        try {
+            return proxy.getSchedulerReport();
+        } catch (AvroRemoteException e) {
+            throw new JobQueueException(e);
+        }
+    }
+
     @Override
     public String getExecReport() throws JobRepositoryException {
         try {
@@ -50,6 +50,12 @@ public interface ResourceManagerClient extends Serializable {
 
     String getExecReport() throws JobRepositoryException;
 
+    /**
+     * @return A report of the queue latency and throughput counters kept by
+     *         the remote scheduler, or an empty string if it keeps none.
+     */
+    String getSchedulerReport() throws JobQueueException;
+
     String submitJob(Job exec, JobInput in) throws JobExecutionException;
 
     boolean submitJob(Job exec, JobInput in, URL hostUrl) throws JobExecutionException;
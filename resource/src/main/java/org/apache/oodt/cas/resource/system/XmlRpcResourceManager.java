@@ -18,6 +18,8 @@
 
 package org.apache.oodt.cas.resource.system;
 
+import org.apache.oodt.cas.resource.monitor.Monitor;
+import org.apache.oodt.cas.resource.scheduler.LRUScheduler;
 import org.apache.oodt.cas.resource.scheduler.Scheduler;
 import org.apache.oodt.cas.resource.structs.Job;
 import org.apache.oodt.cas.resource.structs.JobInput;
@@ -36,7 +38,9 @@ import org.apache.oodt.config.Component;
 import org.apache.oodt.config.ConfigurationManager;
 import org.apache.oodt.config.ConfigurationManagerFactory;
 import org.apache.xmlrpc.WebServer;
+import org.apache.xmlrpc.XmlRpc;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -103,7 +107,10 @@ public class XmlRpcResourceManager implements ResourceManager{
         // start up the scheduler
         new Thread(scheduler).start();
 
-        // start up the web server
+        // start up the web server, letting clients reuse their connection
+        // for the next call
+        XmlRpc.setKeepAlive(Boolean.parseBoolean(System.getProperty(
+                "org.apache.oodt.cas.resource.system.xmlrpc.keepAlive", "true")));
         webServer = new WebServer(port);
         webServer.addHandler("resourcemgr", this);
         webServer.start();
@@ -336,6 +343,8 @@ public class XmlRpcResourceManager implements ResourceManager{
     @Override
     public boolean shutdown() {
         configurationManager.clearConfiguration();
+        closeBatchmgr();
+        closeMonitor();
         if (this.webServer != null) {
             this.webServer.shutdown();
             this.webServer = null;
@@ -345,6 +354,26 @@ public class XmlRpcResourceManager implements ResourceManager{
         }
     }
 
+    private void closeBatchmgr() {
+        if (scheduler != null && scheduler.getBatchmgr() instanceof Closeable) {
+            try {
+                ((Closeable) scheduler.getBatchmgr()).close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Unable to close batch manager: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void closeMonitor() {
+        if (scheduler != null && scheduler.getMonitor() instanceof Closeable) {
+            try {
+                ((Closeable) scheduler.getMonitor()).close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Unable to close monitor: " + e.getMessage(), e);
+            }
+        }
+    }
+
     public String getNodeLoad(String nodeId) throws MonitorException{
     	ResourceNode node = this.scheduler.getMonitor().getNodeById(nodeId);
     	int capacity = node.getCapacity();
@@ -398,6 +427,17 @@ public class XmlRpcResourceManager implements ResourceManager{
     	return report.toString();
     }
 
+    /**
+     * @return A report of the queue latency and throughput counters kept by
+     *         the scheduler, or an empty string if the scheduler keeps none.
+     */
+    public String getSchedulerReport() {
+        if (scheduler instanceof LRUScheduler) {
+            return ((LRUScheduler) scheduler).getMetrics().toString();
+        }
+        return "";
+    }
+
     public String getExecutionReport() throws JobRepositoryException{
     	StringBuilder report = new StringBuilder();
 
@@ -472,7 +512,16 @@ public class XmlRpcResourceManager implements ResourceManager{
 
     public boolean setNodeCapacity(String nodeId, int capacity){
     	try{
-    		this.scheduler.getMonitor().getNodeById(nodeId).setCapacity(capacity);
+    		Monitor monitor = this.scheduler.getMonitor();
+    		ResourceNode node = monitor.getNodeById(nodeId);
+    		if (node == null) {
+    			LOG.log(Level.WARNING, "Unable to set capacity on node "
+    					+ nodeId + ": no such node");
+    			return false;
+    		}
+    		node.setCapacity(capacity);
+    		// re-adding the node lets the monitor re-index its free load
+    		monitor.addNode(node);
     	}catch (MonitorException e){
     		LOG.log(Level.WARNING, "Exception setting capacity on node "
     				+ nodeId + ": " + e.getMessage());
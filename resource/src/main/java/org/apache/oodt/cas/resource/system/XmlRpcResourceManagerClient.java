@@ -27,13 +27,14 @@ import org.apache.oodt.cas.resource.structs.JobStatus;
 import org.apache.oodt.cas.resource.structs.ResourceNode;
 import org.apache.oodt.cas.resource.structs.exceptions.*;
 import org.apache.oodt.cas.resource.util.XmlRpcStructFactory;
+import org.apache.oodt.commons.xmlrpc.PooledXmlRpcTransportFactory;
 
 //APACHE imports
-import org.apache.xmlrpc.CommonsXmlRpcTransportFactory;
 import org.apache.xmlrpc.XmlRpcClient;
 import org.apache.xmlrpc.XmlRpcException;
 
 //JDK imports
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -55,7 +56,8 @@ import java.util.logging.Logger;
  *
  */
 @Deprecated
-public class XmlRpcResourceManagerClient implements ResourceManagerClient {
+public class XmlRpcResourceManagerClient implements ResourceManagerClient,
+        Closeable {
 
     public static final int VAL = 20;
     public static final int INT = 60;
@@ -64,6 +66,9 @@ public class XmlRpcResourceManagerClient implements ResourceManagerClient {
     /* our xml rpc client */
     private XmlRpcClient client = null;
 
+    /* the pool of connections our xml rpc client sends through */
+    private transient PooledXmlRpcTransportFactory transportFactory = null;
+
     /* our log stream */
     private static Logger LOG = Logger
             .getLogger(XmlRpcResourceManagerClient.class.getName());
@@ -99,20 +104,9 @@ public class XmlRpcResourceManagerClient implements ResourceManagerClient {
 
         }
 
-        CommonsXmlRpcTransportFactory transportFactory = new CommonsXmlRpcTransportFactory(
-                url);
-        int connectionTimeoutMins = Integer
-            .getInteger(
-                "org.apache.oodt.cas.resource.system.xmlrpc.connectionTimeout.minutes",
-                VAL);
-        int connectionTimeout = connectionTimeoutMins * INT * 1000;
-        int requestTimeoutMins = Integer
-            .getInteger(
-                "org.apache.oodt.cas.resource.system.xmlrpc.requestTimeout.minutes",
-                VAL1);
-        int requestTimeout = requestTimeoutMins * INT1 * 1000;
-        transportFactory.setConnectionTimeout(connectionTimeout);
-        transportFactory.setTimeout(requestTimeout);
+        // one pool of keep-alive connections for all of our calls
+        transportFactory = new PooledXmlRpcTransportFactory(url,
+                "org.apache.oodt.cas.resource.system.xmlrpc");
         client = new XmlRpcClient(url, transportFactory);
         resMgrUrl = url;
     }
@@ -331,6 +325,24 @@ public class XmlRpcResourceManagerClient implements ResourceManagerClient {
     @Override
     public void setResMgrUrl(URL resMgrUrl) {
         this.resMgrUrl = resMgrUrl;
+
+        // reset the client
+        if (transportFactory != null) {
+            transportFactory.close();
+        }
+        transportFactory = new PooledXmlRpcTransportFactory(resMgrUrl,
+                "org.apache.oodt.cas.resource.system.xmlrpc");
+        this.client = new XmlRpcClient(resMgrUrl, transportFactory);
+    }
+
+    /**
+     * Closes the pooled connections to the resource manager.
+     */
+    @Override
+    public void close() throws IOException {
+        if (transportFactory != null) {
+            transportFactory.close();
+        }
     }
 
     /**
@@ -538,6 +550,16 @@ public class XmlRpcResourceManagerClient implements ResourceManagerClient {
    }
 
 
+    @Override
+    public String getSchedulerReport() throws JobQueueException {
+        try {
+            return (String) client.execute("resourcemgr.getSchedulerReport",
+                    new Vector<Object>());
+        } catch (Exception e) {
+            throw new JobQueueException(e.getMessage(), e);
+        }
+    }
+
     public String getExecReport() throws JobRepositoryException{
 	String report;
 
@@ -25,11 +25,14 @@ import org.apache.oodt.cas.resource.structs.JobInstance;
 import org.apache.oodt.cas.resource.structs.exceptions.JobException;
 import org.apache.oodt.cas.resource.structs.exceptions.JobInputException;
 import org.apache.oodt.cas.resource.util.GenericResourceManagerObjectFactory;
+import org.apache.oodt.cas.resource.util.JobExecutor;
 import org.apache.oodt.cas.resource.util.XmlRpcStructFactory;
 import org.apache.xmlrpc.WebServer;
 
 import java.util.Date;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.Map;
 import java.util.Vector;
 import java.util.logging.Level;
@@ -60,17 +63,22 @@ public class XmlRpcBatchStub {
     private static Logger LOG = Logger.getLogger(XmlRpcBatchStub.class
         .getName());
 
-    private Map jobThreadMap = null;
+    /* job id to the handle of the job on the executor */
+    private Map<String, JobExecutor.JobHandle> jobThreadMap = null;
+
+    private JobExecutor executor = null;
 
     public XmlRpcBatchStub(int port) {
         webServerPort = port;
+        executor = JobExecutor.createFromProperties("XmlRpcBatchStub",
+            "org.apache.oodt.cas.resource.batchstub.executor");
 
         // start up the web server
         webServer = new WebServer(webServerPort);
         webServer.addHandler("batchstub", this);
         webServer.start();
 
-        jobThreadMap = new ConcurrentHashMap();
+        jobThreadMap = new ConcurrentHashMap<String, JobExecutor.JobHandle>();
 
         LOG.log(Level.INFO, "XmlRpc Batch Stub started by "
                             + System.getProperty("user.name", "unknown"));
@@ -80,6 +88,20 @@ public class XmlRpcBatchStub {
         return true;
     }
 
+    /**
+     * @return The number of jobs waiting for a thread to run on.
+     */
+    public int getQueueDepth() {
+        return executor.getQueueDepth();
+    }
+
+    /**
+     * @return The number of jobs running right now.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
     public boolean executeJob(Map jobHash, Map jobInput)
         throws JobException {
         return genericExecuteJob(jobHash, jobInput);
@@ -117,15 +139,16 @@ public class XmlRpcBatchStub {
 
     public synchronized boolean killJob(Map jobHash) {
         Job job = XmlRpcStructFactory.getJobFromXmlRpc(jobHash);
-        Thread jobThread = (Thread) jobThreadMap.get(job.getId());
+        JobExecutor.JobHandle jobThread = jobThreadMap.get(job.getId());
         if (jobThread == null) {
             LOG.log(Level.WARNING, "Job: [" + job.getId()
                                    + "] not managed by this batch stub");
             return false;
         }
 
-        // okay, so interrupt it, which should cause it to stop
-        jobThread.interrupt();
+        // okay, so interrupt it, which should cause it to stop (or keep it
+        // from ever starting if it is still queued)
+        jobThread.cancel(true);
         return true;
     }
 
@@ -149,30 +172,28 @@ public class XmlRpcBatchStub {
             // create threaded job
             // so that it can be interrupted
             RunnableJob runner = new RunnableJob(exec, in);
-            Thread threadRunner = new Thread(runner);
-            /* save this job thread in a map so we can kill it later */
+            /* save this job's handle in a map so we can kill it later */
+            JobExecutor.JobHandle threadRunner = executor.prepare(runner);
             jobThreadMap.put(job.getId(), threadRunner);
-            threadRunner.start();
+            executor.start(threadRunner);
 
             try {
-                threadRunner.join();
+                threadRunner.get();
+            } catch (CancellationException e) {
+                LOG.log(Level.INFO, "Current job: [" + job.getName()
+                                    + "]: killed: exiting gracefully");
+                return false;
             } catch (InterruptedException e) {
+                threadRunner.cancel(true);
                 LOG.log(Level.INFO, "Current job: [" + job.getName()
                                     + "]: killed: exiting gracefully");
-                synchronized (jobThreadMap) {
-                    Thread endThread = (Thread) jobThreadMap.get(job.getId());
-                    if (endThread != null) {
-                        endThread = null;
-                    }
-                }
                 return false;
-            }
-
-            synchronized (jobThreadMap) {
-                Thread endThread = (Thread) jobThreadMap.get(job.getId());
-                if (endThread != null) {
-                    endThread = null;
-                }
+            } catch (ExecutionException e) {
+                LOG.log(Level.SEVERE, "Job: [" + job.getName() + "] failed: "
+                                      + e.getCause().getMessage());
+                return false;
+            } finally {
+                jobThreadMap.remove(job.getId());
             }
 
             return runner.wasSuccessful();
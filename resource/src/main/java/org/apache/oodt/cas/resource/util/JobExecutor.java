@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.resource.util;
+
+//JDK imports
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ *
+ * <p>
+ * Runs the jobs of a batch manager or batch stub on an executor it owns,
+ * instead of a new platform thread per job. Three modes are supported:
+ * </p>
+ *
+ * <ul>
+ * <li><code>cached</code> (the default): idle threads are reused, but every
+ * job starts right away, as it did when each job had its own thread.</li>
+ * <li><code>pool</code>: at most a fixed number of jobs run at once, the rest
+ * wait in an unbounded queue. Only use this when the jobs do not block for
+ * their whole run, or when the pool is at least as large as the total
+ * capacity of the nodes the jobs are sent to.</li>
+ * <li><code>virtual</code>: one virtual thread per job, on JDKs that have
+ * them. Falls back to <code>pool</code> on older JDKs.</li>
+ * </ul>
+ *
+ * <p>
+ * Jobs are cancelled through the {@link JobHandle} returned by
+ * {@link #submit(Runnable)}: <code>cancel(true)</code> interrupts a running
+ * job, the same as interrupting its thread used to. Callers that must record
+ * the handle before the job can run use {@link #prepare(Runnable)} and
+ * {@link #start(JobHandle)} instead.
+ * </p>
+ */
+public class JobExecutor {
+
+    /* our log stream */
+    private static final Logger LOG = Logger.getLogger(JobExecutor.class
+            .getName());
+
+    public static final String MODE_POOL = "pool";
+
+    public static final String MODE_CACHED = "cached";
+
+    public static final String MODE_VIRTUAL = "virtual";
+
+    public static final int DEFAULT_THREADS = 128;
+
+    private final ExecutorService executor;
+
+    private final String mode;
+
+    private final int maxThreads;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * @param name
+     *            Prefix for the names of the executor's threads.
+     * @param mode
+     *            One of {@link #MODE_POOL}, {@link #MODE_CACHED} or
+     *            {@link #MODE_VIRTUAL}.
+     * @param maxThreads
+     *            The number of jobs that may run at once in
+     *            {@link #MODE_POOL}.
+     */
+    public JobExecutor(String name, String mode, int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("maxThreads must be positive: ["
+                    + maxThreads + "]");
+        }
+        ExecutorService virtual = null;
+        if (MODE_VIRTUAL.equals(mode)) {
+            virtual = newVirtualThreadExecutor();
+            if (virtual == null) {
+                LOG.log(Level.WARNING, "Virtual threads are not available on "
+                        + "this JDK: using a pool of [" + maxThreads
+                        + "] threads for [" + name + "]");
+            }
+        } else if (mode != null && !MODE_POOL.equals(mode)
+                && !MODE_CACHED.equals(mode)) {
+            LOG.log(Level.WARNING, "Unknown executor mode: [" + mode
+                    + "]: using a pool of [" + maxThreads + "] threads for ["
+                    + name + "]");
+        }
+
+        if (virtual != null) {
+            this.executor = virtual;
+            this.mode = MODE_VIRTUAL;
+        } else if (MODE_CACHED.equals(mode)) {
+            this.executor = Executors.newCachedThreadPool(new NamedThreadFactory(
+                    name));
+            this.mode = MODE_CACHED;
+        } else {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads,
+                    maxThreads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory(
+                            name));
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.mode = MODE_POOL;
+        }
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Creates an executor configured by the system properties
+     * <code>&lt;prefix&gt;.mode</code> and <code>&lt;prefix&gt;.threads</code>.
+     *
+     * @param name
+     *            Prefix for the names of the executor's threads.
+     * @param propertyPrefix
+     *            Prefix of the configuring properties.
+     * @return A new {@link JobExecutor}.
+     */
+    public static JobExecutor createFromProperties(String name,
+            String propertyPrefix) {
+        return new JobExecutor(name, System.getProperty(propertyPrefix
+                + ".mode", MODE_CACHED), Integer.getInteger(propertyPrefix
+                + ".threads", DEFAULT_THREADS));
+    }
+
+    /**
+     * Queues a job to run.
+     *
+     * @param job
+     *            The job to run.
+     * @return A handle to wait on or cancel the job.
+     */
+    public JobHandle submit(Runnable job) {
+        JobHandle handle = prepare(job);
+        start(handle);
+        return handle;
+    }
+
+    /**
+     * Creates the handle of a job without running it yet. The job counts as
+     * queued until it is started (or cancelled).
+     *
+     * @param job
+     *            The job to run.
+     * @return A handle to pass to {@link #start(JobHandle)}.
+     */
+    public JobHandle prepare(Runnable job) {
+        JobHandle handle = new JobHandle(job);
+        queued.incrementAndGet();
+        return handle;
+    }
+
+    /**
+     * Queues a job prepared with {@link #prepare(Runnable)} to run. A job
+     * cancelled in the meantime does not run.
+     *
+     * @param handle
+     *            The handle of the job.
+     * @throws java.util.concurrent.RejectedExecutionException
+     *             If the executor has been shut down.
+     */
+    public void start(JobHandle handle) {
+        try {
+            executor.execute(handle);
+        } catch (RuntimeException e) {
+            handle.cancelIfQueued();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The number of submitted jobs that have not started yet.
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * @return The number of jobs running right now.
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public String toString() {
+        return "mode: [" + mode + "], active: [" + getActiveCount()
+                + "], queued: [" + getQueueDepth() + "]";
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * A handle to a submitted job that keeps the queue-depth and active-count
+     * metrics in step.
+     */
+    public class JobHandle extends FutureTask<Object> {
+
+        /* set once the job leaves the queue, whether by running or cancelling */
+        private final AtomicBoolean dequeued = new AtomicBoolean();
+
+        private JobHandle(Runnable job) {
+            super(job, null);
+        }
+
+        public void run() {
+            if (!dequeue()) {
+                return;
+            }
+            active.incrementAndGet();
+            try {
+                super.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        /**
+         * Cancels the job only if it has not started running.
+         *
+         * @return True if the job was still queued and will now never run.
+         */
+        public boolean cancelIfQueued() {
+            return dequeue() && super.cancel(false);
+        }
+
+        protected void done() {
+            dequeue();
+        }
+
+        private boolean dequeue() {
+            if (dequeued.compareAndSet(false, true)) {
+                queued.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String name;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
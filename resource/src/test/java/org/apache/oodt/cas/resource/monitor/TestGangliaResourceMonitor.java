@@ -21,13 +21,17 @@ package org.apache.oodt.cas.resource.monitor;
 
 import org.apache.oodt.cas.resource.monitor.ganglia.GangliaResourceMonitor;
 import org.apache.oodt.cas.resource.monitor.ganglia.GangliaResourceMonitorFactory;
+import org.apache.oodt.cas.resource.monitor.ganglia.GangliaSnapshot;
+import org.apache.oodt.cas.resource.monitor.ganglia.loadcalc.LoadCalculator;
 import org.apache.oodt.cas.resource.monitor.utils.MockGmetad;
 import org.apache.oodt.cas.resource.structs.ResourceNode;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,6 +64,7 @@ public class TestGangliaResourceMonitor extends TestCase {
 
     @Override
     protected void tearDown(){
+        gangliaResourceMonitor.close();
         mockGmetad.remove();
     }
 
@@ -131,6 +136,45 @@ public class TestGangliaResourceMonitor extends TestCase {
     	}
     }
 
+    public void testSnapshot() {
+        Map<String, String> metrics = new HashMap<String, String>();
+        metrics.put("load_one", "2.6");
+        Map<String, Map<String, String>> status = new HashMap<String, Map<String, String>>();
+        status.put("node1", metrics);
+
+        GangliaSnapshot snapshot = new GangliaSnapshot(status, new LoadCalculator() {
+            public double calculateLoad(Map<String, String> m) {
+                return Double.valueOf(m.get("load_one"));
+            }
+        });
+        assertEquals(Integer.valueOf(3), snapshot.getLoad("node1"));
+        assertNull(snapshot.getLoad("node2"));
+
+        // later changes to what was read don't leak into the snapshot
+        metrics.put("load_one", "5.0");
+        assertEquals("2.6", snapshot.getNode("node1").get("load_one"));
+        try {
+            snapshot.getNode("node1").put("load_one", "5.0");
+            fail("snapshot should be immutable");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    public void testCloseStopsRefresher() throws InterruptedException {
+        Thread refresher = null;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("ganglia-snapshot-refresher")) {
+                refresher = thread;
+            }
+        }
+        assertNotNull(refresher);
+        assertTrue(refresher.isDaemon());
+
+        gangliaResourceMonitor.close();
+        refresher.join(5000);
+        assertFalse(refresher.isAlive());
+    }
+
     private void runMockGmetad() {
         int port = Integer.valueOf(System
                 .getProperty("org.apache.oodt.cas.resource.monitor.ganglia.gemtad.host.port"));
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.resource.monitor;
+
+//JDK imports
+import java.net.URL;
+import java.util.Arrays;
+
+//OODT imports
+import org.apache.oodt.cas.resource.structs.ResourceNode;
+
+//Junit imports
+import junit.framework.TestCase;
+
+/**
+ * Test Suite for the {@link NodeCapacityIndex}.
+ */
+public class TestNodeCapacityIndex extends TestCase {
+
+    public void testFindsLeastRecentlyUsedNodeWithRoom() {
+        NodeCapacityIndex index = new NodeCapacityIndex();
+        index.putNode("a", 4);
+        index.putNode("b", 1);
+        index.putNode("c", 4);
+        index.setGroup("q", Arrays.asList("a", "b", "c"));
+
+        assertEquals("a", index.findNode("q", 1));
+        assertEquals("a", index.findNode("q", 2));
+        assertNull(index.findNode("q", 5));
+
+        // using a moves it behind b and c
+        index.updateNode("a", 3, true);
+        assertEquals("b", index.findNode("q", 1));
+        assertEquals("c", index.findNode("q", 2));
+
+        // freeing load does not change the order
+        index.updateNode("b", 0, true);
+        index.updateNode("a", 4, false);
+        assertEquals("c", index.findNode("q", 1));
+        index.updateNode("c", 0, true);
+        assertEquals("a", index.findNode("q", 1));
+    }
+
+    public void testGroups() {
+        NodeCapacityIndex index = new NodeCapacityIndex();
+        index.putNode("a", 2);
+        index.putNode("b", 2);
+        index.setGroup("q1", Arrays.asList("a"));
+        index.setGroup("q2", Arrays.asList("a", "b", "unknown"));
+
+        assertEquals("a", index.findNode("q1", 1));
+        assertNull(index.findNode("q3", 1));
+
+        index.updateNode("a", 0, true);
+        assertNull(index.findNode("q1", 1));
+        assertEquals("b", index.findNode("q2", 1));
+
+        // nodes added after their group are picked up
+        index.putNode("unknown", 8);
+        assertEquals("unknown", index.findNode("q2", 3));
+
+        index.removeNode("unknown");
+        assertNull(index.findNode("q2", 3));
+
+        index.setGroup("q2", Arrays.asList("a"));
+        assertNull(index.findNode("q2", 1));
+        assertTrue(index.hasGroup("q2"));
+        index.clearGroups();
+        assertFalse(index.hasGroup("q2"));
+    }
+
+    public void testAssignmentMonitorKeepsIndexInStep() throws Exception {
+        ResourceNode a = new ResourceNode("a", new URL("http://localhost:2001"), 2);
+        ResourceNode b = new ResourceNode("b", new URL("http://localhost:2002"), 1);
+        AssignmentMonitor monitor = new AssignmentMonitor(Arrays.asList(a, b));
+        NodeCapacityIndex index = monitor.getCapacityIndex();
+        index.setGroup("q", Arrays.asList("a", "b"));
+
+        assertTrue(monitor.assignLoad(a, 2));
+        assertEquals(0, index.getFree("a"));
+        assertEquals("b", index.findNode("q", 1));
+        assertFalse(monitor.assignLoad(b, 2));
+
+        monitor.reduceLoad(a, 1);
+        assertEquals(1, index.getFree("a"));
+
+        ResourceNode c = new ResourceNode("c", new URL("http://localhost:2003"), 5);
+        monitor.addNode(c);
+        index.setGroup("q", Arrays.asList("a", "b", "c"));
+        assertEquals("c", index.findNode("q", 3));
+
+        monitor.removeNodeById("c");
+        assertNull(index.findNode("q", 3));
+    }
+}
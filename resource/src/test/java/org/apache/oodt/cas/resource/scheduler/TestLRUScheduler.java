@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.resource.scheduler;
+
+//JDK imports
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//OODT imports
+import org.apache.oodt.cas.resource.batchmgr.Batchmgr;
+import org.apache.oodt.cas.resource.jobqueue.JobStack;
+import org.apache.oodt.cas.resource.jobrepo.JobRepository;
+import org.apache.oodt.cas.resource.jobrepo.MemoryJobRepository;
+import org.apache.oodt.cas.resource.monitor.AssignmentMonitor;
+import org.apache.oodt.cas.resource.monitor.Monitor;
+import org.apache.oodt.cas.resource.structs.Job;
+import org.apache.oodt.cas.resource.structs.JobSpec;
+import org.apache.oodt.cas.resource.structs.ResourceNode;
+import org.apache.oodt.cas.resource.structs.exceptions.JobRepositoryException;
+
+//Junit imports
+import junit.framework.TestCase;
+
+/**
+ * Test case for the {@link LRUScheduler}.
+ */
+public class TestLRUScheduler extends TestCase {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private String oldWait;
+
+    private RecordingBatchmgr batchmgr;
+
+    private LRUScheduler scheduler;
+
+    private Thread schedulerThread;
+
+    private ResourceNode node1;
+
+    public void setUp() throws Exception {
+        // make sure only signals, not the backoff timer, drive the scheduler
+        oldWait = System.setProperty(
+                "org.apache.oodt.cas.resource.scheduler.wait.seconds", "600");
+
+        node1 = new ResourceNode("node1", new URL("http://localhost:2001"), 2);
+        ResourceNode node2 = new ResourceNode("node2", new URL(
+                "http://localhost:2002"), 2);
+        Monitor monitor = new AssignmentMonitor(Arrays.asList(node1, node2));
+
+        QueueManager qm = new QueueManager();
+        qm.addQueue("quick");
+        qm.addNodeToQueue("node1", "quick");
+        qm.addNodeToQueue("node2", "quick");
+
+        batchmgr = new RecordingBatchmgr();
+        scheduler = new LRUScheduler(monitor, batchmgr, new JobStack(100,
+                new SequentialIdJobRepository()), new LRUQueueManager(qm));
+        schedulerThread = new Thread(scheduler);
+        schedulerThread.setDaemon(true);
+        schedulerThread.start();
+    }
+
+    public void tearDown() throws Exception {
+        if (oldWait == null) {
+            System.getProperties().remove(
+                    "org.apache.oodt.cas.resource.scheduler.wait.seconds");
+        } else {
+            System.setProperty(
+                    "org.apache.oodt.cas.resource.scheduler.wait.seconds",
+                    oldWait);
+        }
+    }
+
+    public void testDrainsToCapacityOnSignals() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            scheduler.getJobQueue().addJob(createJobSpec("job" + i));
+        }
+
+        // all four slots fill without waiting out the 600 second backoff
+        waitForExecutions(4);
+        Thread.sleep(200);
+        assertEquals(4, batchmgr.getExecuted().size());
+        assertEquals(1, scheduler.getJobQueue().getSize());
+
+        // freeing a slot wakes the scheduler for the fifth job
+        scheduler.getMonitor().reduceLoad(node1, 1);
+        waitForExecutions(5);
+        assertTrue(scheduler.getJobQueue().isEmpty());
+
+        SchedulerMetrics metrics = scheduler.getMetrics();
+        assertEquals(5, metrics.getJobsScheduled());
+        assertTrue(metrics.getBackoffs() >= 1);
+        assertTrue(metrics.getMaxQueueLatencyMillis() < TIMEOUT_MILLIS);
+    }
+
+    public void testPurgedJobsLeaveMetrics() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            scheduler.getJobQueue().addJob(createJobSpec("job" + i));
+        }
+        waitForExecutions(4);
+        Thread.sleep(200);
+        assertEquals(2, scheduler.getMetrics().getQueuedJobs());
+
+        scheduler.getJobQueue().purge();
+        assertTrue(scheduler.getJobQueue().isEmpty());
+        assertEquals(0, scheduler.getMetrics().getQueuedJobs());
+    }
+
+    public void testNodeAvailableUsesLeastRecentlyUsedNodeWithRoom()
+            throws Exception {
+        JobSpec spec = createJobSpec("probe");
+        assertEquals("node1", scheduler.nodeAvailable(spec).getNodeId());
+        scheduler.getMonitor().assignLoad(node1, 1);
+        assertEquals("node2", scheduler.nodeAvailable(spec).getNodeId());
+
+        // a capacity change made on the node itself is caught on lookup
+        node1.setCapacity(1);
+        scheduler.getMonitor().assignLoad(
+                scheduler.getMonitor().getNodeById("node2"), 2);
+        assertNull(scheduler.nodeAvailable(spec));
+    }
+
+    public void testBatchmgrReportsThroughSignallingMonitor() {
+        assertSame(scheduler.getMonitor(), batchmgr.monitor);
+    }
+
+    private void waitForExecutions(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (batchmgr.getExecuted().size() < count
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, batchmgr.getExecuted().size());
+    }
+
+    private JobSpec createJobSpec(String name) {
+        Job job = new Job();
+        job.setName(name);
+        job.setQueueName("quick");
+        job.setLoadValue(1);
+        return new JobSpec(null, job);
+    }
+
+    /* MemoryJobRepository ids only differ from one second to the next */
+    private static class SequentialIdJobRepository extends MemoryJobRepository {
+
+        private final AtomicInteger nextId = new AtomicInteger();
+
+        public String addJob(JobSpec spec) throws JobRepositoryException {
+            String jobId = "job-" + nextId.incrementAndGet();
+            spec.getJob().setId(jobId);
+            updateJob(spec);
+            return jobId;
+        }
+    }
+
+    private static class RecordingBatchmgr implements Batchmgr {
+
+        private final List<JobSpec> executed = new Vector<JobSpec>();
+
+        private Monitor monitor;
+
+        public boolean executeRemotely(JobSpec job, ResourceNode resNode) {
+            executed.add(job);
+            return true;
+        }
+
+        public void setMonitor(Monitor monitor) {
+            this.monitor = monitor;
+        }
+
+        public void setJobRepository(JobRepository repository) {
+        }
+
+        public boolean killJob(String jobId, ResourceNode node) {
+            return false;
+        }
+
+        public String getExecutionNode(String jobId) {
+            return null;
+        }
+
+        public List<Job> getJobsOnNode(String nodeId) {
+            return null;
+        }
+
+        List<JobSpec> getExecuted() {
+            return executed;
+        }
+    }
+}
@@ -22,13 +22,21 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
 import java.net.URL;
+import java.util.Hashtable;
 import java.util.Properties;
 
 //Apache imports
 import org.apache.commons.io.FileUtils;
+import org.apache.xmlrpc.WebServer;
 
 //OODT imports
+import org.apache.oodt.cas.resource.examples.HelloWorldJob;
+import org.apache.oodt.cas.resource.structs.Job;
+import org.apache.oodt.cas.resource.structs.JobStatus;
 import org.apache.oodt.cas.resource.structs.NameValueJobInput;
 import org.apache.oodt.cas.resource.structs.exceptions.MonitorException;
 
@@ -52,6 +60,11 @@ public class TestXmlRpcResourceManager extends TestCase {
 
   private static final int RM_PORT = 50001;
 
+  /* the port of the "localhost" node in the test nodes.xml */
+  private static final int NODE_PORT = 2001;
+
+  private static final long TIMEOUT_MILLIS = 10000;
+
   /**
    * @since OODT-182
    */
@@ -80,6 +93,124 @@ public class TestXmlRpcResourceManager extends TestCase {
     assertEquals(8, setCapacity);
   }
 
+  public void testServerKeepsConnectionAlive() throws Exception {
+    Socket socket = new Socket("localhost", RM_PORT);
+    try {
+      socket.setSoTimeout(10000);
+      // both calls must be answered over the one connection
+      for (int i = 0; i < 2; i++) {
+        String response = call(socket, "resourcemgr.isAlive");
+        assertTrue(response, response.startsWith("HTTP/1.1 200"));
+        assertTrue(response, response.toLowerCase().contains(
+            "connection: keep-alive"));
+        assertTrue(response, response.contains("<boolean>1</boolean>"));
+      }
+    } finally {
+      socket.close();
+    }
+  }
+
+  private static String call(Socket socket, String method) throws IOException {
+    byte[] body = ("<?xml version=\"1.0\"?><methodCall><methodName>"
+        + method + "</methodName><params></params></methodCall>")
+        .getBytes("UTF-8");
+    OutputStream out = socket.getOutputStream();
+    out.write(("POST /RPC2 HTTP/1.1\r\nHost: localhost\r\n"
+        + "Content-Type: text/xml\r\nContent-Length: " + body.length
+        + "\r\n\r\n").getBytes("US-ASCII"));
+    out.write(body);
+    out.flush();
+
+    // read the headers, then exactly Content-Length bytes of body
+    InputStream in = socket.getInputStream();
+    StringBuilder response = new StringBuilder();
+    while (!response.toString().endsWith("\r\n\r\n")) {
+      int c = in.read();
+      if (c < 0) {
+        throw new IOException("Connection closed: [" + response + "]");
+      }
+      response.append((char) c);
+    }
+    int length = 0;
+    for (String header : response.toString().split("\r\n")) {
+      if (header.toLowerCase().startsWith("content-length:")) {
+        length = Integer.parseInt(header.substring(15).trim());
+      }
+    }
+    for (int i = 0; i < length; i++) {
+      int c = in.read();
+      if (c < 0) {
+        throw new IOException("Connection closed: [" + response + "]");
+      }
+      response.append((char) c);
+    }
+    return response.toString();
+  }
+
+  public void testRaisedCapacityTakesQueuedJob() throws Exception {
+    WebServer batchStub = new WebServer(NODE_PORT);
+    batchStub.addHandler("batchstub", new AcceptingBatchStub());
+    batchStub.start();
+    XmlRpcResourceManagerClient rmc = new XmlRpcResourceManagerClient(
+        new URL("http://localhost:" + RM_PORT));
+    try {
+      // the node is full: it has no room for a job of load 1
+      rmc.setNodeCapacity("localhost", 0);
+      Job job = new Job();
+      job.setName("capacity-test");
+      job.setJobInstanceClassName(HelloWorldJob.class.getName());
+      job.setJobInputClassName(StringJobInput.class.getName());
+      job.setQueueName("quick");
+      job.setLoadValue(1);
+      String jobId = rmc.submitJob(job, new StringJobInput());
+
+      Thread.sleep(1000);
+      assertEquals(JobStatus.QUEUED, rmc.getJobInfo(jobId).getStatus());
+
+      rmc.setNodeCapacity("localhost", 1);
+      long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+      while (!rmc.isJobComplete(jobId)
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(100);
+      }
+      assertEquals(JobStatus.SUCCESS, rmc.getJobInfo(jobId).getStatus());
+    } finally {
+      rmc.close();
+      batchStub.shutdown();
+    }
+  }
+
+  /**
+   * A job input written as a String, which the XML-RPC server accepts.
+   */
+  public static class StringJobInput extends NameValueJobInput {
+
+    @Override
+    public void read(Object in) {
+    }
+
+    @Override
+    public Object write() {
+      return "capacity";
+    }
+
+  }
+
+  /**
+   * Stands in for the batch stub on the test node, succeeding every job.
+   */
+  public static class AcceptingBatchStub {
+
+    public boolean isAlive() {
+      return true;
+    }
+
+    public boolean executeJob(Hashtable jobHash, String jobInput) {
+      return true;
+    }
+
+  }
+
   /*
    * (non-Javadoc)
    *
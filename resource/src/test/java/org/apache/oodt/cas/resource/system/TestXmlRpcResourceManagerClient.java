@@ -34,6 +34,7 @@ import java.util.Properties;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
@@ -166,6 +167,13 @@ public class TestXmlRpcResourceManagerClient {
         assertThat(report, is(not(nullValue())));
     }
 
+    @Test
+    public void testSchedulerReport() throws JobQueueException {
+        String report = rmc.getSchedulerReport();
+
+        assertThat(report, containsString("scheduled: ["));
+    }
+
     @Test
     public void testGetNodesInQueue() throws QueueManagerException {
         List<String> nodes = rmc.getNodesInQueue("long");
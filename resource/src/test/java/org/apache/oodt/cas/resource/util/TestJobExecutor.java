@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.resource.util;
+
+//JDK imports
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+//Junit imports
+import junit.framework.TestCase;
+
+/**
+ * Test case for the {@link JobExecutor}.
+ */
+public class TestJobExecutor extends TestCase {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private JobExecutor executor;
+
+    public void setUp() {
+        executor = new JobExecutor("test", JobExecutor.MODE_POOL, 2);
+    }
+
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    public void testBoundsRunningJobsAndCountsQueue() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JobExecutor.JobHandle[] handles = new JobExecutor.JobHandle[5];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = executor.submit(new BlockingJob(release));
+        }
+
+        waitFor(2, 3);
+        assertEquals(2, executor.getActiveCount());
+        assertEquals(3, executor.getQueueDepth());
+
+        release.countDown();
+        for (JobExecutor.JobHandle handle : handles) {
+            handle.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        waitFor(0, 0);
+    }
+
+    public void testCancelInterruptsRunningJob() throws Exception {
+        BlockingJob job = new BlockingJob(new CountDownLatch(1));
+        JobExecutor.JobHandle handle = executor.submit(job);
+        waitFor(1, 0);
+
+        assertFalse(handle.cancelIfQueued());
+        assertTrue(handle.cancel(true));
+        assertTrue(job.interrupted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        try {
+            handle.get();
+            fail("Cancelled job should not have a result");
+        } catch (CancellationException expected) {
+        }
+        waitFor(0, 0);
+    }
+
+    public void testCancelQueuedJob() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(new BlockingJob(release));
+        executor.submit(new BlockingJob(release));
+        BlockingJob queuedJob = new BlockingJob(release);
+        JobExecutor.JobHandle queued = executor.submit(queuedJob);
+        waitFor(2, 1);
+
+        assertTrue(queued.cancelIfQueued());
+        assertEquals(0, executor.getQueueDepth());
+        release.countDown();
+        waitFor(0, 0);
+        assertEquals(1, queuedJob.started.getCount());
+    }
+
+    public void testPreparedJobRunsOnlyWhenStarted() throws Exception {
+        BlockingJob job = new BlockingJob(new CountDownLatch(0));
+        JobExecutor.JobHandle handle = executor.prepare(job);
+        assertEquals(1, executor.getQueueDepth());
+        assertEquals(1, job.started.getCount());
+
+        executor.start(handle);
+        handle.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(0, job.started.getCount());
+        waitFor(0, 0);
+
+        // a job cancelled before it is started never runs
+        BlockingJob cancelledJob = new BlockingJob(new CountDownLatch(0));
+        JobExecutor.JobHandle cancelled = executor.prepare(cancelledJob);
+        assertTrue(cancelled.cancelIfQueued());
+        executor.start(cancelled);
+        waitFor(0, 0);
+        assertEquals(1, cancelledJob.started.getCount());
+    }
+
+    public void testDefaultsToCachedMode() {
+        JobExecutor defaults = JobExecutor.createFromProperties("defaults",
+                "org.apache.oodt.cas.resource.test.executor");
+        try {
+            assertEquals(JobExecutor.MODE_CACHED, defaults.getMode());
+        } finally {
+            defaults.shutdown();
+        }
+    }
+
+    public void testVirtualModeRunsJobs() throws Exception {
+        JobExecutor virtual = new JobExecutor("virtual",
+                JobExecutor.MODE_VIRTUAL, 1);
+        try {
+            // falls back to a pool on JDKs without virtual threads
+            assertTrue(JobExecutor.MODE_VIRTUAL.equals(virtual.getMode())
+                    || JobExecutor.MODE_POOL.equals(virtual.getMode()));
+            CountDownLatch release = new CountDownLatch(0);
+            virtual.submit(new BlockingJob(release)).get(TIMEOUT_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        } finally {
+            virtual.shutdown();
+        }
+    }
+
+    private void waitFor(int active, int queued) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while ((executor.getActiveCount() != active || executor
+                .getQueueDepth() != queued)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(active, executor.getActiveCount());
+        assertEquals(queued, executor.getQueueDepth());
+    }
+
+    private static class BlockingJob implements Runnable {
+
+        private final CountDownLatch release;
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        BlockingJob(CountDownLatch release) {
+            this.release = release;
+        }
+
+        public void run() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }
+    }
+}
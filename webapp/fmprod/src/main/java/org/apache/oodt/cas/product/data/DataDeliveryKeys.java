@@ -33,5 +33,16 @@ public interface DataDeliveryKeys {
   String CONTENT_LENGTH_HDR = "Content-Length";
 
   String CONTENT_DISPOSITION_HDR = "Content-Disposition";
+
+  String ACCEPT_RANGES_HDR = "Accept-Ranges";
+
+  String CONTENT_RANGE_HDR = "Content-Range";
+
+  String RANGE_HDR = "Range";
+
+  /* servlet context parameters */
+  String STREAMING_PARAM = "filemgr.delivery.streaming";
+
+  String STORE_COMPRESSED_PARAM = "filemgr.delivery.storeCompressed";
   
 }
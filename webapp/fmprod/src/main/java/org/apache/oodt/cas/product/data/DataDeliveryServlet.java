@@ -19,6 +19,7 @@
 package org.apache.oodt.cas.product.data;
 
 //OODT imports
+import org.apache.commons.io.IOUtils;
 import org.apache.oodt.cas.filemgr.structs.exceptions.CatalogException;
 import org.apache.oodt.cas.filemgr.structs.exceptions.ConnectionException;
 import org.apache.oodt.cas.filemgr.structs.Product;
@@ -68,6 +69,12 @@ public class DataDeliveryServlet extends HttpServlet implements
   /** our working dir path. */
   private String workingDirPath;
 
+  /** whether zips are streamed to the client rather than built on disk. */
+  private boolean streaming;
+
+  /** whether compressed references are zipped without deflating them. */
+  private boolean storeCompressed;
+
   /** serial version UID. */
   private static final long serialVersionUID = -955613407495060869L;
 
@@ -88,12 +95,18 @@ public class DataDeliveryServlet extends HttpServlet implements
       throw new ServletException(ex);
     }
 
+    streaming = Boolean.parseBoolean(config.getServletContext()
+        .getInitParameter(STREAMING_PARAM));
+    storeCompressed = !"false".equals(config.getServletContext()
+        .getInitParameter(STORE_COMPRESSED_PARAM));
     workingDirPath = config.getServletContext().getInitParameter(
         "filemgr.working.dir");
 
     // need the working dir to be specified, else throw exception
     if (workingDirPath == null) {
-      throw new ServletException("no servlet working dir path specified!");
+      if (!streaming) {
+        throw new ServletException("no servlet working dir path specified!");
+      }
     } else {
       // clean it
       this.workingDirPath += this.workingDirPath.endsWith("/") ? "" : "/";
@@ -172,6 +185,11 @@ public class DataDeliveryServlet extends HttpServlet implements
     // we'll be delivering a zip
     res.addHeader(CONTENT_TYPE_HDR, FORMAT_ZIP);
 
+    if (streaming) {
+      streamProductAsZip(res, product, metadata);
+      return;
+    }
+
     String productZipFilePath;
     File productZipFile;
     InputStream in = null;
@@ -232,6 +250,28 @@ public class DataDeliveryServlet extends HttpServlet implements
 
   }
 
+  private void streamProductAsZip(HttpServletResponse res, Product product,
+      Metadata metadata) {
+    res.addHeader(CONTENT_DISPOSITION_HDR, "attachment; filename=\""
+        + product.getProductName() + ".zip\"");
+    OutputStream o2 = null;
+    try {
+      o2 = res.getOutputStream();
+      DataUtils.writeProductZip(product, metadata, o2, storeCompressed);
+    } catch (Exception e) {
+      LOG.log(Level.SEVERE, e.getMessage());
+      LOG.log(Level.WARNING, "Exception delivering data!: Message: "
+          + e.getMessage());
+    } finally {
+      if (o2 != null) {
+        try {
+          o2.close();
+        } catch (Exception ignore) {
+        }
+      }
+    }
+  }
+
   private void deliverProductFile(HttpServletRequest req,
       HttpServletResponse res, int index, String productID)
       throws CatalogException, IOException {
@@ -250,7 +290,25 @@ public class DataDeliveryServlet extends HttpServlet implements
     }
     
     Reference ref = (Reference) refs.get(index);
-    res.addHeader(CONTENT_LENGTH_HDR, String.valueOf(ref.getFileSize()));
+    long length = ref.getFileSize();
+    long[] range = DataUtils.parseRange(req.getHeader(RANGE_HDR), length);
+    if (range != null && range.length == 0) {
+      res.addHeader(CONTENT_RANGE_HDR, "bytes */" + length);
+      res.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+      return;
+    }
+    if (length > 0) {
+      res.addHeader(ACCEPT_RANGES_HDR, "bytes");
+    }
+    if (range != null) {
+      // resume a partial download
+      res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+      res.addHeader(CONTENT_RANGE_HDR, "bytes " + range[0] + "-" + range[1]
+          + "/" + length);
+      res.addHeader(CONTENT_LENGTH_HDR, String.valueOf(range[1] - range[0] + 1));
+    } else {
+      res.addHeader(CONTENT_LENGTH_HDR, String.valueOf(length));
+    }
     String contentType = (ref.getMimeType() != null
         && ref.getMimeType().getName() != null && !ref.getMimeType().getName()
         .equals("")) ? ref.getMimeType().getName() : DataUtils
@@ -268,12 +326,16 @@ public class DataDeliveryServlet extends HttpServlet implements
     URLConnection c = url.openConnection();
     InputStream in = c.getInputStream();
     OutputStream out = res.getOutputStream();
-    byte[] buf = new byte[INT];
-    int n;
-    while ((n = in.read(buf)) != -1) {
-      out.write(buf, 0, n);
+    try {
+      if (range != null) {
+        IOUtils.copyLarge(in, out, range[0], range[1] - range[0] + 1,
+            new byte[DataUtils.STREAM_BUFFER_SIZE]);
+      } else {
+        IOUtils.copyLarge(in, out, new byte[DataUtils.STREAM_BUFFER_SIZE]);
+      }
+    } finally {
+      in.close();
+      out.close();
     }
-    in.close();
-    out.close();
   }
 }
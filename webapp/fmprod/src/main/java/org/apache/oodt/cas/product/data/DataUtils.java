@@ -26,6 +26,7 @@ import org.apache.oodt.cas.filemgr.structs.Reference;
 import org.apache.oodt.cas.metadata.Metadata;
 import org.apache.oodt.cas.metadata.SerializableMetadata;
 import org.apache.oodt.cas.product.exceptions.CasProductException;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -35,10 +36,15 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -65,6 +71,18 @@ public final class DataUtils implements DataDeliveryKeys {
   };
   public static final int INT = 512;
 
+  /* buffer size used when streaming references into a response */
+  public static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+  /* names of data that is compressed already, and not worth deflating again */
+  private static final Pattern COMPRESSED_NAME = Pattern.compile(
+      ".*\\.(zip|gz|tgz|bz2|xz|z|7z|jar|jpg|jpeg|png|gif|mp3|mp4|mov)$",
+      Pattern.CASE_INSENSITIVE);
+
+  /* a single HTTP byte range: bytes=first-last, bytes=first- or bytes=-suffix */
+  private static final Pattern BYTE_RANGE = Pattern
+      .compile("^bytes=(\\d*)-(\\d*)$");
+
   public static String createDatasetZipFile(ProductType type,
       String workingDirPath) throws IOException, CasProductException {
     String datasetZipFileName = type.getName() + ".zip";
@@ -136,38 +154,147 @@ public final class DataUtils implements DataDeliveryKeys {
           + productZipFilePath + "] failed.");
     }
 
-    // now get a reference to the zip file that we want to write
-    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(
-        productZipFilePath));
+    FileOutputStream out = new FileOutputStream(productZipFilePath);
+    try {
+      writeProductZip(product, metadata, out, false);
+    } finally {
+      out.close();
+    }
 
+    // return the zip file path
+    return productZipFilePath;
+
+  }
+
+  /**
+   * Writes a zip of the given {@link Product}'s references and metadata to
+   * the given stream, reading each reference straight from the data store.
+   * Directory references are skipped. The stream is left open.
+   * 
+   * @param product
+   *          The product to zip, with its references.
+   * @param metadata
+   *          The product's metadata, added as <code>productName.met</code>.
+   * @param os
+   *          The stream to write the zip to, e.g. a servlet response.
+   * @param storeCompressed
+   *          Whether to store references that are compressed already (judged
+   *          by their names) without deflating them again.
+   * @throws IOException
+   *           If a reference can't be read or the stream written.
+   */
+  public static void writeProductZip(Product product, Metadata metadata,
+      OutputStream os, boolean storeCompressed) throws IOException {
+    ZipOutputStream out = new ZipOutputStream(new CloseShieldOutputStream(os));
     for (Reference r : product.getProductReferences()) {
+      String filename;
       try {
-        File prodFile = new File(new URI(r.getDataStoreReference()));
-        if (prodFile.isDirectory()) {
+        URI uri = new URI(r.getDataStoreReference());
+        if ("file".equals(uri.getScheme()) && new File(uri).isDirectory()) {
           LOG.log(Level.WARNING, "Data store reference is a directory. Not adding directory to the zip file: ["
                                  + r.getDataStoreReference() + "]");
           continue;
         }
-        String filename = prodFile.getName();
-        FileInputStream in = new FileInputStream(prodFile.getAbsoluteFile());
-        addZipEntryFromStream(in, out, filename);
-        in.close();
+        filename = new File(uri.getPath()).getName();
       } catch (URISyntaxException e) {
         LOG.log(Level.WARNING, "Unable to get filename from uri: ["
                                + r.getDataStoreReference() + "]");
+        continue;
       }
 
+      InputStream in = new URL(r.getDataStoreReference()).openStream();
+      try {
+        out.setLevel(storeCompressed && isCompressed(filename)
+            ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+        addZipEntryFromStream(in, out, filename, STREAM_BUFFER_SIZE);
+      } finally {
+        in.close();
+      }
     }
+    out.setLevel(Deflater.DEFAULT_COMPRESSION);
 
     // add met file
     addMetFileToProductZip(metadata, product.getProductName(), out);
+    out.finish();
+  }
 
-    // Complete the ZIP file
-    out.close();
+  /**
+   * Adds a zip of the given {@link Product} to a dataset zip as the entry
+   * <code>productName.zip</code>, without first writing it anywhere else.
+   * 
+   * @see #writeProductZip(Product, Metadata, OutputStream, boolean)
+   */
+  public static void addProductZipEntry(Product product, Metadata metadata,
+      ZipOutputStream datasetOut, boolean storeCompressed) throws IOException {
+    // the product zip is compressed already
+    datasetOut.setLevel(Deflater.NO_COMPRESSION);
+    datasetOut.putNextEntry(new ZipEntry(product.getProductName() + ".zip"));
+    writeProductZip(product, metadata, datasetOut, storeCompressed);
+    datasetOut.closeEntry();
+    datasetOut.setLevel(Deflater.DEFAULT_COMPRESSION);
+  }
 
-    // return the zip file path
-    return productZipFilePath;
+  /**
+   * Adds the given metadata to a zip as the entry <code>baseName.met</code>.
+   */
+  public static void addMetFileEntry(Metadata metadata, String baseName,
+      ZipOutputStream out) throws IOException {
+    addMetFileToProductZip(metadata, baseName, out);
+  }
 
+  /**
+   * @param name
+   *          The name of a file.
+   * @return Whether the file's name says it is compressed already.
+   */
+  public static boolean isCompressed(String name) {
+    return COMPRESSED_NAME.matcher(name).matches();
+  }
+
+  /**
+   * Parses an HTTP <code>Range</code> header for a single byte range of an
+   * entity of the given length.
+   * 
+   * @param rangeHeader
+   *          The value of the <code>Range</code> header, or null.
+   * @param length
+   *          The length of the entity.
+   * @return The first and last byte of the range, null if the whole entity
+   *         should be sent (no header, several ranges, or a header we can't
+   *         parse), or an empty array if the range can't be satisfied.
+   */
+  public static long[] parseRange(String rangeHeader, long length) {
+    if (rangeHeader == null || length <= 0) {
+      return null;
+    }
+    Matcher m = BYTE_RANGE.matcher(rangeHeader.trim());
+    if (!m.matches() || (m.group(1).isEmpty() && m.group(2).isEmpty())) {
+      return null;
+    }
+
+    long first, last;
+    try {
+      if (m.group(1).isEmpty()) {
+        // the last n bytes
+        first = Math.max(0, length - Long.parseLong(m.group(2)));
+        last = length - 1;
+      } else {
+        first = Long.parseLong(m.group(1));
+        last = m.group(2).isEmpty() ? length - 1 : Long.parseLong(m.group(2));
+        if (!m.group(2).isEmpty() && last < first) {
+          // not a valid range, so the header is ignored
+          return null;
+        }
+        last = Math.min(last, length - 1);
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+
+    if (first >= length) {
+      return new long[0];
+    }
+    return new long[] { first, last };
   }
 
   /**
@@ -219,7 +346,12 @@ public final class DataUtils implements DataDeliveryKeys {
 
   private static void addZipEntryFromStream(InputStream is, ZipOutputStream os,
       String filename) throws IOException {
-    byte[] buf = new byte[INT];
+    addZipEntryFromStream(is, os, filename, INT);
+  }
+
+  private static void addZipEntryFromStream(InputStream is, ZipOutputStream os,
+      String filename, int bufferSize) throws IOException {
+    byte[] buf = new byte[bufferSize];
     os.putNextEntry(new ZipEntry(filename));
 
     int len;
@@ -35,6 +35,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.ZipOutputStream;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -67,6 +68,12 @@ public class DatasetDeliveryServlet extends HttpServlet implements DataDeliveryK
   /* the working dir in which to create huge zip files */
   private String workingDirPath;
 
+  /* whether dataset zips are streamed to the client rather than built on disk */
+  private boolean streaming;
+
+  /* whether compressed references are zipped without deflating them */
+  private boolean storeCompressed;
+
   /* indicates the product has been zipped up already */
   private final static String ALREADY_ZIPPED = "00ga";
 
@@ -116,6 +123,11 @@ public class DatasetDeliveryServlet extends HttpServlet implements DataDeliveryK
           + "]: Message: " + e.getMessage());
     }
 
+    if (streaming) {
+      streamDataset(type, res);
+      return;
+    }
+
     // create a temporary product dir: we'll use working dir + typeName
     String productDirPath = workingDirPath + type.getName();
     if (!new File(productDirPath).mkdirs()) {
@@ -152,10 +164,13 @@ public class DatasetDeliveryServlet extends HttpServlet implements DataDeliveryK
           productHash.put(product.getProductName(), ALREADY_ZIPPED);
         }
 
+        if (page.isLastPage()) {
+          break;
+        }
         page = client.getNextPage(type, page);
 
-      } while ((page != null && !page.isLastPage())
-          && (page.getPageProducts() != null && page.getPageProducts().size() > 0));
+      } while (page != null && page.getPageProducts() != null
+          && page.getPageProducts().size() > 0);
     } catch (Exception e) {
       LOG.log(Level.SEVERE, e.getMessage());
       throw new ServletException(e.getMessage());
@@ -252,12 +267,18 @@ public class DatasetDeliveryServlet extends HttpServlet implements DataDeliveryK
       throw new ServletException(ex);
     }
 
+    streaming = Boolean.parseBoolean(config.getServletContext()
+        .getInitParameter(STREAMING_PARAM));
+    storeCompressed = !"false".equals(config.getServletContext()
+        .getInitParameter(STORE_COMPRESSED_PARAM));
     workingDirPath = config.getServletContext().getInitParameter(
         "filemgr.working.dir");
 
     // need the working dir to be specified, else throw exception
     if (workingDirPath == null) {
-      throw new ServletException("no servlet working dir path specified!");
+      if (!streaming) {
+        throw new ServletException("no servlet working dir path specified!");
+      }
     } else {
       // clean it
       this.workingDirPath += this.workingDirPath.endsWith("/") ? "" : "/";
@@ -273,6 +294,67 @@ public class DatasetDeliveryServlet extends HttpServlet implements DataDeliveryK
     }
   }
 
+  /**
+   * Writes the dataset zip straight to the response, each product's zip
+   * being built as an entry of it, so nothing is staged in the working dir.
+   * Since the size isn't known up front no Content-Length is sent.
+   */
+  private void streamDataset(ProductType type, HttpServletResponse res)
+      throws ServletException {
+    ZipOutputStream out = null;
+    try {
+      ProductPage page = client.getFirstPage(type);
+      if (page == null || (page.getPageProducts() == null) || (page.getPageProducts().size() == 0)) {
+        throw new ServletException("No products for dataset: ["
+            + type.getName() + "]");
+      }
+
+      res.addHeader(CONTENT_TYPE_HDR, FORMAT_ZIP);
+      res.addHeader(CONTENT_DISPOSITION_HDR, "attachment; filename=\""
+          + type.getName() + ".zip\"");
+      out = new ZipOutputStream(new BufferedOutputStream(
+          res.getOutputStream(), DataUtils.STREAM_BUFFER_SIZE));
+
+      Map<String, String> productHash = new ConcurrentHashMap<String, String>();
+      do {
+        for (Product product : page.getPageProducts()) {
+          if (alreadyZipped(product, productHash)) {
+            continue;
+          }
+
+          product.setProductReferences(client.getProductReferences(product));
+          Metadata metadata = client.getMetadata(product);
+          DataUtils.addProductZipEntry(product, metadata, out, storeCompressed);
+          productHash.put(product.getProductName(), ALREADY_ZIPPED);
+        }
+
+        if (page.isLastPage()) {
+          break;
+        }
+        page = client.getNextPage(type, page);
+
+      } while (page != null && page.getPageProducts() != null
+          && page.getPageProducts().size() > 0);
+
+      // add met file
+      DataUtils.addMetFileEntry(type.getTypeMetadata(), type.getName(), out);
+      out.finish();
+    } catch (ServletException e) {
+      throw e;
+    } catch (Exception e) {
+      LOG.log(Level.SEVERE, e.getMessage());
+      LOG.log(Level.WARNING, "Exception delivering dataset: Message: "
+          + e.getMessage());
+    } finally {
+      if (out != null) {
+        try {
+          out.close();
+        } catch (Exception ignore) {
+        }
+      }
+    }
+  }
+
   private boolean alreadyZipped(Product p, Map hash) {
     return hash.containsKey(p.getProductName());
   }
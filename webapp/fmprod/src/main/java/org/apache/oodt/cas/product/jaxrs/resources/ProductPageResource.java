@@ -44,6 +44,7 @@ import org.apache.oodt.cas.metadata.Metadata;
       "totalPages",
       "totalProducts",
       "numOfHits",
+      "cursor",
       "metadataResource",
       "productResources"
     })
@@ -57,6 +58,7 @@ public class ProductPageResource {
   private int totalPages;
   private int totalProducts;
   private long numOfHits;
+  private String cursor;
 
   /* The file manager's working directory for this resource, used for example
    when creating zip archives.
@@ -85,6 +87,7 @@ public class ProductPageResource {
     this.pageNum = page.getPageNum();
     this.totalPages = page.getTotalPages();
     this.numOfHits = page.getNumOfHits();
+    this.cursor = page.getCursor();
 
     this.workingDir = workingDir;
 
@@ -157,6 +160,17 @@ public class ProductPageResource {
     return numOfHits;
   }
 
+  /**
+   * Gets the token to pass back as the cursor parameter to fetch the next page
+   * without the file manager skipping over every earlier product again.
+   *
+   * @return the cursor, or null if there is no next page or the catalog does not issue cursors
+   */
+  @XmlElement(name = "cursor")
+  public String getCursor() {
+    return cursor;
+  }
+
   /**
    * Gets the product resources for the dataset.
    *
@@ -136,6 +136,7 @@ public class FileManagerJaxrsServiceV2 {
    *
    * @param productTypeName the Name of a productType
    * @param currentProductPage the current productPage
+   * @param cursor the cursor of the previous page, if any, to seek straight to the page after it
    * @return an HTTP response that represents a {@link ProductPage} from the file manager
    */
   @GET
@@ -150,7 +151,8 @@ public class FileManagerJaxrsServiceV2 {
   public ProductPageResource getNextPage(
       @QueryParam("productTypeName") String productTypeName,
       @QueryParam("productName") String productName,
-      @QueryParam("currentProductPage") int currentProductPage)
+      @QueryParam("currentProductPage") int currentProductPage,
+      @QueryParam("cursor") String cursor)
       throws WebApplicationException {
 
     try {
@@ -163,10 +165,24 @@ public class FileManagerJaxrsServiceV2 {
         products.add(product);
         productPage = new ProductPage(1, 1, 1, products);
       }
+      else if (!StringUtils.isEmpty(cursor)) {
+        ProductType productType = client.getProductTypeByName(productTypeName);
+        ProductPage previousPage = new ProductPage();
+        previousPage.setCursor(cursor);
+        try {
+          productPage = client.getNextPage(productType, previousPage);
+        } catch (CatalogException e) {
+          // the cursor comes from the caller, so one the catalog can't seek from is a bad request
+          throw new BadRequestException(
+              "Invalid cursor [" + cursor + "]: " + e.getMessage());
+        }
+      }
       else {
         productPage = client.pagedQuery(query,client.getProductTypeByName(productTypeName),currentProductPage);
       }
       return getProductPageResource(client, productPage);
+    } catch (BadRequestException e) {
+      throw e;
     } catch (Exception e) {
       throw new NotFoundException(e.getMessage());
     }
@@ -21,8 +21,12 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import net.lingala.zip4j.core.ZipFile;
 import net.lingala.zip4j.exception.ZipException;
@@ -30,6 +34,7 @@ import net.lingala.zip4j.model.ZipParameters;
 import net.lingala.zip4j.util.Zip4jConstants;
 
 import org.apache.oodt.cas.metadata.Metadata;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.oodt.cas.metadata.SerializableMetadata;
 import org.apache.oodt.cas.product.jaxrs.exceptions.InternalServerErrorException;
 import org.apache.oodt.cas.product.jaxrs.resources.DatasetResource;
@@ -132,4 +137,51 @@ public class DatasetZipper
       throw new InternalServerErrorException(message + " " + e.getMessage());
     }
   }
+
+
+
+  /**
+   * Writes a zip archive of the supplied {@link DatasetResource dataset
+   * resource} straight to the given stream, each product's zip archive being
+   * written as an entry of it rather than staged in the working directory.
+   * The stream is left open.
+   * @param resource the dataset resource to archive
+   * @param os the stream to write the zip archive to
+   * @param storeCompressed whether to store product references that are
+   * compressed already without deflating them again
+   */
+  public void writeZip(DatasetResource resource, OutputStream os,
+    boolean storeCompressed)
+  {
+    try
+    {
+      ZipOutputStream out = new ZipOutputStream(
+        new CloseShieldOutputStream(os));
+
+      // The product zips are deflated already, so store them as they are.
+      for (ProductResource productResource : resource.getProductResources())
+      {
+        out.setLevel(Deflater.NO_COMPRESSION);
+        out.putNextEntry(new ZipEntry(productResource.getProductName()
+          + ".zip"));
+        productZipper.writeZip(productResource, out, storeCompressed);
+        out.closeEntry();
+      }
+
+      // Add the dataset's metadata to the zip.
+      Metadata metadata = resource.getMetadataResource().getMetadata();
+      out.setLevel(Deflater.DEFAULT_COMPRESSION);
+      out.putNextEntry(new ZipEntry(resource.getName() + ".met"));
+      new SerializableMetadata(metadata).writeMetadataToXmlStream(out);
+      out.closeEntry();
+      out.finish();
+    }
+    catch (IOException e)
+    {
+      String message = "Encountered I/O problems while trying to stream a zip "
+        + "archive of the dataset.";
+      LOGGER.log(Level.FINE, message, e);
+      throw new InternalServerErrorException(message + " " + e.getMessage());
+    }
+  }
 }
@@ -17,8 +17,6 @@
 
 package org.apache.oodt.cas.product.jaxrs.writers;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
@@ -31,7 +29,6 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.oodt.cas.product.jaxrs.resources.ProductResource;
 
 /**
@@ -68,15 +65,10 @@ public class ProductZipWriter implements MessageBodyWriter<ProductResource>
     MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
       throws IOException, WebApplicationException
   {
-    // Create a zip file for the product resource.
-    File zipFile = new ProductZipper().createZipFile(resource);
-
-    // Add the zip file to the HTTP response entity stream.
+    // Stream the zip archive straight into the HTTP response entity stream.
     httpHeaders.add("Content-Type", "application/zip");
     httpHeaders.add("Content-Disposition",
-      "attachment; filename=\"" + zipFile.getName() + "\"");
-    FileInputStream fis = new FileInputStream(zipFile);
-    IOUtils.copy(fis, entityStream);
-    fis.close();
+      "attachment; filename=\"" + resource.getProductName() + ".zip\"");
+    new ProductZipper().writeZip(resource, entityStream, true);
   }
 }
@@ -20,12 +20,18 @@ package org.apache.oodt.cas.product.jaxrs.writers;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import net.lingala.zip4j.core.ZipFile;
 import net.lingala.zip4j.exception.ZipException;
@@ -34,7 +40,10 @@ import net.lingala.zip4j.util.Zip4jConstants;
 
 import org.apache.oodt.cas.filemgr.structs.Reference;
 import org.apache.oodt.cas.metadata.Metadata;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.oodt.cas.metadata.SerializableMetadata;
+import org.apache.oodt.cas.product.data.DataUtils;
 import org.apache.oodt.cas.product.jaxrs.exceptions.InternalServerErrorException;
 import org.apache.oodt.cas.product.jaxrs.exceptions.NotFoundException;
 import org.apache.oodt.cas.product.jaxrs.resources.MetadataResource;
@@ -147,4 +156,112 @@ public class ProductZipper
       throw new InternalServerErrorException(message + " " + e.getMessage());
     }
   }
+
+
+
+  /**
+   * Writes a zip archive of the supplied {@link ProductResource product
+   * resource}, with the same entries as {@link #createZipFile}, straight to
+   * the given stream without staging it in the working directory. The stream
+   * is left open.
+   * @param resource the product resource to archive
+   * @param os the stream to write the zip archive to
+   * @param storeCompressed whether to store references that are compressed
+   * already (judged by their names) without deflating them again
+   */
+  public void writeZip(ProductResource resource, OutputStream os,
+    boolean storeCompressed)
+  {
+    try
+    {
+      ZipOutputStream out = new ZipOutputStream(
+        new CloseShieldOutputStream(os));
+
+      // Assumes that for hierarchical products, the first reference is the root
+      // directory and all of its contents are included in the product.
+      List<Reference> references = resource.getProductReferences();
+      Reference rootReference = references.get(0);
+      File rootFile = new File(new URI(rootReference.getDataStoreReference()));
+      if (rootFile.isDirectory())
+      {
+        // Entries are named relative to the root's parent, as addFolder does.
+        addFolder(rootFile, rootFile.getName() + "/", out, storeCompressed);
+      }
+      else
+      {
+        for (Reference reference : references)
+        {
+          File refFile = new File(new URI(reference.getDataStoreReference()));
+          addFile(refFile, refFile.getName(), out, storeCompressed);
+        }
+      }
+
+      // Add the product's metadata to the zip.
+      Metadata metadata = resource.getMetadataResource().getMetadata();
+      out.setLevel(Deflater.DEFAULT_COMPRESSION);
+      out.putNextEntry(new ZipEntry(resource.getProductName() + ".met"));
+      new SerializableMetadata(metadata).writeMetadataToXmlStream(out);
+      out.closeEntry();
+      out.finish();
+    }
+    catch (URISyntaxException e)
+    {
+      String message =
+        "Problem with the data store URI(s) for the product's reference(s).";
+      LOGGER.log(Level.FINE, message, e);
+      throw new NotFoundException(message + " " + e.getMessage());
+    }
+    catch (IOException e)
+    {
+      String message = "Encountered I/O problems while trying to stream a zip "
+        + "archive of the product.";
+      LOGGER.log(Level.FINE, message, e);
+      throw new InternalServerErrorException(message + " " + e.getMessage());
+    }
+  }
+
+
+
+  private void addFolder(File dir, String prefix, ZipOutputStream out,
+    boolean storeCompressed) throws IOException
+  {
+    out.putNextEntry(new ZipEntry(prefix));
+    out.closeEntry();
+    File[] children = dir.listFiles();
+    if (children == null)
+    {
+      return;
+    }
+    for (File child : children)
+    {
+      if (child.isDirectory())
+      {
+        addFolder(child, prefix + child.getName() + "/", out, storeCompressed);
+      }
+      else
+      {
+        addFile(child, prefix + child.getName(), out, storeCompressed);
+      }
+    }
+  }
+
+
+
+  private void addFile(File file, String name, ZipOutputStream out,
+    boolean storeCompressed) throws IOException
+  {
+    out.setLevel(storeCompressed && DataUtils.isCompressed(name)
+      ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+    out.putNextEntry(new ZipEntry(name));
+    InputStream in = new FileInputStream(file);
+    try
+    {
+      IOUtils.copyLarge(in, out, new byte[DataUtils.STREAM_BUFFER_SIZE]);
+    }
+    finally
+    {
+      in.close();
+    }
+    out.closeEntry();
+  }
 }
@@ -17,7 +17,13 @@
 
 package org.apache.oodt.cas.product.data;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.oodt.cas.filemgr.structs.Product;
@@ -40,7 +46,9 @@ public class TestDataUtils extends TestCase {
     private File workingDir;
 	@Override
 	public void tearDown() throws Exception {
-		FileUtils.forceDelete(workingDir);
+		if (workingDir != null) {
+			FileUtils.forceDelete(workingDir);
+		}
 	}
 
 	public void testCreateProductZipFileFromHierarchicalProduct(){
@@ -77,4 +85,71 @@ public class TestDataUtils extends TestCase {
 		assertEquals(productZipFilePath, workingDirPath + "/" + zipFileName);
 	}
 
+	public void testWriteProductZip() throws Exception {
+		String cwd=System.getProperty("user.dir");
+
+		Product product = new Product();
+		product.setProductName("TestProductName");
+		product.setProductReferences(Lists.newArrayList(
+			new Reference("file:///orig/data/", "file://" + cwd + "/src/test/resources/", 4096),
+			new Reference("file:///orig/data/test-file-1.txt", "file://" + cwd + "/src/test/resources/test-file-1.txt", 20),
+			new Reference("file:///orig/data/test-file-2.txt", "file://" + cwd + "/src/test/resources/test-file-2.txt", 20)));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataUtils.writeProductZip(product, new Metadata(), out, true);
+
+		Map<String, byte[]> entries = new HashMap<String, byte[]>();
+		ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+		ZipEntry entry;
+		while ((entry = in.getNextEntry()) != null) {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] buf = new byte[512];
+			int n;
+			while ((n = in.read(buf)) != -1) {
+				content.write(buf, 0, n);
+			}
+			entries.put(entry.getName(), content.toByteArray());
+		}
+		in.close();
+
+		// the directory reference is skipped
+		assertEquals(3, entries.size());
+		assertTrue(entries.containsKey("TestProductName.met"));
+		assertEquals(FileUtils.readFileToString(new File(cwd + "/src/test/resources/test-file-1.txt")),
+			new String(entries.get("test-file-1.txt")));
+		assertTrue(entries.containsKey("test-file-2.txt"));
+	}
+
+	public void testIsCompressed() {
+		assertTrue(DataUtils.isCompressed("granule.tar.gz"));
+		assertTrue(DataUtils.isCompressed("IMAGE.JPG"));
+		assertFalse(DataUtils.isCompressed("granule.hdf"));
+		assertFalse(DataUtils.isCompressed("zip"));
+	}
+
+	public void testParseRange() {
+		assertNull(DataUtils.parseRange(null, 100));
+		assertNull(DataUtils.parseRange("items=0-10", 100));
+		assertNull(DataUtils.parseRange("bytes=0-10,20-30", 100));
+
+		long[] range = DataUtils.parseRange("bytes=10-19", 100);
+		assertEquals(10, range[0]);
+		assertEquals(19, range[1]);
+
+		// open ended and past the end ranges stop at the last byte
+		range = DataUtils.parseRange("bytes=90-", 100);
+		assertEquals(90, range[0]);
+		assertEquals(99, range[1]);
+		range = DataUtils.parseRange("bytes=90-500", 100);
+		assertEquals(99, range[1]);
+
+		// suffix ranges count back from the end
+		range = DataUtils.parseRange("bytes=-10", 100);
+		assertEquals(90, range[0]);
+		assertEquals(99, range[1]);
+
+		assertEquals(0, DataUtils.parseRange("bytes=100-", 100).length);
+		assertNull(DataUtils.parseRange("bytes=20-10", 100));
+	}
+
 }
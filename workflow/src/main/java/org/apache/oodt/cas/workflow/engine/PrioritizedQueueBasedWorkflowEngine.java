@@ -110,7 +110,7 @@ public class PrioritizedQueueBasedWorkflowEngine implements WorkflowEngine {
     // create a new WorkflowInstance
     // create a new WorkflowProcessor around it
     // set it in Queued status
-    // commit it to workflow instance repo and it will get picked up
+    // commit it to workflow instance repo and push it onto the processor queue
 
     WorkflowInstance inst = new WorkflowInstance();
     inst.setParentChildWorkflow(workflow instanceof ParentChildWorkflow ? (ParentChildWorkflow) workflow
@@ -125,6 +125,7 @@ public class PrioritizedQueueBasedWorkflowEngine implements WorkflowEngine {
         "Workflow created by Engine.");
     inst.setState(state);
     persist(inst);
+    processorQueue.addWorkflowInstance(inst);
     return inst;
   }
 
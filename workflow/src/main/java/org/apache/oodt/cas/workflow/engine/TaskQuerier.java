@@ -25,11 +25,19 @@ import org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessorQueue;
 import org.apache.oodt.cas.workflow.instrepo.WorkflowInstanceRepository;
 import org.apache.oodt.cas.workflow.lifecycle.WorkflowLifecycle;
 import org.apache.oodt.cas.workflow.lifecycle.WorkflowState;
+import org.apache.oodt.cas.workflow.structs.KeyedPrioritySorter;
+import org.apache.oodt.cas.workflow.structs.Priority;
 import org.apache.oodt.cas.workflow.structs.PrioritySorter;
 import org.apache.oodt.cas.workflow.structs.WorkflowInstance;
 import org.apache.oodt.cas.workflow.structs.exceptions.InstanceRepositoryException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Vector;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -43,6 +51,14 @@ import java.util.logging.Logger;
  * their state to Executing (running Category), so they will be picked up on the
  * next WorkflowState change, and end up executing.
  * 
+ * Runnable {@link TaskProcessor}s are kept in a priority heap ordered by the
+ * {@link PrioritySorter}, using the key of a {@link KeyedPrioritySorter}
+ * computed when a processor is queued, and again whenever the processor is
+ * dispositioned while queued. The querier sleeps until the
+ * {@link WorkflowProcessorQueue} reports a change and then only looks at the
+ * changed processors, with a pass over every queued processor at most every
+ * <code>waitSeconds</code>.
+ * 
  * @author mattmann
  * @author bfoster
  * @version $Revision$
@@ -50,11 +66,18 @@ import java.util.logging.Logger;
  */
 public class TaskQuerier implements Runnable {
 
-  private boolean running;
+  private volatile boolean running;
 
   private WorkflowProcessorQueue processorQueue;
 
-  private List<WorkflowProcessor> runnableProcessors;
+  /* runnable task processors, highest priority first */
+  private final PriorityQueue<ReadyEntry> readyQueue;
+
+  /* the ready queue entry of each queued task processor */
+  private final Map<TaskProcessor, ReadyEntry> readyEntries;
+
+  /* insertion order, to keep processors the sorter ties in FIFO order */
+  private long readySeq = 0;
 
   private PrioritySorter prioritizer;
 
@@ -86,8 +109,10 @@ public class TaskQuerier implements Runnable {
       PrioritySorter prioritizer, WorkflowInstanceRepository repo, long waitSeconds) {
     this.running = true;
     this.processorQueue = processorQueue;
-    this.runnableProcessors = new Vector<WorkflowProcessor>();
     this.prioritizer = prioritizer;
+    this.readyQueue = new PriorityQueue<ReadyEntry>(11,
+        new ReadyEntryComparator(prioritizer));
+    this.readyEntries = new IdentityHashMap<TaskProcessor, ReadyEntry>();
     this.repo = repo;
     this.waitSeconds = waitSeconds;
   }
@@ -95,73 +120,144 @@ public class TaskQuerier implements Runnable {
   /**
    * Marches through the set of processors that are currently in the Processor
    * queue, checks to see if they are NOT in the done state, or if they are
-   * currently in the holding state. If either of those are true, the processor
-   * is popped off the queue, and then added to the runnableProcessors list (in
-   * a synchronized fashion), and then their state is set to Executing
-   * (category, running).
+   * currently in the holding state. If either of those are true, the
+   * processor's runnable task processors are pushed onto the ready queue, and
+   * then their state is set to WaitingOnResources. Otherwise the processor, and
+   * any processors under it, are advanced to their next state.
    * 
-   * Finally the runnableProcessors list is sorted according to the given
-   * {@link #prioritizer}.
+   * After a pass, waits for the {@link WorkflowProcessorQueue} to report a
+   * change, and then only dispositions the changed processors.
    */
   public void run() {
     LOG.log(Level.FINE, "TaskQuerier configured with wait seconds: ["+this.waitSeconds+"]");
+    long waitMillis = waitSeconds * 1000;
+    List<WorkflowProcessor> processors = processorQueue.getProcessors();
+    long lastFullPass = System.currentTimeMillis();
     while (running) {
-      List<WorkflowProcessor> processors = processorQueue.getProcessors();
-      List<WorkflowProcessor> processorsToRun = new Vector<WorkflowProcessor>();
-
-      for (WorkflowProcessor processor : processors) {
-        // OK now get its lifecycle
-        WorkflowProcessorHelper helper = new WorkflowProcessorHelper(
-            processor.getLifecycleManager());
-        WorkflowLifecycle lifecycle = helper
-            .getLifecycleForProcessor(processor);
-
-        LOG.log(Level.FINE, "TaskQuerier: dispositioning processor with id: ["
-            + processor.getWorkflowInstance().getId() + "]: state: "
-            + processor.getWorkflowInstance().getState());
-
-        if (!processor.isAnyCategory("done", "holding")
-            && !processor.isAnyState("Executing")
-            && processor.getRunnableWorkflowProcessors().size() > 0) {
-          for (TaskProcessor tp : processor.getRunnableWorkflowProcessors()) {
-            WorkflowState state = lifecycle.createState("WaitingOnResources",
-                "waiting", "Added to Runnable queue");
-            tp.getWorkflowInstance().setState(state);
-            persist(tp.getWorkflowInstance());
-            LOG.log(Level.INFO, "Added processor with priority: ["
-                + tp.getWorkflowInstance().getPriority() + "]");
-            processorsToRun.add(tp);
-          }
-
-          if (processorsToRun.size() > 1) {
-            prioritizer.sort(processorsToRun);
-          }
-
-          synchronized (runnableProcessors) {
-            if (running) {
-              runnableProcessors = processorsToRun;
-            }
-          }
-
-        } else {
-          // simply call nextState and persist it
-          LOG.log(Level.FINE, "Processor for workflow instance: ["
-              + processor.getWorkflowInstance().getId()
-              + "] not ready to Execute or already Executing: "
-              + "advancing it to next state.");
-          processor.nextState();
-          persist(processor.getWorkflowInstance());
+      if (processors != null) {
+        for (WorkflowProcessor processor : processors) {
+          disposition(processor);
         }
       }
-      
-      try{
-        Thread.currentThread().sleep(waitSeconds*1000);
+
+      boolean changed = false;
+      try {
+        changed = processorQueue.awaitChange(Math.max(1L, lastFullPass
+            + waitMillis - System.currentTimeMillis()));
+      } catch (InterruptedException ignore) {
+      }
+
+      if (changed
+          && System.currentTimeMillis() - lastFullPass < waitMillis) {
+        processors = processorQueue.takeChangedProcessors();
+      } else {
+        // blocked tasks and processors advanced outside of this engine
+        // are only picked up by a full pass
+        processors = processorQueue.getProcessors();
+        lastFullPass = System.currentTimeMillis();
+      }
+    }
+  }
+
+  private void disposition(WorkflowProcessor processor) {
+    // OK now get its lifecycle
+    WorkflowProcessorHelper helper = new WorkflowProcessorHelper(
+        processor.getLifecycleManager());
+    WorkflowLifecycle lifecycle = helper
+        .getLifecycleForProcessor(processor);
+
+    LOG.log(Level.FINE, "TaskQuerier: dispositioning processor with id: ["
+        + processor.getWorkflowInstance().getId() + "]: state: "
+        + processor.getWorkflowInstance().getState());
+
+    // bring the processors under this one up to date first
+    for (WorkflowProcessor subProcessor : processor.getSubProcessors()) {
+      advanceSubProcessors(subProcessor);
+    }
+
+    List<TaskProcessor> runnable;
+    if (!processor.isAnyCategory("done", "holding")
+        && !processor.isAnyState("Executing")
+        && (runnable = processor.getRunnableWorkflowProcessors()).size() > 0) {
+      for (TaskProcessor tp : runnable) {
+        WorkflowState state = lifecycle.createState("WaitingOnResources",
+            "waiting", "Added to Runnable queue");
+        tp.getWorkflowInstance().setState(state);
+        persist(tp.getWorkflowInstance());
+        LOG.log(Level.INFO, "Added processor with priority: ["
+            + tp.getWorkflowInstance().getPriority() + "]");
+        offer(tp);
+      }
+    } else {
+      // simply call nextState and persist it
+      LOG.log(Level.FINE, "Processor for workflow instance: ["
+          + processor.getWorkflowInstance().getId()
+          + "] not ready to Execute or already Executing: "
+          + "advancing it to next state.");
+      advance(processor);
+    }
+  }
+
+  /*
+   * Advances processors under a top-level processor that have nothing to run;
+   * their runnable tasks are only queued through the top-level processor, which
+   * knows the order they run in.
+   */
+  private void advanceSubProcessors(WorkflowProcessor processor) {
+    for (WorkflowProcessor subProcessor : processor.getSubProcessors()) {
+      advanceSubProcessors(subProcessor);
+    }
+    if (!processor.isAnyCategory("done", "holding")
+        && !processor.isAnyState("Executing")
+        && processor.getRunnableWorkflowProcessors().isEmpty()) {
+      advance(processor);
+    }
+  }
+
+  /* moves a processor to its next state, persisting it only if it changed */
+  private void advance(WorkflowProcessor processor) {
+    WorkflowState before = processor.getWorkflowInstance().getState();
+    processor.nextState();
+    if (processor.getWorkflowInstance().getState() != before) {
+      persist(processor.getWorkflowInstance());
+    }
+  }
+
+  /*
+   * Queues a runnable task processor. The heap only places an entry when it
+   * is added, so a queued processor whose key changed is taken out and added
+   * back, keeping its place among processors with the same key.
+   */
+  void offer(TaskProcessor tp) {
+    double key = getPriorityKey(tp);
+    synchronized (readyQueue) {
+      ReadyEntry queued = readyEntries.get(tp);
+      if (queued == null) {
+        ReadyEntry entry = new ReadyEntry(tp, key, readySeq++);
+        readyQueue.add(entry);
+        readyEntries.put(tp, entry);
+        readyQueue.notifyAll();
+      } else if (Double.compare(key, queued.key) != 0) {
+        readyQueue.remove(queued);
+        ReadyEntry entry = new ReadyEntry(tp, key, queued.seq);
+        readyQueue.add(entry);
+        readyEntries.put(tp, entry);
       }
-      catch(InterruptedException ignore){}
-      
     }
   }
 
+  /*
+   * The sorter's key, or for other sorters the processor's priority, which
+   * then only tells when the processor has to be placed again.
+   */
+  private double getPriorityKey(TaskProcessor tp) {
+    if (prioritizer instanceof KeyedPrioritySorter) {
+      return ((KeyedPrioritySorter) prioritizer).getPriorityKey(tp);
+    }
+    Priority priority = tp.getWorkflowInstance().getPriority();
+    return priority != null ? priority.getValue() : 0.0;
+  }
+
   /**
    * @return the running
    */
@@ -175,28 +271,68 @@ public class TaskQuerier implements Runnable {
    */
   public void setRunning(boolean running) {
     this.running = running;
+    if (!running) {
+      processorQueue.signal();
+      synchronized (readyQueue) {
+        readyQueue.notifyAll();
+      }
+    }
   }
 
   /**
-   * @return the runnableProcessors
+   * @return the runnableProcessors, in the order they will be returned from
+   *         {@link #getNext()}
    */
   public List<WorkflowProcessor> getRunnableProcessors() {
+    List<ReadyEntry> entries;
+    synchronized (readyQueue) {
+      entries = new ArrayList<ReadyEntry>(readyQueue);
+    }
+    Collections.sort(entries, readyQueue.comparator());
+    List<WorkflowProcessor> runnableProcessors = new Vector<WorkflowProcessor>(
+        entries.size());
+    for (ReadyEntry entry : entries) {
+      runnableProcessors.add(entry.processor);
+    }
     return runnableProcessors;
   }
 
   /**
-   * Gets the next available {@link TaskProcessor} from the {@link List} of
-   * {@link #runnableProcessors}. Removes that {@link TaskProcessor} from the
-   * actual {@link #runnableProcessors} {@link List}.
+   * Gets the next available {@link TaskProcessor} from the ready queue of
+   * runnable processors, and removes it from the queue.
    * 
-   * @return The next available {@link TaskProcessor} from the {@link List} of
-   *         {@link #runnableProcessors}.
+   * @return The next available {@link TaskProcessor}, or null if there is
+   *         none.
    */
   public TaskProcessor getNext() {
-    if (getRunnableProcessors().size() == 0) {
-      return null;
+    synchronized (readyQueue) {
+      ReadyEntry entry = readyQueue.poll();
+      if (entry == null) {
+        return null;
+      }
+      readyEntries.remove(entry.processor);
+      return entry.processor;
+    }
+  }
+
+  /**
+   * Waits until there is a runnable {@link TaskProcessor}, the querier is
+   * stopped, or the timeout passes.
+   * 
+   * @param timeoutMillis
+   *          The longest time to wait.
+   * @throws InterruptedException
+   *           If interrupted while waiting.
+   */
+  public void awaitRunnable(long timeoutMillis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    synchronized (readyQueue) {
+      long remaining = timeoutMillis;
+      while (readyQueue.isEmpty() && running && remaining > 0) {
+        readyQueue.wait(remaining);
+        remaining = deadline - System.currentTimeMillis();
+      }
     }
-    return (TaskProcessor) getRunnableProcessors().remove(0);
   }
 
   private synchronized void persist(WorkflowInstance instance) {
@@ -219,4 +355,66 @@ public class TaskQuerier implements Runnable {
     }
   }
 
+  private static class ReadyEntry {
+
+    private final TaskProcessor processor;
+
+    private final double key;
+
+    private final long seq;
+
+    ReadyEntry(TaskProcessor processor, double key, long seq) {
+      this.processor = processor;
+      this.key = key;
+      this.seq = seq;
+    }
+  }
+
+  /*
+   * Orders entries by their cached keys, or, for sorters without keys, the
+   * way the PrioritySorter would order the pair, falling back to insertion
+   * order when the keys are equal or the sorter leaves the pair as given
+   * either way.
+   */
+  private static class ReadyEntryComparator implements Comparator<ReadyEntry> {
+
+    private final PrioritySorter prioritizer;
+
+    private final boolean keyed;
+
+    ReadyEntryComparator(PrioritySorter prioritizer) {
+      this.prioritizer = prioritizer;
+      this.keyed = prioritizer instanceof KeyedPrioritySorter;
+    }
+
+    @Override
+    public int compare(ReadyEntry a, ReadyEntry b) {
+      if (a == b) {
+        return 0;
+      }
+      if (keyed) {
+        int byKey = Double.compare(a.key, b.key);
+        if (byKey != 0) {
+          return byKey;
+        }
+        return a.seq < b.seq ? -1 : (a.seq == b.seq ? 0 : 1);
+      }
+      boolean aFirst = sortsFirst(a.processor, b.processor);
+      boolean bFirst = sortsFirst(b.processor, a.processor);
+      if (aFirst != bFirst) {
+        return aFirst ? -1 : 1;
+      }
+      return a.seq < b.seq ? -1 : (a.seq == b.seq ? 0 : 1);
+    }
+
+    private boolean sortsFirst(WorkflowProcessor first,
+        WorkflowProcessor second) {
+      List<WorkflowProcessor> pair = new ArrayList<WorkflowProcessor>(2);
+      pair.add(first);
+      pair.add(second);
+      prioritizer.sort(pair);
+      return pair.get(0) == first;
+    }
+  }
+
 }
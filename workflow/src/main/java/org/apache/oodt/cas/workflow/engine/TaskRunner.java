@@ -57,7 +57,10 @@ import java.util.logging.Logger;
 // TODO(bfoster): Rename... Runner is missleading.
 public class TaskRunner implements Runnable {
 
-  private boolean running;
+  /* longest wait for a runnable task before checking whether to stop */
+  private static final long WAIT_MILLIS = 1000;
+
+  private volatile boolean running;
 
   private final TaskQuerier taskQuerier;
 
@@ -83,6 +86,13 @@ public class TaskRunner implements Runnable {
 
     while (running) {
       nextTaskProcessor = taskQuerier.getNext();
+      if (nextTaskProcessor == null) {
+        try {
+          taskQuerier.awaitRunnable(WAIT_MILLIS);
+        } catch (InterruptedException ignore) {
+        }
+        continue;
+      }
 
       try {
         if (nextTaskProcessor != null && runner.hasOpenSlots(nextTaskProcessor)) {
@@ -135,6 +145,7 @@ public class TaskRunner implements Runnable {
         .createState("Failure", "done",
             "Failed while submitting job to Runner : " + msg));
     //TODO: persist me?
+    nextTaskProcessor.notifyChange(nextTaskProcessor, ChangeType.STATE);
 
   }
 
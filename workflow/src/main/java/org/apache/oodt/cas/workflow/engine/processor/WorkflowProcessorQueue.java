@@ -18,6 +18,7 @@
 package org.apache.oodt.cas.workflow.engine.processor;
 
 //OODT imports
+import org.apache.oodt.cas.workflow.engine.ChangeType;
 import org.apache.oodt.cas.workflow.instrepo.WorkflowInstanceRepository;
 import org.apache.oodt.cas.workflow.lifecycle.WorkflowLifecycle;
 import org.apache.oodt.cas.workflow.lifecycle.WorkflowLifecycleManager;
@@ -28,9 +29,14 @@ import org.apache.oodt.cas.workflow.structs.exceptions.InstanceRepositoryExcepti
 import org.apache.oodt.cas.workflow.structs.exceptions.RepositoryException;
 
 //JDK imports
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -40,11 +46,20 @@ import java.util.logging.Logger;
  * The queue of available {@link WorkflowTask}s, that will be fed into the
  * {@link org.apache.oodt.cas.workflow.engine.TaskQuerier}.
  * 
+ * The queue is kept in memory: the {@link WorkflowInstanceRepository} is only
+ * read on the first call to {@link #getProcessors()} and after
+ * {@link #reload()}. New instances are pushed in with
+ * {@link #addWorkflowInstance(WorkflowInstance)}, and the queue listens to the
+ * processors it builds, so that the {@link
+ * org.apache.oodt.cas.workflow.engine.TaskQuerier} can wait in
+ * {@link #awaitChange(long)} and then only look at the processors in
+ * {@link #takeChangedProcessors()}.
+ * 
  * @author mattmann
  * @version $Revision$
  * 
  */
-public class WorkflowProcessorQueue {
+public class WorkflowProcessorQueue implements WorkflowProcessorListener {
 
   private static final Logger LOG = Logger
       .getLogger(WorkflowProcessorQueue.class.getName());
@@ -57,6 +72,27 @@ public class WorkflowProcessorQueue {
 
   private Map<String, WorkflowProcessor> processorCache;
 
+  /* top-level processors that are not done, by workflow instance id */
+  private final Map<String, WorkflowProcessor> active = new LinkedHashMap<String, WorkflowProcessor>();
+
+  /* instances pushed into the queue, not yet turned into processors */
+  private final List<WorkflowInstance> pending = new Vector<WorkflowInstance>();
+
+  /* top-level processors changed since the last call to takeChangedProcessors */
+  private final Set<WorkflowProcessor> changed = Collections
+      .newSetFromMap(new IdentityHashMap<WorkflowProcessor, Boolean>());
+
+  /* every processor built by this queue, to its top-level processor */
+  private final Map<WorkflowProcessor, WorkflowProcessor> roots = Collections
+      .synchronizedMap(new IdentityHashMap<WorkflowProcessor, WorkflowProcessor>());
+
+  /* guards pending, changed and signalled */
+  private final Object changeLock = new Object();
+
+  private boolean signalled = false;
+
+  private boolean loaded = false;
+
   public WorkflowProcessorQueue(WorkflowInstanceRepository repo,
       WorkflowLifecycleManager lifecycle, WorkflowRepository modelRepo) {
     this.repo = repo;
@@ -67,42 +103,231 @@ public class WorkflowProcessorQueue {
 
   /**
    * Should return the list of available, Queued, {@link WorkflowProcessor}s.
+   * The first call loads every unfinished instance from the instance
+   * repository; later calls only add the instances pushed in since.
    * 
    * @return the list of available, Queued, {@link WorkflowProcessor}s.
    */
   public synchronized List<WorkflowProcessor> getProcessors() {
+    if (!loaded && !loadFromRepository()) {
+      return null;
+    }
+    synchronized (changeLock) {
+      changed.clear();
+    }
+    addPending();
+    List<WorkflowProcessor> processors = new Vector<WorkflowProcessor>(
+        active.values());
+    pruneDone(processors);
+    return processors;
+  }
+
+  /**
+   * Returns the top-level processors that were added, or whose processors
+   * reported a change, since the last call to this method or to
+   * {@link #getProcessors()}.
+   * 
+   * @return the changed, available {@link WorkflowProcessor}s.
+   */
+  public synchronized List<WorkflowProcessor> takeChangedProcessors() {
+    if (!loaded) {
+      return getProcessors();
+    }
+    addPending();
+    List<WorkflowProcessor> processors;
+    synchronized (changeLock) {
+      processors = new Vector<WorkflowProcessor>(changed);
+      changed.clear();
+    }
+    for (Iterator<WorkflowProcessor> i = processors.iterator(); i
+        .hasNext();) {
+      WorkflowProcessor processor = i.next();
+      if (active.get(processor.getWorkflowInstance().getId()) != processor) {
+        i.remove();
+      }
+    }
+    pruneDone(processors);
+    return processors;
+  }
+
+  /**
+   * Pushes a newly persisted {@link WorkflowInstance} into the queue.
+   * 
+   * @param inst
+   *          The instance to process.
+   */
+  public void addWorkflowInstance(WorkflowInstance inst) {
+    synchronized (changeLock) {
+      pending.add(inst);
+      signalled = true;
+      changeLock.notifyAll();
+    }
+  }
+
+  /**
+   * Drops the in-memory queue, so that the next call to
+   * {@link #getProcessors()} reloads it from the instance repository.
+   */
+  public synchronized void reload() {
+    loaded = false;
+    active.clear();
+    signal();
+  }
+
+  /**
+   * Waits until an instance is added, a processor reports a change or
+   * {@link #signal()} is called, or until the timeout passes.
+   * 
+   * @param timeoutMillis
+   *          The longest time to wait.
+   * @return True if woken by a change, false on timeout.
+   * @throws InterruptedException
+   *           If interrupted while waiting.
+   */
+  public boolean awaitChange(long timeoutMillis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    synchronized (changeLock) {
+      long remaining = timeoutMillis;
+      while (!signalled && remaining > 0) {
+        changeLock.wait(remaining);
+        remaining = deadline - System.currentTimeMillis();
+      }
+      boolean woken = signalled;
+      signalled = false;
+      return woken;
+    }
+  }
+
+  /**
+   * Wakes up a thread waiting in {@link #awaitChange(long)}.
+   */
+  public void signal() {
+    synchronized (changeLock) {
+      signalled = true;
+      changeLock.notifyAll();
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessorListener#
+   * notifyChange(org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessor,
+   * org.apache.oodt.cas.workflow.engine.ChangeType)
+   */
+  @Override
+  public void notifyChange(WorkflowProcessor processor, ChangeType changeType) {
+    WorkflowProcessor root = roots.get(processor);
+    synchronized (changeLock) {
+      changed.add(root != null ? root : processor);
+      signalled = true;
+      changeLock.notifyAll();
+    }
+  }
+
+  private boolean loadFromRepository() {
     WorkflowInstancePage page;
+    int pageNum = 1;
+    do {
+      try {
+        page = repo.getPagedWorkflows(pageNum);
+      } catch (Exception e) {
+        LOG.log(Level.SEVERE, e.getMessage());
+        LOG.log(Level.WARNING, "Unable to load workflow processors: Message: "
+            + e.getMessage());
+        return false;
+      }
+      if (page.getPageWorkflows() != null) {
+        for (WorkflowInstance inst : (List<WorkflowInstance>) (List<?>) page
+            .getPageWorkflows()) {
+          if (!inst.getState().getCategory().getName().equals("done")) {
+            addProcessor(inst);
+          }
+        }
+      }
+      pageNum++;
+    } while (pageNum <= page.getTotalPages());
+
+    loaded = true;
+    LOG.log(Level.INFO, "Loaded [" + active.size()
+        + "] unfinished workflow instances from the instance repository");
+    return true;
+  }
+
+  private void addPending() {
+    List<WorkflowInstance> added;
+    synchronized (changeLock) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      added = new Vector<WorkflowInstance>(pending);
+      pending.clear();
+    }
+    for (WorkflowInstance inst : added) {
+      WorkflowProcessor processor = addProcessor(inst);
+      if (processor != null) {
+        synchronized (changeLock) {
+          changed.add(processor);
+        }
+      }
+    }
+  }
+
+  private WorkflowProcessor addProcessor(WorkflowInstance inst) {
+    if (inst.getId() != null && active.containsKey(inst.getId())) {
+      return active.get(inst.getId());
+    }
+    WorkflowProcessor processor;
     try {
-      page = repo.getPagedWorkflows(1);
+      processor = fromWorkflowInstance(inst);
     } catch (Exception e) {
       LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING, "Unable to load workflow processors: Message: "
-          + e.getMessage());
+      LOG.log(Level.WARNING,
+          "Unable to convert workflow instance: [" + inst.getId()
+              + "] into WorkflowProcessor: Message: " + e.getMessage());
       return null;
     }
+    if (processor != null) {
+      active.put(processor.getWorkflowInstance().getId(), processor);
+      track(processor, processor);
+    }
+    return processor;
+  }
 
-    List<WorkflowProcessor> processors = new Vector<WorkflowProcessor>(
-        page.getPageWorkflows() != null ? page.getPageWorkflows().size() : 0);
-    for (WorkflowInstance inst : (List<WorkflowInstance>) (List<?>) page
-        .getPageWorkflows()) {
-      if (!inst.getState().getCategory().getName().equals("done")) {
-        WorkflowProcessor processor;
-        try {
-          processor = fromWorkflowInstance(inst);
-        } catch (Exception e) {
-          LOG.log(Level.SEVERE, e.getMessage());
-          LOG.log(Level.WARNING,
-              "Unable to convert workflow instance: [" + inst.getId()
-                  + "] into WorkflowProcessor: Message: " + e.getMessage());
-          continue;
-        }
-        if (processor != null) {
-          processors.add(processor);
-        }
+  /* listen to a processor and everything under it */
+  private void track(WorkflowProcessor processor, WorkflowProcessor root) {
+    if (!processor.getListeners().contains(this)) {
+      processor.getListeners().add(this);
+    }
+    roots.put(processor, root);
+    for (WorkflowProcessor sub : processor.getSubProcessors()) {
+      track(sub, root);
+    }
+  }
+
+  /* forget finished top-level processors and everything under them */
+  private void pruneDone(List<WorkflowProcessor> processors) {
+    for (Iterator<WorkflowProcessor> i = processors.iterator(); i
+        .hasNext();) {
+      WorkflowProcessor processor = i.next();
+      if (processor.getWorkflowInstance().getState() != null
+          && processor.isAnyCategory("done")) {
+        i.remove();
+        active.remove(processor.getWorkflowInstance().getId());
+        forget(processor);
       }
     }
+  }
 
-    return processors;
+  private void forget(WorkflowProcessor processor) {
+    roots.remove(processor);
+    if (processor.getWorkflowInstance().getId() != null) {
+      processorCache.remove(processor.getWorkflowInstance().getId());
+    }
+    for (WorkflowProcessor sub : processor.getSubProcessors()) {
+      forget(sub);
+    }
   }
   
 
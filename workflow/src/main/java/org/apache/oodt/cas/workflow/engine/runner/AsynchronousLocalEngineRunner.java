@@ -18,6 +18,7 @@
 package org.apache.oodt.cas.workflow.engine.runner;
 
 //JDK imports
+import org.apache.oodt.cas.workflow.engine.ChangeType;
 import org.apache.oodt.cas.workflow.engine.processor.TaskProcessor;
 import org.apache.oodt.cas.workflow.instrepo.WorkflowInstanceRepository;
 import org.apache.oodt.cas.workflow.lifecycle.WorkflowLifecycle;
@@ -90,6 +91,7 @@ public class AsynchronousLocalEngineRunner extends AbstractEngineRunnerBase {
           WorkflowState state = lifecycle.createState("ExecutionComplete", "transition", msg);
           taskProcessor.getWorkflowInstance().setState(state);
           persist(taskProcessor.getWorkflowInstance());
+          taskProcessor.notifyChange(taskProcessor, ChangeType.STATE);
         } catch (Exception e) {
           LOG.log(Level.SEVERE, e.getMessage());
           String msg = "Exception executing task: ["
@@ -98,6 +100,7 @@ public class AsynchronousLocalEngineRunner extends AbstractEngineRunnerBase {
           WorkflowState state = lifecycle.createState("Failure", "done", msg);
           taskProcessor.getWorkflowInstance().setState(state);
           persist(taskProcessor.getWorkflowInstance());
+          taskProcessor.notifyChange(taskProcessor, ChangeType.STATE);
         }
 
       }
@@ -175,18 +175,28 @@ public abstract class AbstractPaginatibleInstanceRepository implements
         List wInstIds = paginateWorkflows(pageNum, status);
 
         if (wInstIds != null && wInstIds.size() > 0) {
-            List workflowInstances = new Vector(wInstIds.size());
+            retPage.setPageWorkflows(getWorkflowInstancesById(wInstIds));
+        }
+
+        return retPage;
+    }
 
-            for (Object wInstId : wInstIds) {
-                String workflowInstId = (String) wInstId;
-                WorkflowInstance inst = getWorkflowInstanceById(workflowInstId);
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.workflow.instrepo.WorkflowInstanceRepository#getWorkflowInstancesById(java.util.List)
+     */
+    public List<WorkflowInstance> getWorkflowInstancesById(
+            List<String> workflowInstIds) throws InstanceRepositoryException {
+        List<WorkflowInstance> workflowInstances = new Vector<WorkflowInstance>(
+                workflowInstIds.size());
+        for (String workflowInstId : workflowInstIds) {
+            WorkflowInstance inst = getWorkflowInstanceById(workflowInstId);
+            if (inst != null) {
                 workflowInstances.add(inst);
             }
-
-            retPage.setPageWorkflows(workflowInstances);
         }
-
-        return retPage;
+        return workflowInstances;
     }
 
     /**
@@ -23,14 +23,18 @@ import org.apache.oodt.cas.metadata.Metadata;
 import org.apache.oodt.cas.workflow.structs.WorkflowInstance;
 import org.apache.oodt.cas.workflow.structs.exceptions.InstanceRepositoryException;
 import org.apache.oodt.cas.workflow.util.DbStructFactory;
+import org.apache.oodt.commons.database.PreparedStatements;
 
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -61,6 +65,9 @@ public class DataSourceWorkflowInstanceRepository extends
     /* should we quote fields or not */
     private boolean quoteFields = false;
 
+    /* ids bound into a single IN list by getWorkflowInstancesById */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
     public DataSourceWorkflowInstanceRepository(DataSource ds,
             boolean quoteFields, int pageSize) {
         this.dataSource = ds;
@@ -76,42 +83,31 @@ public class DataSourceWorkflowInstanceRepository extends
     public synchronized void addWorkflowInstance(WorkflowInstance wInst)
             throws InstanceRepositoryException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
-
-            String startWorkflowSql;
-            String taskIdField;
-            String workflowIdField;
 
-            if (quoteFields) {
-                taskIdField = "'"
-                        + wInst.getWorkflow().getTasks().get(0)
-                                .getTaskId() + "'";
-                workflowIdField = "'" + wInst.getWorkflow().getId() + "'";
-            } else {
-                taskIdField = wInst.getWorkflow().getTasks()
-                        .get(0).getTaskId();
-                workflowIdField = wInst.getWorkflow().getId();
-            }
-
-            startWorkflowSql = "INSERT INTO workflow_instances "
+            String startWorkflowSql = "INSERT INTO workflow_instances "
                     + "(workflow_instance_status, workflow_id, current_task_id,"
                     + "start_date_time, end_date_time, current_task_start_date_time,"
-                    + "current_task_end_date_time, priority, times_blocked) " + "VALUES ('"
-                    + wInst.getStatus() + "', " + workflowIdField + ","
-                    + taskIdField + ", '" + wInst.getStartDateTimeIsoStr()
-                    + "','" + wInst.getEndDateTimeIsoStr() + "','"
-                    + wInst.getCurrentTaskStartDateTimeIsoStr() + "','"
-                    + wInst.getCurrentTaskEndDateTimeIsoStr() + "', "+wInst.getPriority().getValue()+", "
-                    + wInst.getTimesBlocked() + ")";
+                    + "current_task_end_date_time, priority, times_blocked) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
             LOG.log(Level.FINE, "sql: Executing: " + startWorkflowSql);
-            statement.execute(startWorkflowSql);
+            statement = PreparedStatements.prepare(conn, startWorkflowSql,
+                    String.valueOf(wInst.getStatus()),
+                    fieldParam(wInst.getWorkflow().getId()),
+                    fieldParam(wInst.getWorkflow().getTasks().get(0).getTaskId()),
+                    String.valueOf(wInst.getStartDateTimeIsoStr()),
+                    String.valueOf(wInst.getEndDateTimeIsoStr()),
+                    String.valueOf(wInst.getCurrentTaskStartDateTimeIsoStr()),
+                    String.valueOf(wInst.getCurrentTaskEndDateTimeIsoStr()),
+                    wInst.getPriority().getValue(), wInst.getTimesBlocked());
+            statement.executeUpdate();
+            statement.close();
 
             String workflowInstId = "";
 
@@ -119,7 +115,8 @@ public class DataSourceWorkflowInstanceRepository extends
                 String getWorkflowInstIdSql = "SELECT MAX(workflow_instance_id) "
                         + "AS max_id FROM workflow_instances";
 
-                rs = statement.executeQuery(getWorkflowInstIdSql);
+                statement = conn.prepareStatement(getWorkflowInstIdSql);
+                rs = statement.executeQuery();
 
                 while (rs.next()) {
                     workflowInstId = String.valueOf(rs.getInt("max_id"));
@@ -237,41 +234,32 @@ public class DataSourceWorkflowInstanceRepository extends
     public synchronized void updateWorkflowInstance(WorkflowInstance wInst)
             throws InstanceRepositoryException {
         Connection conn = null;
-        Statement statement = null;
-        String taskIdField, workflowIdField;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
-
-            if (quoteFields) {
-                taskIdField = "'" + wInst.getCurrentTaskId() + "'";
-                workflowIdField = "'" + wInst.getWorkflow().getId() + "'";
-            } else {
-                taskIdField = wInst.getCurrentTaskId();
-                workflowIdField = wInst.getWorkflow().getId();
-            }
 
             String updateStatusSql = "UPDATE workflow_instances SET "
-                    + "workflow_instance_status='" + wInst.getStatus()
-                    + "', current_task_id=" + taskIdField + ", workflow_id = "
-                    + workflowIdField + ",start_date_time='"
-                    + wInst.getStartDateTimeIsoStr() + "'," + "end_date_time='"
-                    + wInst.getEndDateTimeIsoStr()
-                    + "',current_task_start_date_time='"
-                    + wInst.getCurrentTaskStartDateTimeIsoStr()
-                    + "',current_task_end_date_time='"
-                    + wInst.getCurrentTaskEndDateTimeIsoStr()
-                    + "',priority="
-                    + wInst.getPriority().getValue()
-                    + ",times_blocked="
-                    + wInst.getTimesBlocked()
-                    +" WHERE workflow_instance_id = " + wInst.getId();
+                    + "workflow_instance_status = ?, current_task_id = ?, "
+                    + "workflow_id = ?, start_date_time = ?, end_date_time = ?, "
+                    + "current_task_start_date_time = ?, "
+                    + "current_task_end_date_time = ?, priority = ?, "
+                    + "times_blocked = ? WHERE workflow_instance_id = ?";
 
             LOG.log(Level.FINE, "updateStatusSql: Executing: "
                     + updateStatusSql);
-            statement.execute(updateStatusSql);
+            statement = PreparedStatements.prepare(conn, updateStatusSql,
+                    String.valueOf(wInst.getStatus()),
+                    fieldParam(wInst.getCurrentTaskId()),
+                    fieldParam(wInst.getWorkflow().getId()),
+                    String.valueOf(wInst.getStartDateTimeIsoStr()),
+                    String.valueOf(wInst.getEndDateTimeIsoStr()),
+                    String.valueOf(wInst.getCurrentTaskStartDateTimeIsoStr()),
+                    String.valueOf(wInst.getCurrentTaskEndDateTimeIsoStr()),
+                    wInst.getPriority().getValue(), wInst.getTimesBlocked(),
+                    instIdParam(wInst.getId()));
+            statement.executeUpdate();
             conn.commit();
 
             // now update its metadata
@@ -322,18 +310,19 @@ public class DataSourceWorkflowInstanceRepository extends
     public synchronized void removeWorkflowInstance(WorkflowInstance wInst)
             throws InstanceRepositoryException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
             String deleteSql = "DELETE FROM workflow_instances "
-                    + "WHERE workflow_instance_id = " + wInst.getId();
+                    + "WHERE workflow_instance_id = ?";
 
             LOG.log(Level.FINE, "sql: Executing: " + deleteSql);
-            statement.execute(deleteSql);
+            statement = PreparedStatements.prepare(conn, deleteSql,
+                    instIdParam(wInst.getId()));
+            statement.executeUpdate();
             conn.commit();
 
             // now remove its metadata
@@ -383,21 +372,22 @@ public class DataSourceWorkflowInstanceRepository extends
     public WorkflowInstance getWorkflowInstanceById(String workflowInstId)
             throws InstanceRepositoryException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         WorkflowInstance workflowInst = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
             String getWorkflowSql = "SELECT * from workflow_instances "
-                    + "WHERE workflow_instance_id = " + workflowInstId;
+                    + "WHERE workflow_instance_id = ?";
 
             LOG.log(Level.FINE, "getWorkflowInstanceById: Executing: "
                     + getWorkflowSql);
-            rs = statement.executeQuery(getWorkflowSql);
+            statement = PreparedStatements.prepare(conn, getWorkflowSql,
+                    instIdParam(workflowInstId));
+            rs = statement.executeQuery();
 
             while (rs.next()) {
                 workflowInst = DbStructFactory.getWorkflowInstance(rs);
@@ -453,6 +443,62 @@ public class DataSourceWorkflowInstanceRepository extends
         return workflowInst;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.workflow.instrepo.WorkflowInstanceRepository#getWorkflowInstancesById(java.util.List)
+     */
+    @Override
+    public List<WorkflowInstance> getWorkflowInstancesById(
+            List<String> workflowInstIds) throws InstanceRepositoryException {
+        List<WorkflowInstance> workflowInsts = new Vector<WorkflowInstance>(
+                workflowInstIds.size());
+        if (workflowInstIds.isEmpty()) {
+            return workflowInsts;
+        }
+
+        Connection conn = null;
+        Map<String, WorkflowInstance> instsById = new HashMap<String, WorkflowInstance>();
+
+        try {
+            conn = dataSource.getConnection();
+            for (int i = 0; i < workflowInstIds.size(); i += MAX_IDS_PER_QUERY) {
+                getWorkflowInstances(conn, workflowInstIds.subList(i,
+                        Math.min(i + MAX_IDS_PER_QUERY, workflowInstIds.size())),
+                        instsById);
+            }
+        } catch (Exception e) {
+            LOG.log(Level.WARNING,
+                    "Exception getting workflow instances. Message: "
+                            + e.getMessage(), e);
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException e2) {
+                LOG.log(Level.SEVERE,
+                        "Unable to rollback getWorkflowInstancesById "
+                                + "transaction. Message: " + e2.getMessage());
+            }
+            throw new InstanceRepositoryException(e.getMessage());
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException ignore) {
+                }
+            }
+        }
+
+        for (String workflowInstId : workflowInstIds) {
+            WorkflowInstance workflowInst = instsById.get(workflowInstId.trim());
+            if (workflowInst != null) {
+                workflowInsts.add(workflowInst);
+            }
+        }
+        return workflowInsts;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -540,22 +586,23 @@ public class DataSourceWorkflowInstanceRepository extends
     public List getWorkflowInstancesByStatus(String status)
             throws InstanceRepositoryException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         List workflowInsts = null;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
             String getWorkflowSql = "SELECT * from workflow_instances "
-                    + "WHERE workflow_instance_status = '" + status
-                    + "' ORDER BY workflow_instance_id DESC";
+                    + "WHERE workflow_instance_status = ?"
+                    + " ORDER BY workflow_instance_id DESC";
 
             LOG.log(Level.FINE, "getWorkflowInstancesByStatus: Executing: "
                     + getWorkflowSql);
-            rs = statement.executeQuery(getWorkflowSql);
+            statement = PreparedStatements.prepare(conn, getWorkflowSql,
+                    status);
+            rs = statement.executeQuery();
 
             workflowInsts = new Vector();
             while (rs.next()) {
@@ -693,20 +740,21 @@ public class DataSourceWorkflowInstanceRepository extends
     public int getNumWorkflowInstancesByStatus(String status)
             throws InstanceRepositoryException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
         int numInsts = -1;
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
             String getWorkflowSql = "SELECT COUNT(workflow_instance_id) AS num_insts from workflow_instances "
-                    + "WHERE workflow_instance_status = '" + status + "'";
+                    + "WHERE workflow_instance_status = ?";
 
             LOG.log(Level.FINE, "getNumWorkflowInstancesByStatus: Executing: "
                     + getWorkflowSql);
-            rs = statement.executeQuery(getWorkflowSql);
+            statement = PreparedStatements.prepare(conn, getWorkflowSql,
+                    status);
+            rs = statement.executeQuery();
 
             while (rs.next()) {
                 numInsts = rs.getInt("num_insts");
@@ -876,20 +924,21 @@ public class DataSourceWorkflowInstanceRepository extends
     private Metadata getWorkflowInstanceMetadata(String workflowInstId)
             throws InstanceRepositoryException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         ResultSet rs = null;
 
         Metadata met = new Metadata();
 
         try {
             conn = dataSource.getConnection();
-            statement = conn.createStatement();
 
             String getWorkflowSql = "SELECT * from workflow_instance_metadata "
-                    + "WHERE workflow_instance_id = " + workflowInstId;
+                    + "WHERE workflow_instance_id = ?";
 
             LOG.log(Level.FINE, "Executing: " + getWorkflowSql);
-            rs = statement.executeQuery(getWorkflowSql);
+            statement = PreparedStatements.prepare(conn, getWorkflowSql,
+                    instIdParam(workflowInstId));
+            rs = statement.executeQuery();
 
             while (rs.next()) {
                 met.addMetadata(rs.getString("workflow_met_key"), URLDecoder.decode(rs
@@ -942,56 +991,124 @@ public class DataSourceWorkflowInstanceRepository extends
         return met;
     }
 
-    private synchronized void addWorkflowInstanceMetadata(WorkflowInstance inst)
-            throws InstanceRepositoryException {
+    /*
+     * Reads the given instances and then all of their metadata, one query
+     * each, into instsById.
+     */
+    private void getWorkflowInstances(Connection conn,
+            List<String> workflowInstIds,
+            Map<String, WorkflowInstance> instsById) throws Exception {
+        Object[] params = new Object[workflowInstIds.size()];
+        StringBuilder inList = new StringBuilder();
+        for (int i = 0; i < params.length; i++) {
+            params[i] = instIdParam(workflowInstIds.get(i));
+            inList.append(i > 0 ? ",?" : "?");
+        }
 
-        if (inst.getSharedContext() != null
-                && inst.getSharedContext().getMap().keySet().size() > 0) {
-            for (String key : inst.getSharedContext().getMap().keySet()) {
-                List vals = inst.getSharedContext().getAllMetadata(key);
-                if (vals != null && vals.size() > 0) {
-                    for (Object val1 : vals) {
-                        String val = (String) val1;
-                        if (val != null && !val.equals("")) {
-                            addMetadataValue(inst.getId(), key, val);
-                        }
-                    }
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try {
+            String getWorkflowsSql = "SELECT * from workflow_instances "
+                    + "WHERE workflow_instance_id IN (" + inList + ")";
+            LOG.log(Level.FINE, "getWorkflowInstancesById: Executing: "
+                    + getWorkflowsSql);
+            statement = PreparedStatements.prepare(conn, getWorkflowsSql,
+                    params);
+            rs = statement.executeQuery();
+            while (rs.next()) {
+                WorkflowInstance workflowInst = DbStructFactory
+                        .getWorkflowInstance(rs);
+                workflowInst.setSharedContext(new Metadata());
+                instsById.put(workflowInst.getId(), workflowInst);
+            }
+            rs.close();
+            statement.close();
+
+            String getMetSql = "SELECT * from workflow_instance_metadata "
+                    + "WHERE workflow_instance_id IN (" + inList + ")";
+            LOG.log(Level.FINE, "getWorkflowInstancesById: Executing: "
+                    + getMetSql);
+            statement = PreparedStatements.prepare(conn, getMetSql, params);
+            rs = statement.executeQuery();
+            while (rs.next()) {
+                WorkflowInstance workflowInst = instsById.get(rs
+                        .getString("workflow_instance_id"));
+                if (workflowInst != null) {
+                    workflowInst.getSharedContext().addMetadata(
+                            rs.getString("workflow_met_key"),
+                            URLDecoder.decode(rs.getString("workflow_met_val"),
+                                    "UTF-8"));
+                }
+            }
+        } finally {
+            if (rs != null) {
+                try {
+                    rs.close();
+                } catch (SQLException ignore) {
+                }
+            }
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException ignore) {
                 }
-
             }
         }
-
     }
 
-    private synchronized void addMetadataValue(String wInstId, String key,
-            String val) throws InstanceRepositoryException {
+    private synchronized void addWorkflowInstanceMetadata(WorkflowInstance inst)
+            throws InstanceRepositoryException {
+
+        if (inst.getSharedContext() == null
+                || inst.getSharedContext().getMap().keySet().size() == 0) {
+            return;
+        }
+
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
             String addMetSql = "INSERT INTO workflow_instance_metadata"
-                    + " (workflow_instance_id,workflow_met_key,workflow_met_val) VALUES ("
-                    + wInstId + ",'" + key + "','" + URLEncoder.encode(val, "UTF-8") + "')";
+                    + " (workflow_instance_id,workflow_met_key,workflow_met_val) VALUES (?, ?, ?)";
 
             LOG.log(Level.FINE, "sql: Executing: " + addMetSql);
-            statement.execute(addMetSql);
+            statement = conn.prepareStatement(addMetSql);
+            Object wInstId = instIdParam(inst.getId());
+            int values = 0;
+
+            for (String key : inst.getSharedContext().getMap().keySet()) {
+                List vals = inst.getSharedContext().getAllMetadata(key);
+                if (vals != null && vals.size() > 0) {
+                    for (Object val1 : vals) {
+                        String val = (String) val1;
+                        if (val != null && !val.equals("")) {
+                            PreparedStatements.bind(statement, wInstId, key,
+                                    URLEncoder.encode(val, "UTF-8"));
+                            statement.addBatch();
+                            values++;
+                        }
+                    }
+                }
+
+            }
 
+            if (values > 0) {
+                statement.executeBatch();
+            }
             conn.commit();
         } catch (Exception e) {
             LOG.log(Level.SEVERE, e.getMessage());
-            LOG.log(Level.WARNING, "Exception adding metadata [" + key + "=>"
-                    + val + "] to workflow inst: [" + wInstId + "]. Message: "
-                    + e.getMessage());
+            LOG.log(Level.WARNING, "Exception adding metadata to workflow inst: ["
+                    + inst.getId() + "]. Message: " + e.getMessage());
             try {
                 if (conn != null) {
                     conn.rollback();
                 }
             } catch (SQLException e2) {
                 LOG.log(Level.SEVERE,
-                        "Unable to rollback addMetadataValue transaction. Message: "
+                        "Unable to rollback addWorkflowInstanceMetadata transaction. Message: "
                                 + e2.getMessage());
             }
             throw new InstanceRepositoryException(e.getMessage());
@@ -1020,18 +1137,19 @@ public class DataSourceWorkflowInstanceRepository extends
     private synchronized void removeWorkflowInstanceMetadata(
             String workflowInstId) throws InstanceRepositoryException {
         Connection conn = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
             conn = dataSource.getConnection();
             conn.setAutoCommit(false);
-            statement = conn.createStatement();
 
             String deleteSql = "DELETE FROM workflow_instance_metadata "
-                    + "WHERE workflow_instance_id = " + workflowInstId;
+                    + "WHERE workflow_instance_id = ?";
 
             LOG.log(Level.FINE, "sql: Executing: " + deleteSql);
-            statement.execute(deleteSql);
+            statement = PreparedStatements.prepare(conn, deleteSql,
+                    instIdParam(workflowInstId));
+            statement.executeUpdate();
             conn.commit();
 
         } catch (Exception e) {
@@ -1069,4 +1187,13 @@ public class DataSourceWorkflowInstanceRepository extends
         }
     }
 
+    /* workflow and task ids are quoted only if quoteFields is set */
+    private Object fieldParam(String id) {
+        return PreparedStatements.idParam(id, quoteFields);
+    }
+
+    /* workflow instance ids are assigned by the database */
+    private static Object instIdParam(String workflowInstId) {
+        return PreparedStatements.idParam(workflowInstId, false);
+    }
 }
@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oodt.cas.workflow.instrepo;
+
+//Lucene imports
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.LogMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+//JDK imports
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * The one {@link IndexWriter} kept open on a {@link LuceneWorkflowInstanceRepository}
+ * index directory, shared by every repository in this JVM using that
+ * directory, along with a near-real-time {@link SearcherManager} over it.
+ * Changes are committed every few seconds rather than one by one, and
+ * searches are refreshed in the background, and also whenever a search would
+ * otherwise miss a change already made.
+ * </p>
+ *
+ * <p>
+ * If the index directory is removed (or its write lock lost) the index is
+ * dropped and a new one opened the next time a repository asks for it.
+ * </p>
+ */
+final class LuceneInstanceIndex {
+
+    /* our log stream */
+    private static final Logger LOG = Logger
+            .getLogger(LuceneInstanceIndex.class.getName());
+
+    /* open indexes, by absolute index directory path */
+    private static final Map<String, LuceneInstanceIndex> INDEXES = new HashMap<String, LuceneInstanceIndex>();
+
+    private static final ScheduledExecutorService MAINTENANCE = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "lucene-instance-index");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                synchronized (INDEXES) {
+                    for (LuceneInstanceIndex index : INDEXES.values()) {
+                        index.close();
+                    }
+                    INDEXES.clear();
+                }
+            }
+        });
+    }
+
+    private final File indexDir;
+
+    private final IndexWriter writer;
+
+    private final SearcherManager searcherManager;
+
+    private final long commitSeconds;
+
+    private final List<ScheduledFuture<?>> tasks = new ArrayList<ScheduledFuture<?>>();
+
+    /* changes made and changes searches have been refreshed to see */
+    private final AtomicLong changes = new AtomicLong();
+
+    private volatile long refreshedChanges = 0L;
+
+    private final Object refreshLock = new Object();
+
+    private final AtomicBoolean uncommitted = new AtomicBoolean();
+
+    /**
+     * @param idxPath
+     *            The index directory.
+     * @param mergeFactor
+     *            The merge factor to open a new index writer with.
+     * @param commitSeconds
+     *            How often a new index commits its changes, or 0 to commit
+     *            every change as it is made.
+     * @param refreshMillis
+     *            How often a new index refreshes its searches in the
+     *            background, or 0 to only refresh them when searching.
+     * @return The open index for the given directory, opening (and if need be
+     *         creating) it if there isn't one.
+     * @throws IOException
+     *             If the index can't be opened.
+     */
+    static LuceneInstanceIndex open(String idxPath, int mergeFactor,
+            long commitSeconds, long refreshMillis) throws IOException {
+        File indexDir = new File(idxPath).getAbsoluteFile();
+        synchronized (INDEXES) {
+            LuceneInstanceIndex index = INDEXES.get(indexDir.getPath());
+            if (index != null && !index.isValid()) {
+                LOG.log(Level.WARNING, "Lucene instance index: [" + indexDir
+                        + "] was removed or closed: reopening it");
+                index.discard();
+                index = null;
+            }
+            if (index == null) {
+                index = new LuceneInstanceIndex(indexDir, mergeFactor,
+                        commitSeconds, refreshMillis);
+                INDEXES.put(indexDir.getPath(), index);
+            }
+            return index;
+        }
+    }
+
+    private LuceneInstanceIndex(File indexDir, int mergeFactor,
+            long commitSeconds, long refreshMillis) throws IOException {
+        this.indexDir = indexDir;
+        this.commitSeconds = commitSeconds;
+
+        Directory directory = FSDirectory.open(indexDir.toPath());
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        LogMergePolicy lmp = new LogDocMergePolicy();
+        lmp.setMergeFactor(mergeFactor);
+        config.setMergePolicy(lmp);
+        writer = new IndexWriter(directory, config);
+        // make sure a new index exists on disk for other processes
+        writer.commit();
+        searcherManager = new SearcherManager(writer, null);
+
+        if (commitSeconds > 0) {
+            tasks.add(MAINTENANCE.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        commit();
+                    } catch (Exception e) {
+                        LOG.log(Level.WARNING, "Unable to commit lucene "
+                                + "instance index: [" + LuceneInstanceIndex.this.indexDir
+                                + "]: Message: " + e.getMessage(), e);
+                    }
+                }
+            }, commitSeconds, commitSeconds, TimeUnit.SECONDS));
+        }
+        if (refreshMillis > 0) {
+            tasks.add(MAINTENANCE.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        refresh();
+                    } catch (Exception e) {
+                        LOG.log(Level.WARNING, "Unable to refresh lucene "
+                                + "instance index: [" + LuceneInstanceIndex.this.indexDir
+                                + "]: Message: " + e.getMessage(), e);
+                    }
+                }
+            }, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    void addDocument(Document doc) throws IOException {
+        writer.addDocument(doc);
+        changed();
+    }
+
+    /**
+     * Atomically replaces the documents matching the given term with the
+     * given document.
+     */
+    void updateDocument(Term term, Document doc) throws IOException {
+        writer.updateDocument(term, doc);
+        changed();
+    }
+
+    void deleteDocuments(Term term) throws IOException {
+        writer.deleteDocuments(term);
+        changed();
+    }
+
+    /**
+     * @return A searcher seeing every change made so far: pass it to
+     *         {@link #release(IndexSearcher)} when done with it.
+     */
+    IndexSearcher acquire() throws IOException {
+        if (refreshedChanges < changes.get()) {
+            refresh();
+        }
+        return searcherManager.acquire();
+    }
+
+    void release(IndexSearcher searcher) {
+        if (searcher != null) {
+            try {
+                searcherManager.release(searcher);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Unable to release searcher of lucene "
+                        + "instance index: [" + indexDir + "]: Message: "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Commits any changes not yet committed to disk.
+     */
+    void commit() throws IOException {
+        if (uncommitted.getAndSet(false)) {
+            try {
+                writer.commit();
+            } catch (IOException e) {
+                uncommitted.set(true);
+                throw e;
+            }
+        }
+    }
+
+    private void changed() throws IOException {
+        changes.incrementAndGet();
+        uncommitted.set(true);
+        if (commitSeconds <= 0) {
+            commit();
+        }
+    }
+
+    private void refresh() throws IOException {
+        synchronized (refreshLock) {
+            long target = changes.get();
+            if (refreshedChanges < target) {
+                searcherManager.maybeRefreshBlocking();
+                refreshedChanges = target;
+            }
+        }
+    }
+
+    private boolean isValid() {
+        return writer.isOpen()
+                && new File(indexDir, IndexWriter.WRITE_LOCK_NAME).exists();
+    }
+
+    /* commits and closes the index */
+    private void close() {
+        cancelTasks();
+        try {
+            searcherManager.close();
+            writer.close();
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Unable to close lucene instance index: ["
+                    + indexDir + "]: Message: " + e.getMessage());
+        }
+    }
+
+    /* closes the index without committing, e.g. once it has been removed */
+    private void discard() {
+        cancelTasks();
+        try {
+            searcherManager.close();
+        } catch (Exception ignore) {
+        }
+        try {
+            writer.rollback();
+        } catch (Exception ignore) {
+        }
+    }
+
+    private void cancelTasks() {
+        for (ScheduledFuture<?> task : tasks) {
+            task.cancel(false);
+        }
+    }
+
+}
@@ -18,17 +18,10 @@
 
 package org.apache.oodt.cas.workflow.instrepo;
 
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.index.LogDocMergePolicy;
-import org.apache.lucene.index.LogMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
@@ -36,10 +29,9 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.oodt.cas.metadata.Metadata;
 import org.apache.oodt.cas.workflow.lifecycle.WorkflowLifecycleStage;
@@ -55,9 +47,10 @@ import org.apache.oodt.cas.workflow.structs.exceptions.InstanceRepositoryExcepti
 import org.safehaus.uuid.UUID;
 import org.safehaus.uuid.UUIDGenerator;
 
-import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -74,11 +67,15 @@ import java.util.logging.Logger;
  */
 public class LuceneWorkflowInstanceRepository extends
         AbstractPaginatibleInstanceRepository {
-    Directory indexDir = null;
-    private DirectoryReader reader;
-    /* the path to the index directory for this catalog */
 
     public static final int MERGE_FACTOR = 20;
+
+    /* how often changes are committed to the index by default */
+    public static final long DEFAULT_COMMIT_SECONDS = 5L;
+
+    /* how often searches are refreshed in the background by default */
+    public static final long DEFAULT_REFRESH_MILLIS = 1000L;
+
     /* path to lucene index directory to store wInst info */
     private String idxFilePath = null;
 
@@ -90,16 +87,61 @@ public class LuceneWorkflowInstanceRepository extends
     private static UUIDGenerator generator = UUIDGenerator.getInstance();
     private int mergeFactor = 20;
 
+    private long commitSeconds;
+
+    private long refreshMillis;
+
+    /* the index shared with every other repository using this path */
+    private volatile LuceneInstanceIndex index = null;
+
     /**
      * 
      */
     public LuceneWorkflowInstanceRepository(String idxPath, int pageSize) {
+        this(idxPath, pageSize, DEFAULT_COMMIT_SECONDS, DEFAULT_REFRESH_MILLIS);
+    }
+
+    /**
+     * @param idxPath
+     *            The path to the index directory.
+     * @param pageSize
+     *            The number of workflow instances per page.
+     * @param commitSeconds
+     *            How often changes are committed to disk, or 0 to commit each
+     *            change as it is made. Changes not yet committed are lost if
+     *            the JVM dies without shutting down.
+     * @param refreshMillis
+     *            How often searches are refreshed in the background, or 0 to
+     *            only refresh them when a search would otherwise miss a
+     *            change.
+     */
+    public LuceneWorkflowInstanceRepository(String idxPath, int pageSize,
+            long commitSeconds, long refreshMillis) {
         this.idxFilePath = idxPath;
         this.pageSize = pageSize;
+        this.commitSeconds = commitSeconds;
+        this.refreshMillis = refreshMillis;
         try {
-            indexDir = FSDirectory.open(new File( idxFilePath ).toPath());
+            getIndex();
+        } catch (InstanceRepositoryException e) {
+            LOG.log(Level.SEVERE, e.getMessage());
+        }
+    }
+
+    /**
+     * Commits any changes to the index not yet committed to disk, e.g.
+     * before another process reads it.
+     * 
+     * @throws InstanceRepositoryException
+     *             If the changes can't be committed.
+     */
+    public void commit() throws InstanceRepositoryException {
+        try {
+            getIndex().commit();
         } catch (IOException e) {
-            e.printStackTrace();
+            LOG.log(Level.WARNING, "Unable to commit index: [" + idxFilePath
+                    + "]: Message: " + e.getMessage());
+            throw new InstanceRepositoryException(e.getMessage());
         }
     }
 
@@ -112,12 +154,7 @@ public class LuceneWorkflowInstanceRepository extends
         IndexSearcher searcher = null;
         int numInsts = -1;
         try {
-            reader = DirectoryReader.open(indexDir);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        try {
-            searcher = new IndexSearcher(reader);
+            searcher = getIndex().acquire();
             Term instIdTerm = new Term("myfield", "myvalue");
             org.apache.lucene.search.Query query = new TermQuery(instIdTerm);
             Sort sort = new Sort(new SortField("workflow_inst_startdatetime",
@@ -132,12 +169,7 @@ public class LuceneWorkflowInstanceRepository extends
                             + "] for search: Message: " + e.getMessage());
             throw new InstanceRepositoryException(e.getMessage());
         } finally {
-            if (searcher != null) {
-                try {
-                    //TODO Shutdown searcher
-                } catch (Exception ignore) {
-                }
-            }
+            release(searcher);
         }
 
         return numInsts;
@@ -153,12 +185,7 @@ public class LuceneWorkflowInstanceRepository extends
         IndexSearcher searcher = null;
         int numInsts = -1;
         try {
-            reader = DirectoryReader.open(indexDir);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        try {
-            searcher = new IndexSearcher(reader);
+            searcher = getIndex().acquire();
             Term instIdTerm = new Term("workflow_inst_status", status);
             org.apache.lucene.search.Query query = new TermQuery(instIdTerm);
             Sort sort = new Sort(new SortField("workflow_inst_startdatetime",
@@ -173,12 +200,7 @@ public class LuceneWorkflowInstanceRepository extends
                             + "] for search: Message: " + e.getMessage());
             throw new InstanceRepositoryException(e.getMessage());
         } finally {
-            if (searcher != null) {
-                try {
-                    //TODO Shutdown searcher
-                } catch (Exception ignore) {
-                }
-            }
+            release(searcher);
         }
 
         return numInsts;
@@ -217,8 +239,7 @@ public class LuceneWorkflowInstanceRepository extends
      */
     public synchronized void updateWorkflowInstance(WorkflowInstance wInst)
             throws InstanceRepositoryException {
-        removeWorkflowInstanceDocument(wInst);
-        addWorkflowInstanceToCatalog(wInst);
+        updateWorkflowInstanceDocument(wInst);
     }
 
     /*
@@ -231,12 +252,7 @@ public class LuceneWorkflowInstanceRepository extends
         IndexSearcher searcher = null;
         WorkflowInstance wInst = null;
         try {
-            reader = DirectoryReader.open(indexDir);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        try {
-            searcher = new IndexSearcher(reader);
+            searcher = getIndex().acquire();
             Term instIdTerm = new Term("workflow_inst_id", workflowInstId);
             org.apache.lucene.search.Query query = new TermQuery(instIdTerm);
             TopDocs check = searcher.search(query, 1);
@@ -260,12 +276,7 @@ public class LuceneWorkflowInstanceRepository extends
                             + "] for search: Message: " + e.getMessage());
             throw new InstanceRepositoryException(e.getMessage());
         } finally {
-            if (searcher != null) {
-                try {
-                    //TODO Shutdown searcher
-                } catch (Exception ignore) {
-                }
-            }
+            release(searcher);
         }
 
         return wInst;
@@ -274,18 +285,60 @@ public class LuceneWorkflowInstanceRepository extends
     /*
      * (non-Javadoc)
      * 
-     * @see org.apache.oodt.cas.workflow.instrepo.WorkflowInstanceRepository#getWorkflowInstances()
+     * @see org.apache.oodt.cas.workflow.instrepo.WorkflowInstanceRepository#getWorkflowInstancesById(java.util.List)
      */
-    public List getWorkflowInstances() throws InstanceRepositoryException {
+    @Override
+    public List<WorkflowInstance> getWorkflowInstancesById(
+            List<String> workflowInstIds) throws InstanceRepositoryException {
+        List<WorkflowInstance> wInsts = new Vector<WorkflowInstance>(
+                workflowInstIds.size());
+        if (workflowInstIds.isEmpty()) {
+            return wInsts;
+        }
+
         IndexSearcher searcher = null;
-        List wInsts = null;
+        Map<String, WorkflowInstance> instsById = new HashMap<String, WorkflowInstance>();
         try {
-            reader = DirectoryReader.open(indexDir);
+            searcher = getIndex().acquire();
+            List<BytesRef> instIds = new Vector<BytesRef>(workflowInstIds.size());
+            for (String workflowInstId : workflowInstIds) {
+                instIds.add(new BytesRef(workflowInstId));
+            }
+            TopDocs topDocs = searcher.search(new TermInSetQuery(
+                    "workflow_inst_id", instIds), workflowInstIds.size());
+            for (ScoreDoc hit : topDocs.scoreDocs) {
+                WorkflowInstance wInst = toWorkflowInstance(searcher
+                        .doc(hit.doc));
+                instsById.put(wInst.getId(), wInst);
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            LOG.log(Level.WARNING,
+                    "IOException when opening index directory: [" + idxFilePath
+                            + "] for search: Message: " + e.getMessage());
+            throw new InstanceRepositoryException(e.getMessage());
+        } finally {
+            release(searcher);
+        }
+
+        for (String workflowInstId : workflowInstIds) {
+            WorkflowInstance wInst = instsById.get(workflowInstId);
+            if (wInst != null) {
+                wInsts.add(wInst);
+            }
         }
+        return wInsts;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.oodt.cas.workflow.instrepo.WorkflowInstanceRepository#getWorkflowInstances()
+     */
+    public List getWorkflowInstances() throws InstanceRepositoryException {
+        IndexSearcher searcher = null;
+        List wInsts = null;
         try {
-            searcher = new IndexSearcher(reader);
+            searcher = getIndex().acquire();
             Term instIdTerm = new Term("myfield", "myvalue");
             org.apache.lucene.search.Query query = new TermQuery(instIdTerm);
             Sort sort = new Sort(new SortField("workflow_inst_startdatetime",
@@ -311,12 +364,7 @@ public class LuceneWorkflowInstanceRepository extends
                             + "] for search: Message: " + e.getMessage());
             throw new InstanceRepositoryException(e.getMessage());
         } finally {
-            if (searcher != null) {
-                try {
-                    //TODO Shutdown searcher
-                } catch (Exception ignore) {
-                }
-            }
+            release(searcher);
         }
 
         return wInsts;
@@ -324,18 +372,10 @@ public class LuceneWorkflowInstanceRepository extends
     
     @Override
     public synchronized boolean clearWorkflowInstances() throws InstanceRepositoryException {
-      IndexWriter writer = null;
       try {
-          IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-          config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-          LogMergePolicy lmp =new LogDocMergePolicy();
-          lmp.setMergeFactor(mergeFactor);
-          config.setMergePolicy(lmp);
-
-          writer = new IndexWriter(indexDir, config);
           LOG.log(Level.FINE,
                   "LuceneWorkflowEngine: remove all workflow instances");
-          writer.deleteDocuments(new Term("myfield", "myvalue"));
+          getIndex().deleteDocuments(new Term("myfield", "myvalue"));
       } catch (IOException e) {
           LOG.log(Level.SEVERE, e.getMessage());
           LOG
@@ -343,16 +383,6 @@ public class LuceneWorkflowInstanceRepository extends
                           "Exception removing workflow instances from index: Message: "
                                   + e.getMessage());
           throw new InstanceRepositoryException(e.getMessage());
-      } finally {
-        if (writer != null){
-          try{
-            writer.close();
-          }
-          catch(Exception ignore){}
-          
-          writer = null;
-        }
-
       }
       
       return true;
@@ -368,12 +398,7 @@ public class LuceneWorkflowInstanceRepository extends
         IndexSearcher searcher = null;
         List wInsts = null;
         try {
-            reader = DirectoryReader.open(indexDir);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        try {
-            searcher = new IndexSearcher(reader);
+            searcher = getIndex().acquire();
             Term instIdTerm = new Term("workflow_inst_status", status);
             org.apache.lucene.search.Query query = new TermQuery(instIdTerm);
             Sort sort = new Sort(new SortField("workflow_inst_startdatetime",
@@ -399,12 +424,7 @@ public class LuceneWorkflowInstanceRepository extends
                             + "] for search: Message: " + e.getMessage());
             throw new InstanceRepositoryException(e.getMessage());
         } finally {
-            if (searcher != null) {
-                try {
-                    //TODO Shutdown searcher
-                } catch (Exception ignore) {
-                }
-            }
+            release(searcher);
         }
 
         return wInsts;
@@ -421,12 +441,7 @@ public class LuceneWorkflowInstanceRepository extends
         List instIds = null;
         IndexSearcher searcher = null;
         try {
-            reader = DirectoryReader.open(indexDir);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        try {
-            searcher = new IndexSearcher(reader);
+            searcher = getIndex().acquire();
 
             // construct a Boolean query here
             BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
@@ -477,12 +492,7 @@ public class LuceneWorkflowInstanceRepository extends
                             + "] for search: Message: " + e.getMessage());
             throw new InstanceRepositoryException(e.getMessage());
         } finally {
-            if (searcher != null) {
-                try {
-                    //TODO Shutdown searcher
-                } catch (Exception ignore) {
-                }
-            }
+            release(searcher);
         }
 
         return instIds;
@@ -490,27 +500,11 @@ public class LuceneWorkflowInstanceRepository extends
 
     private synchronized void removeWorkflowInstanceDocument(
             WorkflowInstance inst) throws InstanceRepositoryException {
-        IndexReader reader = null;
         try {
-            reader = DirectoryReader.open(indexDir);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        try {
-            reader = DirectoryReader.open(indexDir);
-            IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-
-            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-            LogMergePolicy lmp =new LogDocMergePolicy();
-            lmp.setMergeFactor(mergeFactor);
-            config.setMergePolicy(lmp);
-
-            IndexWriter writer = new IndexWriter(indexDir, config);
             LOG.log(Level.FINE,
                     "LuceneWorkflowEngine: remove document from index for workflow instance: ["
                             + inst.getId() + "]");
-            writer.deleteDocuments(new Term("workflow_inst_id", inst.getId()));
-            writer.close();
+            getIndex().deleteDocuments(new Term("workflow_inst_id", inst.getId()));
         } catch (IOException e) {
             LOG.log(Level.SEVERE, e.getMessage());
             LOG
@@ -519,47 +513,62 @@ public class LuceneWorkflowInstanceRepository extends
                                     + inst.getId() + "] from index: Message: "
                                     + e.getMessage());
             throw new InstanceRepositoryException(e.getMessage());
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (Exception ignore) {
-                }
-
-            }
+        }
+    }
 
+    private synchronized void updateWorkflowInstanceDocument(
+            WorkflowInstance wInst) throws InstanceRepositoryException {
+        try {
+            getIndex().updateDocument(
+                    new Term("workflow_inst_id", wInst.getId()), toDoc(wInst));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Unable to update workflow instance: ["
+                    + wInst.getId() + "] in index: Message: " + e.getMessage());
+            throw new InstanceRepositoryException(
+                    "Unable to update workflow instance: [" + wInst.getId()
+                            + "] in index: Message: " + e.getMessage());
         }
     }
 
     private synchronized void addWorkflowInstanceToCatalog(
             WorkflowInstance wInst) throws InstanceRepositoryException {
-        IndexWriter writer = null;
-
         try {
-            IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-
-            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-            LogMergePolicy lmp =new LogDocMergePolicy();
-            lmp.setMergeFactor(mergeFactor);
-            config.setMergePolicy(lmp);
-
-            writer = new IndexWriter(indexDir, config);
-            Document doc = toDoc(wInst);
-            writer.addDocument(doc);
+            getIndex().addDocument(toDoc(wInst));
         } catch (IOException e) {
             LOG.log(Level.WARNING, "Unable to index workflow instance: ["
                     + wInst.getId() + "]: Message: " + e.getMessage());
             throw new InstanceRepositoryException(
                     "Unable to index workflow instance: [" + wInst.getId()
                             + "]: Message: " + e.getMessage());
-        } finally {
-            try {
-                writer.close();
-            } catch (Exception e) {
-                System.out.println(e);
+        }
+
+    }
+
+    private LuceneInstanceIndex getIndex() throws InstanceRepositoryException {
+        LuceneInstanceIndex idx = index;
+        if (idx == null) {
+            synchronized (this) {
+                idx = index;
+                if (idx == null) {
+                    try {
+                        idx = LuceneInstanceIndex.open(idxFilePath,
+                                mergeFactor, commitSeconds, refreshMillis);
+                    } catch (IOException e) {
+                        throw new InstanceRepositoryException(
+                                "Unable to open index: [" + idxFilePath
+                                        + "]: Message: " + e.getMessage());
+                    }
+                    index = idx;
+                }
             }
         }
+        return idx;
+    }
 
+    private void release(IndexSearcher searcher) {
+        if (index != null) {
+            index.release(searcher);
+        }
     }
 
     private Document toDoc(WorkflowInstance workflowInst) {
@@ -19,19 +19,11 @@
 package org.apache.oodt.cas.workflow.instrepo;
 
 //JDK imports
-import java.io.File;
-import java.io.IOException;
 import java.util.logging.Logger;
 
 //OODT imports
-import org.apache.lucene.index.*;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
 import org.apache.oodt.cas.metadata.util.PathUtils;
 
-//Lucene imports
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
-
 /**
  * @author mattmann
  * @version $Revision$
@@ -48,6 +40,10 @@ public class LuceneWorkflowInstanceRepositoryFactory implements
     private String indexFilePath = null;
 
     private int pageSize = -1;
+
+    private long commitSeconds;
+
+    private long refreshMillis;
     
 	/* our log stream */
     private static final Logger LOG = Logger.getLogger(LuceneWorkflowInstanceRepositoryFactory.class.getName());
@@ -67,6 +63,12 @@ public class LuceneWorkflowInstanceRepositoryFactory implements
         indexFilePath = PathUtils.replaceEnvVariables(indexFilePath);
         pageSize = Integer.getInteger(
             "org.apache.oodt.cas.workflow.instanceRep.pageSize", VAL);
+        commitSeconds = Long.getLong(
+            "org.apache.oodt.cas.workflow.instanceRep.lucene.commitSeconds",
+            LuceneWorkflowInstanceRepository.DEFAULT_COMMIT_SECONDS);
+        refreshMillis = Long.getLong(
+            "org.apache.oodt.cas.workflow.instanceRep.lucene.refreshMillis",
+            LuceneWorkflowInstanceRepository.DEFAULT_REFRESH_MILLIS);
     }
 
     /*
@@ -75,35 +77,9 @@ public class LuceneWorkflowInstanceRepositoryFactory implements
      * @see org.apache.oodt.cas.workflow.instrepo.WorkflowInstanceRepositoryFactory#createInstanceRepository()
      */
     public WorkflowInstanceRepository createInstanceRepository() {
-		Directory indexDir = null;
-		try {
-			indexDir = FSDirectory.open(new File( indexFilePath ).toPath());
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	    // Create the index if it does not already exist
-	    IndexWriter writer = null;
-		try {
-				IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-
-				config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-				LogMergePolicy lmp =new LogDocMergePolicy();
-				config.setMergePolicy(lmp);
-
-				writer = new IndexWriter(indexDir, config);
-	        } catch (Exception e) {
-	            LOG.severe("Unable to create index: " + e.getMessage());
-	        } finally {
-	            if (writer != null) {
-	                try {
-	                    writer.close();
-	                } catch (Exception e) {
-	                    LOG.severe("Unable to close index: " + e.getMessage());
-	                }
-	            }
-	        }
-
-        return new LuceneWorkflowInstanceRepository(indexFilePath, pageSize);
+        // the repository creates the index if it does not already exist
+        return new LuceneWorkflowInstanceRepository(indexFilePath, pageSize,
+            commitSeconds, refreshMillis);
     }
 
 }
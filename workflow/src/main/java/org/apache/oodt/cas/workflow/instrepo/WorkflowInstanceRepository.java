@@ -90,6 +90,24 @@ public interface WorkflowInstanceRepository extends Pagination {
     WorkflowInstance getWorkflowInstanceById(String workflowInstId)
             throws InstanceRepositoryException;
 
+    /**
+     * <p>
+     * Returns the {@link WorkflowInstance}s with the specified
+     * <code>workflowInstIds</code>, along with their metadata, in as few
+     * lookups as the repository allows.
+     * </p>
+     *
+     * @param workflowInstIds
+     *            The IDs of the {@link WorkflowInstance}s to return.
+     * @return The specified {@link WorkflowInstance}s, in the order of
+     *         <code>workflowInstIds</code>. IDs that don't name an instance
+     *         are left out.
+     * @throws InstanceRepositoryException
+     *             If any error occurs.
+     */
+    List<WorkflowInstance> getWorkflowInstancesById(List<String> workflowInstIds)
+            throws InstanceRepositoryException;
+
     /**
      * @return A {@link List} of {@link WorkflowInstance}s that this
      *         {@link WorkflowEngine} is managing.
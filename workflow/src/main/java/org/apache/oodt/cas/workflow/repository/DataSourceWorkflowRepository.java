@@ -36,6 +36,11 @@ import javax.sql.DataSource;
 /**
  * 
  * A {@link DataSource}-based implementation of a workflow repository.
+ * Workflow, task and condition lookups are answered from a {@link WorkflowModel}
+ * read in a handful of queries, rather than a query per workflow, task and
+ * condition. Changes made to the database by anything other than this
+ * repository are not seen until its next <code>addTask</code> or
+ * <code>addWorkflow</code>.
  * 
  * @author mattmann
  * @version $Revision$
@@ -45,6 +50,10 @@ public class DataSourceWorkflowRepository implements WorkflowRepository {
   /* our data source */
   private DataSource dataSource = null;
 
+  /* the workflows, tasks and conditions in the database: read when first
+   * needed, and again after each change made through this repository */
+  private volatile WorkflowModel model = null;
+
   /* our log stream */
   private Logger LOG = Logger.getLogger(DataSourceWorkflowRepository.class
       .getName());
@@ -73,84 +82,10 @@ public class DataSourceWorkflowRepository implements WorkflowRepository {
 
   public Workflow getWorkflowByName(String workflowName, boolean getTasks,
       boolean getConditions) throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    Workflow workflow = null;
-
-    try {
-      if(dataSource!=null) {
-        conn = dataSource.getConnection();
-      }
-      else{
-        throw new RepositoryException("Null datasource");
-      }
-      statement = conn.createStatement();
-
-      String getWorkflowSql = "SELECT * from workflows WHERE workflow_name = '"
-          + workflowName + "'";
-
-      LOG.log(Level.FINE, "getWorkflowByName: Executing: " + getWorkflowSql);
-      rs = statement.executeQuery(getWorkflowSql);
-
-      while (rs.next()) {
-        workflow = DbStructFactory.getWorkflow(rs);
-
-        if (getTasks) {
-          workflow.setTasks(getTasksByWorkflowId(workflow.getId()));
-        }
-
-        if (getConditions) {
-          workflow.setConditions(getConditionsByWorkflowId(workflow.getId()));
-          handleGlobalWorkflowConditions(workflow);
-        }
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING,
-          "Exception getting workflow. Message: " + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(
-            Level.SEVERE,
-            "Unable to rollback getWorkflowByName transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
-      }
-    }
-
-    return workflow;
+    WorkflowModel model = getModel();
+    String workflowId = model.getWorkflowId(workflowName);
+    return workflowId != null ? model.getWorkflow(workflowId, getTasks,
+        getConditions) : null;
   }
 
   /*
@@ -166,84 +101,7 @@ public class DataSourceWorkflowRepository implements WorkflowRepository {
 
   public Workflow getWorkflowById(String workflowId, boolean getTasks,
       boolean getConditions) throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    Workflow workflow = null;
-
-    try {
-
-      if(dataSource!=null) {
-        conn = dataSource.getConnection();
-      }
-      else{
-        throw new RepositoryException("Null datasource");
-      }      statement = conn.createStatement();
-
-      String getWorkflowSql = "SELECT * from workflows WHERE workflow_id = '"
-          + workflowId + "'";
-
-      LOG.log(Level.FINE, "getWorkflowById: Executing: " + getWorkflowSql);
-      rs = statement.executeQuery(getWorkflowSql);
-
-      while (rs.next()) {
-        workflow = DbStructFactory.getWorkflow(rs);
-
-        if (getTasks) {
-          workflow.setTasks(getTasksByWorkflowId(workflow.getId()));
-        }
-
-        if (getConditions) {
-          workflow.setConditions(getConditionsByWorkflowId(workflow.getId()));
-          handleGlobalWorkflowConditions(workflow);
-        }
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING,
-          "Exception getting workflow. Message: " + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(
-            Level.SEVERE,
-            "Unable to rollback getWorkflowById transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
-      }
-    }
-
-    return workflow;
+    return getModel().getWorkflow(workflowId, getTasks, getConditions);
   }
 
   /*
@@ -258,596 +116,67 @@ public class DataSourceWorkflowRepository implements WorkflowRepository {
 
   public List getWorkflows(boolean getTasks, boolean getConditions)
       throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    List workflows = null;
-
-    try {
-      conn = dataSource.getConnection();
-      statement = conn.createStatement();
-
-      String getWorkflowSql = "SELECT * from workflows";
-
-      LOG.log(Level.FINE, "getWorkflows: Executing: " + getWorkflowSql);
-      rs = statement.executeQuery(getWorkflowSql);
-      workflows = new Vector();
-
-      while (rs.next()) {
-        Workflow workflow = DbStructFactory.getWorkflow(rs);
-
-        if (getTasks) {
-          workflow.setTasks(getTasksByWorkflowId(workflow.getId()));
-        }
-
-        if (getConditions) {
-          workflow.setConditions(getConditionsByWorkflowId(workflow.getId()));
-          handleGlobalWorkflowConditions(workflow);
-        }
-
-        workflows.add(workflow);
-      }
-
-      if (workflows.size() == 0) {
-        workflows = null;
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING,
-          "Exception getting workflows. Message: " + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(
-            Level.SEVERE,
-            "Unable to rollback getWorkflows transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
-      }
+    WorkflowModel model = getModel();
+    List<Workflow> workflows = new Vector<Workflow>();
+    for (String workflowId : model.getWorkflowIds()) {
+      workflows.add(model.getWorkflow(workflowId, getTasks, getConditions));
     }
-
-    return workflows;
+    return workflows.size() > 0 ? workflows : null;
   }
 
   public List getTasksByWorkflowId(String workflowId)
       throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    List tasks = null;
-
-    try {
-      conn = dataSource.getConnection();
-      statement = conn.createStatement();
-
-      String getTasksSql = "SELECT workflow_tasks.*, workflow_task_map.task_order "
-          + "FROM workflow_tasks, workflow_task_map "
-          + "WHERE workflow_task_map.workflow_task_id = workflow_tasks.workflow_task_id "
-          + "AND workflow_task_map.workflow_id = "
-          + workflowId
-          + " "
-          + "ORDER BY workflow_task_map.task_order";
-
-      LOG.log(Level.FINE, "getTasksByWorkflowId: Executing: " + getTasksSql);
-      rs = statement.executeQuery(getTasksSql);
-      tasks = new Vector();
-
-      while (rs.next()) {
-        // get an instance of the class name
-
-        WorkflowTask task = DbStructFactory.getWorkflowTask(rs, true);
-
-        if (task != null) {
-          task.setConditions(getConditionsByTaskId(task.getTaskId()));
-          task.setTaskConfig(getConfigurationByTaskId(task.getTaskId()));
-          tasks.add(task);
-        }
-      }
-
-      if (tasks.size() == 0) {
-        tasks = null;
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING, "Exception getting tasks for workflow. Message: "
-          + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(Level.SEVERE,
-            "Unable to rollback getTasksByWorkflowId transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
-      }
-    }
-
-    return tasks;
-  }
+    return getModel().getTasksByWorkflowId(workflowId);
+  }
 
   public List<WorkflowTask> getTasksByWorkflowName(String workflowName)
       throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    List<WorkflowTask> tasks = null;
-
-    try {
-      conn = dataSource.getConnection();
-      statement = conn.createStatement();
-
-      String getTasksSql = "SELECT workflow_tasks.*, workflow_task_map.task_order "
-          + "FROM workflow_tasks, workflow_task_map, workflows "
-          + "WHERE workflow_task_map.workflow_task_id = workflow_tasks.workflow_task_id "
-          + "AND workflow_task_map.workflow_id = workflows.workflow_id "
-          + "AND workflows.workflow_name = '"
-          + workflowName
-          + "' "
-          + "ORDER BY workflow_task_map.task_order";
-
-      LOG.log(Level.FINE, "getTasksByWorkflowName: Executing: " + getTasksSql);
-      rs = statement.executeQuery(getTasksSql);
-      tasks = new Vector();
-
-      while (rs.next()) {
-        // get an instance of the class name
-        WorkflowTask task = DbStructFactory.getWorkflowTask(rs, true);
-
-        if (task != null) {
-          task.setConditions(getConditionsByTaskId(task.getTaskId()));
-          task.setTaskConfig(getConfigurationByTaskId(task.getTaskId()));
-          tasks.add(task);
-        }
-      }
-
-      if (tasks.size() == 0) {
-        tasks = null;
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING, "Exception getting tasks for workflow. Message: "
-          + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(Level.SEVERE,
-            "Unable to rollback getTasksByWorkflowName transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
-      }
-    }
-
-    return tasks;
-  }
-
-  public List<Workflow> getWorkflowsForEvent(String eventName) throws RepositoryException {
-    return getWorkflowsForEvent(eventName, true, true);
-  }
-
-  public List<Workflow> getWorkflowsForEvent(String eventName, boolean getTasks,
-      boolean getConditions) throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    List<Workflow> workflows = null;
-
-    try {
-      conn = dataSource.getConnection();
-      statement = conn.createStatement();
-
-      String getWorkflowSql = "SELECT * from workflows, event_workflow_map WHERE event_workflow_map.workflow_id = workflows.workflow_id  "
-          + "AND event_workflow_map.event_name = '" + eventName + "'";
-
-      LOG.log(Level.FINE, "getWorkflowsForEvent: Executing: " + getWorkflowSql);
-      rs = statement.executeQuery(getWorkflowSql);
-      workflows = new Vector();
-
-      while (rs.next()) {
-        Workflow workflow = DbStructFactory.getWorkflow(rs);
-
-        if (getTasks) {
-          workflow.setTasks(getTasksByWorkflowId(workflow.getId()));
-        }
-
-        if (getConditions) {
-          workflow.setConditions(getConditionsByWorkflowId(workflow.getId()));
-          handleGlobalWorkflowConditions(workflow);
-        }
-
-        workflows.add(workflow);
-      }
-
-      if (workflows.size() == 0) {
-        workflows = null;
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING, "Exception getting workflows for event. Message: "
-          + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(Level.SEVERE,
-            "Unable to rollback getWorkflowsForEvent transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
-      }
-    }
-
-    return workflows;
-  }
-
-  /*
-   * (non-Javadoc)
-   * 
-   * @see org.apache.oodt.cas.workflow.repository.WorkflowRepository#
-   * getConditionsByTaskName(java.lang.String)
-   */
-  public List<WorkflowCondition> getConditionsByTaskName(String taskName)
-      throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    List conditions = null;
-
-    try {
-      conn = dataSource.getConnection();
-      statement = conn.createStatement();
-
-      String getConditionsSql = "SELECT workflow_conditions.*, task_condition_map.condition_order "
-          + "FROM workflow_conditions, task_condition_map, workflow_tasks "
-          + "WHERE task_condition_map.workflow_condition_id = workflow_conditions.workflow_condition_id "
-          + "AND task_condition_map.workflow_task_id = workflow_tasks.workflow_task_id "
-          + "AND workflow_tasks.workflow_task_name = '"
-          + taskName
-          + "' "
-          + "ORDER BY task_condition_map.condition_order";
-
-      LOG.log(Level.FINE, "getConditionsByTaskName: Executing: "
-          + getConditionsSql);
-      rs = statement.executeQuery(getConditionsSql);
-      conditions = new Vector();
-
-      while (rs.next()) {
-        // get an instance of the class name
-        WorkflowCondition condition = DbStructFactory.getWorkflowCondition(rs,
-            true);
-        conditions.add(condition);
-      }
-
-      if (conditions.size() == 0) {
-        conditions = null;
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING, "Exception getting conditions for task. Message: "
-          + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(Level.SEVERE,
-            "Unable to rollback getConditionsByTaskName transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
-      }
-    }
-
-    return conditions;
-  }
-
-  /*
-   * (non-Javadoc)
-   * 
-   * @see org.apache.oodt.cas.workflow.repository.WorkflowRepository#
-   * getConditionsByTaskId(java.lang.String)
-   */
-  public List getConditionsByTaskId(String taskId) throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    List conditions = null;
-
-    try {
-      conn = dataSource.getConnection();
-      statement = conn.createStatement();
-
-      String getConditionsSql = "SELECT workflow_conditions.*, task_condition_map.condition_order "
-          + "FROM workflow_conditions, task_condition_map "
-          + "WHERE task_condition_map.workflow_condition_id = workflow_conditions.workflow_condition_id "
-          + "AND task_condition_map.workflow_task_id = "
-          + taskId
-          + " "
-          + "ORDER BY task_condition_map.condition_order";
-
-      LOG.log(Level.FINE, "getConditionsByTaskId: Executing: "
-          + getConditionsSql);
-      rs = statement.executeQuery(getConditionsSql);
-      conditions = new Vector();
-
-      while (rs.next()) {
-        // get an instance of the class name
-        WorkflowCondition condition = DbStructFactory.getWorkflowCondition(rs,
-            true);
-        conditions.add(condition);
-      }
-
-      if (conditions.size() == 0) {
-        conditions = null;
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING, "Exception getting conditions for task. Message: "
-          + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(Level.SEVERE,
-            "Unable to rollback getConditionsByTaskId transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
-      }
-    }
-
-    return conditions;
+    WorkflowModel model = getModel();
+    String workflowId = model.getWorkflowId(workflowName);
+    return workflowId != null ? model.getTasksByWorkflowId(workflowId) : null;
   }
 
-  public WorkflowTaskConfiguration getConfigurationByTaskId(String taskId)
-      throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    WorkflowTaskConfiguration config = null;
-
-    try {
-      if(dataSource!=null) {
-        conn = dataSource.getConnection();
-      }
-      else{
-        throw new RepositoryException("Null data source");
-      }
-      statement = conn.createStatement();
-
-      String getConfigurationSql = "SELECT * from workflow_task_configuration WHERE workflow_task_id = "
-          + taskId;
-
-      LOG.log(Level.FINE, "getConfigurationByTaskId: Executing: "
-          + getConfigurationSql);
-      rs = statement.executeQuery(getConfigurationSql);
-
-      config = new WorkflowTaskConfiguration();
-      while (rs.next()) {
-        config.getProperties().put(rs.getString("property_name"),
-            rs.getString("property_value"));
-      }
-
-      if (config.getProperties().keySet().size() == 0) {
-        config = null;
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING,
-          "Exception getting task configuration for taskId: " + taskId
-              + " Message: " + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(Level.SEVERE,
-            "Unable to rollback getConfigurationBytaskId transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
+  public List<Workflow> getWorkflowsForEvent(String eventName) throws RepositoryException {
+    return getWorkflowsForEvent(eventName, true, true);
+  }
+
+  public List<Workflow> getWorkflowsForEvent(String eventName, boolean getTasks,
+      boolean getConditions) throws RepositoryException {
+    WorkflowModel model = getModel();
+    List<Workflow> workflows = new Vector<Workflow>();
+    for (String workflowId : model.getWorkflowIdsForEvent(eventName)) {
+      Workflow workflow = model.getWorkflow(workflowId, getTasks, getConditions);
+      if (workflow != null) {
+        workflows.add(workflow);
       }
     }
+    return workflows.size() > 0 ? workflows : null;
+  }
 
-    return config;
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.oodt.cas.workflow.repository.WorkflowRepository#
+   * getConditionsByTaskName(java.lang.String)
+   */
+  public List<WorkflowCondition> getConditionsByTaskName(String taskName)
+      throws RepositoryException {
+    return getModel().getConditionsByTaskName(taskName);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.oodt.cas.workflow.repository.WorkflowRepository#
+   * getConditionsByTaskId(java.lang.String)
+   */
+  public List getConditionsByTaskId(String taskId) throws RepositoryException {
+    return getModel().getConditionsByTaskId(taskId);
+  }
+
+  public WorkflowTaskConfiguration getConfigurationByTaskId(String taskId)
+      throws RepositoryException {
+    return getModel().getConfigurationByTaskId(taskId);
   }
 
   public WorkflowConditionConfiguration getConfigurationByConditionId(
@@ -934,72 +263,7 @@ public class DataSourceWorkflowRepository implements WorkflowRepository {
    */
   public WorkflowTask getWorkflowTaskById(String taskId)
       throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    WorkflowTask task = null;
-
-    try {
-      conn = dataSource.getConnection();
-      statement = conn.createStatement();
-
-      String getTaskSql = "SELECT * FROM workflow_tasks WHERE workflow_task_id = "
-          + taskId;
-
-      LOG.log(Level.FINE, "getWorkflowTaskById: Executing: " + getTaskSql);
-      rs = statement.executeQuery(getTaskSql);
-
-      while (rs.next()) {
-        // get an instance of the class name
-        task = DbStructFactory.getWorkflowTask(rs, false);
-        task.setConditions(getConditionsByTaskId(task.getTaskId()));
-        task.setTaskConfig(getConfigurationByTaskId(task.getTaskId()));
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING,
-          "Exception getting task by id. Message: " + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(Level.SEVERE,
-            "Unable to rollback getWorkflowTaskById transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
-      }
-    }
-
-    return task;
+    return getModel().getTask(taskId);
   }
 
   /*
@@ -1181,7 +445,9 @@ public class DataSourceWorkflowRepository implements WorkflowRepository {
       }
     }
 
-    return this.commitTask(null, task);
+    String taskId = this.commitTask(null, task);
+    this.model = null;
+    return taskId;
   }
 
   /*
@@ -1223,7 +489,9 @@ public class DataSourceWorkflowRepository implements WorkflowRepository {
       }
     }
 
-    return this.commitWorkflow(workflow);
+    String workflowId = this.commitWorkflow(workflow);
+    this.model = null;
+    return workflowId;
   }
 
   /*
@@ -1235,85 +503,7 @@ public class DataSourceWorkflowRepository implements WorkflowRepository {
   @Override
   public List<WorkflowCondition> getConditionsByWorkflowId(String workflowId)
       throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    List<WorkflowCondition> conditions = null;
-
-    try {
-      conn = dataSource.getConnection();
-      statement = conn.createStatement();
-
-      String getConditionsSql = "SELECT workflow_conditions.*, workflow_condition_map.condition_order "
-          + "FROM workflow_conditions, workflow_condition_map "
-          + "WHERE workflow_condition_map.workflow_condition_id = workflow_conditions.workflow_condition_id "
-          + "AND workflow_condition_map.workflow_id = "
-          + workflowId
-          + " "
-          + "ORDER BY workflow_condition_map.condition_order";
-
-      LOG.log(Level.FINE, "getConditionsByWorkflowId: Executing: "
-          + getConditionsSql);
-      rs = statement.executeQuery(getConditionsSql);
-      conditions = new Vector<WorkflowCondition>();
-
-      while (rs.next()) {
-        // get an instance of the class name
-        WorkflowCondition condition = DbStructFactory.getWorkflowCondition(rs,
-            true);
-        conditions.add(condition);
-      }
-
-      if (conditions.size() == 0) {
-        conditions = null;
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(
-          Level.WARNING,
-          "Exception getting conditions for workflow. Message: "
-              + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(Level.SEVERE,
-            "Unable to rollback getConditionsByWorkflowId transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
-      }
-    }
-
-    return conditions;
+    return getModel().getConditionsByWorkflowId(workflowId);
   }
   
 
@@ -1322,78 +512,7 @@ public class DataSourceWorkflowRepository implements WorkflowRepository {
    */
   @Override
   public WorkflowTask getTaskById(String taskId) throws RepositoryException {
-    Connection conn = null;
-    Statement statement = null;
-    ResultSet rs = null;
-
-    WorkflowTask task = null;
-
-    try {
-      conn = dataSource.getConnection();
-      statement = conn.createStatement();
-
-      String getTasksSql = "SELECT * "
-          + "FROM workflow_tasks "
-          + "WHERE workflow_task_id = " + taskId;
-
-      LOG.log(Level.FINE, "getTaskById: Executing: " + getTasksSql);
-      rs = statement.executeQuery(getTasksSql);
-     
-
-      while (rs.next()) {
-        // get an instance of the class name
-
-        task = DbStructFactory.getWorkflowTask(rs, true);
-
-        if (task != null) {
-          task.setConditions(getConditionsByTaskId(task.getTaskId()));
-          task.setTaskConfig(getConfigurationByTaskId(task.getTaskId()));
-        }
-      }
-
-    } catch (Exception e) {
-      LOG.log(Level.SEVERE, e.getMessage());
-      LOG.log(Level.WARNING, "Exception getting tasks for workflow. Message: "
-          + e.getMessage());
-      try {
-        if (conn != null) {
-          conn.rollback();
-        }
-      } catch (SQLException e2) {
-        LOG.log(Level.SEVERE,
-            "Unable to rollback getTasksByWorkflowId transaction. Message: "
-                + e2.getMessage());
-      }
-      throw new RepositoryException(e.getMessage());
-    } finally {
-
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (statement != null) {
-        try {
-          statement.close();
-        } catch (SQLException ignore) {
-        }
-
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-
-        } catch (SQLException ignore) {
-        }
-
-      }
-    }
-
-    return task;
+    return getModel().getTask(taskId);
   }    
 
   private String commitWorkflow(Workflow workflow) throws RepositoryException {
@@ -1749,29 +868,82 @@ public class DataSourceWorkflowRepository implements WorkflowRepository {
     return false;
   }
 
-  private void handleGlobalWorkflowConditions(Workflow workflow) throws RepositoryException {
-    if (workflow.getConditions() != null && workflow.getConditions().size() > 0) {
-      if (workflow.getTasks() == null || (workflow.getTasks().size() == 0)) {
-        workflow.setTasks(new Vector<WorkflowTask>());
+  /**
+   * Returns the workflow model, reading it from the database if it hasn't
+   * been yet or has changed since. Workflows with conditions get the task
+   * that evaluates them committed first, so that reads never have to.
+   */
+  private WorkflowModel getModel() throws RepositoryException {
+    WorkflowModel current = this.model;
+    if (current != null) {
+      return current;
+    }
+
+    synchronized (this) {
+      if (this.model == null) {
+        WorkflowModel read = readModel();
+        List<String> workflowIds = read
+            .getWorkflowIdsWithoutGlobalConditionsTask();
+        if (workflowIds.size() > 0) {
+          for (String workflowId : workflowIds) {
+            commitGlobalWorkflowConditionsTask(read.getWorkflow(workflowId,
+                false, false));
+          }
+          read = readModel();
+        }
+        this.model = read;
+      }
+      return this.model;
+    }
+  }
+
+  private WorkflowModel readModel() throws RepositoryException {
+    Connection conn = null;
+
+    try {
+      if(dataSource!=null) {
+        conn = dataSource.getConnection();
+      }
+      else{
+        throw new RepositoryException("Null datasource");
+      }
+      return WorkflowModel.read(conn);
+    } catch (RepositoryException e) {
+      throw e;
+    } catch (Exception e) {
+      LOG.log(Level.SEVERE, e.getMessage());
+      LOG.log(Level.WARNING,
+          "Exception reading workflow model. Message: " + e.getMessage());
+      try {
+        if (conn != null) {
+          conn.rollback();
+        }
+      } catch (SQLException e2) {
+        LOG.log(Level.SEVERE,
+            "Unable to rollback readModel transaction. Message: "
+                + e2.getMessage());
       }
+      throw new RepositoryException(e.getMessage());
+    } finally {
+
+      if (conn != null) {
+        try {
+          conn.close();
+
+        } catch (SQLException ignore) {
+        }
 
-      workflow.getTasks().add(
-          0,
-          getGlobalWorkflowConditionsTask(workflow,
-              workflow.getConditions()));
+      }
     }
   }
 
-  private WorkflowTask getGlobalWorkflowConditionsTask(Workflow workflow,
-      List<WorkflowCondition> conditions) throws RepositoryException {
+  private void commitGlobalWorkflowConditionsTask(Workflow workflow)
+      throws RepositoryException {
     WorkflowTask task = new WorkflowTask();
-    task.setConditions(conditions);
-    task.setTaskConfig(new WorkflowTaskConfiguration());
-    task.setTaskId(workflow.getId() + "-global-conditions-eval");
-    task.setTaskName(workflow.getName() + "-global-conditions-eval");
+    task.setTaskName(workflow.getName()
+        + WorkflowModel.GLOBAL_CONDITIONS_TASK_SUFFIX);
     task.setTaskInstanceClassName(NoOpTask.class.getName());
-    task.setTaskId(this.commitTask(workflow, task));
-    return task;
+    this.commitTask(workflow, task);
   }
 
 
@@ -0,0 +1,429 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.oodt.cas.workflow.repository;
+
+import org.apache.oodt.cas.workflow.examples.NoOpTask;
+import org.apache.oodt.cas.workflow.structs.Workflow;
+import org.apache.oodt.cas.workflow.structs.WorkflowCondition;
+import org.apache.oodt.cas.workflow.structs.WorkflowTask;
+import org.apache.oodt.cas.workflow.structs.WorkflowTaskConfiguration;
+import org.apache.oodt.cas.workflow.util.DbStructFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Vector;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 
+ * An immutable, in-memory copy of the workflows, tasks, conditions and task
+ * configuration held in a {@link DataSourceWorkflowRepository}'s database,
+ * read with one query per table rather than one per workflow and task. Every
+ * lookup builds new {@link Workflow}, {@link WorkflowTask} and
+ * {@link WorkflowCondition} objects, so callers are free to change what they
+ * are given.
+ * 
+ * @version $Revision$
+ */
+final class WorkflowModel {
+
+  private static final Logger LOG = Logger.getLogger(WorkflowModel.class
+      .getName());
+
+  /* suffix of the name of the task evaluating a workflow's own conditions */
+  static final String GLOBAL_CONDITIONS_TASK_SUFFIX = "-global-conditions-eval";
+
+  /* workflow id to workflow name */
+  private final Map<String, String> workflowNames = new LinkedHashMap<String, String>();
+
+  /* workflow name to workflow id */
+  private final Map<String, String> workflowIds = new HashMap<String, String>();
+
+  /* task id to task, without its conditions or configuration */
+  private final Map<String, WorkflowTask> tasks = new HashMap<String, WorkflowTask>();
+
+  /* task name to the ids of the tasks with that name */
+  private final Map<String, List<String>> taskIdsByName = new HashMap<String, List<String>>();
+
+  /* workflow id to the ids of its tasks, in order */
+  private final Map<String, List<String>> workflowTaskIds = new HashMap<String, List<String>>();
+
+  /* workflow id to the id of the task evaluating its conditions */
+  private final Map<String, String> globalConditionsTaskIds = new HashMap<String, String>();
+
+  /* task id to its conditions, in order */
+  private final Map<String, List<WorkflowCondition>> taskConditions = new HashMap<String, List<WorkflowCondition>>();
+
+  /* workflow id to its conditions, in order */
+  private final Map<String, List<WorkflowCondition>> workflowConditions = new HashMap<String, List<WorkflowCondition>>();
+
+  /* task id to its configuration */
+  private final Map<String, Properties> taskConfigs = new HashMap<String, Properties>();
+
+  /* event name to the ids of the workflows it triggers */
+  private final Map<String, List<String>> eventWorkflowIds = new HashMap<String, List<String>>();
+
+  private WorkflowModel() {
+  }
+
+  /**
+   * Reads the whole workflow model from the database.
+   * 
+   * @param conn
+   *          The connection to read it over.
+   * @return The model.
+   * @throws SQLException
+   *           If any of the queries fail.
+   */
+  static WorkflowModel read(Connection conn) throws SQLException {
+    WorkflowModel model = new WorkflowModel();
+    Statement statement = conn.createStatement();
+    try {
+      model.readWorkflows(statement);
+      model.readTasks(statement);
+      model.readConditions(statement);
+      model.readTaskConfigs(statement);
+      model.readEvents(statement);
+    } finally {
+      try {
+        statement.close();
+      } catch (SQLException ignore) {
+      }
+    }
+    return model;
+  }
+
+  List<String> getWorkflowIds() {
+    return new Vector<String>(workflowNames.keySet());
+  }
+
+  String getWorkflowId(String workflowName) {
+    return workflowIds.get(workflowName);
+  }
+
+  List<String> getWorkflowIdsForEvent(String eventName) {
+    List<String> ids = eventWorkflowIds.get(eventName);
+    return ids != null ? ids : Collections.<String> emptyList();
+  }
+
+  /**
+   * @return The ids of the workflows with conditions but no task to evaluate
+   *         them yet.
+   */
+  List<String> getWorkflowIdsWithoutGlobalConditionsTask() {
+    List<String> ids = new Vector<String>();
+    for (String workflowId : workflowConditions.keySet()) {
+      if (workflowNames.containsKey(workflowId)
+          && !globalConditionsTaskIds.containsKey(workflowId)) {
+        ids.add(workflowId);
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Builds a workflow the way {@link DataSourceWorkflowRepository} always
+   * has: its tasks, if asked for, and its conditions, if asked for, evaluated
+   * by a task put in front of the others.
+   * 
+   * @return The workflow, or null if there isn't one with the given id.
+   */
+  Workflow getWorkflow(String workflowId, boolean getTasks,
+      boolean getConditions) {
+    String name = workflowNames.get(workflowId);
+    if (name == null) {
+      return null;
+    }
+
+    Workflow workflow = new Workflow();
+    workflow.setName(name);
+    workflow.setId(workflowId);
+
+    if (getTasks) {
+      workflow.setTasks(getTasksByWorkflowId(workflowId));
+    }
+
+    if (getConditions) {
+      workflow.setConditions(getConditionsByWorkflowId(workflowId));
+      if (workflow.getConditions() != null
+          && workflow.getConditions().size() > 0) {
+        if (workflow.getTasks() == null || (workflow.getTasks().size() == 0)) {
+          workflow.setTasks(new Vector<WorkflowTask>());
+        }
+        workflow.getTasks().add(0, getGlobalConditionsTask(workflow));
+      }
+    }
+
+    return workflow;
+  }
+
+  /**
+   * @return The tasks of the given workflow, or null if it has none.
+   */
+  List<WorkflowTask> getTasksByWorkflowId(String workflowId) {
+    return getTasks(workflowTaskIds.get(workflowId));
+  }
+
+  /**
+   * @return The task with the given id, or null if there isn't one.
+   */
+  WorkflowTask getTask(String taskId) {
+    WorkflowTask proto = tasks.get(taskId);
+    if (proto == null) {
+      return null;
+    }
+    WorkflowTask task = new WorkflowTask();
+    task.setTaskId(proto.getTaskId());
+    task.setTaskName(proto.getTaskName());
+    task.setTaskInstanceClassName(proto.getTaskInstanceClassName());
+    task.setConditions(getConditionsByTaskId(taskId));
+    task.setTaskConfig(getConfigurationByTaskId(taskId));
+    return task;
+  }
+
+  /**
+   * @return The conditions of the given task, or null if it has none.
+   */
+  List<WorkflowCondition> getConditionsByTaskId(String taskId) {
+    return copy(taskConditions.get(taskId));
+  }
+
+  /**
+   * @return The conditions of the tasks with the given name, or null if they
+   *         have none.
+   */
+  List<WorkflowCondition> getConditionsByTaskName(String taskName) {
+    List<String> ids = taskIdsByName.get(taskName);
+    if (ids == null) {
+      return null;
+    }
+    List<WorkflowCondition> conditions = new Vector<WorkflowCondition>();
+    for (String taskId : ids) {
+      List<WorkflowCondition> taskConds = getConditionsByTaskId(taskId);
+      if (taskConds != null) {
+        conditions.addAll(taskConds);
+      }
+    }
+    return conditions.size() > 0 ? conditions : null;
+  }
+
+  /**
+   * @return The conditions of the given workflow, or null if it has none.
+   */
+  List<WorkflowCondition> getConditionsByWorkflowId(String workflowId) {
+    return copy(workflowConditions.get(workflowId));
+  }
+
+  /**
+   * @return The configuration of the given task, or null if it has none.
+   */
+  WorkflowTaskConfiguration getConfigurationByTaskId(String taskId) {
+    Properties props = taskConfigs.get(taskId);
+    if (props == null) {
+      return null;
+    }
+    WorkflowTaskConfiguration config = new WorkflowTaskConfiguration();
+    config.getProperties().putAll(props);
+    return config;
+  }
+
+  private WorkflowTask getGlobalConditionsTask(Workflow workflow) {
+    WorkflowTask task = new WorkflowTask();
+    task.setConditions(workflow.getConditions());
+    task.setTaskConfig(new WorkflowTaskConfiguration());
+    task.setTaskId(globalConditionsTaskIds.get(workflow.getId()));
+    task.setTaskName(workflow.getName() + GLOBAL_CONDITIONS_TASK_SUFFIX);
+    task.setTaskInstanceClassName(NoOpTask.class.getName());
+    return task;
+  }
+
+  private List<WorkflowTask> getTasks(List<String> taskIds) {
+    if (taskIds == null || taskIds.size() == 0) {
+      return null;
+    }
+    List<WorkflowTask> taskList = new Vector<WorkflowTask>();
+    for (String taskId : taskIds) {
+      taskList.add(getTask(taskId));
+    }
+    return taskList;
+  }
+
+  private void readWorkflows(Statement statement) throws SQLException {
+    String sql = "SELECT * FROM workflows ORDER BY workflow_id";
+    LOG.log(Level.FINE, "readWorkflows: Executing: " + sql);
+    ResultSet rs = statement.executeQuery(sql);
+    try {
+      while (rs.next()) {
+        Workflow workflow = DbStructFactory.getWorkflow(rs);
+        workflowNames.put(workflow.getId(), workflow.getName());
+        workflowIds.put(workflow.getName(), workflow.getId());
+      }
+    } finally {
+      rs.close();
+    }
+  }
+
+  private void readTasks(Statement statement) throws SQLException {
+    // every task, joined with the workflows it belongs to (if any)
+    String sql = "SELECT workflow_tasks.*, workflow_task_map.workflow_id AS map_workflow_id "
+        + "FROM workflow_tasks LEFT OUTER JOIN workflow_task_map "
+        + "ON workflow_task_map.workflow_task_id = workflow_tasks.workflow_task_id "
+        + "ORDER BY workflow_task_map.workflow_id, workflow_task_map.task_order, "
+        + "workflow_tasks.workflow_task_id";
+    LOG.log(Level.FINE, "readTasks: Executing: " + sql);
+    ResultSet rs = statement.executeQuery(sql);
+    try {
+      while (rs.next()) {
+        WorkflowTask task = DbStructFactory.getWorkflowTask(rs, true);
+        if (task == null) {
+          continue;
+        }
+        if (!tasks.containsKey(task.getTaskId())) {
+          tasks.put(task.getTaskId(), task);
+          add(taskIdsByName, task.getTaskName(), task.getTaskId());
+        }
+
+        int workflowId = rs.getInt("map_workflow_id");
+        if (rs.wasNull()) {
+          continue;
+        }
+        String mapWorkflowId = String.valueOf(workflowId);
+        String workflowName = workflowNames.get(mapWorkflowId);
+        if (workflowName != null
+            && task.getTaskName() != null
+            && task.getTaskName().equals(
+                workflowName + GLOBAL_CONDITIONS_TASK_SUFFIX)) {
+          // evaluates the workflow's conditions rather than being one of its
+          // tasks
+          if (!globalConditionsTaskIds.containsKey(mapWorkflowId)) {
+            globalConditionsTaskIds.put(mapWorkflowId, task.getTaskId());
+          }
+        } else {
+          add(workflowTaskIds, mapWorkflowId, task.getTaskId());
+        }
+      }
+    } finally {
+      rs.close();
+    }
+  }
+
+  private void readConditions(Statement statement) throws SQLException {
+    String sql = "SELECT workflow_conditions.*, task_condition_map.workflow_task_id AS map_task_id "
+        + "FROM workflow_conditions, task_condition_map "
+        + "WHERE task_condition_map.workflow_condition_id = workflow_conditions.workflow_condition_id "
+        + "ORDER BY task_condition_map.workflow_task_id, task_condition_map.condition_order";
+    LOG.log(Level.FINE, "readConditions: Executing: " + sql);
+    ResultSet rs = statement.executeQuery(sql);
+    try {
+      while (rs.next()) {
+        add(taskConditions, String.valueOf(rs.getInt("map_task_id")),
+            DbStructFactory.getWorkflowCondition(rs, true));
+      }
+    } finally {
+      rs.close();
+    }
+
+    sql = "SELECT workflow_conditions.*, workflow_condition_map.workflow_id AS map_workflow_id "
+        + "FROM workflow_conditions, workflow_condition_map "
+        + "WHERE workflow_condition_map.workflow_condition_id = workflow_conditions.workflow_condition_id "
+        + "ORDER BY workflow_condition_map.workflow_id, workflow_condition_map.condition_order";
+    LOG.log(Level.FINE, "readConditions: Executing: " + sql);
+    rs = statement.executeQuery(sql);
+    try {
+      while (rs.next()) {
+        add(workflowConditions, String.valueOf(rs.getInt("map_workflow_id")),
+            DbStructFactory.getWorkflowCondition(rs, true));
+      }
+    } finally {
+      rs.close();
+    }
+  }
+
+  private void readTaskConfigs(Statement statement) throws SQLException {
+    String sql = "SELECT * FROM workflow_task_configuration";
+    LOG.log(Level.FINE, "readTaskConfigs: Executing: " + sql);
+    ResultSet rs = statement.executeQuery(sql);
+    try {
+      while (rs.next()) {
+        String taskId = String.valueOf(rs.getInt("workflow_task_id"));
+        Properties props = taskConfigs.get(taskId);
+        if (props == null) {
+          props = new Properties();
+          taskConfigs.put(taskId, props);
+        }
+        props.put(rs.getString("property_name"), rs.getString("property_value"));
+      }
+    } finally {
+      rs.close();
+    }
+  }
+
+  private void readEvents(Statement statement) throws SQLException {
+    String sql = "SELECT * FROM event_workflow_map";
+    LOG.log(Level.FINE, "readEvents: Executing: " + sql);
+    ResultSet rs = statement.executeQuery(sql);
+    try {
+      while (rs.next()) {
+        add(eventWorkflowIds, DbStructFactory.getEvent(rs),
+            String.valueOf(rs.getInt("workflow_id")));
+      }
+    } finally {
+      rs.close();
+    }
+  }
+
+  private static <T> void add(Map<String, List<T>> map, String key, T value) {
+    List<T> values = map.get(key);
+    if (values == null) {
+      values = new Vector<T>();
+      map.put(key, values);
+    }
+    values.add(value);
+  }
+
+  private static List<WorkflowCondition> copy(List<WorkflowCondition> conditions) {
+    if (conditions == null) {
+      return null;
+    }
+    List<WorkflowCondition> copies = new Vector<WorkflowCondition>();
+    for (WorkflowCondition proto : conditions) {
+      if (proto == null) {
+        copies.add(null);
+        continue;
+      }
+      WorkflowCondition condition = new WorkflowCondition();
+      condition.setConditionInstanceClassName(proto
+          .getConditionInstanceClassName());
+      condition.setConditionId(proto.getConditionId());
+      condition.setConditionName(proto.getConditionName());
+      condition.setTimeoutSeconds(proto.getTimeoutSeconds());
+      condition.setOptional(proto.isOptional());
+      copies.add(condition);
+    }
+    return copies;
+  }
+
+}
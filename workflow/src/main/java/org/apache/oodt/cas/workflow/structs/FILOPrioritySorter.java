@@ -38,7 +38,7 @@ import org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessor;
  * @version $Revision$
  * 
  */
-public class FILOPrioritySorter implements PrioritySorter {
+public class FILOPrioritySorter implements KeyedPrioritySorter {
 
   private static final Logger LOG = Logger.getLogger(FILOPrioritySorter.class
       .getName());
@@ -67,4 +67,15 @@ public class FILOPrioritySorter implements PrioritySorter {
 
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * org.apache.oodt.cas.workflow.structs.KeyedPrioritySorter#getPriorityKey(org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessor)
+   */
+  @Override
+  public double getPriorityKey(WorkflowProcessor processor) {
+    return processor.getWorkflowInstance().getStartDate().getTime();
+  }
+
 }
\ No newline at end of file
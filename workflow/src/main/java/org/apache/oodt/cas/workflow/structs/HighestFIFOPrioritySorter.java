@@ -41,7 +41,7 @@ import java.util.logging.Logger;
  * @version $Revision$
  * 
  */
-public class HighestFIFOPrioritySorter implements PrioritySorter {
+public class HighestFIFOPrioritySorter implements KeyedPrioritySorter {
 
   public static final double DOUBLE = 1000.0;
   private int secondsBetweenBoosts;
@@ -73,6 +73,18 @@ public class HighestFIFOPrioritySorter implements PrioritySorter {
     });
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * org.apache.oodt.cas.workflow.structs.KeyedPrioritySorter#getPriorityKey(org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessor)
+   */
+  @Override
+  public double getPriorityKey(WorkflowProcessor processor) {
+    // boosted as of now: the key grows stale as processors age
+    return -calculatePriority(processor);
+  }
+
   private Double calculatePriority(WorkflowProcessor processorStub) {
     double aliveTime;
 
@@ -35,7 +35,7 @@ import org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessor;
  * @version $Revision$
  * 
  */
-public class HighestPrioritySorter implements PrioritySorter {
+public class HighestPrioritySorter implements KeyedPrioritySorter {
 
   /*
    * (non-Javadoc)
@@ -55,4 +55,15 @@ public class HighestPrioritySorter implements PrioritySorter {
     });
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * org.apache.oodt.cas.workflow.structs.KeyedPrioritySorter#getPriorityKey(org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessor)
+   */
+  @Override
+  public double getPriorityKey(WorkflowProcessor processor) {
+    return -processor.getWorkflowInstance().getPriority().getValue();
+  }
+
 }
@@ -0,0 +1,42 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.workflow.structs;
+
+//OODT imports
+import org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessor;
+
+/**
+ * 
+ * A {@link PrioritySorter} whose order is that of a key computed for each
+ * {@link WorkflowProcessor} on its own, so that a queue of processors can
+ * compute the key once per processor rather than sort on every comparison.
+ * 
+ * @version $Revision$
+ * 
+ */
+public interface KeyedPrioritySorter extends PrioritySorter {
+
+  /**
+   * @param processor
+   *          The {@link WorkflowProcessor} to compute the key of.
+   * @return The key of the given processor: processors with lower keys sort
+   *         first, in the order {@link #sort(java.util.List)} puts them.
+   */
+  double getPriorityKey(WorkflowProcessor processor);
+
+}
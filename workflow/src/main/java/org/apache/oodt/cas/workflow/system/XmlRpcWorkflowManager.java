@@ -34,6 +34,7 @@ import org.apache.oodt.config.Component;
 import org.apache.oodt.config.ConfigurationManager;
 import org.apache.oodt.config.ConfigurationManagerFactory;
 import org.apache.xmlrpc.WebServer;
+import org.apache.xmlrpc.XmlRpc;
 
 import com.google.common.base.Preconditions;
 
@@ -107,7 +108,10 @@ public class XmlRpcWorkflowManager implements WorkflowManager {
                                                       + getHostname() + ":" + port));
     repo = getWorkflowRepositoryFromProperty();
 
-    // start up the web server
+    // start up the web server, letting clients reuse their connection for
+    // the next call
+    XmlRpc.setKeepAlive(Boolean.parseBoolean(System.getProperty(
+        "org.apache.oodt.cas.workflow.system.xmlrpc.keepAlive", "true")));
     webServer = new WebServer(port);
     webServer.addHandler(XML_RPC_HANDLER_NAME, this);
     webServer.start();
@@ -28,6 +28,7 @@ import org.apache.oodt.cas.workflow.structs.WorkflowInstancePage;
 import org.apache.oodt.cas.workflow.structs.WorkflowTask;
 import org.apache.oodt.cas.workflow.structs.exceptions.RepositoryException;
 import org.apache.oodt.cas.workflow.util.XmlRpcStructFactory;
+import org.apache.oodt.commons.xmlrpc.PooledXmlRpcTransportFactory;
 import org.apache.xmlrpc.XmlRpcClient;
 import org.apache.xmlrpc.XmlRpcException;
 
@@ -54,6 +55,9 @@ public class XmlRpcWorkflowManagerClient implements WorkflowManagerClient {
     /* our xml rpc client */
     private XmlRpcClient client = null;
 
+    /* the pooled http connections our client's calls share */
+    private transient PooledXmlRpcTransportFactory transportFactory = null;
+
     /* our log stream */
     private static Logger LOG = Logger
             .getLogger(XmlRpcWorkflowManagerClient.class.getName());
@@ -71,8 +75,7 @@ public class XmlRpcWorkflowManagerClient implements WorkflowManagerClient {
      *            The url pointer to the xml rpc workflow manager service.
      */
     public XmlRpcWorkflowManagerClient(URL url) {
-        client = new XmlRpcClient(url);
-        workflowManagerUrl = url;
+        setWorkflowManagerUrl(url);
     }
 
     @Override
@@ -528,7 +531,12 @@ public class XmlRpcWorkflowManagerClient implements WorkflowManagerClient {
         this.workflowManagerUrl = workflowManagerUrl;
 
         // reset the client
-        client = new XmlRpcClient(workflowManagerUrl);
+        if (transportFactory != null) {
+            transportFactory.close();
+        }
+        transportFactory = new PooledXmlRpcTransportFactory(
+                workflowManagerUrl, "org.apache.oodt.cas.workflow.system.xmlrpc");
+        client = new XmlRpcClient(workflowManagerUrl, transportFactory);
     }
 
     @Override
@@ -543,6 +551,8 @@ public class XmlRpcWorkflowManagerClient implements WorkflowManagerClient {
 
     @Override
     public void close() throws IOException {
-
+        if (transportFactory != null) {
+            transportFactory.close();
+        }
     }
 }
@@ -21,6 +21,7 @@ import org.apache.oodt.cas.workflow.instrepo.LuceneWorkflowInstanceRepository;
 import org.apache.oodt.cas.workflow.structs.WorkflowInstance;
 import org.apache.oodt.cas.workflow.structs.WorkflowInstancePage;
 import org.apache.oodt.cas.workflow.structs.WorkflowStatus;
+import org.apache.oodt.cas.workflow.structs.exceptions.InstanceRepositoryException;
 import org.apache.oodt.cas.workflow.system.WorkflowManagerClient;
 import org.apache.oodt.cas.workflow.system.rpc.RpcCommunicationFactory;
 import org.apache.oodt.commons.date.DateUtils;
@@ -149,5 +150,12 @@ public class InstanceRepoCleaner implements Closeable {
     if (wm != null) {
       wm.close();
     }
+    if (rep != null) {
+      try {
+        rep.commit();
+      } catch (InstanceRepositoryException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
   }
 }
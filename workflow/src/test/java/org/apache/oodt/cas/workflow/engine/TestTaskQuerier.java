@@ -23,6 +23,8 @@ import java.util.List;
 import org.apache.oodt.cas.workflow.engine.processor.TaskProcessor;
 import org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessor;
 import org.apache.oodt.cas.workflow.structs.FILOPrioritySorter;
+import org.apache.oodt.cas.workflow.structs.HighestPrioritySorter;
+import org.apache.oodt.cas.workflow.structs.Priority;
 
 //Junit imports
 import junit.framework.TestCase;
@@ -101,4 +103,23 @@ public class TestTaskQuerier extends TestCase {
 
   }
 
+  public void testPriorityChangeReordersReadyQueue() throws Exception {
+    QuerierAndRunnerUtils utils = new QuerierAndRunnerUtils();
+    TaskProcessor low = (TaskProcessor) utils.getProcessor(2.0, "Loaded", "initial");
+    TaskProcessor high = (TaskProcessor) utils.getProcessor(7.0, "Loaded", "initial");
+    TaskQuerier querier = new TaskQuerier(new MockProcessorQueue(),
+        new HighestPrioritySorter(), null, WAIT_SECS);
+    querier.offer(low);
+    querier.offer(high);
+    assertSame(high, querier.getRunnableProcessors().get(0));
+
+    // offered again while queued, once its priority changed
+    low.getWorkflowInstance().setPriority(Priority.getPriority(9.0));
+    querier.offer(low);
+    assertEquals(2, querier.getRunnableProcessors().size());
+    assertSame(low, querier.getNext());
+    assertSame(high, querier.getNext());
+    assertNull(querier.getNext());
+  }
+
 }
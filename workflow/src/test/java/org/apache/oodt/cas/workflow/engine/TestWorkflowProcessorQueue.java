@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.workflow.engine;
+
+//JDK imports
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//OODT imports
+import org.apache.oodt.cas.workflow.engine.processor.TaskProcessor;
+import org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessor;
+import org.apache.oodt.cas.workflow.engine.processor.WorkflowProcessorQueue;
+import org.apache.oodt.cas.workflow.instrepo.MemoryWorkflowInstanceRepository;
+import org.apache.oodt.cas.workflow.lifecycle.WorkflowLifecycleManager;
+import org.apache.oodt.cas.workflow.structs.Graph;
+import org.apache.oodt.cas.workflow.structs.HighestPrioritySorter;
+import org.apache.oodt.cas.workflow.structs.ParentChildWorkflow;
+import org.apache.oodt.cas.workflow.structs.Priority;
+import org.apache.oodt.cas.workflow.structs.WorkflowInstance;
+import org.apache.oodt.cas.workflow.structs.WorkflowInstancePage;
+import org.apache.oodt.cas.workflow.structs.WorkflowTask;
+import org.apache.oodt.cas.workflow.structs.exceptions.InstanceRepositoryException;
+
+//Junit imports
+import junit.framework.TestCase;
+
+/**
+ *
+ * Test harness for the push-based {@link WorkflowProcessorQueue}.
+ *
+ */
+public class TestWorkflowProcessorQueue extends TestCase {
+
+  private static final long TIMEOUT_MILLIS = 10000;
+
+  private WorkflowLifecycleManager lifecycle;
+
+  private CountingInstanceRepository repo;
+
+  private WorkflowProcessorQueue queue;
+
+  private int created = 0;
+
+  public void setUp() throws Exception {
+    lifecycle = new WorkflowLifecycleManager(
+        "./src/main/resources/examples/wengine/wengine-lifecycle.xml");
+    repo = new CountingInstanceRepository(2);
+    queue = new WorkflowProcessorQueue(repo, lifecycle, null);
+  }
+
+  public void testLoadsEveryPageOnceThenStaysInMemory() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      repo.addWorkflowInstance(newInstance(1.0, "Null", "initial"));
+    }
+    repo.addWorkflowInstance(newInstance(1.0, "Success", "done"));
+
+    List<WorkflowProcessor> processors = queue.getProcessors();
+    assertEquals(5, processors.size());
+    assertEquals(3, repo.pageReads);
+
+    assertEquals(5, queue.getProcessors().size());
+    assertEquals(3, repo.pageReads);
+
+    // finished processors drop out of the queue
+    processors.get(0).getWorkflowInstance().setState(
+        lifecycle.getDefaultLifecycle().createState("Success", "done", ""));
+    assertEquals(4, queue.getProcessors().size());
+
+    // until a reload, which goes back to the repository
+    queue.reload();
+    assertEquals(4, queue.getProcessors().size());
+    assertEquals(6, repo.pageReads);
+  }
+
+  public void testPushedInstancesAndChangesWakeWaiters() throws Exception {
+    assertTrue(queue.getProcessors().isEmpty());
+    assertFalse(queue.awaitChange(10));
+
+    WorkflowInstance inst = newInstance(1.0, "Null", "initial");
+    repo.addWorkflowInstance(inst);
+    queue.addWorkflowInstance(inst);
+    assertTrue(queue.awaitChange(TIMEOUT_MILLIS));
+    List<WorkflowProcessor> changed = queue.takeChangedProcessors();
+    assertEquals(1, changed.size());
+    assertEquals(inst.getId(), changed.get(0).getWorkflowInstance().getId());
+    assertTrue(queue.takeChangedProcessors().isEmpty());
+
+    WorkflowProcessor processor = changed.get(0);
+    processor.notifyChange(processor, ChangeType.STATE);
+    assertTrue(queue.awaitChange(TIMEOUT_MILLIS));
+    assertSame(processor, queue.takeChangedProcessors().get(0));
+    assertEquals(1, repo.pageReads);
+  }
+
+  public void testQuerierQueuesPushedInstancesByPriority() throws Exception {
+    queue.getProcessors();
+    // a wait long enough that only pushes can get work queued in time
+    TaskQuerier querier = new TaskQuerier(queue, new HighestPrioritySorter(),
+        repo, 600);
+    Thread querierThread = new Thread(querier);
+    querierThread.start();
+    try {
+      double[] priorities = { 2.0, 9.0, 5.0 };
+      for (double priority : priorities) {
+        WorkflowInstance inst = newInstance(priority, "Null", "initial");
+        repo.addWorkflowInstance(inst);
+        queue.addWorkflowInstance(inst);
+      }
+
+      long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+      while (querier.getRunnableProcessors().size() < priorities.length
+          && System.currentTimeMillis() < deadline) {
+        querier.awaitRunnable(100);
+      }
+      assertEquals(9.0, querier.getNext().getWorkflowInstance().getPriority()
+          .getValue());
+      TaskProcessor next = querier.getNext();
+      assertEquals(5.0, next.getWorkflowInstance().getPriority().getValue());
+      assertEquals("WaitingOnResources", next.getWorkflowInstance().getState()
+          .getName());
+      assertEquals(2.0, querier.getNext().getWorkflowInstance().getPriority()
+          .getValue());
+      assertNull(querier.getNext());
+      assertEquals(1, repo.pageReads);
+    } finally {
+      querier.setRunning(false);
+      querierThread.join(TIMEOUT_MILLIS);
+    }
+  }
+
+  private WorkflowInstance newInstance(double priority, String state,
+      String category) {
+    WorkflowTask task = new QuerierAndRunnerUtils().getTask(new File(
+        System.getProperty("java.io.tmpdir")));
+    Graph graph = new Graph();
+    graph.setExecutionType("task");
+    graph.setTask(task);
+    ParentChildWorkflow workflow = new ParentChildWorkflow(graph);
+    workflow.setId("task-workflow-" + created);
+    workflow.getTasks().add(task);
+
+    WorkflowInstance inst = new WorkflowInstance();
+    inst.setParentChildWorkflow(workflow);
+    inst.setCurrentTaskId(task.getTaskId());
+    inst.setPriority(Priority.getPriority(priority));
+    inst.setStartDate(new Date(System.currentTimeMillis() + created));
+    inst.setState(lifecycle.getDefaultLifecycle().createState(state,
+        category, ""));
+    created++;
+    return inst;
+  }
+
+  /*
+   * A memory repository with unique ids, working paging, and a count of the
+   * pages read from it.
+   */
+  private static class CountingInstanceRepository extends
+      MemoryWorkflowInstanceRepository {
+
+    private final Map<String, WorkflowInstance> instances = new LinkedHashMap<String, WorkflowInstance>();
+
+    private int pageReads = 0;
+
+    CountingInstanceRepository(int pageSize) {
+      super(pageSize);
+    }
+
+    @Override
+    public synchronized void addWorkflowInstance(WorkflowInstance wInst)
+        throws InstanceRepositoryException {
+      wInst.setId("inst-" + instances.size());
+      instances.put(wInst.getId(), wInst);
+    }
+
+    @Override
+    public synchronized void updateWorkflowInstance(WorkflowInstance wInst)
+        throws InstanceRepositoryException {
+      instances.put(wInst.getId(), wInst);
+    }
+
+    @Override
+    public synchronized WorkflowInstance getWorkflowInstanceById(
+        String workflowInstId) throws InstanceRepositoryException {
+      return instances.get(workflowInstId);
+    }
+
+    @Override
+    public synchronized int getNumWorkflowInstances()
+        throws InstanceRepositoryException {
+      return instances.size();
+    }
+
+    @Override
+    public synchronized WorkflowInstancePage getPagedWorkflows(int pageNum)
+        throws InstanceRepositoryException {
+      pageReads++;
+      return super.getPagedWorkflows(pageNum);
+    }
+
+    @Override
+    protected synchronized List paginateWorkflows(int pageNum, String status) {
+      List<String> ids = new ArrayList<String>(instances.keySet());
+      int start = Math.min((pageNum - 1) * pageSize, ids.size());
+      return new ArrayList<String>(ids.subList(start,
+          Math.min(start + pageSize, ids.size())));
+    }
+  }
+}
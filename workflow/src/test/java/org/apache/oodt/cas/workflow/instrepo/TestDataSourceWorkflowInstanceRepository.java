@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oodt.cas.workflow.instrepo;
+
+//OODT imports
+import org.apache.oodt.cas.workflow.structs.WorkflowInstance;
+import org.apache.oodt.cas.workflow.structs.WorkflowInstancePage;
+import org.apache.oodt.commons.database.DatabaseConnectionBuilder;
+import org.apache.oodt.commons.database.SqlScript;
+
+//JDK imports
+import java.io.File;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+//Junit imports
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * <p>
+ * Test Case for the {@link DataSourceWorkflowInstanceRepository}.
+ * </p>.
+ */
+public class TestDataSourceWorkflowInstanceRepository {
+
+    private DataSource ds;
+
+    private DataSourceWorkflowInstanceRepository repo;
+
+    @Before
+    public void setUp() throws Exception {
+        File tempDir = File.createTempFile("foo", "bar").getParentFile();
+        ds = DatabaseConnectionBuilder.buildDataSource("sa", "",
+                "org.hsqldb.jdbcDriver", "jdbc:hsqldb:file:"
+                        + tempDir.getAbsolutePath()
+                        + "/testInstCat;shutdown=true");
+        SqlScript coreSchemaScript = new SqlScript(
+                "src/test/resources/workflow.sql", ds);
+        coreSchemaScript.loadScript();
+        coreSchemaScript.execute();
+
+        Connection conn = ds.getConnection();
+        Statement statement = conn.createStatement();
+        try {
+            for (int i = 1; i <= 5; i++) {
+                statement.execute("INSERT INTO workflow_instances "
+                        + "(workflow_instance_id, workflow_instance_status, "
+                        + "workflow_id, current_task_id, priority) VALUES ("
+                        + i + ", 'STARTED', 1, 1, 2.0)");
+                statement.execute("INSERT INTO workflow_instance_metadata "
+                        + "VALUES (" + i + ", 'InstNum', '" + i + "')");
+                statement.execute("INSERT INTO workflow_instance_metadata "
+                        + "VALUES (" + i + ", 'Greeting', 'hello%20there')");
+            }
+            conn.commit();
+        } finally {
+            statement.close();
+            conn.close();
+        }
+
+        repo = new DataSourceWorkflowInstanceRepository(ds, false, 20);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ds.getConnection().close();
+    }
+
+    @Test
+    public void testGetWorkflowInstancesById() throws Exception {
+        List<WorkflowInstance> insts = repo.getWorkflowInstancesById(Arrays
+                .asList("3", "1", "99", "5"));
+        assertEquals(3, insts.size());
+        assertEquals("3", insts.get(0).getId());
+        assertEquals("1", insts.get(1).getId());
+        assertEquals("5", insts.get(2).getId());
+        for (WorkflowInstance inst : insts) {
+            assertEquals("STARTED", inst.getStatus());
+            assertEquals(inst.getId(), inst.getSharedContext().getMetadata(
+                    "InstNum"));
+            assertEquals("hello there", inst.getSharedContext().getMetadata(
+                    "Greeting"));
+        }
+    }
+
+    @Test
+    public void testPagedWorkflowsCarryMetadata() throws Exception {
+        WorkflowInstancePage page = repo.getPagedWorkflows(1);
+        List<?> insts = page.getPageWorkflows();
+        assertEquals(5, insts.size());
+        for (int i = 0; i < insts.size(); i++) {
+            WorkflowInstance inst = (WorkflowInstance) insts.get(i);
+            // newest first
+            assertEquals(String.valueOf(5 - i), inst.getId());
+            assertEquals(inst.getId(), inst.getSharedContext().getMetadata(
+                    "InstNum"));
+        }
+    }
+}
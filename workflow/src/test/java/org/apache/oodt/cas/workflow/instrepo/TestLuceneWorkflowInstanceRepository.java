@@ -36,6 +36,8 @@ import java.util.Vector;
 
 //Apache Imports
 import org.apache.commons.io.FileUtils;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.FSDirectory;
 
 //Junit imports
 import junit.framework.TestCase;
@@ -196,6 +198,49 @@ public class TestLuceneWorkflowInstanceRepository extends TestCase implements
       }      
     }
 
+    public void testSharedIndex() throws Exception {
+        LuceneWorkflowInstanceRepository other = new LuceneWorkflowInstanceRepository(
+                tmpDirPath, 20);
+        repo.addWorkflowInstance(testInst);
+
+        // both repositories write to and search the one index
+        assertEquals(1, other.getNumWorkflowInstances());
+        testInst.setStatus(FINISHED);
+        other.updateWorkflowInstance(testInst);
+        assertEquals(1, repo.getNumWorkflowInstances());
+        assertEquals(FINISHED, repo.getWorkflowInstanceById(testInst.getId())
+                .getStatus());
+
+        // once committed the change is on disk for other processes
+        repo.commit();
+        DirectoryReader reader = DirectoryReader.open(FSDirectory.open(new File(
+                tmpDirPath).toPath()));
+        try {
+            assertEquals(1, reader.numDocs());
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testGetWorkflowInstancesById() throws Exception {
+        List<String> ids = new Vector<String>();
+        for (int i = 0; i < 3; i++) {
+            testInst.setId(null);
+            repo.addWorkflowInstance(testInst);
+            ids.add(testInst.getId());
+        }
+        ids.add(0, "not-an-instance");
+
+        List<WorkflowInstance> insts = repo.getWorkflowInstancesById(ids);
+        assertEquals(3, insts.size());
+        for (int i = 0; i < insts.size(); i++) {
+            assertEquals(ids.get(i + 1), insts.get(i).getId());
+            assertEquals(2, insts.get(i).getSharedContext().getAllMetadata(
+                    "TestKey1").size());
+        }
+        assertEquals(3, repo.getPagedWorkflows(1).getPageWorkflows().size());
+    }
+
     public void testUpdateDocumentAndPreserveId() {
         try {
             repo.addWorkflowInstance(testInst);
@@ -448,6 +448,47 @@ public class TestWorkflowDataSourceRepository {
 
   }
 
+  @Test
+  public void testModelRefreshedOnAddWorkflow() throws RepositoryException {
+    DataSourceWorkflowRepository repo = new DataSourceWorkflowRepository(ds);
+    List<Workflow> flows = repo.getWorkflows();
+    assertThat(flows, hasSize(1));
+
+    Workflow w = new Workflow();
+    w.setId("50");
+    w.setName("Manual");
+    WorkflowTask t = new WorkflowTask();
+    t.setTaskId("1");
+    w.setTasks(Collections.singletonList(t));
+    String id = repo.addWorkflow(w);
+
+    flows = repo.getWorkflows();
+    assertThat(flows, hasSize(2));
+    assertThat(repo.getWorkflowById(id).getName(), equalTo("Manual"));
+    assertThat(repo.getWorkflowsForEvent("workflow-" + id), hasSize(1));
+  }
+
+  @Test
+  public void testGlobalConditionsTaskIsStable() throws RepositoryException {
+    DataSourceWorkflowRepository repo = new DataSourceWorkflowRepository(ds);
+    Workflow first = repo.getWorkflowById("1");
+    Workflow second = repo.getWorkflowById("1");
+
+    // the task evaluating the workflow conditions comes first, and is only
+    // committed once
+    assertThat(first.getTasks(), hasSize(3));
+    assertThat(first.getTasks().get(0).getTaskName(),
+        equalTo("Test Workflow-global-conditions-eval"));
+    assertThat(second.getTasks().get(0).getTaskId(),
+        equalTo(first.getTasks().get(0).getTaskId()));
+    assertThat(new DataSourceWorkflowRepository(ds).getWorkflowById("1")
+        .getTasks(), hasSize(3));
+
+    // callers get their own copies
+    first.getTasks().clear();
+    assertThat(repo.getWorkflowById("1").getTasks(), hasSize(3));
+  }
+
   @Test
   public void testGetTaskById() throws RepositoryException {
     DataSourceWorkflowRepository repo = new DataSourceWorkflowRepository(ds);